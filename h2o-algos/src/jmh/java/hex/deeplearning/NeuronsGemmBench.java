@@ -0,0 +1,81 @@
+package hex.deeplearning;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Forward propagation of one hidden layer over a mini-batch: one matrix-vector
+ * product per point ({@link Neurons#gemv}, as for mini_batch_size=1) against
+ * the blocked matrix-matrix product ({@link Neurons#gemm_blocked}).
+ */
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+@Threads(1)
+@State(Scope.Thread)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class NeuronsGemmBench {
+
+  @Param({"200", "1024"})
+  private int units;        // Neurons of the layer
+
+  @Param({"200", "1024"})
+  private int inputs;       // Neurons of the previous layer
+
+  @Param({"4", "16", "64"})
+  private int batch;        // mini_batch_size
+
+  @Param({"false", "true"})
+  private boolean dropout;
+
+  private float[] _w;
+  private double[] _b;
+  private double[][] _x;
+  private double[][] _a;
+  private byte[] _bits;
+
+  @Setup
+  public void setup() {
+    Random rng = new Random(0xBE7C);
+    _w = new float[units * inputs];
+    for (int i = 0; i < _w.length; i++) _w[i] = (float) rng.nextGaussian();
+    _b = new double[units];
+    for (int i = 0; i < units; i++) _b[i] = rng.nextGaussian();
+    _x = new double[batch][inputs];
+    for (double[] x : _x)
+      for (int i = 0; i < inputs; i++) x[i] = rng.nextGaussian();
+    _a = new double[batch][units];
+    if (dropout) {
+      _bits = new byte[(units + 7) / 8];
+      rng.nextBytes(_bits);
+    }
+  }
+
+  @Benchmark
+  public double[][] gemvPerPoint() {
+    for (int mb = 0; mb < batch; mb++)
+      Neurons.gemv_row_optimized(_a[mb], _w, _x[mb], _b, _bits);
+    return _a;
+  }
+
+  @Benchmark
+  public double[][] gemmBlocked() {
+    Neurons.gemm_blocked(_a, _w, _x, _b, _bits, batch);
+    return _a;
+  }
+
+  public static void main(String[] args) throws RunnerException {
+    Options opt = new OptionsBuilder()
+        .include(NeuronsGemmBench.class.getSimpleName())
+        .build();
+
+    new Runner(opt).run();
+  }
+}
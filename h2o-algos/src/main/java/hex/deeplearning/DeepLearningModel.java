@@ -1696,6 +1696,7 @@ public class DeepLearningModel extends Model<DeepLearningModel,DeepLearningModel
 
     // stochastic gradient descent: mini-batch size = 1
     // batch gradient descent: mini-batch size = # training rows
+    // (sizes > 1 used to be clamped to 1: models trained with them change)
     public int _mini_batch_size = 1;
 
     public enum MissingValuesHandling {
@@ -1911,6 +1912,8 @@ public class DeepLearningModel extends Model<DeepLearningModel,DeepLearningModel
       }
       if (!_autoencoder && _sparsity_beta != 0)
         dl.error("_sparsity_beta", "Sparsity beta can only be used for autoencoder.");
+      if (_autoencoder && _sparsity_beta > 0 && _mini_batch_size > 1)
+        dl.error("_mini_batch_size", "Sparsity beta is not supported for mini-batch size > 1.");
       if (classification && dl.hasOffsetCol())
         dl.error("_offset_column", "Offset is only supported for regression.");
 
@@ -2170,10 +2173,6 @@ public class DeepLearningModel extends Model<DeepLearningModel,DeepLearningModel
             Log.info("_categorical_encoding: Automatically enabling OneHotInternal categorical encoding.");
           toParms._categorical_encoding = CategoricalEncodingScheme.OneHotInternal;
          }
-        if (fromParms._mini_batch_size > 1) {
-          Log.warn("_mini_batch_size", "Only mini-batch size = 1 is supported right now.");
-          toParms._mini_batch_size = 1;
-        }
         if (fromParms._adaptive_rate) {
           if (!fromParms._quiet_mode)
             Log.info("_adaptive_rate: Using automatic learning rate. Ignoring the following input parameters: "
@@ -238,26 +238,43 @@ public abstract class Neurons {
     final int cols = _previous._a[0].size();
     assert(partial_grad.length == n);
 
+    // The mini-batch gradient is the sum of the points' gradients (the output layer already divides
+    // them by n): each weight and bias is updated once, and the errors propagated to the previous
+    // layer go through the weights from before the update.  For Maxout, each point has its channel.
+    final boolean[] skip = new boolean[n];
+    boolean any = false;
+    for( int mb = 0; mb < n; mb++ )
+      any |= !(skip[mb] = _shortcut && partial_grad[mb] == 0f);
+    if (!any) return;
+    final int channels = _k != 0 ? _k : 1;
+    final double[] sum = new double[channels];
+    final boolean[] used = new boolean[channels];
+
     double avg_grad2 = 0;
 
     final int idx = row * cols;
 
-    for( int mb = 0; mb < n; mb++ ) {
-      if (_shortcut && partial_grad[mb] == 0f) return;
-      final boolean update_prev = _previous._e != null && _previous._e[mb] != null;
-      for( int col = 0; col < cols; col++ ) {
-        int w = idx + col;
-
-        // for Maxout, return the "winning" linear index into the matrix
-        if (_k != 0) w = _k * w + _maxIncoming[mb][row];
-
-        final double weight = _w.raw()[w];
-        if( update_prev ) _previous._e[mb].add(col, partial_grad[mb] * weight); // propagate the error dE/dnet to the previous layer, via connecting weights
+    for( int col = 0; col < cols; col++ ) {
+      final int w0 = _k != 0 ? _k * (idx + col) : idx + col;
+      Arrays.fill(sum, 0);
+      Arrays.fill(used, false);
+      for( int mb = 0; mb < n; mb++ ) {
+        if (skip[mb]) continue;
+        final int k = _k != 0 ? _maxIncoming[mb][row] : 0;
+        if (_previous._e != null && _previous._e[mb] != null)
+          _previous._e[mb].add(col, partial_grad[mb] * _w.raw()[w0 + k]); // propagate the error dE/dnet to the previous layer, via connecting weights
         final double previous_a = _previous._a[mb].get(col);
         if (fast_mode && previous_a == 0) continue;
+        sum[k] += partial_grad[mb] * previous_a;
+        used[k] = true;
+      }
+      for( int k = 0; k < channels; k++ ) {
+        if (!used[k]) continue;
+        final int w = w0 + k;
+        final double weight = _w.raw()[w];
 
         //this is the actual gradient dE/dw
-        double grad = partial_grad[mb] * previous_a + Math.signum(weight) * l1 + weight * l2;
+        double grad = sum[k] + Math.signum(weight) * l1 + weight * l2;
         if (_wEA !=null) {
           grad += params._elastic_averaging_regularization * (_w.raw()[w] -_wEA.raw()[w]);
 //        Log.info("weight: my: " + _w.raw()[w] + ", consensus: " + _wEA.raw()[w] + ", delta: " + (_w.raw()[w] -_wEA.raw()[w]) + ", relative delta: " + (_w.raw()[w] -_wEA.raw()[w])/_w.raw()[w]);
@@ -292,13 +309,22 @@ public abstract class Neurons {
         }
       }
     }
-    if (max_w2 != Float.POSITIVE_INFINITY)
-      for( int mb = 0; mb < n; mb++ )
-        rescale_weights(_w, row, max_w2, mb);
-    if (have_ada) avg_grad2 /= cols * n;
+    // Same for the biases, one per channel used by the mini-batch
+    Arrays.fill(sum, 0);
+    Arrays.fill(used, false);
+    int nused = 0;
     for( int mb = 0; mb < n; mb++ ) {
-      update_bias(_b, _bEA, _bm, row, partial_grad, avg_grad2, rate, momentum, mb);
+      if (skip[mb]) continue;
+      final int k = _k != 0 ? _maxIncoming[mb][row] : 0;
+      if (max_w2 != Float.POSITIVE_INFINITY && !used[k])
+        rescale_weights(_w, row, max_w2, mb);
+      if (!used[k]) nused++;
+      sum[k] += partial_grad[mb];
+      used[k] = true;
     }
+    if (have_ada) avg_grad2 /= cols * nused;
+    for( int k = 0; k < channels; k++ )
+      if (used[k]) update_bias(_b, _bEA, _bm, row, _k != 0 ? _k*row+k : row, sum[k], avg_grad2, rate, momentum);
   }
 
   private void rescale_weights(final Storage.DenseRowMatrix w, final int row, final float max_w2, int mb) {
@@ -309,7 +335,6 @@ public abstract class Neurons {
       start = _k * (row*cols           ) + _maxIncoming[mb][row];
       end =   _k * (row*cols + (cols-1)) + _maxIncoming[mb][row];
     } else {
-      if (mb>0) return; //already done rescaling for mb=0
       start = row * cols;
       end =   row * cols + cols;
     }
@@ -394,27 +419,26 @@ public abstract class Neurons {
    * @param _bEA elastic average bias vector
    * @param _bm bias momentum vector
    * @param row index of the neuron for which we back-propagate
-   * @param partial_grad partial derivative dE/dnet = dE/dy * dy/net
+   * @param b index of the bias (the neuron's, or for Maxout its channel's)
+   * @param partial_grad partial derivative dE/dnet = dE/dy * dy/net, summed over the mini-batch
    * @param avg_grad2 average squared gradient for this neuron's incoming weights (only for ADADELTA)
    * @param rate learning rate
    * @param momentum momentum factor (needed only if ADADELTA isn't used)
-   * @param mb which mini-batch index
    */
   private void update_bias(final Storage.DenseVector _b, final Storage.DenseVector _bEA, final Storage.DenseVector _bm, final int row,
-                   double[/*actual mini-batch size*/] partial_grad, final double avg_grad2, double rate, final double momentum, int mb) {
+                   final int b, double partial_grad, final double avg_grad2, double rate, final double momentum) {
     final boolean have_momenta = _minfo.has_momenta();
     final boolean have_ada = _minfo.adaDelta();
     final float l1 = (float)params._l1;
     final float l2 = (float)params._l2;
-    final int b = _k != 0 ? _k*row+_maxIncoming[mb][row] : row;
     final double bias = _b.get(b);
 
-    partial_grad[mb] += Math.signum(bias) * l1 + bias * l2;
-    if (_bEA != null) partial_grad[mb] += (bias - _bEA.get(b)) * params._elastic_averaging_regularization;
+    partial_grad += Math.signum(bias) * l1 + bias * l2;
+    if (_bEA != null) partial_grad += (bias - _bEA.get(b)) * params._elastic_averaging_regularization;
 
     // store the gradient
     if (DeepLearningModelInfo.gradientCheck != null)
-      DeepLearningModelInfo.gradientCheck.apply(_index, row, -1, partial_grad[mb]);
+      DeepLearningModelInfo.gradientCheck.apply(_index, row, -1, partial_grad);
 
     if (have_ada) {
       final float rho = (float)params._rho;
@@ -422,14 +446,14 @@ public abstract class Neurons {
       rate = computeAdaDeltaRateForBias(avg_grad2, b, _bias_ada_dx_g, rho, eps);
     }
     if (!params._nesterov_accelerated_gradient) {
-      final double delta = -rate * partial_grad[mb];
+      final double delta = -rate * partial_grad;
       _b.add(b, delta);
       if (have_momenta) {
         _b.add(b, momentum * _bm.get(b));
         _bm.set(b, delta);
       }
     } else {
-      double d = -partial_grad[mb];
+      double d = -partial_grad;
       if (have_momenta) {
         _bm.set(b, _bm.get(b) * momentum);
         _bm.add(b, d);
@@ -624,9 +648,7 @@ public abstract class Neurons {
   public static class Tanh extends Neurons {
     public Tanh(int units) { super(units); }
     @Override protected void fprop(long seed, boolean training, int n) {
-      // TODO: implement GEMM
-      for (int mb=0;mb<n;++mb)
-        gemv(_a[mb], _w, _previous._a[mb], _b, _dropout != null ? _dropout.bits() : null);
+      gemm(_a, _w, _previous._a, _b, _dropout != null ? _dropout.bits() : null, n);
       final int rows = _a[0].size();
       for (int mb=0;mb<n;++mb)
         for( int row = 0; row < rows; row++ )
@@ -749,9 +771,7 @@ public abstract class Neurons {
   public static class Rectifier extends Neurons {
     public Rectifier(int units) { super(units); }
     @Override protected void fprop(long seed, boolean training, int n) {
-      // TODO: implement GEMM
-      for (int mb=0;mb<n;++mb)
-        gemv(_a[mb], _w, _previous._a[mb], _b, _dropout != null ? _dropout.bits() : null);
+      gemm(_a, _w, _previous._a, _b, _dropout != null ? _dropout.bits() : null, n);
       final int rows = _a[0].size();
       for (int mb=0;mb<n;++mb) {
         for( int row = 0; row < rows; row++ ) {
@@ -799,8 +819,7 @@ public abstract class Neurons {
   public static class ExpRectifier extends Neurons {
     public ExpRectifier(int units) { super(units); }
     @Override protected void fprop(long seed, boolean training, int n) {
-      for (int mb=0;mb<n;++mb)
-        gemv(_a[mb], _w, _previous._a[mb], _b, _dropout != null ? _dropout.bits() : null);
+      gemm(_a, _w, _previous._a, _b, _dropout != null ? _dropout.bits() : null, n);
       final int rows = _a[0].size();
       for( int row = 0; row < rows; row++ ) {
         for (int mb=0;mb<n;++mb) {
@@ -862,8 +881,7 @@ public abstract class Neurons {
   public static class Softmax extends Output {
     public Softmax(int units) { super(units); }
     protected void fprop(long seed, boolean training, int n) {
-      for (int mb=0;mb<n;++mb)
-        gemv(_a[mb], _w, _previous._a[mb], _b, null);
+      gemm(_a, _w, _previous._a, _b, null, n);
       for (int mb=0;mb<n;++mb) {
         final double max = ArrayUtils.maxValue(_a[mb].raw());
         double scaling = 0;
@@ -919,8 +937,7 @@ public abstract class Neurons {
       super(1);
     }
     protected void fprop(long seed, boolean training, int n) {
-      for (int mb=0;mb<n;++mb)
-        gemv(_a[mb], _w, _previous._a[mb], _b, _dropout != null ? _dropout.bits() : null);
+      gemm(_a, _w, _previous._a, _b, _dropout != null ? _dropout.bits() : null, n);
     }
 
     /**
@@ -1012,4 +1029,107 @@ public abstract class Neurons {
   static void gemv_naive(final Storage.DenseVector res, final Storage.DenseRowMatrix a, final Storage.DenseVector x, final Storage.DenseVector y, byte[] row_bits) {
     gemv_naive(res.raw(), a.raw(), x.raw(), y.raw(), row_bits);
   }
+
+  // Floats of the weight matrix to keep in cache while they are multiplied with the whole mini-batch
+  static final int GEMM_BLOCK_FLOATS = 1<<15;
+
+  /**
+   * Blocked Mat-Mat Plus Add for a mini-batch (with optional row dropout): res[mb] = a*x[mb]+y for mb < n
+   * Optimization: a is streamed from memory once per mini-batch instead of once per point.  Blocks of
+   * rows of a are multiplied with all n vectors while they are in cache, 4 rows by 2 vectors at a time
+   * with the 8 partial sums kept in registers.
+   * @param res = a*x[mb]+y for each point mb (pre-allocated, will be overwritten)
+   * @param a matrix of size rows x cols
+   * @param x n vectors of length cols
+   * @param y vector of length rows
+   * @param row_bits if not null, check bits of this byte[] to determine whether a row is used or not
+   * @param n number of points in the mini-batch
+   */
+  static void gemm_blocked(final double[][] res, final float[] a, final double[][] x, final double[] y, final byte[] row_bits, final int n) {
+    final int cols = x[0].length;
+    final int rows = y.length;
+    int[] used = new int[rows]; // the rows not dropped out
+    int nused = 0;
+    for (int row = 0; row < rows; row++)
+      if( row_bits == null || (row_bits[row / 8] & (1 << (row % 8))) != 0)
+        used[nused++] = row;
+    for (int mb = 0; mb < n; mb++) {
+      assert(res[mb].length == rows && x[mb].length == cols);
+      if (nused < rows) Arrays.fill(res[mb], 0);
+    }
+    final int block = Math.max(4, GEMM_BLOCK_FLOATS / Math.max(cols, 1)) & ~3;
+    for (int start = 0; start < nused; start += block) {
+      final int end = Math.min(start + block, nused);
+      int mb = 0;
+      for (; mb + 1 < n; mb += 2) {
+        final double[] x0 = x[mb], x1 = x[mb + 1], res0 = res[mb], res1 = res[mb + 1];
+        int i = start;
+        for (; i + 3 < end; i += 4) {
+          final int r0 = used[i], r1 = used[i + 1], r2 = used[i + 2], r3 = used[i + 3];
+          final int off0 = r0 * cols, off1 = r1 * cols, off2 = r2 * cols, off3 = r3 * cols;
+          double s00 = 0, s01 = 0, s10 = 0, s11 = 0, s20 = 0, s21 = 0, s30 = 0, s31 = 0;
+          for (int col = 0; col < cols; col++) {
+            final double v0 = x0[col], v1 = x1[col];
+            final double a0 = a[off0 + col], a1 = a[off1 + col], a2 = a[off2 + col], a3 = a[off3 + col];
+            s00 += a0 * v0; s01 += a0 * v1;
+            s10 += a1 * v0; s11 += a1 * v1;
+            s20 += a2 * v0; s21 += a2 * v1;
+            s30 += a3 * v0; s31 += a3 * v1;
+          }
+          res0[r0] = s00 + y[r0]; res1[r0] = s01 + y[r0];
+          res0[r1] = s10 + y[r1]; res1[r1] = s11 + y[r1];
+          res0[r2] = s20 + y[r2]; res1[r2] = s21 + y[r2];
+          res0[r3] = s30 + y[r3]; res1[r3] = s31 + y[r3];
+        }
+        for (; i < end; i++) {
+          final int r = used[i], off = r * cols;
+          double s0 = 0, s1 = 0;
+          for (int col = 0; col < cols; col++) {
+            s0 += a[off + col] * x0[col];
+            s1 += a[off + col] * x1[col];
+          }
+          res0[r] = s0 + y[r]; res1[r] = s1 + y[r];
+        }
+      }
+      if (mb < n) { // odd one out
+        final double[] x0 = x[mb], res0 = res[mb];
+        for (int i = start; i < end; i++) {
+          final int r = used[i], off = r * cols;
+          double s0 = 0, s1 = 0, s2 = 0, s3 = 0;
+          int col = 0;
+          for (; col + 3 < cols; col += 4) {
+            s0 += a[off + col    ] * x0[col    ];
+            s1 += a[off + col + 1] * x0[col + 1];
+            s2 += a[off + col + 2] * x0[col + 2];
+            s3 += a[off + col + 3] * x0[col + 3];
+          }
+          for (; col < cols; col++)
+            s0 += a[off + col] * x0[col];
+          res0[r] = s0 + s1 + s2 + s3 + y[r];
+        }
+      }
+    }
+  }
+
+  /**
+   * Helper to do a generic gemm over the first n points of a mini-batch: res[mb] = a * x[mb] + y
+   * @param res Dense results
+   * @param a DenseMatrix
+   * @param x DenseVectors
+   * @param y Dense vector to add to results
+   * @param row_bits Bit mask for which rows to use
+   * @param n Number of points in the mini-batch
+   */
+  static void gemm(final Storage.DenseVector[] res, final Storage.DenseRowMatrix a, final Storage.DenseVector[] x, final Storage.DenseVector y, byte[] row_bits, int n) {
+    if (n == 1) {
+      gemv(res[0], a, x[0], y, row_bits);
+      return;
+    }
+    final double[][] r = new double[n][], xs = new double[n][];
+    for (int mb = 0; mb < n; mb++) {
+      r[mb] = res[mb].raw();
+      xs[mb] = x[mb].raw();
+    }
+    gemm_blocked(r, a.raw(), xs, y.raw(), row_bits, n);
+  }
 }
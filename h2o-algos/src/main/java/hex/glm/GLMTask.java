@@ -44,16 +44,15 @@ public abstract class GLMTask  {
       _hasOffset = hasOffset;
     }
 
-    @Override public void map(Chunk [] chks) {
+    @Override public void mapBatch(double [][] cols, int nrows) {
       int i = 0;
-      int len = chks[0]._len;
-      Chunk w = _hasWeights?chks[i++]:new C0DChunk(1.0,len);
-      Chunk o = _hasOffset?chks[i++]:new C0DChunk(0.0,len);
-      Chunk r = chks[i];
+      double [] w = _hasWeights?cols[i++]:null;
+      double [] o = _hasOffset?cols[i++]:null;
+      double [] r = cols[i];
       if(_glmf._family != Family.multinomial) {
         double ymu = _glmf.link(_ymu[0]);
-        for (int j = 0; j < len; ++j)
-          _nullDev += w.atd(j)*_glmf.deviance(r.atd(j), _glmf.linkInv(ymu + o.atd(j)));
+        for (int j = 0; j < nrows; ++j)
+          _nullDev += (w == null?1:w[j])*_glmf.deviance(r[j], _glmf.linkInv(ymu + (o == null?0:o[j])));
       } else {
         throw H2O.unimpl();
       }
@@ -260,6 +259,15 @@ public abstract class GLMTask  {
        }
      }
      if (response == null) return;
+     double [] ys = response.getDoubles(MemoryManager.malloc8d(response._len),0,response._len);
+     double [][] expanded = null;
+     if(_computeWeightedMeanSigmaResponse && _expandedResponse) {
+       expanded = new double[_nClasses][];
+       for (int i = 0; i < _nClasses; ++i) {
+         Chunk c = chunks[chunks.length - _nClasses + i];
+         expanded[i] = c.getDoubles(MemoryManager.malloc8d(c._len),0,c._len);
+       }
+     }
      long nobs = 0;
      double wsum = 0;
      for(double w:ws) {
@@ -277,10 +285,10 @@ public abstract class GLMTask  {
          //FIXME: Add support for subtracting offset from response
          if(_expandedResponse) {
            for (int i = 0; i < _nClasses; ++i)
-             numsResponse[i] = chunks[chunks.length - _nClasses + i].atd(r);
+             numsResponse[i] = expanded[i][r];
          } else {
            Arrays.fill(numsResponse,0);
-           double d = response.atd(r);
+           double d = ys[r];
            if(Double.isNaN(d))
              Arrays.fill(numsResponse,Double.NaN);
            else
@@ -288,7 +296,7 @@ public abstract class GLMTask  {
          }
          _basicStatsResponse.add(numsResponse,w);
        }
-       double d = response.atd(r);
+       double d = ys[r];
        if(!Double.isNaN(d)) {
          if (_nClasses > 2)
            _yMu[(int) d] += w;
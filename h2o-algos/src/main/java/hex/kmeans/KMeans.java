@@ -27,6 +27,10 @@ public class KMeans extends ClusteringModelBuilder<KMeansModel,KMeansModel.KMean
   @Override public ToEigenVec getToEigenVec() { return LinearAlgebraUtils.toEigen; }
   // Convergence tolerance
   final static private double TOLERANCE = 1e-4;
+  // Property with the smallest k (default 8) for which the Lloyds iterations keep distance
+  // bounds for every row (not with estimate_k, which changes k and the assignments between
+  // the iterations); read when a model is built
+  static final String BOUNDED_MIN_K_PROP = H2O.OptArgs.SYSTEM_PROP_PREFIX + "kmeans.bounded_min_k";
 
   @Override public ModelCategory[] can_build() { return new ModelCategory[]{ ModelCategory.Clustering }; }
 
@@ -287,6 +291,10 @@ public class KMeans extends ClusteringModelBuilder<KMeansModel,KMeansModel.KMean
           Log.info("Cutoff for relative improvement in within_cluster_sum_of_squares: " + rel_improvement_cutoff);
         Vec[] vecs2 = Arrays.copyOf(vecs, vecs.length+1);
         vecs2[vecs2.length-1] = vecs2[0].makeCon(-1);
+        // Lower bounds on the distance from each row to all but its cluster center
+        final boolean bounded = !_parms._estimate_k && _parms._k >= Integer.getInteger(BOUNDED_MIN_K_PROP, 8);
+        Vec[] lloydsVecs = bounded ? ArrayUtils.append(vecs2, vecs2[0].makeZero()) : vecs2;
+        double[][] boundedCenters = null; // Centers of the last pass that set the bounds
         for (int k = startK; k <= _parms._k; ++k) {
           Log.info("Running Lloyds iteration for " + k + " centroids.");
           model._output._iterations = 0;  // Loop ends only when iterations > max_iterations with strict inequality
@@ -294,7 +302,13 @@ public class KMeans extends ClusteringModelBuilder<KMeansModel,KMeansModel.KMean
           boolean stop = false;
           do { //Lloyds algorithm
             assert(centers.length == k);
-            LloydsIterationTask task = new LloydsIterationTask(centers, means, mults, impute_cat, _isCats, k, hasWeightCol()).doAll(vecs2); //1 PASS OVER THE DATA
+            LloydsIterationTask task = new LloydsIterationTask(centers, means, mults, impute_cat, _isCats, k, hasWeightCol());
+            if (bounded) {
+              task.bounded(boundedCenters);
+              boundedCenters = ArrayUtils.deepClone(centers);
+            }
+            task.doAll(lloydsVecs); //1 PASS OVER THE DATA
+            if (bounded) Log.debug("Lloyds iteration kept " + task._kept + " rows in their clusters by the distance bounds.");
             // Pick the max categorical level for cluster center
             max_cats(task._cMeans, task._cats, _isCats);
 
@@ -350,6 +364,7 @@ public class KMeans extends ClusteringModelBuilder<KMeansModel,KMeansModel.KMean
             centers = splitLargestCluster(centers, lo, hi, means, mults, impute_cat, vecs2, k);
         } //k-finder
         vecs2[vecs2.length-1].remove();
+        if (bounded) lloydsVecs[lloydsVecs.length-1].remove();
 
         // Create metrics by scoring on training set otherwise scores are based on last Lloyd iteration
         model.score(_train).delete();
@@ -622,7 +637,16 @@ public class KMeans extends ClusteringModelBuilder<KMeansModel,KMeansModel.KMean
   //   Compute distance between clusters
   //   Compute total sqr distance
 
+  //   With bounds (Hamerly's algorithm), each row keeps a lower bound on the distance to all
+  //   but its own center.  It is moved down by the distance the centers moved since the bound
+  //   was set, and a row closer to its own center than either the bound or half of the distance
+  //   to the nearest other center keeps its cluster without computing the other k-1 distances.
+  //   The distance to the own center is computed exactly for every row (withinss needs it), so
+  //   no upper bound is stored.  Rows are assigned exactly as by the full search.
+
   private static class LloydsIterationTask extends MRTask<LloydsIterationTask> {
+    // Relative slack of the bound tests, for the rounding of the distances
+    private static final double BOUND_EPS = 1e-9;
     // IN
     double[][] _centers;
     double[] _means, _mults;      // Standardization
@@ -630,10 +654,16 @@ public class KMeans extends ClusteringModelBuilder<KMeansModel,KMeansModel.KMean
     final int _k;
     final String[][] _isCats;
     boolean _hasWeight;
+    boolean _bounded;           // Last Vec holds the distance lower bounds
+    double[] _halfMin;          // Half of the distance to the nearest other center
+    double[] _delta;            // Distance each center moved since the bounds were set, or null
+    double _maxDelta, _maxDelta2; // Largest and 2nd largest move
+    int _maxDeltaIdx;           // Center with the largest move
 
     // OUT
     double[][] _lo, _hi;        // Bounding box
     double _reassigned_count;
+    long _kept;                 // Rows kept in their clusters by the bounds
     double[][] _cMeans;         // Means for each cluster
     long[/*k*/][/*features*/][/*nfactors*/] _cats; // Histogram of cat levels
     double[] _cSqr;             // Sum of squares for each cluster
@@ -651,8 +681,32 @@ public class KMeans extends ClusteringModelBuilder<KMeansModel,KMeansModel.KMean
       _hasWeight = hasWeight;
     }
 
+    /** Keep distance bounds per row; prevCenters are the centers the bounds were set for, or null
+     *  on the first pass. */
+    LloydsIterationTask bounded(double[][] prevCenters) {
+      _bounded = true;
+      _halfMin = new double[_k];
+      Arrays.fill(_halfMin, Double.MAX_VALUE);
+      for( int i = 0; i < _k; i++ )
+        for( int j = i+1; j < _k; j++ ) {
+          double half = Math.sqrt(hex.genmodel.GenModel.KMeans_distance(_centers[i], _centers[j], _isCats)) / 2;
+          _halfMin[i] = Math.min(_halfMin[i], half);
+          _halfMin[j] = Math.min(_halfMin[j], half);
+        }
+      if( prevCenters != null ) {
+        _delta = new double[_k];
+        _maxDeltaIdx = -1;
+        for( int clu = 0; clu < _k; clu++ ) {
+          double d = _delta[clu] = Math.sqrt(hex.genmodel.GenModel.KMeans_distance(prevCenters[clu], _centers[clu], _isCats));
+          if( _maxDeltaIdx == -1 || d > _maxDelta ) { _maxDelta2 = _maxDelta; _maxDelta = d; _maxDeltaIdx = clu; }
+          else if( d > _maxDelta2 ) _maxDelta2 = d;
+        }
+      }
+      return this;
+    }
+
     @Override public void map(Chunk[] cs) {
-      int N = cs.length - (_hasWeight ? 1:0) - 1 /*clusterassignment*/;
+      int N = cs.length - (_hasWeight ? 1:0) - 1 /*clusterassignment*/ - (_bounded ? 1:0);
       assert _centers[0].length==N;
       _lo = new double[_k][N];
       for( int clu=0; clu< _k; clu++ )
@@ -670,7 +724,8 @@ public class KMeans extends ClusteringModelBuilder<KMeansModel,KMeansModel.KMean
           _cats[clu][col] = _isCats[col]==null ? null : new long[cs[col].vec().cardinality()];
       _worst_err = 0;
 
-      Chunk assignment = cs[cs.length-1];
+      Chunk assignment = cs[N + (_hasWeight ? 1:0)];
+      Chunk lower = _bounded ? cs[cs.length-1] : null;
       // Find closest cluster center for each row
       double[] values = new double[N]; // Temp data to hold row as doubles
       ClusterDist cd = new ClusterDist();
@@ -679,21 +734,18 @@ public class KMeans extends ClusteringModelBuilder<KMeansModel,KMeansModel.KMean
         if (weight == 0) continue; //skip holdout rows
         assert(weight == 1); //K-Means only works for weight 1 (or weight 0 for holdout)
         data(values, cs, row, _means, _mults, _modes); // Load row as doubles
-        closest(_centers, values, _isCats, cd); // Find closest cluster center
+        if( _bounded ) closestBounded(values, (int)assignment.at8(row), lower, row, cd);
+        else closest(_centers, values, _isCats, cd); // Find closest cluster center
         if (cd._cluster != assignment.at8(row)) {
           _reassigned_count+=weight;
           assignment.set(row, cd._cluster);
         }
-        for( int clu=0; clu< _k; clu++ ) {
-          for( int col=0; col<N; col++ ) {
-            if (cd._cluster == clu) {
-              _lo[clu][col] = Math.min(values[col], _lo[clu][col]);
-              _hi[clu][col] = Math.max(values[col], _hi[clu][col]);
-            }
-          }
-        }
         int clu = cd._cluster;
         assert clu != -1;       // No broken rows
+        for( int col=0; col<N; col++ ) {
+          _lo[clu][col] = Math.min(values[col], _lo[clu][col]);
+          _hi[clu][col] = Math.max(values[col], _hi[clu][col]);
+        }
         _cSqr[clu] += cd._dist;
 
         // Add values and increment counter for chosen cluster
@@ -712,10 +764,42 @@ public class KMeans extends ClusteringModelBuilder<KMeansModel,KMeansModel.KMean
       _centers = null;
       _means = _mults = null;
       _modes = null;
+      _halfMin = _delta = null;
+    }
+
+    // Nearest center of a row currently in cluster clu (-1 if none), updating its lower bound
+    private void closestBounded(double[] values, int clu, Chunk lower, int row, ClusterDist cd) {
+      if( clu != -1 && _delta != null ) {
+        double dist = hex.genmodel.GenModel.KMeans_distance(_centers[clu], values, _isCats);
+        double lo = lower.atd(row) - (clu == _maxDeltaIdx ? _maxDelta2 : _maxDelta);
+        if( Math.sqrt(dist) * (1 + BOUND_EPS) < Math.max(_halfMin[clu], lo) ) {
+          cd._cluster = clu;
+          cd._dist = dist;
+          lower.set(row, lo);
+          _kept++;
+          return;
+        }
+      }
+      // Full search, the 2nd nearest center sets the new bound
+      int min = -1;
+      double minSqr = Double.MAX_VALUE, minSqr2 = Double.MAX_VALUE;
+      for( int cluster = 0; cluster < _k; cluster++ ) {
+        double sqr = hex.genmodel.GenModel.KMeans_distance(_centers[cluster], values, _isCats);
+        if( sqr < minSqr ) {
+          minSqr2 = minSqr;
+          min = cluster;
+          minSqr = sqr;
+        } else if( sqr < minSqr2 )
+          minSqr2 = sqr;
+      }
+      cd._cluster = min;
+      cd._dist = minSqr;
+      lower.set(row, Math.sqrt(minSqr2));
     }
 
     @Override public void reduce(LloydsIterationTask mr) {
       _reassigned_count += mr._reassigned_count;
+      _kept += mr._kept;
       for( int clu = 0; clu < _k; clu++ ) {
         long ra =    _size[clu];
         long rb = mr._size[clu];
@@ -643,7 +643,7 @@ public class DeepLearningV3 extends ModelBuilderSchema<DeepLearning,DeepLearning
     public boolean export_weights_and_biases;
 
     @API(level = API.Level.expert, direction=API.Direction.INOUT,
-        help = "Mini-batch size (smaller leads to better fit, larger can speed up and generalize better).")
+        help = "Mini-batch size (smaller leads to better fit, larger can speed up and generalize better). Sizes > 1 update the weights once per mini-batch, with the mean gradient of its rows.")
     public int mini_batch_size;
 
     @API(level = API.Level.expert, direction=API.Direction.INOUT, gridable = true,
@@ -57,8 +57,12 @@ public class GBMV3 extends SharedTreeV3<GBM,GBMV3,GBMV3.GBMParametersV3> {
       "col_sample_rate_per_tree",
       "min_split_improvement",
       "histogram_type",
+      "prebin_predictors",
       "max_abs_leafnode_pred",
       "pred_noise_bandwidth",
+      "goss_top_rate",
+      "goss_other_rate",
+      "max_leaves",
       "categorical_encoding",
       "calibrate_model",
       "calibration_frame"
@@ -85,6 +89,15 @@ public class GBMV3 extends SharedTreeV3<GBM,GBMV3,GBMV3.GBMParametersV3> {
     @API(help="Bandwidth (sigma) of Gaussian multiplicative noise ~N(1,sigma) for tree node predictions", level = API.Level.expert, gridable = true)
     public double pred_noise_bandwidth;
 
+    @API(help="Gradient-based one-side sampling: fraction of rows with the largest gradients to keep for each tree (from 0.0 to 1.0, 0 to disable)", level = API.Level.expert, gridable = true)
+    public double goss_top_rate;
+
+    @API(help="Gradient-based one-side sampling: fraction of all rows to sample at random out of the remaining ones for each tree (from 0.0 to 1.0)", level = API.Level.expert, gridable = true)
+    public double goss_other_rate;
+
+    @API(help="Grow the trees best-first, splitting the leaves with the largest improvement first, up to this many leaves per tree (0 to grow level-wise). max_depth still limits the depth", level = API.Level.expert, gridable = true)
+    public int max_leaves;
+
 //    // TODO debug only, remove!
 //    @API(help="Internal flag, use new version of histo tsk if set", level = API.Level.expert, gridable = false)
 //    public boolean use_new_histo_tsk;
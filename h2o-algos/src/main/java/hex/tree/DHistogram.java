@@ -184,6 +184,8 @@ public final class DHistogram extends Iced {
     if (_histoType== SharedTreeModel.SharedTreeParameters.HistogramType.AUTO)
       _histoType= SharedTreeModel.SharedTreeParameters.HistogramType.UniformAdaptive;
     assert(_histoType!= SharedTreeModel.SharedTreeParameters.HistogramType.RoundRobin);
+    if (_histoType== SharedTreeModel.SharedTreeParameters.HistogramType.QuantilesGlobal && globalQuantilesKey==null)
+      _histoType= SharedTreeModel.SharedTreeParameters.HistogramType.UniformAdaptive; // No quantiles to look up (categoricals, bin codes)
     _globalQuantilesKey = globalQuantilesKey;
     // See if we can show there are fewer unique elements than nbins.
     // Common for e.g. boolean columns, or near leaves.
@@ -300,6 +302,54 @@ public final class DHistogram extends Iced {
     if( y != 0 && w != 0) incr0(b,y,w);
   }
 
+  // One bin per integer value: bins map between histograms by value, and the
+  // non-empty bins give the exact observed min/max
+  private boolean hasValueBins() {
+    return _isInt > 0 && _step == 1 && _splitPts == null &&
+        _histoType == SharedTreeModel.SharedTreeParameters.HistogramType.UniformAdaptive;
+  }
+
+  /**
+   * Can the histogram of child, one of the two children of the node of this (filled) histogram, be computed
+   * as this histogram minus the histogram of its sibling instead of from the data?  Needs value bins in all
+   * three, so the result (including its observed min/max) is the same as the one built from the data.
+   */
+  boolean canSubtract(DHistogram child, DHistogram sibling) {
+    return _vals != null && sibling != null && hasValueBins() && child.hasValueBins() && sibling.hasValueBins();
+  }
+
+  /**
+   * Fill this histogram of a child node with the bins of the parent minus the bins of the sibling.
+   * @see #canSubtract
+   */
+  void subtract(DHistogram parent, DHistogram sibling) {
+    assert _vals == null && parent.canSubtract(this, sibling);
+    double[] vals = MemoryManager.malloc8d(3*_nbin+3);
+    int poff = (int)(_min - parent._min), soff = (int)(_min - sibling._min);
+    assert 0 <= poff && poff + _nbin <= parent._nbin : "child range " + this + " outside of parent range " + parent;
+    for( int b = 0; b <= _nbin; b++ ) { // Bins and the NA bucket
+      int pb = b == _nbin ? parent._nbin : b + poff;
+      int sb = b == _nbin ? sibling._nbin : b + soff;
+      double pw = parent._vals[3*pb];
+      double w = pw, wY = parent._vals[3*pb+1], wYY = parent._vals[3*pb+2];
+      if( sibling._vals != null && (b == _nbin || (0 <= sb && sb < sibling._nbin)) ) {
+        w   -= sibling._vals[3*sb];
+        wY  -= sibling._vals[3*sb+1];
+        wYY -= sibling._vals[3*sb+2];
+      }
+      if( w <= 1e-12 * pw ) continue; // No rows left, up to the rounding of fractional weights
+      vals[3*b] = w;
+      vals[3*b+1] = wY;
+      vals[3*b+2] = wYY;
+      if( b < _nbin ) {
+        if( _min + b < _min2 ) _min2 = _min + b;
+        _maxIn = _min + b;
+      }
+    }
+    init(vals);
+    reducePrecision();
+  }
+
   // Merge two equal histograms together.  Done in a F/J reduce, so no
   // synchronization needed.
   public void add( DHistogram dsh ) {
@@ -39,6 +39,11 @@ public class DTree extends Iced {
   public final transient Random _rand; // RNG for split decisions & sampling
   public final transient int[] _cols; // Per-tree selection of columns to consider for splits
   public transient SharedTreeModel.SharedTreeParameters _parms;
+  public transient double[][] _binEdges; // Raw bin edges of pre-binned columns, null if the tree sees raw values
+  // Leaf-wise growth (see SharedTree.ScoreBuildOneTree): splits left in the leaf budget, and the
+  // scored leaves waiting for their split; null when growing level-wise
+  transient int _splitsLeft;
+  transient ArrayList<PendingSplit> _pending;
 
 
   // compute the effective number of columns to sample
@@ -93,6 +98,21 @@ public class DTree extends Iced {
 
   public final int len() { return _len; }
 
+  // Grow best-first up to maxLeaves leaves instead of splitting every leaf on each level
+  public void growLeafWise(int maxLeaves) {
+    assert maxLeaves > 1;
+    _splitsLeft = maxLeaves - 1;
+    _pending = new ArrayList<>();
+  }
+  boolean isLeafWise() { return _pending != null; }
+
+  // Depth of node i, the root is at depth 0
+  int depth( int i ) {
+    int d = 0;
+    for( Node n = node(i); n._pid != NO_PARENT; n = node(n._pid) ) d++;
+    return d;
+  }
+
   // --------------------------------------------------------------------------
   // Abstract node flavor
   public static abstract class Node extends Iced {
@@ -301,6 +321,10 @@ public class DTree extends Iced {
   public static class UndecidedNode extends Node {
     public transient DHistogram[] _hs; //(up to) one histogram per column
     public final int _scoreCols[];      // A list of columns to score; could be null for all
+    // Histograms of the parent and the sibling node, set if some of the histograms of this node are
+    // computed by subtraction instead of from the data (see SharedTree.ScoreBuildOneTree)
+    transient DHistogram[] _parentHs;
+    transient int _sibling;
     public UndecidedNode( DTree tree, int pid, DHistogram[] hs ) {
       super(tree,pid);
       assert hs.length==tree._ncols;
@@ -351,6 +375,8 @@ public class DTree extends Iced {
     // Make the parent of this Node use UNINTIALIZED NIDs for its children to prevent the split that this
     // node otherwise induces.  Happens if we find out too-late that we have a
     // perfect prediction here, and we want to turn into a leaf.
+    boolean scoresCol( int col ) { return _scoreCols == null || ArrayUtils.find(_scoreCols, col) >= 0; }
+
     public void do_not_split( ) {
       if( _pid == NO_PARENT) return; // skip root
       DecidedNode dn = _tree.decided(_pid);
@@ -451,7 +477,7 @@ public class DTree extends Iced {
     }
 
     // Pick the best column from the given histograms
-    public Split bestCol(UndecidedNode u, DHistogram hs[]) {
+    public static Split bestCol(UndecidedNode u, DHistogram hs[]) {
       DTree.Split best = null;
       if( hs == null ) return null;
       final int maxCols = u._scoreCols == null /* all cols */ ? hs.length : u._scoreCols.length;
@@ -468,7 +494,7 @@ public class DTree extends Iced {
       for( int i=0; i<maxCols; i++ ) {
         int col = u._scoreCols == null ? i : u._scoreCols[i];
         if( hs[col]==null || hs[col].nbins() <= 1 ) continue;
-        FindSplits fs = new FindSplits(hs, col, u._nid);
+        FindSplits fs = new FindSplits(hs, col, u._tree._parms._min_rows);
         findSplits.add(fs);
         if (isSmall) fs.compute();
       }
@@ -481,24 +507,29 @@ public class DTree extends Iced {
       return best;
     }
 
-    class FindSplits extends RecursiveAction {
-      FindSplits(DHistogram[] hs, int col, int nid) {
-        _hs = hs; _col = col; _nid = nid;
+    static class FindSplits extends RecursiveAction {
+      FindSplits(DHistogram[] hs, int col, double min_rows) {
+        _hs = hs; _col = col; _min_rows = min_rows;
       }
       final DHistogram[] _hs;
       final int _col;
       DTree.Split _s;
-      final int _nid;
+      final double _min_rows;
       @Override public void compute() {
-        _s = findBestSplitPoint(_hs[_col], _col, _tree._parms._min_rows);
+        _s = findBestSplitPoint(_hs[_col], _col, _min_rows);
         if (_s == null) return;
       }
     }
 
     public DecidedNode(UndecidedNode n, DHistogram hs[]) {
+      this(n,hs,bestCol(n,hs)); // Best split-point for this tree
+    }
+
+    // Split at a split-point picked before; a null split leaves the rows of the node where they are
+    public DecidedNode(UndecidedNode n, DHistogram hs[], Split split) {
       super(n._tree,n._pid,n._nid); // Replace Undecided with this DecidedNode
       _nids = new int[2];           // Split into 2 subsets
-      _split = bestCol(n,hs);  // Best split-point for this tree
+      _split = split;
       if( _split == null) {
         // Happens because the predictor columns cannot split the responses -
         // which might be because all predictor columns are now constant, or
@@ -517,6 +548,16 @@ public class DTree extends Iced {
       }
     }
 
+    // Split-at value over the raw column: a tree grown on bin codes sends a code c
+    // right iff c >= ceil(_splat), i.e. iff the raw value is at least that code's edge
+    float rawSplat() {
+      double[] edges = _tree._binEdges == null ? null : _tree._binEdges[_split._col];
+      if (edges == null) return _splat;
+      int code = (int)Math.ceil(_splat);
+      assert 0 < code && code < edges.length : "code " + code + " out of " + edges.length + " bins";
+      return (float)edges[code];
+    }
+
     public int getChildNodeID(Chunk [] chks, int row ) {
       double d = chks[_split._col].atd(row);
       int bin = -1;
@@ -673,7 +714,7 @@ public class DTree extends Iced {
 
       // Save split-at-value or group
       if (_split._nasplit!= DHistogram.NASplitDir.NAvsREST) {
-        if (_split._equal == 0 || _split._equal == 1) ab.put4f(_splat);
+        if (_split._equal == 0 || _split._equal == 1) ab.put4f(rawSplat());
         else if(_split._equal == 2) _split._bs.compress2(ab);
         else _split._bs.compress3(ab);
       }
@@ -707,6 +748,19 @@ public class DTree extends Iced {
     }
   }
 
+  // --------------------------------------------------------------------------
+  // A scored leaf of a tree grown leaf-wise, waiting for its best split to be made
+  static class PendingSplit {
+    final UndecidedNode _udn;
+    final DHistogram[] _hs;
+    final Split _split;
+    final double _gain;         // Squared error improvement of the split
+    PendingSplit( UndecidedNode udn, DHistogram[] hs, Split split ) {
+      _udn = udn; _hs = hs; _split = split;
+      _gain = split.pre_split_se() - split.se();
+    }
+  }
+
   public final static class LeafNode extends Node {
     public float _pred;
     public LeafNode( DTree tree, int pid ) { super(tree,pid); tree._leaves++; }
@@ -17,6 +17,7 @@ import water.exceptions.H2OIllegalArgumentException;
 import water.exceptions.H2OModelBuilderIllegalArgumentException;
 import water.fvec.Chunk;
 import water.fvec.Frame;
+import water.fvec.NewChunk;
 import water.fvec.Vec;
 import water.util.*;
 
@@ -25,6 +26,8 @@ import java.io.PrintWriter;
 import java.io.UnsupportedEncodingException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Random;
 
@@ -34,6 +37,11 @@ public abstract class SharedTree<M extends SharedTreeModel<M,P,O>, P extends Sha
            && v.cardinality() > _parms._nbins_cats;  // no need to sort categoricals with fewer than nbins_cats - they will be sorted in every leaf anyway
   }
   final protected static boolean DEV_DEBUG = false;
+  // Global split points from approximate (sketch) quantiles instead of the exact Quantile model, opt-in
+  static final boolean SKETCH_QUANTILES = Boolean.parseBoolean(System.getProperty(H2O.OptArgs.SYSTEM_PROP_PREFIX + "tree.sketch_quantiles", "false"));
+  // Compute the histograms of the larger child of a split from its parent and sibling where
+  // possible, unless this property is false; checked at every tree level
+  static final String SUBTRACT_HISTOGRAMS_PROP = H2O.OptArgs.SYSTEM_PROP_PREFIX + "tree.subtract_histograms";
   protected int _mtry;
   protected int _mtry_per_tree;
 
@@ -53,6 +61,9 @@ public abstract class SharedTree<M extends SharedTreeModel<M,P,O>, P extends Sha
   // Number of columns in training set, not counting the response column
   protected int _ncols;
 
+  // Global bin edges of the pre-binned predictors, null for columns trained on their raw values
+  protected transient double[][] _binEdges;
+
   // Initially predicted value (for zero trees)
   protected double _initialPrediction;
 
@@ -190,6 +201,7 @@ public abstract class SharedTree<M extends SharedTreeModel<M,P,O>, P extends Sha
 
     @Override public void computeImpl() {
       _model = null;            // Resulting model!
+      Vec[] rawVecs = null;     // Raw predictors swapped out for their bin codes
       try {
         init(true);             // Do any expensive tests & conversions now
         if( error_count() > 0 )
@@ -256,30 +268,47 @@ public abstract class SharedTree<M extends SharedTreeModel<M,P,O>, P extends Sha
 
         // top-level quantiles for all columns
         // non-numeric columns get a vector full of NAs
+        double[][] splitPoints = null;
         if (_parms._histogram_type == SharedTreeModel.SharedTreeParameters.HistogramType.QuantilesGlobal
-                || _parms._histogram_type == SharedTreeModel.SharedTreeParameters.HistogramType.RoundRobin) {
+                || _parms._histogram_type == SharedTreeModel.SharedTreeParameters.HistogramType.RoundRobin
+                || _parms._prebin_predictors) {
           int N = _parms._nbins;
-          QuantileModel.QuantileParameters p = new QuantileModel.QuantileParameters();
-          Key rndKey = Key.make();
-          if (DKV.get(rndKey)==null) DKV.put(rndKey, _train);
-          p._train = rndKey;
-          p._weights_column = _parms._weights_column;
-          p._combine_method = QuantileModel.CombineMethod.INTERPOLATE;
-          p._probs = new double[N];
+          double[] probs = new double[N];
           for (int i = 0; i < N; ++i) //compute quantiles such that they span from (inclusive) min...maxEx (exclusive)
-            p._probs[i] = i * 1./N;
-          Job<QuantileModel> job = new Quantile(p).trainModel();
-          _job.update(1, "Computing top-level histogram splitpoints.");
-          QuantileModel qm = job.get();
-          job.remove();
-          double[][] origQuantiles = qm._output._quantiles;
+            probs[i] = i * 1./N;
+          double[][] origQuantiles = null;
+          if (SKETCH_QUANTILES && _parms._weights_column == null) {
+            // Unweighted: approximate quantiles from the Vecs' sketches, one pass over the data
+            origQuantiles = new double[_train.numCols()][];
+            for (int i = 0; i < origQuantiles.length; ++i) {
+              Vec v = _train.vec(i);
+              origQuantiles[i] = v.isNumeric() ? v.approxQuantiles(probs) : new double[]{Double.NaN};
+              if (origQuantiles[i] == null) { origQuantiles = null; break; }
+            }
+          }
+          if (origQuantiles == null) {
+            QuantileModel.QuantileParameters p = new QuantileModel.QuantileParameters();
+            Key rndKey = Key.make();
+            if (DKV.get(rndKey)==null) DKV.put(rndKey, _train);
+            p._train = rndKey;
+            p._weights_column = _parms._weights_column;
+            p._combine_method = QuantileModel.CombineMethod.INTERPOLATE;
+            p._probs = probs;
+            Job<QuantileModel> job = new Quantile(p).trainModel();
+            QuantileModel qm = job.get();
+            job.remove();
+            origQuantiles = qm._output._quantiles;
+            qm.delete();
+            DKV.remove(rndKey);
+          }
+          _job.update(1, _parms._prebin_predictors ? "Computing global bin edges." : "Computing top-level histogram splitpoints.");
           //pad the quantiles until we have nbins_top_level bins
-          double[][] splitPoints = new double[origQuantiles.length][];
+          splitPoints = new double[origQuantiles.length][];
           Key[] keys = new Key[splitPoints.length];
           for (int i=0;i<keys.length;++i)
             keys[i] = getGlobalQuantilesKey(i);
           for (int i=0;i<origQuantiles.length;++i) {
-            if (!_train.vec(i).isNumeric() || _train.vec(i).isCategorical() || _train.vec(i).isBinary() || origQuantiles[i].length <= 1) {
+            if (i >= _ncols || !_train.vec(i).isNumeric() || _train.vec(i).isCategorical() || _train.vec(i).isBinary() || origQuantiles[i].length <= 1) {
               keys[i] = null;
               continue;
             }
@@ -296,8 +325,6 @@ public abstract class SharedTree<M extends SharedTreeModel<M,P,O>, P extends Sha
               DKV.put(new DHistogram.HistoQuantiles(keys[i], splitPoints[i]));
             }
           }
-          qm.delete();
-          DKV.remove(rndKey);
         }
 
         // Also add to the basic working Frame these sets:
@@ -335,9 +362,12 @@ public abstract class SharedTree<M extends SharedTreeModel<M,P,O>, P extends Sha
 
         initializeModelSpecifics();
         resumeFromCheckpoint(SharedTree.this);
+        // Checkpointed trees are replayed over the raw data, all new trees are grown on the codes
+        if (_parms._prebin_predictors) rawVecs = prebin(splitPoints);
         scoreAndBuildTrees(doOOBScoring());
 
       } finally {
+        if( rawVecs!=null ) unbin(rawVecs);
         if( _model!=null ) _model.unlock(_job);
         for (Key k : getGlobalQuantilesKeys()) if (k!=null) k.remove();
       }
@@ -354,7 +384,8 @@ public abstract class SharedTree<M extends SharedTreeModel<M,P,O>, P extends Sha
 
     // Helpers to store quantiles in DKV - keep a cache on each node (instead of sending around over and over)
     protected Key getGlobalQuantilesKey(int i) {
-      if (_model==null || _model._key == null || _parms._histogram_type!= SharedTreeModel.SharedTreeParameters.HistogramType.QuantilesGlobal
+      if (_model==null || _model._key == null || _parms._prebin_predictors) return null; // codes are binned uniformly
+      if (_parms._histogram_type!= SharedTreeModel.SharedTreeParameters.HistogramType.QuantilesGlobal
               && _parms._histogram_type!= SharedTreeModel.SharedTreeParameters.HistogramType.RoundRobin) return null;
       return Key.makeSystem(_model._key+"_quantiles_col_"+i);
     }
@@ -365,6 +396,48 @@ public abstract class SharedTree<M extends SharedTreeModel<M,P,O>, P extends Sha
       return keys;
     }
 
+    /**
+     * Replace the numeric predictors of the training frame by the codes of their
+     * global bins, so that the histograms are filled from 1 or 2 byte chunks of
+     * small ints, without rescaling the raw values at every level.
+     * @param splitPoints top-level split points per column, null if the column is kept
+     * @return the replaced raw predictors, null where a column is kept
+     */
+    private Vec[] prebin(double[][] splitPoints) {
+      _binEdges = new double[_ncols][];
+      List<Integer> cols = new ArrayList<>();
+      for (int i = 0; i < _ncols; ++i) {
+        if (splitPoints == null || splitPoints[i] == null) continue;
+        Vec v = _train.vec(i);
+        double[] edges = binEdges(v.isInt() && v.max() - v.min() < _parms._nbins_top_level ? intEdges(v.min(), v.max()) : splitPoints[i]);
+        if (edges.length <= 1) continue;
+        _binEdges[i] = edges;
+        cols.add(i);
+      }
+      Vec[] rawVecs = new Vec[_ncols];
+      if (cols.isEmpty()) return rawVecs;
+      int[] idx = new int[cols.size()];
+      double[][] edges = new double[idx.length][];
+      for (int j = 0; j < idx.length; ++j) {
+        idx[j] = cols.get(j);
+        edges[j] = _binEdges[idx[j]];
+      }
+      Frame raw = new Frame(_train.vecs(idx));
+      byte[] types = new byte[idx.length];
+      Arrays.fill(types, Vec.T_NUM);
+      Vec[] codes = new BinCodes(edges).doAll(types, raw).outputFrame().vecs();
+      for (int j = 0; j < idx.length; ++j)
+        rawVecs[idx[j]] = _train.replace(idx[j], codes[j]);
+      Log.info("Pre-binned " + idx.length + " predictor columns into at most " + _parms._nbins_top_level + " bins.");
+      return rawVecs;
+    }
+
+    // Put the raw predictors back, and drop the codes
+    private void unbin(Vec[] rawVecs) {
+      for (int i = 0; i < rawVecs.length; ++i)
+        if (rawVecs[i] != null) _train.replace(i, rawVecs[i]).remove();
+    }
+
     /**
      * Restore the workspace from a previous model (checkpoint)
      */
@@ -426,6 +499,7 @@ public abstract class SharedTree<M extends SharedTreeModel<M,P,O>, P extends Sha
     for( int k=0; k<_nclass; k++ ) {
       final DTree tree = ktrees[k]; // Tree for class K
       if( tree == null ) continue;
+      if( tree.isLeafWise() && tree._splitsLeft == 0 ) continue; // Leaf budget spent, the new leaves stay leaves
       // Build a frame with just a single tree (& work & nid) columns, so the
       // nested MRTask ScoreBuildHistogram in ScoreBuildOneTree does not try
       // to close other tree's Vecs when run in parallel.
@@ -433,6 +507,8 @@ public abstract class SharedTree<M extends SharedTreeModel<M,P,O>, P extends Sha
 
       // Add temporary workspace vectors (optional weights are taken over from fr)
       int weightIdx = fr2.find(_parms._weights_column);
+      Vec sampleWeights = vec_sample_weights(fr);
+      if (sampleWeights != null) { weightIdx = fr2.numCols(); fr2.add("Sample_weights", sampleWeights); }
       fr2.add(fr._names[idx_tree(k)],vecs[idx_tree(k)]);                              //tree predictions
       int workIdx = fr2.numCols(); fr2.add(fr._names[idx_work(k)],vecs[idx_work(k)]); //target value to fit (copy of actual response for DRF, residual for GBM)
       int nidIdx  = fr2.numCols(); fr2.add(fr._names[idx_nids(k)],vecs[idx_nids(k)]); //node indices for tree construction
@@ -448,7 +524,7 @@ public abstract class SharedTree<M extends SharedTreeModel<M,P,O>, P extends Sha
     boolean did_split=false;
     for( int k=0; k<_nclass; k++ ) {
       final DTree tree = ktrees[k]; // Tree for class K
-      if( tree == null ) continue;
+      if( sb1ts[k] == null ) continue;
       sb1ts[k].join();
       if( sb1ts[k]._did_split ) did_split=true;
       if (DEV_DEBUG) {
@@ -516,29 +592,117 @@ public abstract class SharedTree<M extends SharedTreeModel<M,P,O>, P extends Sha
       ScoreBuildHistogram sbh = (ScoreBuildHistogram) caller;
       final int leafOffset = _leafOffsets[_k];
       int tmax = _tree.len();   // Number of total splits in tree K
-      for (int leaf = leafOffset; leaf < tmax; leaf++) { // Visit all the new splits (leaves)
-        DTree.UndecidedNode udn = _tree.undecided(leaf);
-//        System.out.println((_st._nclass==1?"Regression":("Class "+_st._response.domain()[_k]))+",\n  Undecided node:"+udn);
-        // Replace the Undecided with the Split decision
-        DTree.DecidedNode dn = _st.makeDecided(udn, sbh._hcs[leaf - leafOffset]);
-//        System.out.println(dn + "\n" + dn._split);
-        if (dn._split == null) udn.do_not_split();
-        else {
-          _did_split = true;
-          DTree.Split s = dn._split; // Accumulate squared error improvements per variable
-          float improvement = (float) (s.pre_split_se() - s.se());
-          assert (improvement >= 0);
-          AtomicUtils.FloatArray.add(_improvPerVar, s.col(), improvement);
+      subtractHistograms(sbh._hcs, leafOffset, tmax);
+      List<DTree.DecidedNode> splits = new ArrayList<>(); // The nodes split in this pass
+      List<DHistogram[]> splitHs = new ArrayList<>();     // and their histograms
+      if (_tree.isLeafWise()) splitBestLeaves(sbh._hcs, leafOffset, tmax, splits, splitHs);
+      else {
+        for (int leaf = leafOffset; leaf < tmax; leaf++) { // Visit all the new splits (leaves)
+          DTree.UndecidedNode udn = _tree.undecided(leaf);
+//          System.out.println((_st._nclass==1?"Regression":("Class "+_st._response.domain()[_k]))+",\n  Undecided node:"+udn);
+          // Replace the Undecided with the Split decision
+          DTree.DecidedNode dn = _st.makeDecided(udn, sbh._hcs[leaf - leafOffset]);
+//          System.out.println(dn + "\n" + dn._split);
+          if (dn._split == null) udn.do_not_split();
+          else {
+            splits.add(dn);
+            splitHs.add(sbh._hcs[leaf - leafOffset]);
+          }
         }
       }
+      for (DTree.DecidedNode dn : splits) {
+        _did_split = true;
+        DTree.Split s = dn._split; // Accumulate squared error improvements per variable
+        float improvement = (float) (s.pre_split_se() - s.se());
+        assert (improvement >= 0);
+        AtomicUtils.FloatArray.add(_improvPerVar, s.col(), improvement);
+      }
       _leafOffsets[_k] = tmax;          // Setup leafs for next tree level
       int new_leafs = _tree.len() - tmax; //new_leafs can be 0 if no actual splits were made
       _hcs[_k] = new DHistogram[new_leafs][/*ncol*/];
       for (int nl = tmax; nl < _tree.len(); nl++)
         _hcs[_k][nl - tmax] = _tree.undecided(nl)._hs;
+      if (Boolean.parseBoolean(System.getProperty(SUBTRACT_HISTOGRAMS_PROP, "true")))
+        planSubtraction(splits, splitHs, tmax);
+      if (_tree.isLeafWise())     // Leaves too deep to split are not scored, their rows only move down
+        for (int nl = tmax; nl < _tree.len(); nl++)
+          if (_tree.depth(nl) >= _tree._parms._max_depth) {
+            _hcs[_k][nl - tmax] = new DHistogram[_st._ncols];
+            _tree.undecided(nl)._parentHs = null;
+          }
 //      if (_did_split && new_leafs > 0) _tree._depth++;
       if (_did_split) _tree._depth++; //
     }
+
+    // Histogram subtraction: the rows of a split node are the rows of its two
+    // children, so one child's histograms are the parent's minus the other
+    // child's.  The larger child does not build the histograms of the columns
+    // where this gives the same result (see DHistogram.canSubtract) in the pass
+    // over the data, they are subtracted once the smaller child's are built.
+
+    // For all the splits just made, leave the subtractable columns of the larger child out of the next pass
+    private void planSubtraction(List<DTree.DecidedNode> splits, List<DHistogram[]> splitHs, int tmax) {
+      for (int i = 0; i < splits.size(); i++) {
+        DTree.DecidedNode dn = splits.get(i);
+        if (dn._nids[0] < tmax || dn._nids[1] < tmax) continue; // Not split into 2 new nodes
+        int way = dn._split._n0 >= dn._split._n1 ? 0 : 1;
+        DTree.UndecidedNode big = _tree.undecided(dn._nids[way]), small = _tree.undecided(dn._nids[1 - way]);
+        DHistogram[] parentHs = splitHs.get(i), hs = null;
+        for (int col = 0; col < parentHs.length; col++) {
+          if (big._hs[col] == null || parentHs[col] == null || !big.scoresCol(col) || !small.scoresCol(col) ||
+              !parentHs[col].canSubtract(big._hs[col], small._hs[col]))
+            continue;
+          if (hs == null) hs = big._hs.clone();
+          hs[col] = null; // Not tracked in the pass
+        }
+        if (hs == null) continue;
+        big._parentHs = parentHs;
+        big._sibling = small._nid;
+        _hcs[_k][big._nid - tmax] = hs;
+      }
+    }
+
+    // Leaf-wise growth: find the best splits of the leaves just scored, then make the ones with the
+    // largest squared error improvement out of these and the splits left over from earlier passes,
+    // up to half the remaining leaf budget per pass.  Only the children of these splits are scored
+    // in the next pass; the rows of the waiting leaves stay where they are (the leaves are marked
+    // with a DecidedNode without a split until then), and become leaves once the budget is spent.
+    private void splitBestLeaves(DHistogram[][] hcs, int leafOffset, int tmax, List<DTree.DecidedNode> splits, List<DHistogram[]> splitHs) {
+      ArrayList<DTree.PendingSplit> pending = _tree._pending;
+      for (int leaf = leafOffset; leaf < tmax; leaf++) {
+        DTree.UndecidedNode udn = _tree.undecided(leaf);
+        DHistogram[] hs = hcs[leaf - leafOffset];
+        DTree.Split s = _tree.depth(leaf) < _tree._parms._max_depth ? DTree.DecidedNode.bestCol(udn, hs) : null;
+        new DTree.DecidedNode(udn, hs, null);
+        if (s == null) udn.do_not_split();
+        else pending.add(new DTree.PendingSplit(udn, hs, s));
+      }
+      Collections.sort(pending, new Comparator<DTree.PendingSplit>() {
+        @Override public int compare(DTree.PendingSplit a, DTree.PendingSplit b) { return Double.compare(b._gain, a._gain); }
+      });
+      int n = Math.min(pending.size(), (_tree._splitsLeft + 1) / 2);
+      for (DTree.PendingSplit p : pending.subList(0, n)) {
+        splits.add(new DTree.DecidedNode(p._udn, p._hs, p._split));
+        splitHs.add(p._hs);
+      }
+      pending.subList(0, n).clear();
+      _tree._splitsLeft -= n;
+    }
+
+    // Fill in the histograms left out of the pass from the parent and sibling histograms
+    private void subtractHistograms(DHistogram[][] hcs, int leafOffset, int tmax) {
+      for (int leaf = leafOffset; leaf < tmax; leaf++) {
+        DTree.UndecidedNode udn = _tree.undecided(leaf);
+        if (udn._parentHs == null) continue;
+        DHistogram[] hs = hcs[leaf - leafOffset], sibling = hcs[udn._sibling - leafOffset];
+        for (int col = 0; col < hs.length; col++) {
+          if (hs[col] != null || udn._hs[col] == null) continue;
+          udn._hs[col].subtract(udn._parentHs[col], sibling[col]);
+          hs[col] = udn._hs[col];
+        }
+        udn._parentHs = null;
+      }
+    }
   }
 
   // --------------------------------------------------------------------------
@@ -567,6 +731,8 @@ public abstract class SharedTree<M extends SharedTreeModel<M,P,O>, P extends Sha
   protected final Vec vec_work( Frame fr, int c) { return fr.vecs()[idx_work(c)]; }
   protected final Vec vec_nids( Frame fr, int c) { return fr.vecs()[idx_nids(c)]; }
   protected final Vec vec_oobt( Frame fr       ) { return fr.vecs()[idx_oobt()]; }
+  // Row weights to grow the trees with, if the sampled rows are reweighted (GBM GOSS); null for the observation weights
+  protected Vec vec_sample_weights(Frame fr) { return null; }
 
   protected static class FrameMap extends Iced<FrameMap> {
     public int responseIndex;
@@ -616,6 +782,51 @@ public abstract class SharedTree<M extends SharedTreeModel<M,P,O>, P extends Sha
     }
   }
 
+  /**
+   * Bin edges of a pre-binned column: the split points rounded to float, as the
+   * compressed trees keep float split values.  A code threshold {@code c} then
+   * maps back exactly to the raw threshold {@code edges[c]}.
+   */
+  static double[] binEdges(double[] splitPoints) {
+    double[] edges = new double[splitPoints.length];
+    int n = 0;
+    for (double d : splitPoints) {
+      double f = (float) d;
+      if (n == 0 || f > edges[n - 1]) edges[n++] = f;
+    }
+    return Arrays.copyOf(edges, n);
+  }
+
+  // One edge per integer: the interpolated quantiles of a column with few distinct values would spread them
+  // over the whole code range, where the uniform histograms of the codes would merge them again
+  static double[] intEdges(double min, double max) {
+    double[] edges = new double[(int) (max - min) + 1];
+    for (int i = 0; i < edges.length; i++) edges[i] = min + i;
+    return edges;
+  }
+
+  // Bin code of a raw value: index of the highest edge at or below it
+  static int binCode(double[] edges, double d) {
+    int i = Arrays.binarySearch(edges, d);
+    return i >= 0 ? i : Math.max(-i - 2, 0);
+  }
+
+  // Map raw predictors to their bin codes, NAs stay NAs
+  private static class BinCodes extends MRTask<BinCodes> {
+    private final double[][] _edges;
+    BinCodes(double[][] edges) { _edges = edges; }
+    @Override public void map(Chunk[] cs, NewChunk[] ncs) {
+      for (int c = 0; c < cs.length; ++c) {
+        final double[] edges = _edges[c];
+        for (int row = 0; row < cs[c]._len; ++row) {
+          double d = cs[c].atd(row);
+          if (Double.isNaN(d)) ncs[c].addNA();
+          else ncs[c].addNum(binCode(edges, d), 0);
+        }
+      }
+    }
+  }
+
   // --------------------------------------------------------------------------
   transient long _timeLastScoreStart, _timeLastScoreEnd, _firstScore;
   protected final boolean doScoringAndSaveModel(boolean finalScoring, boolean oob, boolean build_tree_one_node ) {
@@ -142,15 +142,36 @@ public class GBM extends SharedTree<GBMModel,GBMModel.GBMParameters,GBMModel.GBM
       error("_max_abs_leafnode_pred", "max_abs_leafnode_pred must be larger than 0.");
     if (_parms._pred_noise_bandwidth < 0)
       error("_pred_noise_bandwidth", "pred_noise_bandwidth must be >= 0.");
+    if( !(0. <= _parms._goss_top_rate && _parms._goss_top_rate < 1.0) )
+      error("_goss_top_rate", "goss_top_rate must be between 0 and 1");
+    if (_parms.goss()) {
+      if( !(0. < _parms._goss_other_rate && _parms._goss_top_rate + _parms._goss_other_rate <= 1.0) )
+        error("_goss_other_rate", "goss_other_rate must be larger than 0 and at most 1 - goss_top_rate");
+      if (_parms._sample_rate < 1 || _parms._sample_rate_per_class != null)
+        error("_goss_top_rate", "GOSS sampling cannot be combined with sample_rate or sample_rate_per_class");
+    }
+    if (_parms._max_leaves < 0 || _parms._max_leaves == 1)
+      error("_max_leaves", "max_leaves must be 0 (grow level-wise) or at least 2.");
   }
 
+  // GOSS sampling weights of the rows, appended to the training frame after the OOB tree counts
+  private int idx_goss() { return idx_oobt() + 1; }
+  @Override protected Vec vec_sample_weights(Frame fr) { return _parms.goss() ? fr.vecs()[idx_goss()] : null; }
+
   // ----------------------
   private class GBMDriver extends Driver {
     private transient FrameMap frameMap;
+    private transient FrameMap gossMap; // frameMap with the GOSS sampling weights in place of the observation weights
 
     @Override protected boolean doOOBScoring() { return false; }
     @Override protected void initializeModelSpecifics() {
       frameMap = new FrameMap(GBM.this);
+      if (_parms.goss()) {
+        assert _train.numCols() == idx_goss();
+        _train.add("GOSS_weights", _response.makeVolatileDoubles(1)[0]);
+        gossMap = frameMap.clone();
+        gossMap.weightIndex = idx_goss();
+      }
       _mtry_per_tree = Math.max(1, (int)(_parms._col_sample_rate_per_tree * _ncols)); //per-tree
       if (!(1 <= _mtry_per_tree && _mtry_per_tree <= _ncols)) throw new IllegalArgumentException("Computed mtry_per_tree should be in interval <1,"+_ncols+"> but it is " + _mtry_per_tree);
       _mtry = Math.max(1, (int)(_parms._col_sample_rate * _parms._col_sample_rate_per_tree * _ncols)); //per-split
@@ -338,7 +359,7 @@ public class GBM extends SharedTree<GBMModel,GBMModel.GBMParameters,GBMModel.GBM
       // ----
       // ESL2, page 387.  Step 2b iii.  Compute the gammas (leaf node predictions === fit best constant), and store them back
       // into the tree leaves.  Includes learn_rate.
-      GammaPass gp = new GammaPass(frameMap, ktrees, leaves, new Distribution(_parms), _nclass);
+      GammaPass gp = new GammaPass(_parms.goss() ? gossMap : frameMap, ktrees, leaves, new Distribution(_parms), _nclass);
       gp.doAll(_train);
       if (_parms._distribution == DistributionFamily.laplace) {
         fitBestConstantsQuantile(ktrees, leaves[0], 0.5); //special case for Laplace: compute the median for each leaf node and store that as prediction
@@ -403,13 +424,17 @@ public class GBM extends SharedTree<GBMModel,GBMModel.GBMParameters,GBMModel.GBM
         if (_model._output._distribution[k] != 0) {
           if (k == 1 && _nclass == 2) continue; // Boolean Optimization (only one tree needed for 2-class problems)
           ktrees[k] = new DTree(_train, _ncols, (char)_nclass, _mtry, _mtry_per_tree, rseed, _parms);
+          ktrees[k]._binEdges = _binEdges;
+          if (_parms._max_leaves > 0) ktrees[k].growLeafWise(_parms._max_leaves);
           DHistogram[] hist = DHistogram.initialHist(_train, _ncols, adj_nbins, hcs[k][0], rseed, _parms, getGlobalQuantilesKeys());
           new UndecidedNode(ktrees[k], DTree.NO_PARENT, hist); // The "root" node
         }
       }
 
       // Sample - mark the lines by putting 'OUT_OF_BAG' into nid(<klass>) vector
-      if (_parms._sample_rate < 1 || _parms._sample_rate_per_class != null) {
+      if (_parms.goss()) {
+        gossSample(ktrees, rseed);
+      } else if (_parms._sample_rate < 1 || _parms._sample_rate_per_class != null) {
         Sample ss[] = new Sample[_nclass];
         for (int k = 0; k < _nclass; k++)
           if (ktrees[k] != null)
@@ -427,9 +452,10 @@ public class GBM extends SharedTree<GBMModel,GBMModel.GBMParameters,GBMModel.GBM
       // ----
       // ESL2, page 387.  Step 2b ii.
       // One Big Loop till the ktrees are of proper depth.
-      // Adds a layer to the trees each pass.
+      // Adds a layer to the trees each pass (grown leaf-wise: makes the best
+      // splits, the passes end once the leaf budget is spent).
       int depth = 0;
-      for (; depth < _parms._max_depth; depth++) {
+      for (; depth < _parms._max_depth || _parms._max_leaves > 0; depth++) {
         hcs = buildLayer(_train, _parms._nbins, _parms._nbins_cats, ktrees, leaves, hcs, _parms._build_tree_one_node);
         // If we did not make any new splits, then the tree is split-to-death
         if (hcs == null) break;
@@ -465,6 +491,28 @@ public class GBM extends SharedTree<GBMModel,GBMModel.GBMParameters,GBMModel.GBM
     }
 
 
+    /**
+     * Gradient-based one-side sampling (Ke et al., LightGBM): keep the goss_top_rate
+     * fraction of rows with the largest gradients |w * sum_k r_k|, and sample
+     * goss_other_rate of all rows at random out of the rest.  The weights of the
+     * sampled rows are scaled up to stand in for the dropped ones, in both the
+     * split search and the leaf predictions.  All k trees use the same sample.
+     * @param ktrees k trees to grow
+     * @param seed sampling seed
+     */
+    private void gossSample(DTree[] ktrees, long seed) {
+      boolean[] ks = new boolean[_nclass];
+      for (int k = 0; k < _nclass; k++) ks[k] = ktrees[k] != null;
+      // The gradient magnitude cutoff, to the resolution of the histogram
+      long[] counts = new GradientHisto(frameMap, ks).doAll(_train, _parms._build_tree_one_node)._counts;
+      long n = ArrayUtils.sum(counts), top = 0;
+      int topBin = counts.length;
+      while (topBin > 0 && top < _parms._goss_top_rate * n) top += counts[--topBin];
+      double rate = top == n ? 1 : Math.min(1, _parms._goss_other_rate * n / (n - top));
+      new GossSample(frameMap, idx_goss(), ks, topBin, (float) rate, seed).doAll(_train, _parms._build_tree_one_node);
+      Log.debug("GOSS: kept " + top + " of " + n + " rows with large gradients, sampled the others at rate " + rate);
+    }
+
     private void fitBestConstantsQuantile(DTree[] ktrees, int firstLeafIndex, double quantile) {
       if (firstLeafIndex == ktrees[0]._len) return; // no splits happened - nothing to do
       assert(_nclass==1);
@@ -1029,6 +1077,92 @@ public class GBM extends SharedTree<GBMModel,GBMModel.GBMParameters,GBMModel.GBM
   }
 
 
+  // Sum of the gradient magnitudes of a row over the trees being grown
+  private static double gradient(Chunk[] chks, FrameMap fm, boolean[] ks, double w, int row) {
+    double g = 0;
+    for (int k = 0; k < ks.length; k++)
+      if (ks[k]) g += Math.abs(chks[fm.work0Index + k].atd(row));
+    return w * g;
+  }
+
+  // Bin of a non-negative gradient: the top bits of its float representation are
+  // monotone in the value, and resolve it to 3% over the full float range
+  private static int gradientBin(double g) { return Float.floatToRawIntBits((float) g) >>> 18; }
+  private static final int GRADIENT_BINS = 1 << 13;
+
+  private static class GradientHisto extends MRTask<GradientHisto> {
+    private final FrameMap fm;
+    private final boolean[] _ks;
+    long[] _counts;
+
+    public GradientHisto(FrameMap frameMap, boolean[] ks) {
+      fm = frameMap;
+      _ks = ks;
+    }
+
+    @Override
+    public void map(Chunk[] chks) {
+      _counts = new long[GRADIENT_BINS];
+      final Chunk y = chks[fm.responseIndex];
+      final Chunk weights = fm.weightIndex >= 0 ? chks[fm.weightIndex] : new C0DChunk(1, chks[0]._len);
+      for (int row = 0; row < chks[0]._len; row++) {
+        double w = weights.atd(row);
+        if (w == 0 || y.isNA(row)) continue;
+        _counts[gradientBin(gradient(chks, fm, _ks, w, row))]++;
+      }
+    }
+
+    @Override
+    public void reduce(GradientHisto gh) {
+      ArrayUtils.add(_counts, gh._counts);
+    }
+  }
+
+  private static class GossSample extends MRTask<GossSample> {
+    private final FrameMap fm;
+    private final int _gossIdx;
+    private final boolean[] _ks;
+    private final int _topBin;
+    private final float _rate;
+    private final long _seed;
+
+    public GossSample(FrameMap frameMap, int gossIdx, boolean[] ks, int topBin, float rate, long seed) {
+      fm = frameMap;
+      _gossIdx = gossIdx;
+      _ks = ks;
+      _topBin = topBin;
+      _rate = rate;
+      _seed = seed;
+    }
+
+    @Override
+    protected boolean modifiesVolatileVecs() {
+      return true;
+    }
+
+    @Override
+    public void map(Chunk[] chks) {
+      Random rand = RandomUtils.getRNG(_seed);
+      final Chunk y = chks[fm.responseIndex];
+      final Chunk weights = fm.weightIndex >= 0 ? chks[fm.weightIndex] : new C0DChunk(1, chks[0]._len);
+      final double[] goss = ((C8DVolatileChunk) chks[_gossIdx]).getValues();
+      for (int row = 0; row < chks[0]._len; row++) {
+        double w = weights.atd(row);
+        boolean skip = y.isNA(row);
+        if (!skip && w != 0 && gradientBin(gradient(chks, fm, _ks, w, row)) < _topBin) {
+          rand.setSeed(_seed + row + chks[0].start()); //seeding is independent of chunking
+          skip = rand.nextFloat() >= _rate;
+          if (!skip) w /= _rate;
+        }
+        goss[row] = w;
+        if (skip)
+          for (int k = 0; k < _ks.length; k++)
+            if (_ks[k]) ((C4VolatileChunk) chks[fm.nids0Index + k]).getValues()[row] = ScoreBuildHistogram.OUT_OF_BAG;
+      }
+    }
+  }
+
+
   private static class AddTreeContributions extends MRTask<AddTreeContributions> {
     private FrameMap fm;
     private DTree[] _ktrees;
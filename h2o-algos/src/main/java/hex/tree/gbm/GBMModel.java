@@ -14,6 +14,9 @@ public class GBMModel extends SharedTreeModel<GBMModel, GBMModel.GBMParameters,
     public double _col_sample_rate;
     public double _max_abs_leafnode_pred;
     public double _pred_noise_bandwidth;
+    public double _goss_top_rate;   // GOSS: fraction of rows with the largest gradients kept for each tree, 0 to disable
+    public double _goss_other_rate; // GOSS: fraction of all rows sampled out of the rest for each tree
+    public int _max_leaves;         // Grow the trees leaf-wise up to this many leaves, 0 to grow level-wise
 
     public GBMParameters() {
       super();
@@ -25,8 +28,14 @@ public class GBMModel extends SharedTreeModel<GBMModel, GBMModel.GBMParameters,
       _max_depth = 5;
       _max_abs_leafnode_pred = Double.MAX_VALUE;
       _pred_noise_bandwidth =0;
+      _goss_top_rate = 0;
+      _goss_other_rate = 0.1;
+      _max_leaves = 0;
     }
 
+    /** Gradient-based one-side sampling instead of uniform row sampling? */
+    public boolean goss() { return _goss_top_rate > 0; }
+
     public String algoName() { return "GBM"; }
     public String fullName() { return "Gradient Boosting Machine"; }
     public String javaName() { return GBMModel.class.getName(); }
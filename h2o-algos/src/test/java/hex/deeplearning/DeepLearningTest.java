@@ -20,6 +20,7 @@ import water.util.*;
 
 import java.io.File;
 import java.util.Arrays;
+import java.util.Random;
 
 import static hex.genmodel.utils.DistributionFamily.*;
 import static org.junit.Assert.assertEquals;
@@ -1610,9 +1611,22 @@ public class DeepLearningTest extends TestUtil {
       parms._seed = 0xdecaf;
       parms._mini_batch_size = 50;
 
+      dl = new DeepLearning(parms).trainModel().get();
+      double mse = dl._output._training_metrics._MSE;
+      dl.delete();
       dl = new DeepLearning(parms).trainModel().get();
 
-      Assert.assertEquals(12.938076268040659,dl._output._training_metrics._MSE,1e-6);
+      // Reproducible, and better than the mean
+      Assert.assertEquals(mse, dl._output._training_metrics._MSE, 0);
+      double sigma = tfr.lastVec().sigma();
+      assertTrue(mse < sigma*sigma);
+
+      // Mini-batches of 50 train another model than single rows (which they were clamped to before)
+      dl.delete();
+      parms._mini_batch_size = 1;
+      dl = new DeepLearning(parms).trainModel().get();
+      Assert.assertEquals(12.938076268040659, dl._output._training_metrics._MSE, 1e-6);
+      Assert.assertNotEquals(mse, dl._output._training_metrics._MSE, 1e-6);
 
     } finally {
       if (tfr != null) tfr.delete();
@@ -1621,6 +1635,75 @@ public class DeepLearningTest extends TestUtil {
     }
   }
 
+  // Back-propagating a mini-batch applies the mean of its points' gradients, once
+  @Test
+  public void testMiniBatchGradient() {
+    Frame tfr = null;
+    DeepLearningModel dl = null;
+
+    try {
+      Random rng = new Random(0xdecaf);
+      double[][] rows = new double[1000][];
+      for (int i = 0; i < rows.length; i++) {
+        double x0 = rng.nextGaussian(), x1 = rng.nextGaussian(), x2 = rng.nextGaussian();
+        rows[i] = ard(x0, x1, x2, x0*x1 + Math.sin(x2) + 0.1*rng.nextGaussian());
+      }
+      tfr = ArrayUtils.frame(s("x0", "x1", "x2", "y"), rows);
+      DeepLearningParameters parms = new DeepLearningParameters();
+      parms._train = tfr._key;
+      parms._response_column = "y";
+      parms._reproducible = true;
+      parms._hidden = new int[]{10,10};
+      parms._seed = 0xdecaf;
+      parms._epochs = 5;
+      parms._mini_batch_size = 4;
+
+      dl = new DeepLearning(parms).trainModel().get();
+      double sigma = tfr.vec("y").sigma();
+      assertTrue(dl._output._training_metrics._MSE < 0.5*sigma*sigma);
+      assertEquals(0.6720307208836558, dl._output._training_metrics._MSE, 1e-8);
+
+      DataInfo di = dl.model_info().data_info();
+      DataInfo.Row[] batch = new DataInfo.Row[parms._mini_batch_size];
+      for (int i = 0; i < batch.length; i++)
+        batch[i] = new FrameTask.ExtractDenseRow(di, i).doAll(di._adaptedFrame)._row;
+      for (int layer = 0; layer <= parms._hidden.length; layer++) {
+        int row = layer < parms._hidden.length ? 3 : 0;
+        for (int col : new int[]{-1 /*bias*/, 1}) {
+          double mean = 0;
+          for (DataInfo.Row r : batch)
+            mean += miniBatchGradient(dl, new DataInfo.Row[]{r}, layer, row, col) / batch.length;
+          assertEquals("layer " + layer + ", col " + col, mean, miniBatchGradient(dl, batch, layer, row, col), 1e-6);
+        }
+      }
+    } finally {
+      if (tfr != null) tfr.delete();
+      if (dl != null) dl.delete();
+    }
+  }
+
+  // Gradient of one weight (or bias, for col -1) from one mini-batch, leaving the model unchanged
+  private static double miniBatchGradient(DeepLearningModel dl, DataInfo.Row[] rows, int layer, int row, int col) {
+    DeepLearningModelInfo golden = IcedUtils.deepCopy(dl.model_info());
+    try {
+      Neurons[] neurons = DeepLearningTask.makeNeuronsForTraining(dl.model_info());
+      double[] responses = new double[rows.length];
+      double[] offsets = new double[rows.length];
+      for (int mb = 0; mb < rows.length; mb++) {
+        ((Neurons.Input) neurons[0]).setInput(-1, rows[mb].numIds, rows[mb].numVals, rows[mb].nBins, rows[mb].binIds, mb);
+        responses[mb] = rows[mb].response(0);
+        offsets[mb] = rows[mb].offset;
+      }
+      DeepLearningTask.fpropMiniBatch(-1, neurons, dl.model_info(), null, true, responses, offsets, rows.length);
+      DeepLearningModelInfo.gradientCheck = new DeepLearningModelInfo.GradientCheck(layer, row, col);
+      DeepLearningTask.bpropMiniBatch(neurons, rows.length);
+      return DeepLearningModelInfo.gradientCheck.gradient;
+    } finally {
+      DeepLearningModelInfo.gradientCheck = null;
+      dl.set_model_info(golden);
+    }
+  }
+
 
   @Test
   public void testPretrainedAE() {
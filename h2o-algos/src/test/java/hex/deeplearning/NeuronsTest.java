@@ -6,6 +6,7 @@ import org.junit.*;
 import water.util.ArrayUtils;
 import water.util.Log;
 import water.util.PrettyPrint;
+import java.util.Arrays;
 import java.util.Random;
 
 public class NeuronsTest extends water.TestUtil {
@@ -109,4 +110,34 @@ public class NeuronsTest extends water.TestUtil {
     System.out.println("optimized dense row * dense time: " + PrettyPrint.msecs(System.currentTimeMillis()-start, true));
   }
 
+  @Test
+  public void matrixMatrixTest() {
+    Random rng = new Random(0x6E33);
+    int[][] shapes = {{1, 1}, {3, 5}, {7, 9}, {37, 130}, {200, 1000}};
+    for (int[] shape : shapes) {
+      int rows = shape[0], cols = shape[1];
+      float[] a = new float[rows * cols];
+      for (int i = 0; i < a.length; ++i) a[i] = (float) rng.nextGaussian();
+      double[] y = new double[rows];
+      for (int row = 0; row < rows; ++row) y[row] = rng.nextGaussian();
+      byte[] bits = new byte[(rows + 7) / 8];
+      rng.nextBytes(bits);
+      for (int n : new int[]{1, 2, 3, 8, 13}) {
+        double[][] x = new double[n][cols], res = new double[n][rows];
+        for (int mb = 0; mb < n; ++mb) {
+          for (int col = 0; col < cols; ++col) x[mb][col] = rng.nextGaussian();
+          Arrays.fill(res[mb], Double.NaN); // overwritten, also for the dropped rows
+        }
+        for (byte[] row_bits : new byte[][]{null, bits}) {
+          gemm_blocked(res, a, x, y, row_bits, n);
+          double[] expected = new double[rows];
+          for (int mb = 0; mb < n; ++mb) {
+            gemv_naive(expected, a, x[mb], y, row_bits);
+            Assert.assertArrayEquals(expected, res[mb], 1e-10 * cols);
+          }
+        }
+      }
+    }
+  }
+
 }
@@ -16,6 +16,7 @@ import java.util.Set;
 import hex.Model;
 import hex.grid.Grid;
 import hex.grid.GridSearch;
+import hex.grid.HyperSpaceSearchCriteria;
 import water.DKV;
 import water.Job;
 import water.Key;
@@ -113,6 +114,47 @@ public class KMeansGridTest extends TestUtil {
     }
   }
 
+  @Test
+  public void testParallelGrid() {
+    Grid<KMeansModel.KMeansParameters> seqGrid = null, parGrid = null;
+    Random rng = new Random(0xC1A5);
+    double[][] rows = new double[500][3];
+    for (double[] row : rows)
+      for (int j = 0; j < row.length; j++)
+        row[j] = rng.nextInt(5) + rng.nextGaussian() / 4;
+    Frame fr = ArrayUtils.frame(rows);
+    try {
+      HashMap<String, Object[]> hyperParms = new HashMap<>();
+      hyperParms.put("_k", new Integer[]{0, 1, 2, 3, 4, 5, 3});
+      hyperParms.put("_seed", new Long[]{1L, 42L});
+      KMeansModel.KMeansParameters params = new KMeansModel.KMeansParameters();
+      params._train = fr._key;
+
+      seqGrid = (Grid<KMeansModel.KMeansParameters>) GridSearch.startGridSearch(Key.<Grid>make("kmeans_seq_grid"), params, hyperParms).get();
+      HyperSpaceSearchCriteria.CartesianSearchCriteria criteria = new HyperSpaceSearchCriteria.CartesianSearchCriteria();
+      criteria.set_parallelism(3);
+      parGrid = (Grid<KMeansModel.KMeansParameters>) GridSearch.startGridSearch(Key.<Grid>make("kmeans_par_grid"), params, hyperParms,
+          new GridSearch.SimpleParametersBuilderFactory<KMeansModel.KMeansParameters>(), criteria).get();
+
+      // Same models (duplicated points are built once) and same failures as a sequential grid
+      Assert.assertEquals(10, seqGrid.getModelCount());
+      Assert.assertEquals(seqGrid.getModelCount(), parGrid.getModelCount());
+      Assert.assertEquals(seqGrid.getFailureCount(), parGrid.getFailureCount());
+      Map<String, Double> seqWithinss = new HashMap<>();
+      for (Model m : seqGrid.getModels())
+        seqWithinss.put(Arrays.deepToString(seqGrid.getHyperValues(((KMeansModel) m)._parms)), ((KMeansModel) m)._output._tot_withinss);
+      for (Model m : parGrid.getModels()) {
+        String hypers = Arrays.deepToString(parGrid.getHyperValues(((KMeansModel) m)._parms));
+        Assert.assertTrue(hypers, seqWithinss.containsKey(hypers));
+        Assert.assertEquals(hypers, seqWithinss.get(hypers), ((KMeansModel) m)._output._tot_withinss, 1e-10);
+      }
+    } finally {
+      fr.remove();
+      if (seqGrid != null) seqGrid.remove();
+      if (parGrid != null) parGrid.remove();
+    }
+  }
+
   //@Ignore("PUBDEV-1643")
   @Test
   public void testDuplicatesCarsGrid() {
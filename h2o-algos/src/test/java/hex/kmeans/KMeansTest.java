@@ -356,6 +356,43 @@ public class KMeansTest extends TestUtil {
     }
   }
 
+  @Test public void testBoundedSameAsFull() {
+    Random rng = new Random(0xB0D5);
+    double[][] rows = new double[20000][5];
+    for (double[] row : rows) {
+      int blob = rng.nextInt(40);
+      for (int j = 0; j < row.length; j++)
+        row[j] = ((blob >> j) & 3) * 3 + rng.nextGaussian();
+    }
+    Frame fr = ArrayUtils.frame(rows);
+    KMeansModel full = null, bounded = null;
+    String prev = System.getProperty(KMeans.BOUNDED_MIN_K_PROP);
+    try {
+      KMeansModel.KMeansParameters parms = new KMeansModel.KMeansParameters();
+      parms._train = fr._key;
+      parms._k = 30;
+      parms._max_iterations = 50;
+      parms._init = KMeans.Initialization.PlusPlus;
+      parms._seed = 1234;
+      System.setProperty(KMeans.BOUNDED_MIN_K_PROP, Integer.toString(Integer.MAX_VALUE));
+      full = new KMeans(parms).trainModel().get();
+      System.setProperty(KMeans.BOUNDED_MIN_K_PROP, "1");
+      bounded = new KMeans(parms).trainModel().get();
+
+      assertEquals(full._output._iterations, bounded._output._iterations);
+      assertArrayEquals(full._output._size, bounded._output._size);
+      for (int i = 0; i < parms._k; i++)
+        assertArrayEquals(full._output._centers_raw[i], bounded._output._centers_raw[i], 0);
+      assertEquals(full._output._tot_withinss, bounded._output._tot_withinss, 0);
+    } finally {
+      if (prev == null) System.clearProperty(KMeans.BOUNDED_MIN_K_PROP);
+      else System.setProperty(KMeans.BOUNDED_MIN_K_PROP, prev);
+      fr.delete();
+      if (full != null) full.delete();
+      if (bounded != null) bounded.delete();
+    }
+  }
+
   // Negative test - expect to throw IllegalArgumentException
   @Test (expected = H2OModelBuilderIllegalArgumentException.class) public void testTooManyK() {
     Frame fr = ArrayUtils.frame(ard(d(1,0),d(0,0),d(1,0),d(2,0),d(0,0),d(0,0)));
@@ -3,7 +3,15 @@ package hex.tree;
 import org.junit.Assert;
 import org.junit.BeforeClass;
 import org.junit.Test;
+import hex.Model;
+import hex.tree.drf.DRF;
+import hex.tree.drf.DRFModel;
+import hex.tree.gbm.GBM;
+import hex.tree.gbm.GBMModel;
 import water.*;
+import water.fvec.Frame;
+import water.fvec.TestFrameBuilder;
+import water.fvec.Vec;
 import water.util.*;
 
 import java.util.Arrays;
@@ -108,6 +116,122 @@ public class HistogramTest extends TestUtil {
     }
   }
 
+  @Test public void testSubtract() {
+    Random rng = new Random(0x5B7);
+    SharedTreeModel.SharedTreeParameters.HistogramType uniform = SharedTreeModel.SharedTreeParameters.HistogramType.UniformAdaptive;
+    DHistogram parent = new DHistogram("parent", 20, 20, (byte)1, 0, 12, 0, uniform, 0, null);
+    DHistogram left = new DHistogram("left", 20, 20, (byte)1, 2, 10, 0, uniform, 1, null);
+    DHistogram right = new DHistogram("right", 20, 20, (byte)1, 2, 10, 0, uniform, 2, null);
+    DHistogram derived = new DHistogram("derived", 20, 20, (byte)1, 2, 10, 0, uniform, 2, null);
+    parent.init(); left.init(); right.init();
+    int n = 1000;
+    double[] ws = new double[n], cs = new double[n], ys = new double[n];
+    int[] rows = new int[n];
+    for (int i = 0; i < n; i++) {
+      ws[i] = rng.nextInt(10) == 0 ? 0 : 1;
+      cs[i] = rng.nextInt(10) == 0 ? Double.NaN : 3 + rng.nextInt(6);
+      ys[i] = rng.nextGaussian();
+      rows[i] = i;
+    }
+    parent.updateHisto(ws, cs, ys, rows, n, 0);
+    left.updateHisto(ws, cs, ys, rows, n / 3, 0);
+    right.updateHisto(ws, cs, ys, rows, n, n / 3);
+    parent.reducePrecision(); left.reducePrecision(); right.reducePrecision();
+
+    Assert.assertTrue(parent.canSubtract(derived, left));
+    derived.subtract(parent, left);
+    Assert.assertEquals(right.nbins(), derived.nbins());
+    for (int b = 0; b < right.nbins(); b++) {
+      Assert.assertEquals(right.w(b), derived.w(b), 0);
+      Assert.assertEquals(right.wY(b), derived.wY(b), 1e-5);
+      Assert.assertEquals(right.wYY(b), derived.wYY(b), 1e-5);
+    }
+    Assert.assertEquals(right.wNA(), derived.wNA(), 0);
+    Assert.assertEquals(right.wYNA(), derived.wYNA(), 1e-10);
+    Assert.assertEquals(right.find_min(), derived.find_min(), 0);
+    Assert.assertEquals(right.find_maxIn(), derived.find_maxIn(), 0);
+
+    // Ranged bins lose the observed min/max
+    DHistogram ranged = new DHistogram("ranged", 4, 20, (byte)1, 2, 10, 0, uniform, 2, null);
+    Assert.assertFalse(parent.canSubtract(ranged, left));
+  }
+
+  @Test public void testSubtractionSameAsScan() {
+    Scope.enter();
+    try {
+      Random rng = new Random(0xD1FF);
+      int n = 20000;
+      double[] x0 = new double[n], x1 = new double[n], x2 = new double[n], y = new double[n];
+      String[] c = new String[n];
+      for (int i = 0; i < n; i++) {
+        x0[i] = rng.nextInt(20) == 0 ? Double.NaN : rng.nextInt(10);
+        x1[i] = rng.nextInt(3);
+        x2[i] = rng.nextGaussian();
+        c[i] = "l" + rng.nextInt(8);
+        y[i] = (Double.isNaN(x0[i]) ? 5 : x0[i]) * x1[i] + c[i].charAt(1) % 3 + x2[i] + rng.nextGaussian();
+      }
+      Frame fr = new TestFrameBuilder()
+          .withName("subtraction")
+          .withColNames("x0", "x1", "x2", "c", "y")
+          .withVecTypes(Vec.T_NUM, Vec.T_NUM, Vec.T_NUM, Vec.T_CAT, Vec.T_NUM)
+          .withDataForCol(0, x0).withDataForCol(1, x1).withDataForCol(2, x2).withDataForCol(3, c).withDataForCol(4, y)
+          .build();
+      GBMModel.GBMParameters gbm = new GBMModel.GBMParameters();
+      gbm._train = fr._key;
+      gbm._response_column = "y";
+      gbm._ntrees = 5;
+      gbm._max_depth = 8;
+      gbm._seed = 42;
+      assertSamePredictions(new GBM(gbm), new GBM(gbm), fr);
+      DRFModel.DRFParameters drf = new DRFModel.DRFParameters();
+      drf._train = fr._key;
+      drf._response_column = "y";
+      drf._ntrees = 3;
+      drf._max_depth = 10;
+      drf._seed = 42;
+      assertSamePredictions(new DRF(drf), new DRF(drf), fr);
+    } finally {
+      Scope.exit();
+    }
+  }
+
+  private static void assertSamePredictions(SharedTree scanned, SharedTree subtracted, Frame fr) {
+    String prev = System.getProperty(SharedTree.SUBTRACT_HISTOGRAMS_PROP);
+    Model m1, m2;
+    try {
+      System.setProperty(SharedTree.SUBTRACT_HISTOGRAMS_PROP, "false");
+      m1 = (Model) scanned.trainModel().get();
+      Scope.track_generic(m1);
+      System.setProperty(SharedTree.SUBTRACT_HISTOGRAMS_PROP, "true");
+      m2 = (Model) subtracted.trainModel().get();
+      Scope.track_generic(m2);
+    } finally {
+      if (prev == null) System.clearProperty(SharedTree.SUBTRACT_HISTOGRAMS_PROP);
+      else System.setProperty(SharedTree.SUBTRACT_HISTOGRAMS_PROP, prev);
+    }
+    Frame p1 = Scope.track(m1.score(fr)), p2 = Scope.track(m2.score(fr));
+    for (long row = 0; row < fr.numRows(); row++)
+      Assert.assertEquals(p1.vec(0).at(row), p2.vec(0).at(row), 1e-4);
+  }
+
+  @Test public void testBinCodes() {
+    double[] edges = SharedTree.binEdges(new double[]{0.1, 0.1000000001, 0.5, 2, 7.25});
+    Assert.assertArrayEquals(new double[]{(float)0.1, (float)0.5, 2, 7.25}, edges, 0);
+    Assert.assertEquals(0, SharedTree.binCode(edges, 0.05));
+    Assert.assertEquals(0, SharedTree.binCode(edges, 0.3));
+    Assert.assertEquals(1, SharedTree.binCode(edges, (float)0.5));
+    Assert.assertEquals(2, SharedTree.binCode(edges, 7.2));
+    Assert.assertEquals(3, SharedTree.binCode(edges, 7.25));
+    Assert.assertEquals(3, SharedTree.binCode(edges, Double.POSITIVE_INFINITY));
+  }
+
+  @Test public void testIntEdges() {
+    double[] edges = SharedTree.binEdges(SharedTree.intEdges(-1, 3));
+    Assert.assertArrayEquals(new double[]{-1, 0, 1, 2, 3}, edges, 0);
+    for (int i = -1; i <= 3; i++)
+      Assert.assertEquals(i + 1, SharedTree.binCode(edges, i));
+  }
+
   @Test public void testSplits() {
     int nbins = 13;
     int nbins_cats = nbins;
@@ -2,7 +2,9 @@ package hex.tree.gbm;
 
 import hex.*;
 import hex.genmodel.utils.DistributionFamily;
+import hex.splitframe.ShuffleSplitFrame;
 import hex.tree.SharedTreeModel;
+import hex.tree.TreeStats;
 import org.junit.Assert;
 import org.junit.BeforeClass;
 import org.junit.Ignore;
@@ -13,6 +15,7 @@ import water.exceptions.H2OModelBuilderIllegalArgumentException;
 import water.fvec.Chunk;
 import water.fvec.Frame;
 import water.fvec.RebalanceDataSet;
+import water.fvec.TestFrameBuilder;
 import water.fvec.Vec;
 import water.parser.ParseDataset;
 import water.util.*;
@@ -3044,4 +3047,168 @@ public class GBMTest extends TestUtil {
     }
   }
 
+  // Rows of x0, x1, x2, a numeric response y and a 0/1 response c, made categorical;
+  // split 80/20 into train & test, all tracked by the current Scope
+  private static Frame[] trainTestSplit(double[][] rows) {
+    Frame fr = Scope.track(ArrayUtils.frame(new String[]{"x0", "x1", "x2", "y", "c"}, rows));
+    fr.replace(4, fr.vec(4).toCategoricalVec()).remove();
+    DKV.put(fr);
+    Frame[] splits = ShuffleSplitFrame.shuffleSplitFrame(fr, new Key[]{Key.make(), Key.make()}, new double[]{0.8, 0.2}, 42);
+    Scope.track(splits[0]);
+    Scope.track(splits[1]);
+    return splits;
+  }
+
+  // Parameters for one of the two responses of trainTestSplit, ignoring the other
+  private static GBMModel.GBMParameters splitParms(Frame train, String response) {
+    GBMModel.GBMParameters parms = new GBMModel.GBMParameters();
+    parms._train = train._key;
+    parms._response_column = response;
+    parms._ignored_columns = new String[]{response.equals("y") ? "c" : "y"};
+    parms._seed = 1234;
+    return parms;
+  }
+
+  @Test public void testGOSS() {
+    Scope.enter();
+    try {
+      java.util.Random rng = new java.util.Random(0x6055);
+      double[][] rows = new double[30000][];
+      for (int i = 0; i < rows.length; i++) {
+        double x0 = rng.nextGaussian(), x1 = rng.nextGaussian(), x2 = rng.nextInt(10);
+        double y = Math.sin(2 * x0) + x1 * x1 / 2 + (x2 > 6 ? 1 : 0) + rng.nextGaussian() / 10;
+        rows[i] = new double[]{x0, x1, x2, y, y > 1 ? 1 : 0};
+      }
+      Frame[] splits = trainTestSplit(rows);
+      Frame train = splits[0], test = splits[1];
+
+      for (String response : new String[]{"y", "c"}) {
+        GBMModel.GBMParameters parms = splitParms(train, response);
+        parms._ntrees = 50;
+        GBMModel full = new GBM(parms).trainModel().get();
+        Scope.track_generic(full);
+        parms._goss_top_rate = 0.2;
+        parms._goss_other_rate = 0.1;
+        GBMModel goss = new GBM(parms).trainModel().get();
+        Scope.track_generic(goss);
+
+        Scope.track(full.score(test));
+        Scope.track(goss.score(test));
+        double fullMSE = ModelMetrics.getFromDKV(full, test).mse();
+        double gossMSE = ModelMetrics.getFromDKV(goss, test).mse();
+        Log.info("Test MSE for " + response + ": " + fullMSE + " (all rows), " + gossMSE + " (GOSS)");
+        assertTrue(gossMSE != fullMSE);
+        assertEquals(fullMSE, gossMSE, 0.1 * fullMSE);
+      }
+
+      // GOSS replaces uniform row sampling
+      GBMModel.GBMParameters parms = splitParms(train, "y");
+      parms._goss_top_rate = 0.2;
+      parms._sample_rate = 0.5;
+      try {
+        new GBM(parms).trainModel().get();
+        Assert.fail("Should toss H2OModelBuilderIllegalArgumentException instead of reaching here");
+      } catch(H2OModelBuilderIllegalArgumentException e) {}
+      parms._sample_rate = 1;
+      parms._goss_other_rate = 0.9;
+      try {
+        new GBM(parms).trainModel().get();
+        Assert.fail("Should toss H2OModelBuilderIllegalArgumentException instead of reaching here");
+      } catch(H2OModelBuilderIllegalArgumentException e) {}
+    } finally {
+      Scope.exit();
+    }
+  }
+
+  @Test public void testMaxLeaves() {
+    Scope.enter();
+    try {
+      // The x1 effect is localized to x0 > 1: worth more leaves than a level-wise tree gives it
+      java.util.Random rng = new java.util.Random(0x1EAF);
+      double[][] rows = new double[20000][];
+      for (int i = 0; i < rows.length; i++) {
+        double x0 = rng.nextGaussian(), x1 = rng.nextGaussian(), x2 = rng.nextInt(10);
+        double y = (x0 > 1 ? 3 * Math.sin(4 * x1) : x1 / 4) + (x2 > 6 ? 1 : 0) + rng.nextGaussian() / 10;
+        rows[i] = new double[]{x0, x1, x2, y, y > 0.5 ? 1 : 0};
+      }
+      Frame[] splits = trainTestSplit(rows);
+      Frame train = splits[0], test = splits[1];
+
+      for (String response : new String[]{"y", "c"}) {
+        GBMModel.GBMParameters parms = splitParms(train, response);
+        parms._ntrees = 30;
+        parms._max_depth = 5;
+        GBMModel levelWise = new GBM(parms).trainModel().get();
+        Scope.track_generic(levelWise);
+        parms._max_depth = 12;
+        parms._max_leaves = 32;
+        GBMModel leafWise = new GBM(parms).trainModel().get();
+        Scope.track_generic(leafWise);
+
+        // Same number of leaves, spent on the leaves that improve the most
+        TreeStats stats = leafWise._output._treeStats;
+        assertTrue(stats._max_leaves <= 32);
+        assertTrue(stats._max_depth > 5);
+        Scope.track(levelWise.score(test));
+        Scope.track(leafWise.score(test));
+        double levelMSE = ModelMetrics.getFromDKV(levelWise, test).mse();
+        double leafMSE = ModelMetrics.getFromDKV(leafWise, test).mse();
+        Log.info("Test MSE for " + response + ": " + levelMSE + " (level-wise), " + leafMSE + " (leaf-wise)");
+        assertTrue(leafMSE <= 1.05 * levelMSE);
+      }
+
+      GBMModel.GBMParameters parms = splitParms(train, "y");
+      parms._max_leaves = 1;
+      try {
+        new GBM(parms).trainModel().get();
+        Assert.fail("Should toss H2OModelBuilderIllegalArgumentException instead of reaching here");
+      } catch(H2OModelBuilderIllegalArgumentException e) {}
+    } finally {
+      Scope.exit();
+    }
+  }
+
+  @Test public void testPrebinnedSameAsTrainingPredictions() {
+    Scope.enter();
+    try {
+      // Real values over a wide range (one column log-distributed), NAs and a categorical
+      java.util.Random rng = new java.util.Random(0xB1C0);
+      int n = 20000;
+      double[] x0 = new double[n], x1 = new double[n], x2 = new double[n], y = new double[n];
+      String[] c = new String[n];
+      for (int i = 0; i < n; i++) {
+        x0[i] = rng.nextInt(200);
+        x1[i] = rng.nextInt(20) == 0 ? Double.NaN : rng.nextGaussian() * 1e3;
+        x2[i] = Math.exp(rng.nextDouble() * 10);
+        c[i] = "l" + rng.nextInt(8);
+        y[i] = x0[i] / 50 + (Double.isNaN(x1[i]) ? 2 : Math.sin(x1[i] / 300)) + Math.log(x2[i]) / 3 + c[i].charAt(1) % 3 + rng.nextGaussian() / 4;
+      }
+      Frame fr = new TestFrameBuilder()
+          .withName("prebinned")
+          .withColNames("x0", "x1", "x2", "c", "y")
+          .withVecTypes(Vec.T_NUM, Vec.T_NUM, Vec.T_NUM, Vec.T_CAT, Vec.T_NUM)
+          .withDataForCol(0, x0).withDataForCol(1, x1).withDataForCol(2, x2).withDataForCol(3, c).withDataForCol(4, y)
+          .build();
+      GBMModel.GBMParameters parms = new GBMModel.GBMParameters();
+      parms._train = fr._key;
+      parms._response_column = "y";
+      parms._ntrees = 10;
+      parms._max_depth = 8;
+      parms._seed = 42;
+      parms._histogram_type = SharedTreeModel.SharedTreeParameters.HistogramType.QuantilesGlobal;
+      GBMModel raw = new GBM(parms).trainModel().get();
+      Scope.track_generic(raw);
+      parms._prebin_predictors = true;
+      GBMModel prebinned = new GBM(parms).trainModel().get();
+      Scope.track_generic(prebinned);
+      // The trees were grown on bin codes, but score the raw values like they did during training
+      Scope.track(prebinned.score(fr));
+      double trainMSE = prebinned._output._training_metrics.mse();
+      assertEquals(trainMSE, ModelMetrics.getFromDKV(prebinned, fr).mse(), 1e-6 * trainMSE);
+      assertEquals(raw._output._training_metrics.mse(), trainMSE, 0.05 * trainMSE);
+    } finally {
+      Scope.exit();
+    }
+  }
+
 }
@@ -667,7 +667,8 @@ public class FrameMetadata extends Iced {
       if(v.isCategorical()){
         _colMeta._cardinality = v.cardinality();
       }else{
-        _colMeta._cardinality = 0;
+        // Approximate distinct count, from a sketch built with a single pass over the data
+        _colMeta._cardinality = (int) Math.min(Integer.MAX_VALUE, Math.max(0, v.approxDistinct()));
       }
 
       int nbins = (int) Math.ceil(1 + log2(v.length()));  // Sturges nbins
@@ -64,7 +64,7 @@ public class ColMeta extends Iced {
   public double _fourthMoment;  // used for skew/kurtosis; NaN if not numeric
   public double _kurtosis;      // the sharpness of the peak of a frequency-distribution curve
   public double _skew;          // measure of the assymetry of a distribution; < 0 means shifted to the right; > 0 means shifted to the left
-  public int _cardinality;                // length of domain
+  public int _cardinality;                // length of domain; approximate distinct count for non-categoricals
 
   // VIF
   public double _vif;           // vifs computed by FrameMeta
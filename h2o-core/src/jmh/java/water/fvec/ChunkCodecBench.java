@@ -0,0 +1,179 @@
+package water.fvec;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import water.util.UnsafeUtils;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-codec cost of the numeric Chunk compression schemes: compression
+ * (codec selection plus encoding), row-by-row reads ({@code atd}, {@code at8},
+ * {@code isNA}), bulk reads ({@code getDoubles}) and in-place writes
+ * ({@code set_impl}).
+ *
+ * Each codec gets data shaped so that {@link NewChunk#compress()} picks that
+ * codec; setup fails if it picks another one, so a change in codec selection
+ * shows up here and not as a silent shift in the numbers.  C4F is never
+ * picked by compression and is built directly.  See
+ * {@link ChunkDistributionBench} for the data-driven view and
+ * {@link ChunkStrUUIDBench} for the non-numeric codecs.
+ */
+@State(Scope.Thread)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ChunkCodecBench {
+
+  /** Data generators, one per numeric codec.  Every 10th row is missing for
+   *  codecs which can store NAs, unless the codec has a no-NA variant. */
+  public enum Codec {
+    C0L { void add(NewChunk nc, int i, Random r) { nc.addNum(7, 0); } },
+    C0D { void add(NewChunk nc, int i, Random r) { nc.addNum(Math.PI); } },
+    C1  { void add(NewChunk nc, int i, Random r) { if (i % 10 == 0) nc.addNA(); else nc.addNum(r.nextInt(200), 0); } },
+    C1N { void add(NewChunk nc, int i, Random r) { nc.addNum(r.nextInt(256), 0); } },
+    C1S { void add(NewChunk nc, int i, Random r) { if (i % 10 == 0) nc.addNA(); else nc.addNum(r.nextInt(200), -1); } },
+    C2  { void add(NewChunk nc, int i, Random r) { if (i % 10 == 0) nc.addNA(); else nc.addNum(r.nextInt(30000), 0); } },
+    C2S { void add(NewChunk nc, int i, Random r) { if (i % 10 == 0) nc.addNA(); else nc.addNum(r.nextInt(30000), -2); } },
+    C4  { void add(NewChunk nc, int i, Random r) { if (i % 10 == 0) nc.addNA(); else nc.addNum(r.nextInt(1 << 30) - (1 << 29), 0); } },
+    C4S { void add(NewChunk nc, int i, Random r) { if (i % 10 == 0) nc.addNA(); else nc.addNum(r.nextInt(1 << 30), -4); } },
+    C4F { void add(NewChunk nc, int i, Random r) { if (i % 10 == 0) nc.addNA(); else nc.addNum((double) (float) r.nextGaussian()); }
+      // Compression never picks C4F (float data goes to C8D), so encode directly
+      @Override public Chunk chunk(int len, long seed) {
+        double[] ds = newChunk(len, seed).compress().getDoubles(new double[len], 0, len);
+        byte[] bs = new byte[len << 2];
+        for (int i = 0; i < len; i++) UnsafeUtils.set4f(bs, i << 2, (float) ds[i]);
+        return new C4FChunk(bs);
+      }
+    },
+    C8  { void add(NewChunk nc, int i, Random r) { if (i % 10 == 0) nc.addNA(); else nc.addNum(r.nextLong() >> 8, 0); } },
+    C8D { void add(NewChunk nc, int i, Random r) { if (i % 10 == 0) nc.addNA(); else nc.addNum(r.nextGaussian()); } },
+    CBS { void add(NewChunk nc, int i, Random r) { if (i % 10 == 0) nc.addNA(); else nc.addNum(r.nextInt(2), 0); } },
+    CUD { void add(NewChunk nc, int i, Random r) { nc.addNum(UNIQUES[r.nextInt(UNIQUES.length)]); } },
+    CXI { void add(NewChunk nc, int i, Random r) { nc.addNum(i % 50 == 0 ? r.nextInt(1000) + 1 : 0, 0); } },
+    CXF { void add(NewChunk nc, int i, Random r) { if (i % 50 == 0) nc.addNum(r.nextGaussian()); else nc.addNum(0, 0); } };
+
+    abstract void add(NewChunk nc, int i, Random r);
+
+    /** A fresh, not yet compressed, NewChunk of this codec's data */
+    public NewChunk newChunk(int len, long seed) {
+      Random r = new Random(seed);
+      NewChunk nc = new NewChunk(null, 0);
+      for (int i = 0; i < len; i++) add(nc, i, r);
+      return nc;
+    }
+
+    /** Compressed Chunk of this codec's data; throws if another codec got picked */
+    public Chunk chunk(int len, long seed) {
+      Chunk c = newChunk(len, seed).compress();
+      String expected = name() + "Chunk";
+      if (!c.getClass().getSimpleName().equals(expected))
+        throw new IllegalStateException("Expected " + expected + " but compression picked " + c.getClass().getSimpleName());
+      return c;
+    }
+
+    private static final double[] UNIQUES = new double[16];
+    static {
+      Random r = new Random(42);
+      for (int i = 0; i < UNIQUES.length; i++) UNIQUES[i] = r.nextGaussian();
+    }
+  }
+
+  @Param({"C0L", "C0D", "C1", "C1N", "C1S", "C2", "C2S", "C4", "C4S", "C4F", "C8", "C8D", "CBS", "CUD", "CXI", "CXF"})
+  private Codec codec;
+
+  @Param({"65536"})
+  private int rows;
+
+  private Chunk chunk;
+  private double[] vals;
+  private double[] buf;
+
+  @Setup
+  public void setup() {
+    chunk = codec.chunk(rows, 0xDECAF);
+    vals = chunk.getDoubles(new double[rows], 0, rows);
+    buf = new double[rows];
+  }
+
+  /** A NewChunk ready to compress, rebuilt outside of the measurement */
+  @State(Scope.Thread)
+  public static class Uncompressed {
+    NewChunk nc;
+    @Setup(Level.Invocation)
+    public void setup(ChunkCodecBench bench) { nc = bench.codec.newChunk(bench.rows, 0xDECAF); }
+  }
+
+  @Benchmark
+  public Chunk compress(Uncompressed u) {
+    return u.nc.compress();
+  }
+
+  @Benchmark
+  public double atd() {
+    final Chunk c = chunk;
+    double sum = 0;
+    for (int row = 0; row < rows; ++row) {
+      double d = c.atd(row);
+      if (!Double.isNaN(d)) sum += d;
+    }
+    return sum;
+  }
+
+  @Benchmark
+  public long at8() {
+    final Chunk c = chunk;
+    long sum = 0;
+    for (int row = 0; row < rows; ++row)
+      if (!c.isNA(row)) sum += c.at8(row);
+    return sum;
+  }
+
+  @Benchmark
+  public int isNA() {
+    final Chunk c = chunk;
+    int nas = 0;
+    for (int row = 0; row < rows; ++row)
+      if (c.isNA(row)) nas++;
+    return nas;
+  }
+
+  @Benchmark
+  public double getDoubles() {
+    double[] ds = chunk.getDoubles(buf, 0, rows);
+    double sum = 0;
+    for (int row = 0; row < rows; ++row) {
+      double d = ds[row];
+      if (!Double.isNaN(d)) sum += d;
+    }
+    return sum;
+  }
+
+  /** Writes every row back with its current value, so the codec never has to
+   *  inflate; measures the in-place encoding cost only. */
+  @Benchmark
+  public int set() {
+    final Chunk c = chunk;
+    int ok = 0;
+    for (int row = 0; row < rows; ++row) {
+      double d = vals[row];
+      if (Double.isNaN(d) ? c.setNA_impl(row) : c.set_impl(row, d)) ok++;
+    }
+    return ok;
+  }
+
+  public static void main(String[] args) throws RunnerException {
+    Options opt = new OptionsBuilder()
+        .include(ChunkCodecBench.class.getSimpleName())
+        .build();
+
+    new Runner(opt).run();
+  }
+}
@@ -0,0 +1,127 @@
+package water.fvec;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Chunk compression and read cost by data distribution, whatever codec the
+ * data ends up in.  Complements {@link ChunkCodecBench}: there the codec is
+ * fixed, here the data is, so a change in codec selection for common data
+ * shapes shows up as a change in compression and read speed.
+ */
+@State(Scope.Thread)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ChunkDistributionBench {
+
+  public enum Distribution {
+    /** Dense small integers */
+    dense_int { void add(NewChunk nc, int i, Random r) { nc.addNum(r.nextInt(1000), 0); } },
+    /** Dense doubles */
+    dense_double { void add(NewChunk nc, int i, Random r) { nc.addNum(r.nextDouble() * 1000); } },
+    /** Dense decimals with two fractional digits, e.g. prices */
+    dense_decimal { void add(NewChunk nc, int i, Random r) { nc.addNum(r.nextInt(100000), -2); } },
+    /** 1% non-zero integers */
+    sparse_int { void add(NewChunk nc, int i, Random r) { nc.addNum(r.nextInt(100) == 0 ? r.nextInt(1000) + 1 : 0, 0); } },
+    /** 1% non-zero doubles */
+    sparse_double { void add(NewChunk nc, int i, Random r) { if (r.nextInt(100) == 0) nc.addNum(r.nextGaussian()); else nc.addNum(0, 0); } },
+    /** 90% missing integers */
+    na_heavy { void add(NewChunk nc, int i, Random r) { if (r.nextInt(10) != 0) nc.addNA(); else nc.addNum(r.nextInt(1000), 0); } },
+    /** Half missing doubles */
+    na_half_double { void add(NewChunk nc, int i, Random r) { if (r.nextBoolean()) nc.addNA(); else nc.addNum(r.nextGaussian()); } },
+    /** Categorical level indices, few levels */
+    low_cardinality { void add(NewChunk nc, int i, Random r) { nc.addNum(r.nextInt(8), 0); } },
+    /** Categorical level indices, many levels, e.g. ids */
+    high_cardinality { void add(NewChunk nc, int i, Random r) { nc.addNum(r.nextInt(1 << 20), 0); } },
+    /** Booleans with missing values */
+    binary { void add(NewChunk nc, int i, Random r) { if (r.nextInt(20) == 0) nc.addNA(); else nc.addNum(r.nextInt(2), 0); } },
+    /** Large timestamps in milliseconds */
+    timestamps { void add(NewChunk nc, int i, Random r) { nc.addNum(1500000000000L + i * 1000L + r.nextInt(1000), 0); } };
+
+    abstract void add(NewChunk nc, int i, Random r);
+
+    public NewChunk newChunk(int len, long seed) {
+      Random r = new Random(seed);
+      NewChunk nc = new NewChunk(null, 0);
+      for (int i = 0; i < len; i++) add(nc, i, r);
+      return nc;
+    }
+  }
+
+  @Param({"dense_int", "dense_double", "dense_decimal", "sparse_int", "sparse_double", "na_heavy",
+          "na_half_double", "low_cardinality", "high_cardinality", "binary", "timestamps"})
+  private Distribution distribution;
+
+  @Param({"65536"})
+  private int rows;
+
+  private Chunk chunk;
+  private double[] buf;
+
+  @Setup
+  public void setup() {
+    chunk = distribution.newChunk(rows, 0xDECAF).compress();
+    buf = new double[rows];
+  }
+
+  /** A NewChunk ready to compress, rebuilt outside of the measurement */
+  @State(Scope.Thread)
+  public static class Uncompressed {
+    NewChunk nc;
+    @Setup(Level.Invocation)
+    public void setup(ChunkDistributionBench bench) { nc = bench.distribution.newChunk(bench.rows, 0xDECAF); }
+  }
+
+  @Benchmark
+  public Chunk compress(Uncompressed u) {
+    return u.nc.compress();
+  }
+
+  @Benchmark
+  public double atd() {
+    final Chunk c = chunk;
+    double sum = 0;
+    for (int row = 0; row < rows; ++row) {
+      double d = c.atd(row);
+      if (!Double.isNaN(d)) sum += d;
+    }
+    return sum;
+  }
+
+  @Benchmark
+  public double getDoubles() {
+    double[] ds = chunk.getDoubles(buf, 0, rows);
+    double sum = 0;
+    for (int row = 0; row < rows; ++row) {
+      double d = ds[row];
+      if (!Double.isNaN(d)) sum += d;
+    }
+    return sum;
+  }
+
+  /** Sparse-aware walk over the non-zeros only */
+  @Benchmark
+  public void nextNZ(Blackhole bh) {
+    final Chunk c = chunk;
+    for (int row = c.nextNZ(-1); row < rows; row = c.nextNZ(row))
+      bh.consume(c.atd(row));
+  }
+
+  public static void main(String[] args) throws RunnerException {
+    Options opt = new OptionsBuilder()
+        .include(ChunkDistributionBench.class.getSimpleName())
+        .build();
+
+    new Runner(opt).run();
+  }
+}
@@ -0,0 +1,132 @@
+package water.fvec;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import water.parser.BufferedString;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of the non-numeric Chunk codecs: C16 (UUIDs) and CStr (Strings).
+ * Compression, reads and missing-value checks, as in {@link ChunkCodecBench}.
+ * Every 10th row is missing.
+ */
+@State(Scope.Thread)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ChunkStrUUIDBench {
+
+  @Param({"65536"})
+  private int rows;
+
+  /** Distinct Strings in the CStr Chunk; low values repeat Strings a lot */
+  @Param({"16", "65536"})
+  private int cardinality;
+
+  private Chunk c16;
+  private Chunk cstr;
+
+  static NewChunk uuids(int rows, long seed) {
+    Random r = new Random(seed);
+    NewChunk nc = new NewChunk(null, 0);
+    for (int i = 0; i < rows; i++) {
+      if (i % 10 == 0) nc.addNA();
+      else nc.addUUID(r.nextLong(), r.nextLong());
+    }
+    return nc;
+  }
+
+  static NewChunk strings(int rows, int cardinality, long seed) {
+    Random r = new Random(seed);
+    NewChunk nc = new NewChunk(null, 0);
+    for (int i = 0; i < rows; i++) {
+      if (i % 10 == 0) nc.addNA();
+      else nc.addStr("level_" + r.nextInt(cardinality));
+    }
+    return nc;
+  }
+
+  @Setup
+  public void setup() {
+    c16 = uuids(rows, 0xDECAF).compress();
+    cstr = strings(rows, cardinality, 0xDECAF).compress();
+    if (!(c16 instanceof C16Chunk) || !(cstr instanceof CStrChunk))
+      throw new IllegalStateException("Unexpected codecs " + c16.getClass().getSimpleName() + ", " + cstr.getClass().getSimpleName());
+  }
+
+  /** NewChunks ready to compress, rebuilt outside of the measurement */
+  @State(Scope.Thread)
+  public static class Uncompressed {
+    NewChunk uuids, strings;
+    @Setup(Level.Invocation)
+    public void setup(ChunkStrUUIDBench bench) {
+      uuids = ChunkStrUUIDBench.uuids(bench.rows, 0xDECAF);
+      strings = ChunkStrUUIDBench.strings(bench.rows, bench.cardinality, 0xDECAF);
+    }
+  }
+
+  @Benchmark
+  public Chunk compressC16(Uncompressed u) {
+    return u.uuids.compress();
+  }
+
+  @Benchmark
+  public Chunk compressCStr(Uncompressed u) {
+    return u.strings.compress();
+  }
+
+  @Benchmark
+  public long readC16() {
+    final Chunk c = c16;
+    long sum = 0;
+    for (int row = 0; row < rows; ++row)
+      if (!c.isNA(row)) sum += c.at16l(row) ^ c.at16h(row);
+    return sum;
+  }
+
+  @Benchmark
+  public int readCStr() {
+    final Chunk c = cstr;
+    BufferedString tmp = new BufferedString();
+    int len = 0;
+    for (int row = 0; row < rows; ++row) {
+      BufferedString bs = c.atStr(tmp, row);
+      if (bs != null) len += bs.length();
+    }
+    return len;
+  }
+
+  @Benchmark
+  public int isNAC16() {
+    final Chunk c = c16;
+    int nas = 0;
+    for (int row = 0; row < rows; ++row)
+      if (c.isNA(row)) nas++;
+    return nas;
+  }
+
+  @Benchmark
+  public int isNACStr() {
+    final Chunk c = cstr;
+    int nas = 0;
+    for (int row = 0; row < rows; ++row)
+      if (c.isNA(row)) nas++;
+    return nas;
+  }
+
+  public static void main(String[] args) throws RunnerException {
+    Options opt = new OptionsBuilder()
+        .include(ChunkStrUUIDBench.class.getSimpleName())
+        .build();
+
+    new Runner(opt).run();
+  }
+}
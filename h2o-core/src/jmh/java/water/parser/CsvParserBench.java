@@ -0,0 +1,119 @@
+package water.parser;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import water.Iced;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tokenizing one 4MB chunk of CSV with the structural index
+ * ({@code indexed=true}) against the byte-at-a-time state machine alone
+ * ({@code indexed=false}).  The writer only sums what it is handed, so the
+ * numbers are the tokenizer's cost without NewChunk appends.
+ *
+ * The data shapes: all numbers; numbers with a categorical and an empty
+ * column; and quoted strings, where every line goes back to the state
+ * machine and the index is pure overhead.
+ */
+@State(Scope.Thread)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class CsvParserBench {
+
+  public enum Shape {
+    NUMERIC {
+      void row(StringBuilder sb, Random r) {
+        sb.append(r.nextInt(100000)).append(',').append(r.nextGaussian()).append(',')
+          .append(r.nextInt(2)).append(',').append((float) r.nextDouble() * 1000).append(',')
+          .append(-r.nextInt(50)).append('\n');
+      }
+    },
+    MIXED {
+      void row(StringBuilder sb, Random r) {
+        sb.append(r.nextInt(100000)).append(",cat").append(r.nextInt(30)).append(',')
+          .append(r.nextInt(10) == 0 ? "" : Double.toString(r.nextGaussian())).append(',')
+          .append(r.nextInt(5) == 0 ? "NA" : "level_" + r.nextInt(4)).append(',')
+          .append(r.nextInt(1000) / 10.0).append('\n');
+      }
+    },
+    QUOTED {
+      void row(StringBuilder sb, Random r) {
+        sb.append(r.nextInt(100000)).append(",\"name ").append(r.nextInt(30)).append("\",")
+          .append(r.nextGaussian()).append(",\"a, b\",").append(r.nextInt(1000)).append('\n');
+      }
+    };
+
+    abstract void row(StringBuilder sb, Random r);
+
+    byte[] bytes(int len) {
+      StringBuilder sb = new StringBuilder(len + 128);
+      Random r = new Random(0xC5F);
+      while (sb.length() < len) row(sb, r);
+      return sb.toString().getBytes();
+    }
+  }
+
+  @Param({"NUMERIC", "MIXED", "QUOTED"})
+  private Shape shape;
+
+  @Param({"true", "false"})
+  private boolean indexed;
+
+  @Param({"4194304"})
+  private int chunkSize;
+
+  private byte[] bits;
+  private ParseSetup setup;
+
+  @Setup
+  public void setup() {
+    bits = shape.bytes(chunkSize);
+    setup = new ParseSetup(DefaultParserProviders.CSV_INFO, (byte) ',', false, ParseSetup.NO_HEADER, 5,
+        null, null, null, new String[][]{null, null, null, {"NA"}, null}, null);
+  }
+
+  /** Sums up everything it is handed, so nothing gets optimized away */
+  static final class SumWriter extends Iced implements ParseWriter {
+    long _sum, _lines;
+    @Override public void setColumnNames(String[] names) { }
+    @Override public void newLine() { _lines++; }
+    @Override public boolean isString(int colIdx) { return false; }
+    @Override public void addNumCol(int colIdx, long number, int exp) { _sum += number + exp; }
+    @Override public void addNumCol(int colIdx, double d) { _sum += (long) d; }
+    @Override public void addInvalidCol(int colIdx) { _sum++; }
+    @Override public void addStrCol(int colIdx, BufferedString str) { _sum += str.length(); }
+    @Override public void rollbackLine() { }
+    @Override public void invalidLine(ParseErr err) { }
+    @Override public void addError(ParseErr err) { }
+    @Override public void setIsAllASCII(int colIdx, boolean b) { }
+    @Override public boolean hasErrors() { return false; }
+    @Override public ParseErr[] removeErrors() { return new ParseErr[0]; }
+    @Override public long lineNum() { return _lines; }
+  }
+
+  @Benchmark
+  public long parseChunk() {
+    CsvParser p = new CsvParser(setup, null);
+    p._indexed = indexed;
+    SumWriter w = new SumWriter();
+    p.parseChunk(0, new Parser.ByteAryData(bits, 0), w);
+    return w._sum + w._lines;
+  }
+
+  public static void main(String[] args) throws RunnerException {
+    Options opt = new OptionsBuilder()
+        .include(CsvParserBench.class.getSimpleName())
+        .build();
+
+    new Runner(opt).run();
+  }
+}
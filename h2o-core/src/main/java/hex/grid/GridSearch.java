@@ -2,6 +2,7 @@ package hex.grid;
 
 import hex.*;
 import hex.grid.HyperSpaceWalker.BaseWalker;
+import jsr166y.CountedCompleter;
 import water.*;
 import water.exceptions.H2OIllegalArgumentException;
 import water.fvec.Frame;
@@ -12,7 +13,11 @@ import java.io.PrintWriter;
 import java.io.StringWriter;
 import java.text.DecimalFormat;
 import java.text.NumberFormat;
+import java.util.HashSet;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
 
 /**
  * Grid search job.
@@ -29,7 +34,8 @@ import java.util.Map;
  * The job is started by the <code>startGridSearch</code> method which create a new grid search, put
  * representation of Grid into distributed KV store, and for each parameter in hyper space of
  * possible parameters, it launches a separated model building job. The launch of jobs is sequential
- * and blocking. So after finish the last model, whole grid search job is done as well.
+ * and blocking, unless the search criteria ask for a parallelism &gt; 1, in which case up to that
+ * many models are built at once. So after finish the last model, whole grid search job is done as well.
  *
  * By default, the grid search invokes cartezian grid search, but it can be
  * modified by passing explicit hyper space walk strategy via the
@@ -158,7 +164,6 @@ public final class GridSearch<MP extends Model.Parameters> extends Keyed<GridSea
    * @param grid grid object to save results; grid already locked
    */
   private void gridSearch(Grid<MP> grid) {
-    Model model = null;
     // Prepare nice model key and override default key by appending model counter
     //String protoModelKey = _hyperSpaceWalker.getParams()._model_id == null
     //                       ? grid._key + "_model_"
@@ -168,89 +173,243 @@ public final class GridSearch<MP extends Model.Parameters> extends Keyed<GridSea
     try {
       // Get iterator to traverse hyper space
       HyperSpaceWalker.HyperSpaceIterator<MP> it = _hyperSpaceWalker.iterator();
-      // Number of traversed model parameters
-      int counter = grid.getModelCount();
-      while (it.hasNext(model)) {
-        if(_job.stop_requested() ) return;  // Handle end-user cancel request
-        double max_runtime_secs = it.max_runtime_secs();
+      int parallelism = _hyperSpaceWalker.search_criteria().parallelism();
+      if (parallelism > 1) parallelGridSearch(grid, it, protoModelKey, parallelism);
+      else sequentialGridSearch(grid, it, protoModelKey);
+      Log.info("For grid: " + grid._key + " built: " + grid.getModelCount() + " models.");
+    } finally {
+      grid.unlock(_job);
+    }
+  }
+
+  private void sequentialGridSearch(Grid<MP> grid, HyperSpaceWalker.HyperSpaceIterator<MP> it, String protoModelKey) {
+    Model model = null;
+    // Number of traversed model parameters
+    int counter = grid.getModelCount();
+    while (it.hasNext(model)) {
+      if(_job.stop_requested() ) return;  // Handle end-user cancel request
+      double max_runtime_secs = it.max_runtime_secs();
+
+      double time_remaining_secs = Double.MAX_VALUE;
+      if (max_runtime_secs > 0) {
+        time_remaining_secs = it.time_remaining_secs();
+        if (time_remaining_secs < 0) {
+          Log.info("Grid max_runtime_secs of " + max_runtime_secs + " secs has expired; stopping early.");
+          return;
+        }
+      }
+
+      MP params;
+      try {
+        // Get parameters for next model
+        params = it.nextModelParameters(model);
+
+        // Sequential model building, should never propagate
+        // exception up, just mark combination of model parameters as wrong
 
+        // Do we need to limit the model build time?
+        if (max_runtime_secs > 0) limitRuntime(params, grid, max_runtime_secs, time_remaining_secs);
+
+        try {
+          ScoringInfo scoringInfo = new ScoringInfo();
+          scoringInfo.time_stamp_ms = System.currentTimeMillis();
+
+          //// build the model!
+          model = buildModel(params, grid, counter++, protoModelKey);
+
+          if (model!=null) addScoringInfo(grid, model, scoringInfo);
+        } catch (RuntimeException e) { // Catch everything
+          modelFailed(grid, params, e);
+        }
+      } catch (IllegalArgumentException e) {
+        Log.warn("Grid search: construction of model parameters failed! Exception: ", e);
+        // Model parameters cannot be constructed for some reason
+        it.modelFailed(model);
+        Object[] rawParams = it.getCurrentRawParameters();
+        grid.appendFailedModelParameters(rawParams, e);
+      } finally {
+        // Update progress by 1 increment
+        _job.update(1);
+        // Always update grid in DKV after model building attempt
+        grid.update(_job);
+      } // finally
+
+      if (model != null && grid.getScoringInfos() != null && // did model build and scoringInfo creation succeed?
+          _hyperSpaceWalker.stopEarly(model, grid.getScoringInfos())) {
+        Log.info("Convergence detected based on simple moving average of the loss function. Grid building completed.");
+        break;
+      }
+    } // while (it.hasNext(model))
+  }
+
+  /**
+   * Walks the hyper space like {@link #sequentialGridSearch}, but keeps up to parallelism model
+   * builds running at a time.
+   *
+   * The walker is used only from this thread, so the visited points (and the model seeds of a
+   * random walk) do not depend on the order in which the builds finish.  The builds share the
+   * grid job: a cancel request stops all of them, and each gets at most the remaining grid time.
+   * Once the grid is out of time or converged no new builds are launched, the running ones are
+   * waited for and added to the grid.
+   */
+  private void parallelGridSearch(Grid<MP> grid, HyperSpaceWalker.HyperSpaceIterator<MP> it, String protoModelKey, int parallelism) {
+    Log.info("Grid " + grid._key + " builds up to " + parallelism + " models in parallel.");
+    BlockingQueue<ModelBuild> done = new LinkedBlockingQueue<>();
+    Set<Long> running = new HashSet<>(); // Checksums of the parameters being built
+    Model model = null;                  // Last finished model
+    int counter = grid.getModelCount();
+    boolean stop = false;
+    while (true) {
+      // Launch builds up to the parallelism
+      while (!stop && running.size() < parallelism && it.hasNext(model)) {
+        if (_job.stop_requested()) { stop = true; break; } // Handle end-user cancel request
+        double max_runtime_secs = it.max_runtime_secs();
         double time_remaining_secs = Double.MAX_VALUE;
         if (max_runtime_secs > 0) {
           time_remaining_secs = it.time_remaining_secs();
           if (time_remaining_secs < 0) {
             Log.info("Grid max_runtime_secs of " + max_runtime_secs + " secs has expired; stopping early.");
-            return;
+            stop = true;
+            break;
           }
         }
-
         MP params;
         try {
-          // Get parameters for next model
           params = it.nextModelParameters(model);
-
-          // Sequential model building, should never propagate
-          // exception up, just mark combination of model parameters as wrong
-
-          // Do we need to limit the model build time?
-          if (max_runtime_secs > 0) {
-            Log.info("Grid time is limited to: " + max_runtime_secs + " for grid: " + grid._key + ". Remaining time is: " + time_remaining_secs);
-            double scale = params._nfolds > 0 ? params._nfolds+1 : 1; //remaining time per cv model is less
-            if (params._max_runtime_secs == 0) { // unlimited
-              params._max_runtime_secs = time_remaining_secs/scale;
-              Log.info("Due to the grid time limit, changing model max runtime to: " + params._max_runtime_secs + " secs.");
-            } else {
-              double was = params._max_runtime_secs;
-              params._max_runtime_secs = Math.min(params._max_runtime_secs, time_remaining_secs/scale);
-              Log.info("Due to the grid time limit, changing model max runtime from: " + was + " secs to: " + params._max_runtime_secs + " secs.");
-            }
-          }
-
-          try {
-            ScoringInfo scoringInfo = new ScoringInfo();
-            scoringInfo.time_stamp_ms = System.currentTimeMillis();
-
-            //// build the model!
-            model = buildModel(params, grid, counter++, protoModelKey);
-
-            if (model!=null) {
-              model.fillScoringInfo(scoringInfo);
-              grid.setScoringInfos(ScoringInfo.prependScoringInfo(scoringInfo, grid.getScoringInfos()));
-              ScoringInfo.sort(grid.getScoringInfos(), _hyperSpaceWalker.search_criteria().stopping_metric()); // Currently AUTO for Cartesian and user-specified for RandomDiscrete
-            }
-          } catch (RuntimeException e) { // Catch everything
-            if (!Job.isCancelledException(e)) {
-              StringWriter sw = new StringWriter();
-              PrintWriter pw = new PrintWriter(sw);
-              e.printStackTrace(pw);
-              Log.warn("Grid search: model builder for parameters " + params + " failed! Exception: ", e, sw.toString());
-            }
-            grid.appendFailedModelParameters(params, e);
-          }
         } catch (IllegalArgumentException e) {
           Log.warn("Grid search: construction of model parameters failed! Exception: ", e);
-          // Model parameters cannot be constructed for some reason
           it.modelFailed(model);
-          Object[] rawParams = it.getCurrentRawParameters();
-          grid.appendFailedModelParameters(rawParams, e);
-        } finally {
-          // Update progress by 1 increment
+          grid.appendFailedModelParameters(it.getCurrentRawParameters(), e);
           _job.update(1);
-          // Always update grid in DKV after model building attempt
           grid.update(_job);
-        } // finally
+          continue;
+        }
+        if (max_runtime_secs > 0) limitRuntime(params, grid, max_runtime_secs, time_remaining_secs);
 
-        if (model != null && grid.getScoringInfos() != null && // did model build and scoringInfo creation succeed?
-            _hyperSpaceWalker.stopEarly(model, grid.getScoringInfos())) {
-          Log.info("Convergence detected based on simple moving average of the loss function. Grid building completed.");
-          break;
+        final long checksum = params.checksum();
+        Model cached = running.contains(checksum) ? null : cachedModel(grid, checksum);
+        if (cached != null || running.contains(checksum)) { // Built already, or being built
+          if (cached != null) {
+            ScoringInfo scoringInfo = new ScoringInfo();
+            scoringInfo.time_stamp_ms = System.currentTimeMillis();
+            addScoringInfo(grid, cached, scoringInfo);
+            model = cached;
+          }
+          _job.update(1);
+          grid.update(_job);
+          continue;
         }
-      } // while (it.hasNext(model))
-      Log.info("For grid: " + grid._key + " built: " + grid.getModelCount() + " models.");
-    } finally {
-      grid.unlock(_job);
+        running.add(checksum);
+        H2O.submitTask(new ModelBuild(params, checksum, Key.<Model>make(protoModelKey + counter++), grid, done));
+      }
+      if (running.isEmpty()) break;
+
+      // Collect the next finished build
+      ModelBuild build = take(done);
+      running.remove(build._checksum);
+      if (build._model != null) {
+        grid.putModel(build._checksum, build._model._key);
+        addScoringInfo(grid, build._model, build._scoringInfo);
+        model = build._model;
+      } else {
+        modelFailed(grid, build._params, build._ex);
+      }
+      _job.update(1);
+      grid.update(_job);
+
+      if (!stop && build._model != null && grid.getScoringInfos() != null &&
+          _hyperSpaceWalker.stopEarly(build._model, grid.getScoringInfos())) {
+        Log.info("Convergence detected based on simple moving average of the loss function. Grid building completed.");
+        stop = true;
+      }
     }
   }
 
+  private static <T> T take(BlockingQueue<T> queue) {
+    while (true) {
+      try {
+        return queue.take();
+      } catch (InterruptedException ignore) {
+      }
+    }
+  }
+
+  /**
+   * A model build running alongside the walk of the hyper space, see {@link #parallelGridSearch}.
+   * The build is blocked on by the grid search, so it runs at a higher priority than the grid.
+   */
+  private final class ModelBuild extends H2O.H2OCountedCompleter<ModelBuild> {
+    final MP _params;
+    final long _checksum;
+    final Key<Model> _key;
+    final Grid<MP> _grid;
+    final BlockingQueue<ModelBuild> _done;
+    final ScoringInfo _scoringInfo = new ScoringInfo();
+    Model _model;
+    Exception _ex;
+
+    ModelBuild(MP params, long checksum, Key<Model> key, Grid<MP> grid, BlockingQueue<ModelBuild> done) {
+      _params = params;
+      _checksum = checksum;
+      _key = key;
+      _grid = grid;
+      _done = done;
+      _scoringInfo.time_stamp_ms = System.currentTimeMillis();
+    }
+
+    @Override
+    public void compute2() {
+      try {
+        _model = (Model) startBuildModel(_key, _params, _grid).dest().get();
+      } catch (RuntimeException e) { // Catch everything, reported as a failed model
+        _ex = e;
+      }
+      tryComplete();
+    }
+
+    @Override
+    public void onCompletion(CountedCompleter caller) {
+      _done.add(this);
+    }
+
+    @Override
+    public boolean onExceptionalCompletion(Throwable ex, CountedCompleter caller) {
+      _ex = ex instanceof Exception ? (Exception) ex : new RuntimeException(ex);
+      _done.add(this);
+      return true;
+    }
+  }
+
+  // Limit the model build time to what is left of the grid time
+  private void limitRuntime(MP params, Grid<MP> grid, double max_runtime_secs, double time_remaining_secs) {
+    Log.info("Grid time is limited to: " + max_runtime_secs + " for grid: " + grid._key + ". Remaining time is: " + time_remaining_secs);
+    double scale = params._nfolds > 0 ? params._nfolds+1 : 1; //remaining time per cv model is less
+    if (params._max_runtime_secs == 0) { // unlimited
+      params._max_runtime_secs = time_remaining_secs/scale;
+      Log.info("Due to the grid time limit, changing model max runtime to: " + params._max_runtime_secs + " secs.");
+    } else {
+      double was = params._max_runtime_secs;
+      params._max_runtime_secs = Math.min(params._max_runtime_secs, time_remaining_secs/scale);
+      Log.info("Due to the grid time limit, changing model max runtime from: " + was + " secs to: " + params._max_runtime_secs + " secs.");
+    }
+  }
+
+  private void addScoringInfo(Grid<MP> grid, Model model, ScoringInfo scoringInfo) {
+    model.fillScoringInfo(scoringInfo);
+    grid.setScoringInfos(ScoringInfo.prependScoringInfo(scoringInfo, grid.getScoringInfos()));
+    ScoringInfo.sort(grid.getScoringInfos(), _hyperSpaceWalker.search_criteria().stopping_metric()); // Currently AUTO for Cartesian and user-specified for RandomDiscrete
+  }
+
+  private void modelFailed(Grid<MP> grid, MP params, Exception e) {
+    if (!Job.isCancelledException(e)) {
+      StringWriter sw = new StringWriter();
+      PrintWriter pw = new PrintWriter(sw);
+      e.printStackTrace(pw);
+      Log.warn("Grid search: model builder for parameters " + params + " failed! Exception: ", e, sw.toString());
+    }
+    grid.appendFailedModelParameters(params, e);
+  }
+
   /**
    * Build a model based on specified parameters and save it to resulting Grid object.
    *
@@ -271,10 +430,26 @@ public final class GridSearch<MP extends Model.Parameters> extends Keyed<GridSea
    */
   private Model buildModel(final MP params, Grid<MP> grid, int paramsIdx, String protoModelKey) {
     // Make sure that the model is not yet built (can be case of duplicated hyper parameters).
-    // We first look in the grid _models cache, then we look in the DKV.
     // FIXME: get checksum here since model builder will modify instance of params!!!
-
     final long checksum = params.checksum();
+    Model cached = cachedModel(grid, checksum);
+    if (cached != null) return cached;
+
+    // Modify model key to have nice version with counter
+    // Note: Cannot create it before checking the cache since checksum would differ for each model
+    Key<Model> result = Key.make(protoModelKey + paramsIdx);
+    // Build a new model
+    // THIS IS BLOCKING call, parallelGridSearch runs several of them at once
+    Model m = (Model)startBuildModel(result,params, grid).dest().get();
+    grid.putModel(checksum, result);
+    return m;
+  }
+
+  /**
+   * Returns an already built model for the parameters checksum, or null.  We first look in the
+   * grid _models cache, then we look in the DKV.
+   */
+  private Model cachedModel(Grid<MP> grid, final long checksum) {
     Key<Model> key = grid.getModelKey(checksum);
     if (key != null) {
       if (DKV.get(key) == null) {
@@ -298,17 +473,7 @@ public final class GridSearch<MP extends Model.Parameters> extends Keyed<GridSea
       grid.putModel(checksum, modelKeys[0]);
       return modelKeys[0].get();
     }
-
-
-    // Modify model key to have nice version with counter
-    // Note: Cannot create it before checking the cache since checksum would differ for each model
-    Key<Model> result = Key.make(protoModelKey + paramsIdx);
-    // Build a new model
-    // THIS IS BLOCKING call since we do not have enough information about free resources
-    // FIXME: we should allow here any launching strategy (not only sequential)
-    Model m = (Model)startBuildModel(result,params, grid).dest().get();
-    grid.putModel(checksum, result);
-    return m;
+    return null;
   }
 
   /**
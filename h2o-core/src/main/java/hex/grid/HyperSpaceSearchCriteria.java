@@ -16,6 +16,18 @@ public class HyperSpaceSearchCriteria extends Iced {
 
   public ScoreKeeper.StoppingMetric stopping_metric() { return ScoreKeeper.StoppingMetric.AUTO; }
 
+  private int _parallelism = 1;
+
+  /**
+   * Number of models built concurrently.  The default 1 builds them one after another, a higher
+   * value keeps up to that many model builds running, each of them still distributed over the cloud.
+   */
+  public int parallelism() { return _parallelism; }
+
+  public void set_parallelism(int parallelism) {
+    this._parallelism = parallelism;
+  }
+
 
 // TODO: add a factory which accepts a Strategy and calls the right constructor
 
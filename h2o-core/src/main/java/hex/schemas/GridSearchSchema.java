@@ -92,6 +92,9 @@ public class GridSearchSchema<G extends Grid<MP>,
       } else {
         throw new H2OIllegalArgumentException("search_criteria.strategy", strategy);
       }
+      if (p.containsKey("parallelism") && Integer.parseInt((String) p.get("parallelism"))<1) {
+        throw new H2OIllegalArgumentException("parallelism must be >= 1 (1 to build one model at a time)", strategy);
+      }
 
       search_criteria.fillWithDefaults();
       search_criteria.fillFromParms(p);
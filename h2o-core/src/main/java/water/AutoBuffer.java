@@ -71,6 +71,13 @@ public final class AutoBuffer {
   // we are blocking another Node with I/O.
   private int _oldPrior = -1;
 
+  // TRUE if the TCP channel carries framed, possibly compressed, pages; see
+  // TCPCompression.  Set when the channel is opened, for its lifetime.
+  private boolean _framed;
+  // Reading a framed channel: the decoded current frame, of which the bytes
+  // between position and limit are not handed out yet.
+  private ByteBuffer _frame;
+
   // Where to send or receive data via TCP or UDP (choice made as we discover
   // how big the message is); used to lazily create a Channel.  If NULL, then
   // _chan should be a pre-existing Channel, such as a FileChannel.
@@ -140,12 +147,20 @@ public final class AutoBuffer {
    *  represents the case where the communication is coming from h2o node.
    *  */
   AutoBuffer( ByteChannel sock, InetAddress remoteAddress  ) throws IOException {
+    this(sock, remoteAddress, false);
+  }
+
+  /** Incoming TCP request on a channel which may carry framed pages, see
+   *  {@link TCPCompression}. */
+  AutoBuffer( ByteChannel sock, InetAddress remoteAddress, boolean framed ) throws IOException {
     _chan = sock;
+    _framed = framed;
     raisePriority();            // Make TCP priority high
     _bb = BBP_BIG.make();       // Get a big / TPC-sized ByteBuffer
     _bb.flip();
     _read = true;               // Reading by default
     _firstPage = true;
+    _persist = Value.TCP;       // Before the first read, so all of it counts as TCP traffic
     // Read Inet from socket, port from the stream, figure out H2ONode
     if(remoteAddress!=null) {
       _h2o = H2ONode.intern(remoteAddress, getPort());
@@ -160,7 +175,6 @@ public final class AutoBuffer {
     }
     _firstPage = true;          // Yes, must reset this.
     _time_start_ms = System.currentTimeMillis();
-    _persist = Value.TCP;
   }
 
   /** Make an AutoBuffer to write to an H2ONode.  Requests for full buffer will
@@ -489,6 +503,7 @@ public final class AutoBuffer {
     assert _chan == null;
 //    assert _bb.position()==0;
     _chan = _h2o.getTCPSocket();
+    _framed = TCPCompression.CODEC != null; // Sockets are opened framed iff we compress
     raisePriority();
   }
 
@@ -643,7 +658,15 @@ public final class AutoBuffer {
   }
 
   private int readAnInt() throws IOException {
-    if (_is == null) return _chan.read(_bb);
+    if (_framed) return readFramed();
+    if (_is == null) {
+      int res = _chan.read(_bb);
+      if( res > 0 && _persist == Value.TCP ) {
+        TCPCompression.RECV_RAW.addAndGet(res);
+        TCPCompression.RECV_WIRE.addAndGet(res);
+      }
+      return res;
+    }
 
     final byte[] array = _bb.array();
     final int position = _bb.position();
@@ -655,6 +678,22 @@ public final class AutoBuffer {
     }
   }
 
+  // Hand out the next bytes of the current frame, first reading (and
+  // decoding) the next frame from the channel if the current one is used up.
+  private int readFramed() throws IOException {
+    if( _frame == null || !_frame.hasRemaining() ) {
+      ByteBuffer frame = TCPCompression.readFrame(_chan, _frame);
+      if( frame == null ) return -1; // EOF
+      _frame = frame;
+    }
+    int n = Math.min(_frame.remaining(), _bb.remaining());
+    int lim = _frame.limit();
+    _frame.limit(_frame.position() + n);
+    _bb.put(_frame);
+    _frame.limit(lim);
+    return n;
+  }
+
   /** Put as needed to keep from overflowing the ByteBuffer. */
   private ByteBuffer putSp( int sz ) {
     assert !_read;
@@ -680,10 +719,17 @@ public final class AutoBuffer {
         tcpOpen(); // This is a big operation.  Open a TCP socket as-needed.
       //for( int i=0; i < _bb.limit(); i++ ) if( _bb.get(i)==0 ) _zeros++;
       long ns = System.nanoTime();
-      while( _bb.hasRemaining() ) {
-        _chan.write(_bb);
-        if( RANDOM_TCP_DROP != null && SocketChannelUtils.isSocketChannel(_chan) && RANDOM_TCP_DROP.nextInt(100) == 0 )
-          throw new IOException("Random TCP Write Fail");
+      if( _framed ) TCPCompression.writeFrame(_chan, _bb, TCPCompression.CODEC);
+      else {
+        if( _persist == Value.TCP ) {
+          TCPCompression.SENT_RAW.addAndGet(_bb.remaining());
+          TCPCompression.SENT_WIRE.addAndGet(_bb.remaining());
+        }
+        while( _bb.hasRemaining() ) {
+          _chan.write(_bb);
+          if( RANDOM_TCP_DROP != null && SocketChannelUtils.isSocketChannel(_chan) && RANDOM_TCP_DROP.nextInt(100) == 0 )
+            throw new IOException("Random TCP Write Fail");
+        }
       }
       _time_io_ns += (System.nanoTime()-ns);
     } catch( IOException e ) {  // Some kind of TCP fail?
@@ -23,6 +23,9 @@ class Cleaner extends Thread {
   static volatile long HEAP_USED_AT_LAST_GC;
   static volatile long KV_USED_AT_LAST_GC;
   static volatile long TIME_AT_LAST_GC=System.currentTimeMillis();
+  // Order in which cached Values are evicted; must be set before THE_CLEANER
+  // builds its first histogram.
+  static final EvictionPolicy POLICY = EvictionPolicy.make();
   static final Cleaner THE_CLEANER = new Cleaner();
   static void kick_store_cleaner() {
     synchronized(THE_CLEANER) { THE_CLEANER.notifyAll(); }
@@ -49,7 +52,7 @@ class Cleaner extends Thread {
     setPriority(MAX_PRIORITY-2);
     _dirty = Long.MAX_VALUE;  // Set to clean-store
     Histo.current(true);      // Build/allocate a first histogram
-    Histo.current(true);      // Force a recompute with a good eldest
+    Histo.current(true);      // Force a recompute with a good priority range
     MemoryManager.set_goals("init",false);
   }
 
@@ -89,30 +92,38 @@ class Cleaner extends Thread {
         continue; // Awoke; loop back and re-check histogram.
       }
 
+      // Only now that there is cleaning to do: Frames locked since the last
+      // pass are pinned from the sweep on (the histogram still ranks them
+      // by the previous pass' pins).
+      POLICY.collectPinned(H2O.STORE.raw_array());
+
       now = System.currentTimeMillis();
       _dirty = Long.MAX_VALUE; // Reset, since we are going write stuff out
       MemoryManager.set_goals("preclean",false);
 
-      // The age beyond which we need to toss out things to hit the desired
-      // caching levels. If forced, be exact (toss out the minimal amount).
-      // If lazy, store-to-disk things down to 1/2 the desired cache level
-      // and anything older than 5 secs.
+      // The eviction priority below which we need to toss out things to hit
+      // the desired caching levels. If forced, be exact (toss out the
+      // minimal amount).  If lazy, store-to-disk things down to 1/2 the
+      // desired cache level and anything older than 5 secs.
       boolean force = (h._cached >= DESIRED || !MemoryManager.CAN_ALLOC); // Forced to clean
       if( force && diskFull )   // Try to clean the diskFull flag
         diskFull = isDiskFull();
-      long clean_to_age = h.clean_to(force ? DESIRED : (DESIRED>>1));
-      // If not forced cleaning, expand the cleaning age to allows Values
-      // more than 5sec old
-      if( !force ) clean_to_age = Math.max(clean_to_age,now-5000);
-      if( DESIRED == -1 ) clean_to_age = now;  // Test mode: clean all
+      long clean_to_prio = h.clean_to(force ? DESIRED : (DESIRED>>1));
+      // If not forced cleaning, also clean Values more than 5sec old
+      long lazy_age = force ? Long.MIN_VALUE : now-5000;
+      // Allocations blocked and even evicting everything unpinned is not
+      // enough: pinned data has to go as well.
+      if( !MemoryManager.CAN_ALLOC && clean_to_prio >= h._highest ) clean_to_prio = Long.MAX_VALUE;
+      if( DESIRED == -1 ) clean_to_prio = Long.MAX_VALUE;  // Test mode: clean all
 
       // No logging if under memory pressure: can deadlock the cleaner thread
-      String s = h+" DESIRED="+(DESIRED>>20)+"M dirtysince="+(now-dirty)+" force="+force+" clean2age="+(now-clean_to_age);
+      String s = h+" DESIRED="+(DESIRED>>20)+"M dirtysince="+(now-dirty)+" force="+force+" policy="+POLICY.name()+" clean2prio="+clean_to_prio;
       if( MemoryManager.canAlloc() ) Log.debug(s);
       else                           System.err.println(s);
       long cleaned = 0;         // Disk i/o bytes
       long freed = 0;           // memory freed bytes
       long io_ns = 0;           // i/o ns writing
+      long offheap = 0;         // bytes copied off-heap
 
       // For faster K/V store walking get the NBHM raw backing array,
       // and walk it directly.
@@ -130,10 +141,10 @@ class Cleaner extends Thread {
         if( m == null && p == null ) continue; // Nothing to throw out
         if( val.isLockable() ) continue; // we do not want to throw out Lockables.
         boolean isChunk = p instanceof Chunk && !((Chunk)p).isVolatile();
-        // Ignore things younger than the required age.  In particular, do
-        // not spill-to-disk all dirty things we find.
+        // Ignore things above the required eviction priority.  In
+        // particular, do not spill-to-disk all dirty things we find.
         long touched = val._lastAccessedTime;
-        if( touched > clean_to_age ) { // Too recently touched?
+        if( POLICY.priority(val,now) > clean_to_prio && touched > lazy_age ) { // Too valuable to clean?
           // But can toss out a byte-array if already deserialized & on disk
           // (no need for both forms).  Note no savings for Chunks, for which m==p._mem
           if( val.isPersisted() && m != null && p != null && !isChunk ) {
@@ -143,16 +154,21 @@ class Cleaner extends Thread {
           dirty_store(touched); // But may write it out later
           continue;             // Too young
         }
-        // Spiller turned off?
-        if( !H2O.ARGS.cleaner ) continue;
+        // Spiller and off-heap store both turned off?
+        if( !H2O.ARGS.cleaner && !MemoryManager.offHeapEnabled() ) continue;
 
         // CNC - Memory cleaning turned off, except for Chunks
         // Too many POJOs are written to dynamically; cannot spill & reload
         // them without losing changes.
 
+        // Prefer an off-heap copy over a disk spill: reloading is a memory
+        // copy, and off-heap bytes are never scanned by the GC.
+        if( isChunk && !val.isPersisted() && val.storeOffHeap() )
+          offheap += val._max;
+
         // Should I write this value out to disk?
         // Should I further force it from memory?
-        if( isChunk && !val.isPersisted() && !diskFull && ((Key)ok).home() ) { // && (force || (lazyPersist() && lazy_clean(key)))) {
+        if( isChunk && H2O.ARGS.cleaner && !val.isPersisted() && !val.isOffHeap() && !diskFull && ((Key)ok).home() ) { // && (force || (lazyPersist() && lazy_clean(key)))) {
           long now_ns = System.nanoTime();
           try { val.storePersist(); } // Write to disk
           catch( FileNotFoundException fnfe ) { continue; } // Can happen due to racing key delete/remove
@@ -169,10 +185,11 @@ class Cleaner extends Thread {
           io_ns += System.nanoTime() - now_ns; // Accumulate i/o time
         }
         // And, under pressure, free all
-        if( isChunk && force && (val.isPersisted() || !((Key)ok).home()) ) {
+        if( isChunk && force && (val.isPersisted() || val.isOffHeap() || !((Key)ok).home()) ) {
           val.freeMem ();  if( m != null ) freed += val._max;  m = null;
           val.freePOJO();  if( p != null ) freed += val._max;  p = null;
           if( isChunk ) freed -= val._max; // Double-counted freed mem for Chunks since val._pojo._mem & val._mem are the same.
+          EvictionPolicy.EVICTED_BYTES.add(val._max);
         }
         // If we have both forms, toss the byte[] form - can be had by
         // serializing again.
@@ -187,11 +204,13 @@ class Cleaner extends Thread {
       }
 
       String s1 = "Cleaner pass took: "+PrettyPrint.msecs(System.currentTimeMillis()-now,true)+
-                  ", spilled "+PrettyPrint.bytes(cleaned)+" in "+PrettyPrint.usecs(io_ns>>10);
+                  ", spilled "+PrettyPrint.bytes(cleaned)+" in "+PrettyPrint.usecs(io_ns>>10)+
+                  "; "+EvictionPolicy.statsString();
       h = Histo.current(true); // Force a new histogram
       MemoryManager.set_goals("postclean",false);
       // No logging if under memory pressure: can deadlock the cleaner thread
-      String s2 = h+" diski_o="+PrettyPrint.bytes(cleaned)+", freed="+(freed>>20)+"M, DESIRED="+(DESIRED>>20)+"M";
+      String s2 = h+" diski_o="+PrettyPrint.bytes(cleaned)+", offheap+="+PrettyPrint.bytes(offheap)+" (total "+(MemoryManager.offHeapUsed()>>20)+"M)"+
+                  ", freed="+(freed>>20)+"M, DESIRED="+(DESIRED>>20)+"M";
       if( MemoryManager.canAlloc() ) Log.debug(s1,s2);
       else                           System.err.println(s1+"\n"+s2);
       // For testing thread
@@ -218,8 +237,8 @@ class Cleaner extends Thread {
         return h; // It is recent; use it
       if( h != null && h._clean && _dirty==Long.MAX_VALUE )
         return h; // No change to the K/V store, so no point
-      // Use last oldest value for computing the next histogram in-place
-      return (H = new Histo(h==null ? 0 : h._oldest)); // Record current best histogram & return it
+      // Use last priority range for computing the next histogram in-place
+      return (H = h==null ? new Histo(0,0) : new Histo(h._lowest,h._highest)); // Record current best histogram & return it
     }
 
     // Latest best-effort cached amount, without forcing a histogram to be
@@ -228,9 +247,10 @@ class Cleaner extends Thread {
     static long swapped(){ return H._swapped;}
 
     final long[] _hs = new long[128];
-    long _oldest; // Time of the oldest K/V discovered this pass
-    long _eldest; // Time of the eldest K/V found in some prior pass
-    long _hStep;  // Histogram step: (now-eldest)/histogram.length
+    long _lowest; // Lowest eviction priority of a K/V discovered this pass
+    long _highest;// Highest (non-pinned) eviction priority discovered this pass
+    long _eldest; // Lowest priority of a K/V found in some prior pass; priority of bucket zero
+    long _hStep;  // Histogram step: (highest-eldest)/histogram.length
     long _cached; // Total alive data in the histogram
     long _total;  // Total data in local K/V
     long _when;   // When was this histogram computed
@@ -238,19 +258,21 @@ class Cleaner extends Thread {
     Value _vold;  // For assertions: record the oldest Value
     boolean _clean; // Was "clean" K/V when built?
 
-    // Compute a histogram
-    Histo( long eldest ) {
+    // Compute a histogram of cached bytes by eviction priority, bucketed over
+    // the priority range seen in some prior pass
+    Histo( long eldest, long prevHighest ) {
       Arrays.fill(_hs, 0);
       _when = System.currentTimeMillis();
-      _eldest = eldest; // Eldest seen in some prior pass
-      _hStep = Math.max(1,(_when-eldest)/_hs.length);
+      _eldest = eldest; // Lowest priority seen in some prior pass
+      _hStep = Math.max(1,(prevHighest-eldest)/_hs.length);
       boolean clean = _dirty==Long.MAX_VALUE;
       // Compute the hard way
       Object[] kvs = H2O.STORE.raw_array();
       long cached = 0; // Total K/V cached in ram
       long total = 0;  // Total K/V in local node
       long swapped=0;  // Total K/V persisted
-      long oldest = Long.MAX_VALUE; // K/V with the longest time since being touched
+      long lowest = Long.MAX_VALUE;  // K/V to be evicted first
+      long highest = Long.MIN_VALUE; // K/V to be evicted last, ignoring pinned ones
       Value vold = null;
       // Start the walk at slot 2, because slots 0,1 hold meta-data
       for( int i=2; i<kvs.length; i += 2 ) {
@@ -271,12 +293,14 @@ class Cleaner extends Thread {
         if( len == 0 ) continue;
         cached += len; // Accumulate total amount of cached keys
 
-        if( val._lastAccessedTime < oldest ) { // Found an older Value?
-          vold = val; // Record oldest Value seen
-          oldest = val._lastAccessedTime;
+        long prio = POLICY.priority(val,_when);
+        if( prio < lowest ) { // Found a Value to evict sooner?
+          vold = val; // Record first-to-evict Value seen
+          lowest = prio;
         }
+        if( prio > highest && prio != Long.MAX_VALUE ) highest = prio;
         // Compute histogram bucket
-        int idx = (int)((val._lastAccessedTime - eldest)/_hStep);
+        int idx = prio==Long.MAX_VALUE ? _hs.length-1 : (int)Math.max(-1,Math.min(_hs.length,(prio - eldest)/_hStep));
         if( idx < 0 ) idx = 0;
         else if( idx >= _hs.length ) idx = _hs.length-1;
         _hs[idx] += len;      // Bump histogram bucket
@@ -284,15 +308,16 @@ class Cleaner extends Thread {
       _cached = cached; // Total cached; NOTE: larger than sum of histogram buckets
       _total = total;   // Total used data
       _swapped = swapped;
-      _oldest = oldest; // Oldest seen in this pass
+      _lowest = lowest==Long.MAX_VALUE ? eldest : lowest; // Lowest seen in this pass
+      _highest = highest==Long.MIN_VALUE ? _lowest : highest;
       _vold = vold;
       _clean = clean && _dirty==Long.MAX_VALUE; // Looks like a clean K/V the whole time?
     }
 
-    // Compute the time (in msec) for which we need to throw out things
+    // Compute the eviction priority below which we need to throw out things
     // to throw out enough things to hit the desired cached memory level.
     long clean_to( long desired ) {
-      long age = _eldest;       // Age of bucket zero
+      long age = _eldest;       // Priority of bucket zero
       if( _cached < desired ) return age; // Already there; nothing to remove
       long s = 0;               // Total amount toss out
       for( long t : _hs ) {     // For all buckets...
@@ -306,8 +331,7 @@ class Cleaner extends Thread {
     // Pretty print
     @Override public String toString() {
       long x = _eldest;
-      long now = System.currentTimeMillis();
-      return "H(cached:"+(_cached>>20)+"M, eldest:"+x+"L < +"+(_oldest-x)+"ms <...{"+_hStep+"ms}...< +"+(_hStep*_hs.length)+"ms < +"+(now-x)+")";
+      return "H(cached:"+(_cached>>20)+"M, eldest:"+x+"L < +"+(_lowest-x)+" <...{"+_hStep+"}...< +"+(_hStep*_hs.length)+" < +"+(_highest-x)+")";
     }
   }
 }
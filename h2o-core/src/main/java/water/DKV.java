@@ -1,5 +1,9 @@
 package water;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+
 /** A Distributed Key/Value Store.
  *  <p>
  *  Functions to Get and Put Values into the K/V store by Key.
@@ -41,7 +45,8 @@ package water;
  *  invalidates will be required for the 2nd and later Puts and they will need
  *  only the single round-trip.
  *  <p>
- *  Note that this class works on one Key at a time, and does not understand
+ *  Note that this class works on one Key at a time (or a flat batch of
+ *  unrelated Keys, see {@link #getAll} and {@link #putAll}), and does not understand
  *  composite Key structures (such as a {@link water.fvec.Vec} Key and all its related
  *  {@link water.fvec.Chunk} Keys - instead it serves as the building block for such
  *  structures.
@@ -87,6 +92,74 @@ public abstract class DKV {
     }
   }
 
+  /** Make the mappings <em>keys[i] -&gt; vals[i]</em>, as a {@link
+   *  #put(Key,Value,Futures,boolean)} of each pair, but with one round-trip
+   *  per home node (per {@link #MAX_BATCH_BYTES} of data) instead of one per
+   *  remote Key.  Keys must be distinct.  A null Value removes the mapping.  */
+  static public void putAll( Key[] keys, Value[] vals, Futures fs, boolean dontCache ) {
+    assert keys.length == vals.length;
+    assert distinct(keys) : "duplicate keys in putAll";
+    PutBatch batch = new PutBatch(dontCache);
+    for( int i=0; i<keys.length; i++ ) {
+      Key key = keys[i];
+      Value val = vals[i];
+      assert key != null;
+      assert val==null || val._key == key:"non-matching keys " + key + " != " + val._key;
+      while( true ) {
+        Value old = Value.STORE_get(key); // Raw-get: do not lazy-manifest if overwriting
+        if( DputIfMatch(key,val,old,fs,dontCache,batch) == old ) break;
+        if( val != null && val._key != key ) key = val._key;
+      }
+    }
+    batch.flush(fs);
+  }
+  /** Make the mappings <em>keyed._key -&gt; keyed</em> in bulk.  Caching.
+   *  See {@link #putAll(Key[],Value[],Futures,boolean)}.  */
+  static public void putAll( Keyed[] keyeds, Futures fs ) {
+    Key[] keys = new Key[keyeds.length];
+    Value[] vals = new Value[keyeds.length];
+    for( int i=0; i<keyeds.length; i++ )
+      vals[i] = new Value(keys[i] = keyeds[i]._key,keyeds[i]);
+    putAll(keys,vals,fs,false);
+  }
+
+  /** Batches larger than this many bytes of Values are split */
+  static final int MAX_BATCH_BYTES = 4<<20;
+  /** Batches larger than this many Keys are split */
+  static final int MAX_BATCH_KEYS = 256;
+
+  // Remote puts of a putAll, grouped by home node
+  private static class PutBatch {
+    final boolean _dontCache;
+    final H2ONode[] _nodes = H2O.CLOUD._memary;
+    final ArrayList<Key>[] _keys = new ArrayList[_nodes.length];
+    final ArrayList<Value>[] _vals = new ArrayList[_nodes.length];
+    final long[] _bytes = new long[_nodes.length];
+    PutBatch( boolean dontCache ) { _dontCache = dontCache; }
+    void add( Key key, Value val, Futures fs ) {
+      int idx = key.home(H2O.CLOUD);
+      if( _keys[idx] == null ) { _keys[idx] = new ArrayList<>(); _vals[idx] = new ArrayList<>(); }
+      _keys[idx].add(key);
+      _vals[idx].add(val);
+      if( val != null ) _bytes[idx] += val._max;
+      if( _bytes[idx] >= MAX_BATCH_BYTES || _keys[idx].size() >= MAX_BATCH_KEYS )
+        send(idx,fs);
+    }
+    void send( int idx, Futures fs ) {
+      ArrayList<Key> ks = _keys[idx];
+      if( ks == null || ks.isEmpty() ) return;
+      TaskPutKeys.put(_nodes[idx],ks.toArray(new Key[ks.size()]),_vals[idx].toArray(new Value[ks.size()]),fs,_dontCache);
+      ks.clear();
+      _vals[idx].clear();
+      _bytes[idx] = 0;
+    }
+    void flush( Futures fs ) { for( int i=0; i<_nodes.length; i++ ) send(i,fs); }
+  }
+
+  private static boolean distinct( Key[] keys ) {
+    return new HashSet<>(Arrays.asList(keys)).size() == keys.length;
+  }
+
   /** Remove any mapping for <em>key</em>.  Blocking.  */
   static public Value remove( Key key ) { return put(key,null); }
   /** Remove any mapping for <em>key</em>.  */
@@ -110,6 +183,12 @@ public abstract class DKV {
    *  Value.equals(old) then the update succeeded, else it failed.
    */
   static public Value DputIfMatch( Key key, Value val, Value old, Futures fs, boolean dontCache ) {
+    return DputIfMatch(key,val,old,fs,dontCache,null);
+  }
+
+  // As above; if a batch is passed in, remote pushes are collected there
+  // instead of being sent one Key at a time.
+  static private Value DputIfMatch( Key key, Value val, Value old, Futures fs, boolean dontCache, PutBatch batch ) {
     // For debugging where keys are created from
 //    try { System.err.flush(); System.err.println(key); Thread.dumpStack(); System.err.flush(); } catch (Throwable t) {}
 
@@ -148,7 +227,8 @@ public abstract class DKV {
       else val.lowerActiveGetCount(null);  // Remove initial read-lock, accounting for pending inv counts
     } else {                    // On non-HOME?
       // Start a write, but do not block for it
-      TaskPutKey.put(key.home_node(),key,val,fs, dontCache);
+      if( batch != null ) batch.add(key,val,fs);
+      else TaskPutKey.put(key.home_node(),key,val,fs, dontCache);
     }
     return old;
   }
@@ -158,7 +238,7 @@ public abstract class DKV {
   static void write_barrier() {
     for( H2ONode h2o : H2O.CLOUD._memary )
       for( RPC rpc : h2o.tasks() )
-        if( rpc._dt instanceof TaskPutKey || rpc._dt instanceof Atomic )
+        if( rpc._dt instanceof TaskPutKey || rpc._dt instanceof TaskPutKeys || rpc._dt instanceof Atomic )
           rpc.get();
   }
 
@@ -192,7 +272,7 @@ public abstract class DKV {
     Value val = Value.STORE_get(key);
     // Hit in local cache?
     if( val != null ) {
-      if( val.rawMem() != null || val.rawPOJO() != null || val.isPersisted() )
+      if( val.rawMem() != null || val.rawPOJO() != null || val.isOffHeap() || val.isPersisted() )
         return val;
       assert !key.home(); // Master must have *something*; we got nothing & need to fetch
     }
@@ -214,9 +294,77 @@ public abstract class DKV {
     // get still might 'win' because the remote 'remove' is still in-progress.
     TaskPutKey tpk = home.pendingPutKey(key);
     if( tpk != null ) return tpk._xval == null || tpk._xval.isNull() ? null : tpk._xval;
+    Value pv = home.pendingPutKeys(key);
+    if( pv != null ) return pv.isNull() ? null : pv;
+
+    // Already being fetched by a batch?
+    RPC<TaskGetKeys> tgks = TaskGetKeys.pending(key);
+    if( tgks != null ) return blocking ? TaskGetKeys.get(tgks,key) : null;
 
     // Get data "the hard way"
     RPC<TaskGetKey> tgk = TaskGetKey.start(home,key);
     return blocking ? TaskGetKey.get(tgk) : null;
   }
+
+  /** Return the {@link Value}s mapped to <em>keys</em>, with nulls for
+   *  missing mappings.  Blocks till all data is available, always caches.
+   *  Same as a {@link #get(Key)} of each Key, but all remote Keys missing
+   *  from the local cache are fetched with one round-trip per home node (per
+   *  {@link #MAX_BATCH_KEYS} Keys), all in parallel. */
+  static public Value[] getAll( Key[] keys ) { return getAll(keys,true); }
+  /** Prefetch and cache the Values for <em>keys</em>, batched per home node
+   *  as in {@link #getAll}.  Non-blocking. */
+  static public void prefetchAll( Key[] keys ) { getAll(keys,false); }
+
+  static private Value[] getAll( Key[] keys, boolean blocking ) {
+    H2O cloud = H2O.CLOUD;
+    Value[] vals = blocking ? new Value[keys.length] : null;
+    boolean[] done = new boolean[keys.length];
+    ArrayList<Key>[] misses = new ArrayList[cloud.size()];
+    for( int i=0; i<keys.length; i++ ) {
+      Key key = keys[i];
+      Value val = Value.STORE_get(key);
+      done[i] = true;
+      // Hit in local cache?
+      if( val != null && (val.rawMem() != null || val.rawPOJO() != null || val.isOffHeap() || val.isPersisted()) ) {
+        if( blocking ) vals[i] = val;
+        continue;
+      }
+      int hidx = key.home(cloud);
+      H2ONode home = cloud._memary[hidx];
+      if( home == H2O.SELF ) continue; // Missed on home: no mapping
+      // Pending write to same key from this node?  Take that write instead.
+      TaskPutKey tpk = home.pendingPutKey(key);
+      if( tpk != null ) {
+        if( blocking ) vals[i] = tpk._xval == null || tpk._xval.isNull() ? null : tpk._xval;
+        continue;
+      }
+      Value pv = home.pendingPutKeys(key);
+      if( pv != null ) {
+        if( blocking ) vals[i] = pv.isNull() ? null : pv;
+        continue;
+      }
+      done[i] = false;
+      if( misses[hidx] == null ) misses[hidx] = new ArrayList<>();
+      misses[hidx].add(key);
+    }
+    // Ship all batches before blocking on any
+    for( int n=0; n<misses.length; n++ ) {
+      ArrayList<Key> ks = misses[n];
+      if( ks == null ) continue;
+      for( int lo=0; lo<ks.size(); lo += MAX_BATCH_KEYS ) {
+        int hi = Math.min(ks.size(),lo+MAX_BATCH_KEYS);
+        TaskGetKeys.start(cloud._memary[n],ks.subList(lo,hi).toArray(new Key[hi-lo]));
+      }
+    }
+    if( !blocking ) return null;
+    // Collect results; keys fetched by some other batch (or already done and
+    // cached) are picked up by the normal single-key path.
+    for( int i=0; i<keys.length; i++ ) {
+      if( done[i] ) continue;
+      RPC<TaskGetKeys> rpc = TaskGetKeys.pending(keys[i]);
+      vals[i] = rpc != null ? TaskGetKeys.get(rpc,keys[i]) : get(keys[i]);
+    }
+    return vals;
+  }
 }
@@ -0,0 +1,227 @@
+package water;
+
+import water.fvec.Frame;
+import water.nbhm.ConcurrentAutoTable;
+import water.util.Log;
+import water.util.PrettyPrint;
+
+import static water.H2O.OptArgs.SYSTEM_PROP_PREFIX;
+
+/**
+ * Decides the order in which the {@link Cleaner} spills and frees cached
+ * Values.  Every cached Value gets a {@link #priority}; when the K/V cache
+ * is above its desired level the Cleaner evicts Values from the lowest
+ * priority upwards until enough memory is freed.  Priorities only need to be
+ * comparable with each other within one Cleaner pass.
+ * <p>
+ * The policy is picked with the {@code sys.ai.h2o.cleaner.eviction.policy}
+ * system property: {@code lru} (the default), {@code lfu}, {@code gds}
+ * (size-aware GreedyDual), or the class name of a custom subclass with a
+ * public no-argument constructor.
+ * <p>
+ * All policies share two adjustments:
+ * <ul>
+ * <li>Per-kind weights: {@code sys.ai.h2o.cleaner.eviction.weight.<kind>}
+ * for kind one of {@code chunk}, {@code vec}, {@code frame}, {@code model} or
+ * {@code other} (default 1.0).  A larger weight keeps Values of that kind
+ * cached longer.</li>
+ * <li>Pinning: unless {@code sys.ai.h2o.cleaner.eviction.pin_locked} is
+ * false, Chunks of Frames locked by a running Job (as seen from this node)
+ * are evicted only after everything else.</li>
+ * </ul>
+ */
+public abstract class EvictionPolicy {
+  static final String PROP_POLICY = SYSTEM_PROP_PREFIX + "cleaner.eviction.policy";
+  static final String PROP_WEIGHT = SYSTEM_PROP_PREFIX + "cleaner.eviction.weight.";
+  static final String PROP_PIN_LOCKED = SYSTEM_PROP_PREFIX + "cleaner.eviction.pin_locked";
+
+  // Cache statistics, for judging a policy: every Value access, the accesses
+  // which had to reload the Value (from disk or off-heap), and the bytes
+  // reloaded or evicted.
+  static final ConcurrentAutoTable ACCESSES = new ConcurrentAutoTable();
+  static final ConcurrentAutoTable RELOADS = new ConcurrentAutoTable();
+  static final ConcurrentAutoTable RELOAD_BYTES = new ConcurrentAutoTable();
+  static final ConcurrentAutoTable EVICTED_BYTES = new ConcurrentAutoTable();
+  public static long accesses() { return ACCESSES.get(); }
+  public static long hits() { return ACCESSES.get() - RELOADS.get(); }
+  public static long misses() { return RELOADS.get(); }
+  public static long reloadBytes() { return RELOAD_BYTES.get(); }
+  public static long evictedBytes() { return EVICTED_BYTES.get(); }
+  static String statsString() {
+    return "cache hits="+hits()+", misses="+misses()+", reloaded="+PrettyPrint.bytes(reloadBytes())+", evicted="+PrettyPrint.bytes(evictedBytes());
+  }
+
+  /** Kinds of Values which can be weighted separately */
+  public enum Kind { chunk, vec, frame, model, other }
+
+  private final double[] _weights = new double[Kind.values().length];
+  private final boolean _pinLocked;
+  // Vec keys of locked Frames, rebuilt once per Cleaner pass
+  private volatile PinnedVecs _pinned = PinnedVecs.NONE;
+
+  protected EvictionPolicy() {
+    for( Kind k : Kind.values() ) {
+      String w = System.getProperty(PROP_WEIGHT + k.name());
+      _weights[k.ordinal()] = w == null ? 1.0 : Double.parseDouble(w);
+      if( !(_weights[k.ordinal()] > 0) )
+        throw new IllegalArgumentException(PROP_WEIGHT + k.name() + " must be positive, was " + w);
+    }
+    String p = System.getProperty(PROP_PIN_LOCKED);
+    _pinLocked = p == null || Boolean.parseBoolean(p);
+  }
+
+  /** Raw priority of a Value under this policy; lower is evicted first.
+   *  @param val  A cached Value
+   *  @param now  Start time of the current Cleaner pass
+   *  @param weight  Weight of the Value's kind, larger is kept longer */
+  protected abstract long priority(Value val, long now, double weight);
+
+  /** Short name, for logging. */
+  public abstract String name();
+
+  /** Final eviction priority of a Value: the policy priority with the kind
+   *  weight applied, and pinned Chunks moved past everything else. */
+  final long priority(Value val, long now) {
+    PinnedVecs pinned = _pinned; // Read once!
+    if( pinned != PinnedVecs.NONE && val._key.isChunkKey() && pinned.containsChunk(val._key) )
+      return Long.MAX_VALUE;
+    return priority(val, now, _weights[kind(val).ordinal()]);
+  }
+
+  public double weight(Kind k) { return _weights[k.ordinal()]; }
+
+  static Kind kind(Value val) {
+    if( val._key.isChunkKey() ) return Kind.chunk;
+    if( val.isVec() ) return Kind.vec;
+    if( val.isFrame() ) return Kind.frame;
+    if( val.isModel() ) return Kind.model;
+    return Kind.other;
+  }
+
+  /** Called by the Cleaner once per pass, over the raw K/V array, to collect
+   *  the Vecs of all Frames locked by a Job.  Lock state is only present on
+   *  the Frame's home node, so this pins a Frame's locally-cached Chunks only
+   *  where that node is also the Frame's home. */
+  final void collectPinned(Object[] kvs) {
+    if( !_pinLocked ) return;
+    PinnedVecs pinned = PinnedVecs.NONE;
+    for( int i=2; i<kvs.length; i += 2 ) {
+      Object ov = kvs[i+1];
+      if( !(ov instanceof Value) ) continue;
+      Object p = ((Value)ov).rawPOJO();
+      if( !(p instanceof Frame) ) continue;
+      Frame fr = (Frame)p;
+      if( fr._lockers == null ) continue;
+      if( pinned == PinnedVecs.NONE ) pinned = new PinnedVecs();
+      for( Key k : fr.keys() ) pinned.add(k);
+    }
+    _pinned = pinned;
+  }
+
+  /** Set of Vec keys, probed with the keys of their Chunks without making
+   *  the Vec key: a Chunk key is its Vec key with another type byte and the
+   *  chunk number in bytes 6 to 9, which are left out of hashing and
+   *  comparing.  Open addressing; filled by one thread, then only read. */
+  static final class PinnedVecs {
+    static final PinnedVecs NONE = new PinnedVecs();
+    private Key[] _keys = new Key[16];
+    private int _size;
+
+    void add( Key vecKey ) {
+      if( vecKey._kb.length < 10 ) return; // Not a Vec key with Chunks
+      if( (_size+1)*2 > _keys.length ) {
+        Key[] old = _keys;
+        _keys = new Key[old.length*2];
+        _size = 0;
+        for( Key k : old ) if( k != null ) add(k);
+      }
+      int mask = _keys.length-1;
+      for( int i = hash(vecKey._kb) & mask; ; i = (i+1) & mask ) {
+        if( _keys[i] == null ) { _keys[i] = vecKey; _size++; return; }
+        if( sameVec(_keys[i]._kb, vecKey._kb) ) return;
+      }
+    }
+
+    boolean containsChunk( Key chunkKey ) {
+      byte[] kb = chunkKey._kb;
+      if( kb.length < 10 ) return false;
+      Key[] keys = _keys;
+      int mask = keys.length-1;
+      for( int i = hash(kb) & mask; keys[i] != null; i = (i+1) & mask )
+        if( sameVec(keys[i]._kb, kb) ) return true;
+      return false;
+    }
+
+    private static int hash( byte[] kb ) {
+      int h = 0;
+      for( int i = 1; i < kb.length; i++ )
+        if( i < 6 || i > 9 ) h = 31*h + kb[i];
+      return h ^ (h >>> 16);
+    }
+
+    private static boolean sameVec( byte[] a, byte[] b ) {
+      if( a.length != b.length ) return false;
+      for( int i = 1; i < a.length; i++ )
+        if( (i < 6 || i > 9) && a[i] != b[i] ) return false;
+      return true;
+    }
+  }
+
+  /** Least Recently Used: the priority is the last access time, with the
+   *  age scaled down by the kind weight. */
+  public static class LRU extends EvictionPolicy {
+    @Override protected long priority(Value val, long now, double weight) {
+      long age = Math.max(0, now - val._lastAccessedTime);
+      return now - (long)(age/weight);
+    }
+    @Override public String name() { return "lru"; }
+  }
+
+  /** Least Frequently Used: the priority is the number of accesses since
+   *  the Value was cached, scaled by the kind weight.  Ties (e.g. freshly
+   *  loaded Values) are left to the Cleaner's histogram bucketing. */
+  public static class LFU extends EvictionPolicy {
+    @Override protected long priority(Value val, long now, double weight) {
+      return (long)(val._accessCount*weight);
+    }
+    @Override public String name() { return "lfu"; }
+  }
+
+  /** Size-aware GreedyDual: recency plus the cost of reloading the Value per
+   *  byte it occupies.  The last access time plays the role of the GreedyDual
+   *  inflation value, so that a Value's credit decays as others are touched.
+   *  The reload cost is the time to fetch the bytes back: free-ish for Values
+   *  already spilled or off-heap, a disk write and read for Values which must
+   *  be spilled first, and a network fetch for cached copies of remote Keys.
+   *  Dividing by size makes large, cheap-to-reload Values go first. */
+  public static class GreedyDualSize extends EvictionPolicy {
+    // Credit, in msec of recency, of a 1MB Value which is cheapest to reload
+    static final double MSEC_PER_COST_UNIT = 60*1000;
+    @Override protected long priority(Value val, long now, double weight) {
+      // Relative cost of getting the bytes back
+      double cost = !val._key.home() ? 4 : (val.isPersisted() || val.isOffHeap()) ? 1 : 2;
+      // GreedyDual-Size credit is cost/size; sizes are taken relative to 1MB
+      // (and capped there), so credits stay within minutes of recency.
+      double size = Math.max(val._max, 1);
+      double credit = MSEC_PER_COST_UNIT*weight*cost*Math.min(1.0, (1<<20)/size);
+      return val._lastAccessedTime + (long)credit;
+    }
+    @Override public String name() { return "gds"; }
+  }
+
+  static EvictionPolicy make() {
+    String p = System.getProperty(PROP_POLICY, "lru");
+    switch( p ) {
+    case "lru": return new LRU();
+    case "lfu": return new LFU();
+    case "gds": return new GreedyDualSize();
+    default:
+      try {
+        return (EvictionPolicy)Class.forName(p).newInstance();
+      } catch( Exception e ) {
+        Log.err("Unable to create eviction policy "+p+", using lru", e);
+        return new LRU();
+      }
+    }
+  }
+}
@@ -99,6 +99,11 @@ final public class H2O {
             "    -ice_root <fileSystemPath>\n" +
             "          The directory where H2O spills temporary data to disk.\n" +
             "\n" +
+            "    -off_heap_mb <megabytes>\n" +
+            "          Keep up to this many megabytes of compressed data chunks in\n" +
+            "          off-heap memory, so cached data is not scanned by the garbage\n" +
+            "          collector.  (The default is 0, which disables the off-heap store.)\n" +
+            "\n" +
             "    -log_dir <fileSystemPath>\n" +
             "          The directory where H2O writes logs to disk.\n" +
             "          (This usually has a good default that you need not change.)\n" +
@@ -289,6 +294,9 @@ final public class H2O {
     /** -cleaner; enable user-mode spilling of big data to disk in ice_root */
     public boolean cleaner = false;
 
+    /** -off_heap_mb=off_heap_mb; max megabytes of Chunk payloads kept off-heap; 0 disables */
+    public int off_heap_mb = 0;
+
     /** -nthreads=nthreads; Max number of F/J threads in the low-priority batch queue */
     public short nthreads= (short)Runtime.getRuntime().availableProcessors();
 
@@ -549,6 +557,10 @@ final public class H2O {
       else if(s.matches("cleaner")) {
         trgt.cleaner = true;
       }
+      else if (s.matches("off_heap_mb")) {
+        i = s.incrementAndCheck(i, args);
+        trgt.off_heap_mb = s.parseInt(args[i]);
+      }
       else if (s.matches("jks")) {
         i = s.incrementAndCheck(i, args);
         trgt.jks = args[i];
@@ -636,6 +648,10 @@ final public class H2O {
         parseFailed("Invalid session timeout specification (" + ARGS.session_timeout + ")");
     }
 
+    if (ARGS.off_heap_mb < 0) {
+      parseFailed("Invalid off-heap store size (" + ARGS.off_heap_mb + ")");
+    }
+
     // Validate extension arguments
     for (AbstractH2OExtension e : H2O.getCoreExtensions()) {
       e.validateArguments();
@@ -1842,6 +1858,7 @@ final public class H2O {
     // If the K/V mapping is changing, let the store cleaner just overwrite.
     // If the K/V mapping is new, let the store cleaner just create
     if( old != null && val == null ) old.removePersist(); // Remove the old guy
+    if( old != null && old != val ) old.freeOffHeap(); // Old guy no longer reachable via the K/V
     if( val != null ) {
       Cleaner.dirty_store(); // Start storing the new guy
       if( old==null ) Scope.track_internal(key); // New Key - start tracking
@@ -1852,7 +1869,7 @@ final public class H2O {
   // Get the value from the store
   public static void raw_remove(Key key) {
     Value v = STORE.remove(key);
-    if( v != null ) v.removePersist();
+    if( v != null ) { v.removePersist(); v.freeOffHeap(); }
   }
   public static void raw_clear() { STORE.clear(); }
   public static boolean containsKey( Key key ) { return STORE.get(key) != null; }
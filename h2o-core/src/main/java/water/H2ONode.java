@@ -7,6 +7,7 @@ import water.network.SocketChannelFactory;
 import water.util.ArrayUtils;
 import water.util.Log;
 import water.util.MathUtils;
+import water.util.MpscRing;
 import water.util.UnsafeUtils;
 
 import java.io.IOException;
@@ -17,8 +18,11 @@ import java.nio.channels.ByteChannel;
 import java.nio.channels.DatagramChannel;
 import java.nio.channels.SocketChannel;
 import java.util.*;
-import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+import static water.H2O.OptArgs.SYSTEM_PROP_PREFIX;
 
 /**
  * A <code>Node</code> in an <code>H2O</code> Cloud.
@@ -42,7 +46,7 @@ public final class H2ONode extends Iced<H2ONode> implements Comparable {
   public boolean _removed_from_cloud;
   public void stopSendThread(){
     if(_sendThread != null) {
-      _sendThread._stopRequested = true;
+      _sendThread.requestStop();
       _sendThread = null;
     }
     _removed_from_cloud = true;
@@ -274,7 +278,7 @@ public final class H2ONode extends Iced<H2ONode> implements Comparable {
     boolean res = sock2.connect( _key );
     assert res && !sock2.isConnectionPending() && sock2.isBlocking() && sock2.isConnected() && sock2.isOpen();
     ByteBuffer bb = ByteBuffer.allocate(4).order(ByteOrder.nativeOrder());
-    bb.put((byte)2);
+    bb.put(TCPCompression.CODEC == null ? TCPReceiverThread.TCP_BIG : TCPReceiverThread.TCP_BIG_FRAMED);
     bb.putChar((char)H2O.H2O_PORT);
     bb.put((byte)0xef);
     bb.flip();
@@ -304,6 +308,20 @@ public final class H2ONode extends Iced<H2ONode> implements Comparable {
   private transient UDP_TCP_SendThread _sendThread = null; // set notnull if properly interned, and done before first sendMessage
   public void sendMessage( ByteBuffer bb, byte msg_priority ) { _sendThread.sendMessage(bb,msg_priority); }
 
+  // Metrics of the small-message queue to this Node, 0 if it has no sender
+  /** Small messages waiting to be sent to this Node */
+  public int sendQueueDepth() { UDP_TCP_SendThread t = _sendThread; return t == null ? 0 : t.depth(); }
+  /** Most small messages seen waiting at once */
+  public int sendQueueMaxDepth() { UDP_TCP_SendThread t = _sendThread; return t == null ? 0 : t._maxDepth; }
+  /** Small messages sent to this Node */
+  public long sendQueueMessages() { UDP_TCP_SendThread t = _sendThread; return t == null ? 0 : t._msgs; }
+  /** Batches (TCP writes) the small messages went out in */
+  public long sendQueueBatches() { UDP_TCP_SendThread t = _sendThread; return t == null ? 0 : t._batches; }
+  /** Total time the small messages waited to go out, in nanoseconds */
+  public long sendQueueLatencyNanos() { UDP_TCP_SendThread t = _sendThread; return t == null ? 0 : t._latencyNanos; }
+  /** Longest time a small message waited to go out, in nanoseconds */
+  public long sendQueueMaxLatencyNanos() { UDP_TCP_SendThread t = _sendThread; return t == null ? 0 : t._maxLatencyNanos; }
+
   /**
    * Returns a new connection of type {@code tcpType}, the type can be either
    *   TCPReceiverThread.TCP_SMALL, TCPReceiverThread.TCP_BIG or
@@ -339,6 +357,11 @@ public final class H2ONode extends Iced<H2ONode> implements Comparable {
     return openChan(tcpType, socketFactory, InetAddress.getByName(originAddr), originPort);
   }
 
+  // Batching knobs of the small-message sender: how long a batch may wait for
+  // more messages when traffic is bursty, and the lock-free ring sizes.
+  static final long SEND_LINGER_NANOS = Long.getLong(SYSTEM_PROP_PREFIX + "udp_tcp.linger_us", 20) * 1000L;
+  static final int SEND_RING_SIZE = Integer.getInteger(SYSTEM_PROP_PREFIX + "udp_tcp.ring_size", 4096);
+
   // Private thread serving (actually ships the bytes over) small msg Q.
   // Buffers the small messages together and sends the bytes over via TCP channel.
   class UDP_TCP_SendThread extends Thread {
@@ -346,60 +369,114 @@ public final class H2ONode extends Iced<H2ONode> implements Comparable {
     volatile boolean _stopRequested;
     private ByteChannel _chan;  // Lazily made on demand; closed & reopened on error
     private final ByteBuffer _bb; // Reusable output large buffer
-  
+
+    // Messages waiting to go out.  Producers are any thread (mostly F/J
+    // workers acking & answering RPCs), the consumer is this thread only.
+    // High priority messages (e.g. NACK and ACKACK) have their own ring which
+    // is drained first.  A full ring spills into the (unbounded, also lock
+    // free) overflow queue: a stalled peer must never block its senders.
+    private final MpscRing<ByteBuffer> _hiQ = new MpscRing<>(Math.max(64, SEND_RING_SIZE >> 2));
+    private final MpscRing<ByteBuffer> _msgQ = new MpscRing<>(SEND_RING_SIZE);
+    private final ConcurrentLinkedQueue<ByteBuffer> _overflowQ = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger _overflowed = new AtomicInteger(); // Size of _overflowQ
+    private volatile boolean _parked; // Sender is (about to be) parked waiting for messages
+    private long _polledNanos;        // Offer time of the last polled message
+
+    // Metrics, written by this thread only
+    private volatile long _msgs, _batches, _latencyNanos, _maxLatencyNanos;
+    private volatile int _maxDepth;
+
     public UDP_TCP_SendThread(){
       super("UDP-TCP-SEND-" + H2ONode.this);
       _bb = AutoBuffer.BBP_BIG.make();
     }
-  
-    /** Send small message to this node.  Passes the message on to a private msg
-     *  q, prioritized by the message priority.  MSG queue is served by sender
-     *  thread, message are continuously extracted, buffered together and sent
-     *  over TCP channel.
+
+    /** Send small message to this node.  Passes the message on to a private
+     *  lock-free msg q; high priorities (e.g. NACK and ACKACK) get their own q
+     *  which is served first.  The q is served by the sender thread, messages
+     *  are continuously extracted, buffered together and sent over TCP channel.
      *  @param bb Message to send
      *  @param msg_priority priority (e.g. NACK and ACKACK beat most other priorities
      */
     public void sendMessage(ByteBuffer bb, byte msg_priority) {
       assert bb.position()==0 && bb.limit() > 0;
-      // Secret back-channel priority: the position field (capped at bb.limit);
-      // this is to avoid making Yet Another Object per send.
-  
-      // Priority can exceed position.  "interesting" priorities are everything
-      // above H2O.MIN_HI_PRIORITY and things just above 0; priorities in the
-      // middl'n range from 10 to MIN_HI are really rare.  Need to compress
-      // priorities a little for this hack to work.
-      if( msg_priority >= H2O.MIN_HI_PRIORITY ) msg_priority = (byte)((msg_priority-H2O.MIN_HI_PRIORITY)+10);
-      else if( msg_priority >= 10 ) msg_priority = 10;
-      if( msg_priority > bb.limit() ) msg_priority = (byte)bb.limit();
-      bb.position(msg_priority);
-  
-      _msgQ.put(bb); 
+      MpscRing<ByteBuffer> q = msg_priority >= H2O.MIN_HI_PRIORITY ? _hiQ : _msgQ;
+      if( !q.offer(bb) ) {      // Ring full
+        _overflowQ.add(bb);
+        _overflowed.incrementAndGet();
+      }
+      if( _parked ) LockSupport.unpark(this);
     }
-  
-    private final PriorityBlockingQueue<ByteBuffer> _msgQ
-      = new PriorityBlockingQueue<>(11,new Comparator<ByteBuffer>() {
-          // Secret back-channel priority: the position field (capped at bb.limit)
-          @Override public int compare( ByteBuffer bb1, ByteBuffer bb2 ) { return bb1.position() - bb2.position(); }
-        });
-  
+
+    void requestStop() {
+      _stopRequested = true;
+      LockSupport.unpark(this);
+    }
+
+    /** Messages waiting to be sent */
+    int depth() { return _hiQ.size() + _msgQ.size() + _overflowed.get(); }
+
+    private ByteBuffer poll() {
+      ByteBuffer bb = _hiQ.poll();
+      if( bb != null ) { _polledNanos = _hiQ.polledNanos(); return bb; }
+      bb = _msgQ.poll();
+      if( bb != null ) { _polledNanos = _msgQ.polledNanos(); return bb; }
+      bb = _overflowQ.poll();
+      // Overflowed messages are not time stamped; their wait counts from here
+      if( bb != null ) { _overflowed.decrementAndGet(); _polledNanos = System.nanoTime(); }
+      return bb;
+    }
+
+    private boolean isEmpty() { return _hiQ.isEmpty() && _msgQ.isEmpty() && _overflowQ.isEmpty(); }
+
+    // Messages are jammed into _bb until it is full, or until the queues run
+    // dry.  When they run dry the batch goes out at once, unless the previous
+    // batch held several messages: then traffic is bursty (e.g. a fan-out of
+    // MRTask acks) and the batch may wait up to SEND_LINGER_NANOS for more,
+    // trading a few microseconds of latency for fewer, fuller TCP writes.
     @Override public void run(){
       try {
+        int inBatch = 0;        // Messages in _bb
+        long batchNanos = 0;    // When the first of them was taken
+        long sumOfferNanos = 0, minOfferNanos = 0;
+        boolean linger = false;
         while (!_stopRequested) {            // Forever loop
-          try {
-            ByteBuffer bb = _msgQ.take(); // take never returns null but blocks instead
-            while( bb != null ) {         // while have an BB to process
-              assert !bb.isDirect() : "Direct BBs already got recycled";
-              assert bb.limit()+1+2 <= _bb.capacity() : "Small message larger than the output buffer";
-              if( _bb.remaining() < bb.limit()+1+2 )
-                sendBuffer();     // Send full batch; reset _bb so taken bb fits
-              _bb.putChar((char)bb.limit());
-              _bb.put(bb.array(),0,bb.limit()); // Jam this BB into the existing batch BB, all in one go (it all fits)
-              _bb.put((byte)0xef);// Sentinel byte
-              bb = _msgQ.poll();  // Go get more, same batch
+          ByteBuffer bb = poll();
+          if( bb != null ) {
+            assert !bb.isDirect() : "Direct BBs already got recycled";
+            assert bb.limit()+1+2 <= _bb.capacity() : "Small message larger than the output buffer";
+            if( _bb.remaining() < bb.limit()+1+2 ) {
+              flush(inBatch, sumOfferNanos, minOfferNanos); // Send full batch; reset _bb so taken bb fits
+              inBatch = 0;
             }
-            sendBuffer();         // Send final trailing BBs
-          } catch (IllegalMonitorStateException imse) { /* ignore */
-          } catch (InterruptedException e) { /*ignore*/ }
+            if( inBatch == 0 ) {
+              batchNanos = System.nanoTime();
+              sumOfferNanos = 0;
+              minOfferNanos = _polledNanos;
+              int depth = depth()+1;
+              if( depth > _maxDepth ) _maxDepth = depth;
+            }
+            _bb.putChar((char)bb.limit());
+            _bb.put(bb.array(),0,bb.limit()); // Jam this BB into the existing batch BB, all in one go (it all fits)
+            _bb.put((byte)0xef);// Sentinel byte
+            sumOfferNanos += _polledNanos;
+            inBatch++;
+          } else if( inBatch > 0 ) {
+            if( linger && System.nanoTime() - batchNanos < SEND_LINGER_NANOS ) {
+              Thread.yield();   // Give producers a moment to fill the batch
+            } else {
+              linger = inBatch > 1;
+              flush(inBatch, sumOfferNanos, minOfferNanos); // Send final trailing BBs
+              inBatch = 0;
+            }
+          } else {
+            // Nothing to send; park until a producer unparks us.  Producers
+            // publish then check _parked, we set _parked then check the
+            // queues, so one of us always sees the other.
+            _parked = true;
+            if( isEmpty() && !_stopRequested ) LockSupport.park(this);
+            _parked = false;
+          }
         }
       } catch(Throwable t) { throw Log.throwErr(t); }
       if(_chan != null) {
@@ -407,7 +484,17 @@ public final class H2ONode extends Iced<H2ONode> implements Comparable {
         _chan = null;
       }
     }
-  
+
+    // Send the batch in _bb, and account for the time its messages waited
+    private void flush( int inBatch, long sumOfferNanos, long minOfferNanos ) {
+      long now = System.nanoTime();
+      _msgs += inBatch;
+      _batches++;
+      _latencyNanos += now*inBatch - sumOfferNanos;
+      if( now - minOfferNanos > _maxLatencyNanos ) _maxLatencyNanos = now - minOfferNanos;
+      sendBuffer();
+    }
+
     void sendBuffer(){
       int retries = 0;
       _bb.flip();                 // limit set to old position; position set to 0
@@ -449,11 +536,13 @@ public final class H2ONode extends Iced<H2ONode> implements Comparable {
   void taskPut(int tnum, RPC rpc ) { 
     _tasks.put(tnum,rpc); 
     if( rpc._dt instanceof TaskPutKey ) _tasksPutKey.put(tnum,(TaskPutKey)rpc._dt);
+    if( rpc._dt instanceof TaskPutKeys ) _tasksPutKeys.put(tnum,(TaskPutKeys)rpc._dt);
   }
   RPC taskGet(int tnum) { return _tasks.get(tnum); }
   void taskRemove(int tnum) { 
     _tasks.remove(tnum); 
     _tasksPutKey.remove(tnum);
+    _tasksPutKeys.remove(tnum);
   }
   Collection<RPC> tasks() { return _tasks.values(); }
   int taskSize() { return _tasks.size(); }
@@ -469,6 +558,17 @@ public final class H2ONode extends Iced<H2ONode> implements Comparable {
         return tpk;
     return null;
   }
+  // Same for batched PutKeys; returns the pending Value (a null-Value for a
+  // pending remove), or null if no batch is putting this Key.
+  private final NonBlockingHashMapLong<TaskPutKeys> _tasksPutKeys = new NonBlockingHashMapLong<>();
+  Value pendingPutKeys( Key k ) {
+    if( _tasksPutKeys.isEmpty() ) return null;
+    for( TaskPutKeys tpks : _tasksPutKeys.values() ) {
+      Value v = tpks.pending(k);
+      if( v != null ) return v;
+    }
+    return null;
+  }
 
   // The next unique task# sent *TO* the 'this' Node.
   private final AtomicInteger _created_task_ids = new AtomicInteger(1);
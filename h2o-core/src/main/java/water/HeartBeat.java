@@ -76,4 +76,6 @@ public class HeartBeat extends Iced<HeartBeat> {
   public short _fjthrds[];      // Number of threads (not all are runnable)
   public short _fjqueue[];      // Number of elements in FJ work queue
   public char _tcps_active;     // Threads trying do a TCP send
+  public int _sendq_depth;      // Small messages waiting to be sent, all peers
+  public int _sendq_latency_us; // Mean wait of the small messages sent since the last heartbeat
 }
@@ -39,6 +39,9 @@ public class HeartBeatThread extends Thread {
   // and toss out all in-flight client ops
   static public final int CLIENT_TIMEOUT=1000;
 
+  // Small-message totals as of the last heartbeat
+  private long _sendq_msgs, _sendq_waited;
+
   // The Run Method.
   // Started by main() on a single thread, this code publishes Cloud membership
   // to the Cloud once a second (across all members).  If anybody disagrees
@@ -95,6 +98,18 @@ public class HeartBeatThread extends Thread {
         hb._fjqueue[i] = (short)H2O.getWrkQueueSize(i);
       }
       hb._tcps_active= (char)H2ONode.TCPS.get();
+      // Small-message send queues: depth now, mean wait since the last beat
+      int depth = 0;
+      long msgs = 0, waited = 0;
+      for( H2ONode h2o : cloud._memary ) {
+        depth  += h2o.sendQueueDepth();
+        msgs   += h2o.sendQueueMessages();
+        waited += h2o.sendQueueLatencyNanos();
+      }
+      hb._sendq_depth = depth;
+      hb._sendq_latency_us = msgs > _sendq_msgs ? (int)((waited - _sendq_waited) / (msgs - _sendq_msgs) / 1000) : 0;
+      _sendq_msgs = msgs;
+      _sendq_waited = waited;
 
       // get the usable and total disk storage for the partition where the
       // persistent KV pairs are stored
@@ -269,6 +269,38 @@ public abstract class MRTask<T extends MRTask<T>> extends DTask<T> implements Fo
    *  overridden. */
   public void map( Chunk cs[] ) { }
 
+  /** Override with your map implementation.  This overload is given the
+   *  <strong>local</strong> input Chunks bulk-decoded into one array per
+   *  column, {@code cols[c][r]}, with missing values as NaN and categoricals
+   *  as their level index; String and UUID columns are null.  Decoding is
+   *  done once per Chunk with the codec-specific {@link Chunk#getDoubles},
+   *  and only for MRTasks overriding this method, so numeric tasks can run
+   *  tight loops over plain arrays instead of calling {@code atd} per cell.
+   *  The arrays are only valid for the duration of the call.
+   *  @param cols  decoded column values, one array per input Vec
+   *  @param nrows number of rows in this Chunk */
+  public void mapBatch( double[][] cols, int nrows ) { }
+
+  // Does this MRTask class override mapBatch?  Decoding is not free, so only
+  // do it when somebody is going to look.
+  private static final ClassValue<Boolean> MAP_BATCH = new ClassValue<Boolean>() {
+    @Override protected Boolean computeValue( Class<?> clz ) {
+      try { return clz.getMethod("mapBatch",double[][].class,int.class).getDeclaringClass() != MRTask.class; }
+      catch( NoSuchMethodException e ) { throw H2O.fail("mapBatch missing", e); }
+    }
+  };
+
+  // Bulk-decode the Chunks for mapBatch
+  private static double[][] decodeBatch( Chunk[] cs ) {
+    double[][] cols = new double[cs.length][];
+    for( int i=0; i<cs.length; i++ ) {
+      Chunk c = cs[i];
+      if( c == null || c.vec().isString() || c.vec().isUUID() ) continue;
+      cols[i] = c.getDoubles(MemoryManager.malloc8d(c._len),0,c._len);
+    }
+    return cols;
+  }
+
   /** The handy method to generate a new vector based on existing vectors.
    *
    * Note: This method is used by Sparkling Water examples.
@@ -655,6 +687,8 @@ public abstract class MRTask<T extends MRTask<T>> extends DTask<T> implements Fo
         }
         if (num_outputs >= 0)
           map(bvs, appendableChunks);
+        if( MAP_BATCH.get(getClass()) )
+          mapBatch(decodeBatch(bvs), (int)(v0.espc()[_lo+1] - v0.espc()[_lo]));
 
         _res = self();          // Save results since called map() at least once!
         // Further D/K/V put any new vec results.
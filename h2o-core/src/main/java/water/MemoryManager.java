@@ -1,6 +1,7 @@
 package water;
 
 import java.lang.management.*;
+import java.nio.ByteBuffer;
 import java.util.Arrays;
 import java.util.concurrent.atomic.AtomicLong;
 import javax.management.Notification;
@@ -297,6 +298,44 @@ abstract public class MemoryManager {
   public static long   [] arrayCopyOf( long  [] orig, int sz) { return arrayCopyOfRange(orig,0,sz); }
   public static double [] arrayCopyOf( double[] orig, int sz) { return arrayCopyOfRange(orig,0,sz); }
 
+  // Bytes of Chunk payloads currently held off-heap; bounded by -off_heap_mb.
+  // Off-heap bytes are not part of the K/V cache levels computed above: they
+  // are never scanned by the GC, so they do not count against the heap.
+  static final AtomicLong OFF_HEAP_USED = new AtomicLong();
+  static long offHeapMax() { return ((long)H2O.ARGS.off_heap_mb)<<20; }
+  static boolean offHeapEnabled() { return H2O.ARGS.off_heap_mb > 0; }
+  public static long offHeapUsed() { return OFF_HEAP_USED.get(); }
+
+  /**
+   * Allocate a direct (off-heap) buffer to hold a copy of a Value's bytes.
+   * Never blocks: returns null if the off-heap store is disabled, full, or
+   * the JVM refuses the direct allocation.  Callers then fall back to the
+   * normal heap/disk path.
+   *
+   * @param bytes - requested number of bytes
+   * @return a direct buffer of exactly {@code bytes} capacity, or null
+   */
+  static ByteBuffer mallocOffHeap(int bytes) {
+    if( !offHeapEnabled() ) return null;
+    if( OFF_HEAP_USED.addAndGet(bytes) > offHeapMax() ) {
+      OFF_HEAP_USED.addAndGet(-bytes);
+      return null;
+    }
+    try {
+      return ByteBuffer.allocateDirect(bytes);
+    } catch( OutOfMemoryError e ) { // Hit -XX:MaxDirectMemorySize
+      OFF_HEAP_USED.addAndGet(-bytes);
+      return null;
+    }
+  }
+
+  /**
+   * Release the accounting for a buffer from {@link #mallocOffHeap}.  The
+   * native memory itself is reclaimed when the buffer becomes unreachable,
+   * so racing readers still holding the buffer remain safe.
+   */
+  static void freeOffHeap(ByteBuffer bb) { OFF_HEAP_USED.addAndGet(-bb.capacity()); }
+
   // Memory available for tasks (we assume 3/4 of the heap is available for tasks)
   static final AtomicLong _taskMem = new AtomicLong(MEM_MAX-(MEM_MAX>>2));
 
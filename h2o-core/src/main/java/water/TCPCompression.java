@@ -0,0 +1,190 @@
+package water;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.ByteChannel;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import static water.H2O.OptArgs.SYSTEM_PROP_PREFIX;
+
+/** Framing and compression of big (TCP) messages between Nodes.
+ *
+ *  <p>A big message leaves its {@link AutoBuffer} one page (up to {@link
+ *  AutoBuffer#TCP_BUF_SIZ} bytes) at a time.  When compression is on (system
+ *  property {@code sys.ai.h2o.tcp.compression}, e.g. {@code deflate}), the
+ *  sender opens its TCP channels as {@link TCPReceiverThread#TCP_BIG_FRAMED}
+ *  and each page goes out as a frame: 4 bytes raw length, 4 bytes stored
+ *  length, 1 byte {@link Codec} id, then the stored bytes.  Pages shorter than
+ *  {@code sys.ai.h2o.tcp.compression.threshold} bytes, and pages which do not
+ *  shrink by at least an eighth, are stored raw.  The receiver learns about
+ *  framing from the channel type and about the codec from each frame, so it
+ *  needs no configuration of its own; Nodes with compression off keep using
+ *  plain {@link TCPReceiverThread#TCP_BIG} channels.
+ *
+ *  <p>Byte counters for big messages (raw and on the wire, both ways) are
+ *  kept whether compression is on or not, and reported by {@link
+ *  water.util.WaterMeterIo}.
+ */
+public class TCPCompression {
+
+  /** A compression codec; implementations must be thread-safe. */
+  public static abstract class Codec {
+    /** Id written in each frame; 0 is taken by raw frames */
+    abstract byte id();
+    /** Compress {@code src[0,len)} into {@code dst}.
+     *  @return compressed length, or -1 if it does not fit in {@code dst} */
+    abstract int compress( byte[] src, int len, byte[] dst );
+    /** Decompress {@code src[0,len)} into exactly {@code rawLen} bytes of {@code dst} */
+    abstract void decompress( byte[] src, int len, byte[] dst, int rawLen ) throws IOException;
+  }
+
+  static final byte RAW = 0;
+
+  /** Deflate at its fastest level; pages of zeros, repeated values and
+   *  small integers (sparse chunks, histograms, model arrays) compress well. */
+  static final class DeflateCodec extends Codec {
+    private static final ThreadLocal<Deflater> DEFLATER = new ThreadLocal<Deflater>() {
+      @Override protected Deflater initialValue() { return new Deflater(Deflater.BEST_SPEED, true); }
+    };
+    private static final ThreadLocal<Inflater> INFLATER = new ThreadLocal<Inflater>() {
+      @Override protected Inflater initialValue() { return new Inflater(true); }
+    };
+    @Override byte id() { return 1; }
+    @Override int compress( byte[] src, int len, byte[] dst ) {
+      Deflater def = DEFLATER.get();
+      def.reset();
+      def.setInput(src, 0, len);
+      def.finish();
+      int n = def.deflate(dst, 0, dst.length);
+      return def.finished() ? n : -1;
+    }
+    @Override void decompress( byte[] src, int len, byte[] dst, int rawLen ) throws IOException {
+      Inflater inf = INFLATER.get();
+      inf.reset();
+      inf.setInput(src, 0, len);
+      try {
+        int n = 0;
+        while( n < rawLen && !inf.finished() ) {
+          int res = inf.inflate(dst, n, rawLen - n);
+          if( res == 0 && (inf.needsInput() || inf.needsDictionary()) ) break;
+          n += res;
+        }
+        if( n != rawLen ) throw new IOException("Corrupt deflate frame: expected "+rawLen+" bytes, got "+n);
+      } catch( DataFormatException e ) {
+        throw new IOException("Corrupt deflate frame", e);
+      }
+    }
+  }
+
+  private static final Codec[] CODECS = new Codec[]{null, new DeflateCodec()};
+
+  /** Codec for outgoing big messages, or null if they are not compressed */
+  static final Codec CODEC = codec(System.getProperty(SYSTEM_PROP_PREFIX + "tcp.compression"));
+  /** Pages shorter than this are sent raw */
+  static final int THRESHOLD = Integer.getInteger(SYSTEM_PROP_PREFIX + "tcp.compression.threshold", 4096);
+
+  static Codec codec( String name ) {
+    if( name == null || name.isEmpty() || name.equals("none") ) return null;
+    if( name.equals("deflate") ) return CODECS[1];
+    throw new IllegalArgumentException("Unknown TCP compression codec '"+name+"', expected one of: none, deflate");
+  }
+
+  // Counters, raw bytes are before compression & wire bytes after
+  static final AtomicLong SENT_RAW = new AtomicLong(), SENT_WIRE = new AtomicLong();
+  static final AtomicLong RECV_RAW = new AtomicLong(), RECV_WIRE = new AtomicLong();
+  static final AtomicLong FRAMES_COMPRESSED = new AtomicLong();
+
+  public static long bytesSent() { return SENT_RAW.get(); }
+  public static long bytesSentOnWire() { return SENT_WIRE.get(); }
+  public static long bytesReceived() { return RECV_RAW.get(); }
+  public static long bytesReceivedOnWire() { return RECV_WIRE.get(); }
+  public static long framesCompressed() { return FRAMES_COMPRESSED.get(); }
+
+  private static final int HDR = 4+4+1;
+
+  // Per-thread buffers for writing frames, and for reading compressed bytes
+  private static final class Scratch {
+    final ByteBuffer _hdr = ByteBuffer.allocate(HDR).order(ByteOrder.nativeOrder());
+    byte[] _raw = new byte[AutoBuffer.TCP_BUF_SIZ];
+    byte[] _z = new byte[AutoBuffer.TCP_BUF_SIZ];
+  }
+  private static final ThreadLocal<Scratch> SCRATCH = new ThreadLocal<Scratch>() {
+    @Override protected Scratch initialValue() { return new Scratch(); }
+  };
+
+  /** Write the remaining bytes of {@code bb} as one frame, compressed with
+   *  {@code codec} if it is not null and worth it */
+  static void writeFrame( ByteChannel chan, ByteBuffer bb, Codec codec ) throws IOException {
+    Scratch s = SCRATCH.get();
+    int len = bb.remaining();
+    ByteBuffer body = bb;
+    byte id = RAW;
+    int stored = len;
+    if( codec != null && len >= THRESHOLD ) {
+      if( s._raw.length < len ) s._raw = new byte[len];
+      if( s._z.length < len ) s._z = new byte[len];
+      bb.get(s._raw, 0, len);
+      // Only worth the receiver's time if it saves an eighth or more
+      int zlen = codec.compress(s._raw, len, s._z);
+      if( zlen >= 0 && zlen <= len - (len>>3) ) {
+        id = codec.id();
+        stored = zlen;
+        body = ByteBuffer.wrap(s._z, 0, zlen);
+        FRAMES_COMPRESSED.incrementAndGet();
+      } else {
+        body = ByteBuffer.wrap(s._raw, 0, len);
+      }
+    }
+    ByteBuffer hdr = s._hdr;
+    hdr.clear();
+    hdr.putInt(len).putInt(stored).put(id).flip();
+    writeFully(chan, hdr);
+    writeFully(chan, body);
+    SENT_RAW.addAndGet(len);
+    SENT_WIRE.addAndGet(HDR + stored);
+  }
+
+  /** Read and decode the next frame into {@code frame} (or a fresh buffer if
+   *  it is null or too small), ready to be read from.
+   *  @return the frame, or null if the channel is at EOF before a frame */
+  static ByteBuffer readFrame( ByteChannel chan, ByteBuffer frame ) throws IOException {
+    Scratch s = SCRATCH.get();
+    ByteBuffer hdr = s._hdr;
+    hdr.clear();
+    if( chan.read(hdr) < 0 ) return null;
+    readFully(chan, hdr);
+    hdr.flip();
+    int len = hdr.getInt(), stored = hdr.getInt();
+    byte id = hdr.get();
+    if( frame == null || frame.capacity() < len ) frame = ByteBuffer.allocate(Math.max(len, AutoBuffer.TCP_BUF_SIZ)).order(ByteOrder.nativeOrder());
+    frame.clear();
+    if( id == RAW ) {
+      frame.limit(len);
+      readFully(chan, frame);
+    } else {
+      Codec c = id >= 0 && id < CODECS.length ? CODECS[id] : null;
+      if( c == null ) throw new IOException("Unknown TCP compression codec id "+id);
+      if( s._z.length < stored ) s._z = new byte[stored];
+      readFully(chan, ByteBuffer.wrap(s._z, 0, stored));
+      c.decompress(s._z, stored, frame.array(), len);
+    }
+    frame.position(0).limit(len);
+    RECV_RAW.addAndGet(len);
+    RECV_WIRE.addAndGet(HDR + stored);
+    return frame;
+  }
+
+  private static void writeFully( ByteChannel chan, ByteBuffer bb ) throws IOException {
+    while( bb.hasRemaining() ) chan.write(bb);
+  }
+
+  private static void readFully( ByteChannel chan, ByteBuffer bb ) throws IOException {
+    while( bb.hasRemaining() )
+      if( chan.read(bb) < 0 ) throw new EOFException("TCP channel closed mid-frame");
+  }
+}
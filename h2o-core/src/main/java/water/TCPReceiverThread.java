@@ -40,6 +40,11 @@ public class TCPReceiverThread extends Thread {
    */
   static final byte TCP_EXTERNAL = 3;
 
+  /**
+   * Byte representing TCP communication for big data, sent as frames which may be compressed; see {@link TCPCompression}
+   */
+  static final byte TCP_BIG_FRAMED = 4;
+
   public TCPReceiverThread(
           ServerSocketChannel sock) {
     super("TCP-Accept");
@@ -105,13 +110,15 @@ public class TCPReceiverThread extends Thread {
           new UDP_TCP_ReaderThread(h2o, wrappedSocket).start();
           break;
         case TCP_BIG:
-          new TCPReaderThread(wrappedSocket, new AutoBuffer(wrappedSocket, inetAddress), inetAddress).start();
+        case TCP_BIG_FRAMED:
+          boolean framed = chanType == TCP_BIG_FRAMED;
+          new TCPReaderThread(wrappedSocket, new AutoBuffer(wrappedSocket, inetAddress, framed), inetAddress, framed).start();
           break;
         case TCP_EXTERNAL:
           new ExternalFrameHandlerThread(wrappedSocket, new AutoBuffer(wrappedSocket, null)).start();
           break;
         default:
-          throw H2O.fail("unexpected channel type " + chanType + ", only know 1 - Small, 2 - Big and 3 - ExternalFrameHandling");
+          throw H2O.fail("unexpected channel type " + chanType + ", only know 1 - Small, 2 - Big, 3 - ExternalFrameHandling and 4 - Big framed");
         }
       } catch( java.nio.channels.AsynchronousCloseException ex ) {
         break;                  // Socket closed for shutdown
@@ -130,12 +137,14 @@ public class TCPReceiverThread extends Thread {
     public ByteChannel _sock;
     public AutoBuffer _ab;
     private final InetAddress address;
+    private final boolean framed;
 
-    public TCPReaderThread(ByteChannel sock, AutoBuffer ab, InetAddress address) {
+    public TCPReaderThread(ByteChannel sock, AutoBuffer ab, InetAddress address, boolean framed) {
       super("TCP-"+ab._h2o+"-"+(ab._h2o._tcp_readers++));
       _sock = sock;
       _ab = ab;
       this.address = address;
+      this.framed = framed;
       setPriority(MAX_PRIORITY-1);
     }
 
@@ -167,7 +176,7 @@ public class TCPReceiverThread extends Thread {
         // Reuse open sockets for the next task
         try {
           if( !_sock.isOpen() ) break;
-          _ab = new AutoBuffer(_sock, address);
+          _ab = new AutoBuffer(_sock, address, framed);
         } catch( Exception e ) {
           // Exceptions here are *normal*, this is an idle TCP connection and
           // either the OS can time it out, or the cloud might shutdown.  We
@@ -0,0 +1,93 @@
+package water;
+
+import java.util.Arrays;
+
+import water.nbhm.NonBlockingHashMap;
+
+/**
+ * Get a batch of keys, all homed on the same remote node, in one round-trip.
+ * The batched flavor of {@link TaskGetKey}; see {@link DKV#getAll}.
+ */
+public class TaskGetKeys extends DTask<TaskGetKeys> {
+  Key[] _keys;               // Set by client/sender JVM, cleared by server JVM
+  Value[] _vals;             // Set by server JVM, read by client JVM
+  transient Key[] _xkeys;    // Set by client, read by client
+  transient H2ONode _h2o;    // Set by server JVM, read by server JVM on ACKACK
+
+  // Unify fetches of the same Key by concurrent batches, as TaskGetKey does
+  // for single Keys.
+  private static final NonBlockingHashMap<Key,RPC<TaskGetKeys>> TGKS = new NonBlockingHashMap<>();
+
+  // Start an RPC to fetch a batch of Values.  Keys already being fetched by
+  // another batch are left out of this one; returns null if that leaves
+  // nothing to fetch.
+  static RPC<TaskGetKeys> start( H2ONode target, Key[] keys ) {
+    TaskGetKeys tgks = new TaskGetKeys(keys);
+    RPC<TaskGetKeys> rpc = new RPC<>(target,tgks,1.0f);
+    int n = 0;
+    for( Key key : keys )
+      if( TGKS.putIfMatchUnlocked(key,rpc,null) == null )
+        keys[n++] = key;        // Claimed by this batch
+    if( n == 0 ) return null;
+    if( n < keys.length ) tgks._keys = tgks._xkeys = Arrays.copyOf(keys,n);
+    rpc.setTaskNum().call();    // Start the op
+    return rpc;
+  }
+
+  // The in-flight batch fetching this key, if any
+  static RPC<TaskGetKeys> pending( Key key ) { return TGKS.get(key); }
+
+  // Block for the batch and pick the key's Value out of it
+  static Value get( RPC<TaskGetKeys> rpc, Key key ) {
+    TaskGetKeys tgks = rpc.get(); // Block for it
+    for( int i=0; i<tgks._xkeys.length; i++ )
+      if( tgks._xkeys[i].equals(key) )
+        return tgks._vals[i];
+    throw H2O.fail("Key "+key+" not in batch");
+  }
+
+  private TaskGetKeys( Key[] keys ) { super(H2O.GET_KEY_PRIORITY); _keys = _xkeys = keys; }
+
+  // Top-level non-recursive invoke
+  @Override public void dinvoke( H2ONode sender ) {
+    _h2o = sender;
+    Key[] ks = _keys;
+    _keys = null;         // Not part of the return result
+    _vals = new Value[ks.length];
+    for( int i=0; i<ks.length; i++ ) {
+      Key k = ks[i];
+      assert k.home();    // Gets are always from home (less we do replication)
+      // Track replicas so we can invalidate; retry on a racing delete
+      Value val;
+      do  val = Value.STORE_get(k);
+      while( val != null && !val.setReplica(sender) );
+      _vals[i] = val;
+    }
+    tryComplete();
+  }
+  @Override public void compute2() { throw H2O.fail(); }
+
+  // Received an ACK; executes on the node asking&receiving the Values.
+  // Installs each Value exactly as TaskGetKey.onAck does.
+  @Override public void onAck() {
+    for( int i=0; i<_xkeys.length; i++ ) {
+      Key xkey = _xkeys[i];
+      Value val = _vals[i];
+      if( val != null ) {       // Set transient fields after deserializing
+        assert !xkey.home() && val._key == null;
+        val._key = xkey;
+      }
+      Value old = H2O.STORE.get(xkey);
+      if( old != null && !old.isEmpty() ) old=null;
+      Value res = H2O.putIfMatch(xkey,val,old);
+      if( res != old ) _vals[i] = res;
+      TGKS.remove(xkey);        // Clear from dup cache
+    }
+  }
+
+  // Received an ACKACK; executes on the node sending the Values
+  @Override public void onAckAck() {
+    for( Value val : _vals )
+      if( val != null ) val.lowerActiveGetCount(_h2o);
+  }
+}
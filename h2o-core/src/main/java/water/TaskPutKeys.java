@@ -0,0 +1,70 @@
+package water;
+
+/** Push a batch of keys, all homed on the same remote node, in one
+ *  round-trip.  The batched flavor of {@link TaskPutKey}; see {@link DKV#putAll}.
+ */
+public class TaskPutKeys extends DTask<TaskPutKeys> {
+  Key[] _keys;
+  Value[] _vals;
+  boolean _dontCache; // delete cached values on the sender's side?
+  transient Value[] _xvals;
+  transient Key[] _xkeys;
+
+  static void put( H2ONode h2o, Key[] keys, Value[] vals, Futures fs, boolean dontCache) {
+    fs.add(RPC.call(h2o,new TaskPutKeys(keys,vals,dontCache)));
+  }
+
+  private TaskPutKeys( Key[] keys, Value[] vals, boolean dontCache ) {
+    super(H2O.PUT_KEY_PRIORITY);
+    _xkeys = _keys = keys;
+    _xvals = _vals = vals;
+    _dontCache = dontCache;
+  }
+
+  // The pending Value for this Key, or null if this batch does not have it.
+  // Removes are reported as a null-Value.
+  Value pending( Key k ) {
+    for( int i=0; i<_xkeys.length; i++ )
+      if( k.equals(_xkeys[i]) )
+        return _xvals[i] == null ? Value.makeNull(k) : _xvals[i];
+    return null;
+  }
+
+  @Override public void dinvoke( H2ONode sender ) {
+    Futures fs = new Futures();
+    for( int i=0; i<_keys.length; i++ ) {
+      Key key = _keys[i];
+      Value val = _vals[i];
+      assert key.home();        // Only PUT to home for keys
+      Paxos.lockCloud(key);
+      // Initialize Value for having a single known replica (the sender)
+      if( val != null ) val.initReplicaHome(sender,key);
+      else val = Value.makeNull(key);
+      // Spin, until we update something.
+      Value old = H2O.STORE.get(key); // Raw-get: do not lazy-manifest if overwriting
+      while( H2O.putIfMatch(key,val,old) != old )
+        old = H2O.STORE.get(key);  // Repeat until we update something.
+      // Invalidate remote caches; all invalidates for the batch are done
+      // before we return to the remote caller, same as TaskPutKey.
+      if( old != null ) old.lockAndInvalidate(sender,val,fs);
+      else val.lowerActiveGetCount(null);  // Remove initial read-lock, accounting for pending inv counts
+    }
+    fs.blockForPending();
+    // No return result
+    _keys = null;
+    _vals = null;
+    tryComplete();
+  }
+  @Override public void compute2() { throw H2O.fail(); }
+
+  // Received an ACK
+  @Override public void onAck() {
+    for( int i=0; i<_xkeys.length; i++ ) {
+      Value xval = _xvals[i];
+      if( xval == null ) continue;
+      // remove local cache but NOT in case it is already on disk
+      if( _dontCache && !xval.isPersisted() ) H2O.putIfMatch(_xkeys[i], null, xval);
+      xval.completeRemotePut();
+    }
+  }
+}
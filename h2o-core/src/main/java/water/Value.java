@@ -1,7 +1,9 @@
 package water;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
 import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
 import jsr166y.ForkJoinPool;
 import water.fvec.Frame;
@@ -94,6 +96,52 @@ public final class Value extends Iced implements ForkJoinPool.ManagedBlocker {
   private volatile Freezable _pojo;
   Freezable rawPOJO() { return _pojo; }
 
+  // ---
+  // An off-heap copy of the _mem array, or null.  Only made for Chunks, and
+  // only when the -off_heap_mb store is enabled.  Set once by the Cleaner and
+  // immutable after, just like _mem.  Lets the Cleaner drop both _mem and
+  // _pojo from the heap without a round-trip to disk; reloads are a single
+  // bulk copy.  The buffer itself is never cleared (racing readers may still
+  // be copying from it), only its MemoryManager accounting is released when
+  // this Value leaves the K/V store.
+  private transient volatile ByteBuffer _offHeap;
+  private transient volatile int _offHeapState; // 0: none, 1: accounted, 2: released
+  private static final AtomicIntegerFieldUpdater<Value> OFF_HEAP_UPDATER =
+    AtomicIntegerFieldUpdater.newUpdater(Value.class, "_offHeapState");
+  /** Check if a copy of the backing byte[] is held off-heap */
+  public final boolean isOffHeap() { return _offHeap != null; }
+
+  /** Copy the byte[] form off-heap.  Only called by the Cleaner.
+   *  @return true if an off-heap copy exists after the call */
+  boolean storeOffHeap() {
+    if( _offHeap != null ) return true;
+    if( isDeleted() ) return false;
+    byte[] mem = _mem;          // Read once!
+    if( mem == null ) return false;
+    ByteBuffer bb = MemoryManager.mallocOffHeap(mem.length);
+    if( bb == null ) return false; // Off-heap store disabled or full
+    bb.put(mem);
+    _offHeap = bb;
+    // Close race with freeOffHeap: if this Value already left the K/V,
+    // release the accounting now.
+    if( !OFF_HEAP_UPDATER.compareAndSet(this,0,1) )
+      MemoryManager.freeOffHeap(bb);
+    return true;
+  }
+  /** Release the off-heap accounting for this Value, once it is no longer
+   *  mapped in the local K/V store. */
+  void freeOffHeap() {
+    if( OFF_HEAP_UPDATER.getAndSet(this,2) == 1 )
+      MemoryManager.freeOffHeap(_offHeap);
+  }
+  private byte[] loadOffHeap( ByteBuffer bb ) {
+    byte[] mem = MemoryManager.malloc1(bb.capacity());
+    ByteBuffer dup = bb.duplicate();
+    dup.rewind();
+    dup.get(mem);
+    return mem;
+  }
+
   /** Invalidate byte[] cache.  Only used to eagerly free memory, for data
    *  which is expected to be read-once. */
   public final void freeMem() {
@@ -103,12 +151,12 @@ public final class Value extends Iced implements ForkJoinPool.ManagedBlocker {
   /** Invalidate POJO cache.  Only used to eagerly free memory, for data
    *  which is expected to be read-once. */
   public final void freePOJO() {
-    assert isPersisted() || _mem != null;
+    assert isPersisted() || _mem != null || _offHeap != null;
     _pojo = null;
   }
 
   /** The FAST path get-byte-array - final method for speed.  Will (re)build
-   *  the mem array from either the POJO or disk.  Never returns NULL.
+   *  the mem array from either the POJO, the off-heap copy or disk.  Never returns NULL.
    *  @return byte[] holding the serialized POJO  */
   public final byte[] memOrLoad() {
     byte[] mem = _mem;          // Read once!
@@ -117,11 +165,15 @@ public final class Value extends Iced implements ForkJoinPool.ManagedBlocker {
     if( pojo != null )          // Has the POJO, make raw bytes
       return _mem = pojo.asBytes();
     if( _max == 0 ) return (_mem = new byte[0]);
+    EvictionPolicy.RELOADS.increment(); // Cache miss
+    EvictionPolicy.RELOAD_BYTES.add(_max);
+    ByteBuffer bb = _offHeap;   // Read once!
+    if( bb != null ) return (_mem = loadOffHeap(bb));
     return (_mem = loadPersist());
   }
   // Just an empty shell of a Value, no local data but the Value is "real".
   // Any attempt to look at the Value will require a remote fetch.
-  final boolean isEmpty() { return _max > 0 && _mem==null && _pojo == null && !isPersisted(); }
+  final boolean isEmpty() { return _max > 0 && _mem==null && _pojo == null && _offHeap == null && !isPersisted(); }
 
   /** The FAST path get-POJO as an {@link Iced} subclass - final method for
    *  speed.  Will (re)build the POJO from the _mem array.  Never returns NULL.
@@ -157,7 +209,14 @@ public final class Value extends Iced implements ForkJoinPool.ManagedBlocker {
   // ---
   // Time of last access to this value.
   transient long _lastAccessedTime = System.currentTimeMillis();
-  private void touch() {_lastAccessedTime = System.currentTimeMillis();}
+  // Accesses since this Value was cached; racily updated, good enough for
+  // the EvictionPolicy.
+  transient int _accessCount;
+  private void touch() {
+    _lastAccessedTime = System.currentTimeMillis();
+    _accessCount++;
+    EvictionPolicy.ACCESSES.increment();
+  }
   // Exposed and used for testing only; used to trigger premature cleaning/disk-swapping
   void touchAt(long time) {_lastAccessedTime = time;}
 
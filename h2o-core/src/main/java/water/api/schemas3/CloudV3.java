@@ -157,6 +157,12 @@ public class CloudV3 extends RequestSchemaV3<Iced, CloudV3> {
     @API(help="Open TCP connections", direction=API.Direction.OUTPUT)
     public int tcps_active;
 
+    @API(help="Small messages waiting to be sent to other nodes", direction=API.Direction.OUTPUT)
+    public int send_queue_depth;
+
+    @API(help="Mean time small messages waited to be sent, in microseconds", direction=API.Direction.OUTPUT)
+    public int send_queue_latency_us;
+
     @API(help="Open File Descripters", direction=API.Direction.OUTPUT)
     public int open_fds;
 
@@ -197,6 +203,8 @@ public class CloudV3 extends RequestSchemaV3<Iced, CloudV3> {
 
       // System properties & I/O Status
       tcps_active = hb._tcps_active;
+      send_queue_depth = hb._sendq_depth;
+      send_queue_latency_us = hb._sendq_latency_us;
       open_fds = hb._process_num_open_fds; // -1 if not available
       num_cpus = hb._num_cpus;
       cpus_allowed = hb._cpus_allowed;
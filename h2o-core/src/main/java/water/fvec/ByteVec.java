@@ -14,6 +14,9 @@ import java.util.Arrays;
  */
 public class ByteVec extends Vec {
 
+  /** Chunks fetched per batch while streaming; see {@link #openStream} */
+  static final int STREAM_PREFETCH_CHUNKS = 4;
+
   public ByteVec( Key key, int rowLayout ) { super(key, rowLayout); }
 
   @Override public C1NChunk chunkForChunkIdx(int cidx) { return (C1NChunk)super.chunkForChunkIdx(cidx); }
@@ -67,6 +70,8 @@ public class ByteVec extends Vec {
         if (_c0 == null || _sz >= _c0._len) {
           sz[0] += _c0 != null ? _c0._len : 0;
           if (_cidx >= nChunks()) return 0;
+          if (_cidx % STREAM_PREFETCH_CHUNKS == 0)
+            prefetchChunks(_cidx, STREAM_PREFETCH_CHUNKS);
           _c0 = chunkForChunkIdx(_cidx++);
           _sz = C1NChunk._OFF;
           if (job_key != null)
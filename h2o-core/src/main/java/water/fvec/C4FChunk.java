@@ -36,6 +36,14 @@ public class C4FChunk extends Chunk {
     return nc;
   }
 
+  @Override public double [] getDoubles(double [] vals, int from, int to, double NA){
+    for(int i = from; i < to; i++) {
+      float f = UnsafeUtils.get4f(_mem, 4*i);
+      vals[i-from] = Float.isNaN(f)?NA:f;
+    }
+    return vals;
+  }
+
   private final void processRow(int r, ChunkVisitor v){
     float f = UnsafeUtils.get4f(_mem,(r<<2));
     if(Float.isNaN(f)) v.addNAs(1);
@@ -37,6 +37,14 @@ public class C4VolatileChunk extends Chunk {
   @Override boolean set_impl(int i, float f ) {return false; }
   @Override boolean setNA_impl(int idx) { _is[idx] = (int)_NA; return true; }
 
+  @Override public double [] getDoubles(double [] vals, int from, int to, double NA){
+    for(int i = from; i < to; i++) {
+      int x = _is[i];
+      vals[i-from] = (x == _NA)?NA:x;
+    }
+    return vals;
+  }
+
   private final void processRow(int r, ChunkVisitor v){
     int i = UnsafeUtils.get4(_mem,(r<<2));
     if(i == _NA) v.addNAs(1);
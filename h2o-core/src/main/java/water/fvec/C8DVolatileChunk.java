@@ -65,6 +65,14 @@ public final class C8DVolatileChunk extends Chunk {
     return fs;
   }
 
+  @Override public double [] getDoubles(double [] vals, int from, int to, double NA){
+    System.arraycopy(_ds,from,vals,0,to-from);
+    if(!Double.isNaN(NA))
+      for(int i = 0; i < to-from; i++)
+        if(Double.isNaN(vals[i])) vals[i] = NA;
+    return vals;
+  }
+
   @Override
   public <T extends ChunkVisitor> T processRows(T v, int from, int to) {
     for(int i = from; i < to; i++) v.addValue(_ds[i]);
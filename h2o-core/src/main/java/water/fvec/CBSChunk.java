@@ -102,6 +102,14 @@ public class CBSChunk extends Chunk {
     return false;
   }
 
+  @Override public double [] getDoubles(double [] vals, int from, int to, double NA){
+    for(int i = from; i < to; i++) {
+      byte b = read(i);
+      vals[i-from] = b == _NA?NA:b;
+    }
+    return vals;
+  }
+
   private void processRow(int r, ChunkVisitor v){
     int i = read(r);
     if(i == _NA) v.addNAs(1);
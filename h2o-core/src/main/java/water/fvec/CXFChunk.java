@@ -35,6 +35,8 @@ public class CXFChunk extends CXIChunk {
     return getVal(x);
   }
 
+  @Override protected double getDoubleVal(int x){ return getVal(x); }
+
   @Override
   public Chunk deepCopy() {return new CXFChunk(_mem.clone());}
 
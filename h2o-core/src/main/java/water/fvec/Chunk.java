@@ -159,6 +159,12 @@ public abstract class Chunk extends Iced<Chunk> implements Vec.Holder {
   /** Set the owning Vec */
   public void setVec(Vec vec) { _vec = vec; }
 
+  /** Cached rollups of this Chunk's content, so that recomputing the Vec
+   *  rollups after a write only re-scans the written Chunks.  Chunks in the
+   *  K/V are never written in place, so this goes stale only by cloning into
+   *  a writable copy, which clears it.  See {@link RollupStats}. */
+  transient volatile RollupStats.ChunkRollups _rollups;
+
   /** Set the start */
   public void setStart(long start) { _start = start; }
   /** The Big Data.  Frequently set in the subclasses, but not otherwise a publically writable field. */
@@ -389,6 +395,7 @@ public abstract class Chunk extends Iced<Chunk> implements Vec.Holder {
     c2._vec=null;
     c2._start=-1;
     c2._cidx=-1;
+    c2._rollups=null;
     c2._mem = _mem.clone();
     c2.initFromBytes();
     assert len() == c2._len;
@@ -404,6 +411,7 @@ public abstract class Chunk extends Iced<Chunk> implements Vec.Holder {
   private void setWrite(Chunk ck) {
     assert(_chk2==null);
     _vec.preWriting();          // One-shot writing-init
+    ck._rollups = null;         // Clone is about to be written into
     _chk2 = ck;
     assert _chk2._chk2 == null; // Clone has NOT been written into
   }
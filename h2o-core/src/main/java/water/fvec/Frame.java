@@ -128,7 +128,9 @@ public class Frame extends Lockable<Frame> {
     super(key);
 
     // Require all Vecs already be installed in the K/V store
-    for( Vec vec : vecs ) DKV.prefetch(vec._key);
+    Key[] vkeys = new Key[vecs.length];
+    for( int i=0; i<vecs.length; i++ ) vkeys[i] = vecs[i]._key;
+    DKV.prefetchAll(vkeys);
     for( Vec vec : vecs ) {
       assert DKV.get(vec._key) != null : " null vec: "+vec._key;
     }
@@ -305,7 +307,7 @@ public class Frame extends Lockable<Frame> {
   // Compute vectors for caching
   private Vec[] vecs_impl() {
     // Load all Vec headers; load them all in parallel by starting prefetches
-    for( Key<Vec> key : _keys ) DKV.prefetch(key);
+    DKV.prefetchAll(_keys);
     Vec [] vecs = new Vec[_keys.length];
     for( int i=0; i<_keys.length; i++ ) vecs[i] = _keys[i].get();
     return vecs;
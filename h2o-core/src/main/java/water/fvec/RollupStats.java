@@ -11,10 +11,14 @@ import water.nbhm.NonBlockingHashMap;
 import water.parser.Categorical;
 import water.parser.BufferedString;
 import water.util.ArrayUtils;
+import water.util.HyperLogLog;
 import water.util.Log;
+import water.util.QuantileSketch;
 
 import java.util.Arrays;
 
+import static water.H2O.OptArgs.SYSTEM_PROP_PREFIX;
+
 /** A class to compute the rollup stats.  These are computed lazily, thrown
  *  away if the Vec is written into, and then recomputed lazily.  Error to ask
  *  for them if the Vec is actively being written into.  It is common for all
@@ -25,6 +29,22 @@ import java.util.Arrays;
  *  rollup work and final results.  Winner of a DKV CAS/PutIfMatch race gets to
  *  manage the M/R job computing the rollups.  Losers block for the same
  *  rollup.  Remote requests *always* forward to the Rollup Key's master.
+ *
+ *  The mergeable per-Chunk rollups (and histogram bins) are cached on the
+ *  Chunks themselves, see {@link ChunkRollups}.  Writing into a Vec still
+ *  throws the Vec rollups away, but recomputing them only re-scans the Chunks
+ *  which were written (or whose row offsets moved); the others contribute
+ *  their cached results to the reduce.
+ *
+ *  Mergeable sketches, a {@link QuantileSketch} of the numeric values and a
+ *  {@link HyperLogLog} distinct count (of the values, strings or UUIDs), give
+ *  approximate quantiles and cardinalities.  They are built with a pass of
+ *  their own the first time they are asked for, see {@link #sketches}, and
+ *  kept with the local copy of the rollups until the Vec is written into.  Set
+ *  {@code sys.ai.h2o.rollups.sketches=true} to fill them along with the
+ *  rollups instead.  The sketches are not cached on the Chunks (a few KB each,
+ *  per Chunk, unaccounted for by the MemoryManager): if some Chunks' rollups
+ *  come from their cache, the Vec's sketches are left out.
  */
 final class RollupStats extends Iced {
   /** The count of missing elements.... or -2 if we have active writers and no
@@ -45,6 +65,12 @@ final class RollupStats extends Iced {
   boolean _isInt=true;
   double[] _mins, _maxs;
   long _checksum;
+  QuantileSketch _qsketch;      // Approximate quantiles of non-NA values; null for String & UUID Vecs
+  HyperLogLog _hll;             // Approximate count of distinct non-NA values
+  boolean _sketchless;          // Sketches left out: not filled with the rollups, or some Chunk rollups came from their cache
+  private transient volatile RollupStats _sketches; // Sketches built on demand for sketchless rollups
+
+  static final boolean SKETCHES = Boolean.parseBoolean(System.getProperty(SYSTEM_PROP_PREFIX + "rollups.sketches", "false"));
 
   // Expensive histogram & percentiles
   // Computed in a 2nd pass, on-demand, by calling computeHisto
@@ -80,6 +106,13 @@ final class RollupStats extends Iced {
   static RollupStats makeMutating () { return new RollupStats(-2); }
 
   private RollupStats map( Chunk c ) {
+    mapStats(c);
+    if( SKETCHES ) sketch(c);
+    else _sketchless = true;
+    return this;
+  }
+
+  private RollupStats mapStats( Chunk c ) {
     _size = c.byteSize();
     boolean isUUID = c._vec.isUUID();
     boolean isString = c._vec.isString();
@@ -219,6 +252,99 @@ final class RollupStats extends Iced {
     return this;
   }
 
+  // Fill the sketches from the Chunk's non-NA values
+  private void sketch( Chunk c ) {
+    _hll = new HyperLogLog();
+    if( c._vec.isUUID() ) {
+      for( int i=c.nextNZ(-1); i< c._len; i=c.nextNZ(i) )
+        if( !c.isNA(i) ) _hll.add(HyperLogLog.hash(c.at16l(i) ^ HyperLogLog.hash(c.at16h(i))));
+      return;
+    }
+    if( c._vec.isString() ) {
+      BufferedString tmpStr = new BufferedString();
+      for( int i=c.nextNZ(-1); i< c._len; i=c.nextNZ(i) )
+        if( !c.isNA(i) ) _hll.add(HyperLogLog.hash(c.atStr(tmpStr,i).hashCode()));
+      return;
+    }
+    QuantileSketch qs = _qsketch = new QuantileSketch(QuantileSketch.DEFAULT_K,c._len);
+    double min=c.min(), max=c.max();
+    if( min==max ) {            // All constant
+      qs.add(min,c._len);
+      _hll.add(min);
+    } else if( c.isSparseZero() || c.isSparseNA() ) {
+      for( int i=c.nextNZ(-1); i< c._len; i=c.nextNZ(i) ) {
+        double d = c.atd(i);
+        qs.add(d);
+        _hll.add(d);
+      }
+      int zeros = c.isSparseZero() ? c._len - c.sparseLenZero() : 0;
+      if( zeros > 0 ) {         // Skipped above; do them now
+        qs.add(0,zeros);
+        _hll.add(0.0);
+      }
+    } else {
+      double[] ds = c.getDoubles(MemoryManager.malloc8d(c._len),0,c._len);
+      qs.add(ds,0,ds.length);   // NaNs are skipped by the sketches
+      _hll.add(ds,0,ds.length);
+    }
+  }
+
+  // Copy of un-finalized rollups, safe to reduce into; without the sketches
+  private RollupStats copy() {
+    RollupStats rs = (RollupStats)clone();
+    rs._mins = _mins.clone();
+    rs._maxs = _maxs.clone();
+    rs._qsketch = null;
+    rs._hll = null;
+    return rs;
+  }
+
+  /** Rollups of a single Chunk, before the reduce and the final sigma fix-up,
+   *  plus optionally the Chunk's histogram bins for one base/stride.  Valid
+   *  for as long as the Chunk is not written into, is at the same starting
+   *  row (the checksum depends on it), and its Vec has the same type.
+   *  Immutable; adding the histogram makes a new instance.  Not kept for
+   *  volatile Vecs, whose Chunks are written in place.  Holds no sketches. */
+  static final class ChunkRollups {
+    final long _start;
+    final byte _type;
+    final RollupStats _rs;
+    final double _hbase, _hstride;
+    final long[] _hbins;
+    private ChunkRollups(long start, byte type, RollupStats rs, double hbase, double hstride, long[] hbins) {
+      _start = start; _type = type; _rs = rs; _hbase = hbase; _hstride = hstride; _hbins = hbins;
+    }
+    // Same rollups, with bins for the given base & stride
+    ChunkRollups withHisto(double hbase, double hstride, long[] hbins) {
+      return new ChunkRollups(_start, _type, _rs, hbase, hstride, hbins);
+    }
+    boolean hasHisto(double hbase, double hstride, int nbins) {
+      return _hbins != null && _hbins.length == nbins && _hbase == hbase && _hstride == hstride;
+    }
+  }
+
+  // The Chunk's cached rollups, or null if missing or stale
+  static ChunkRollups cached( Chunk c ) {
+    ChunkRollups cr = c._rollups; // Read once, racily filled in
+    if( cr == null || c._vec.isVolatile() ) return null;
+    return cr._start == c._start && cr._type == c._vec.get_type() ? cr : null;
+  }
+
+  // The Chunk's rollups, from its cache (then without the sketches), or
+  // computed (with the sketches if SKETCHES) and cached without them
+  private static RollupStats chunkRollups( Chunk c ) {
+    ChunkRollups cr = cached(c);
+    if( cr != null ) {
+      RollupStats rs = cr._rs.copy();
+      rs._sketchless = true;
+      return rs;
+    }
+    RollupStats rs = new RollupStats(0).map(c);
+    if( !c._vec.isVolatile() )
+      c._rollups = new ChunkRollups(c._start, c._vec.get_type(), rs.copy(), Double.NaN, Double.NaN, null);
+    return rs;
+  }
+
   private void reduce( RollupStats rs ) {
     for( double d : rs._mins ) if (!Double.isNaN(d)) min(d);
     for( double d : rs._maxs ) if (!Double.isNaN(d)) max(d);
@@ -236,6 +362,16 @@ final class RollupStats extends Iced {
     _size += rs._size;
     _isInt &= rs._isInt;
     _checksum ^= rs._checksum;
+    _sketchless |= rs._sketchless;
+    if( _sketchless ) { _qsketch = null; _hll = null; return; }
+    reduceSketches(rs);
+  }
+
+  private void reduceSketches( RollupStats rs ) {
+    if( _qsketch == null ) _qsketch = rs._qsketch;
+    else if( rs._qsketch != null ) _qsketch.merge(rs._qsketch);
+    if( _hll == null ) _hll = rs._hll;
+    else if( rs._hll != null ) _hll.merge(rs._hll);
   }
 
   double min( double d ) {
@@ -261,7 +397,7 @@ final class RollupStats extends Iced {
     protected boolean modifiesVolatileVecs(){return false;}
 
     Roll( H2OCountedCompleter cmp, Key rskey ) { super(cmp); _rskey=rskey; }
-    @Override public void map( Chunk c ) { _rs = new RollupStats(0).map(c); }
+    @Override public void map( Chunk c ) { _rs = chunkRollups(c); }
     @Override public void reduce( Roll roll ) { _rs.reduce(roll._rs); }
     @Override public void postGlobal() {
       if( _rs == null )
@@ -274,6 +410,7 @@ final class RollupStats extends Iced {
           _rs._mins[4-i] = Double.NaN;
         }
       }
+      if( _rs._qsketch != null ) _rs._qsketch.trim(); // Kept in the DKV from now on
       // mean & sigma not allowed on more than 2 classes; for 2 classes the assumption is that it's true/false
       Vec vec = _fr.anyVec();
       String[] ss = vec.domain();
@@ -347,6 +484,27 @@ final class RollupStats extends Iced {
     }
     return rs;
   }
+  // The Vec's rollups with their sketches; if they were left out (see
+  // ChunkRollups) the sketches are built with a pass over the data, and kept
+  // with this node's copy of the rollups, which a write into the Vec drops.
+  static RollupStats sketches(Vec vec) {
+    RollupStats rs = get(vec);
+    if( !rs._sketchless ) return rs;
+    RollupStats sk = rs._sketches;
+    if( sk == null ) {          // Racy, at worst built twice
+      sk = new Sketch().doAll(vec)._rs;
+      if( sk == null ) sk = new RollupStats(0);
+      else if( sk._qsketch != null ) sk._qsketch.trim();
+      rs._sketches = sk;
+    }
+    return sk;
+  }
+  private static class Sketch extends MRTask<Sketch> {
+    RollupStats _rs;
+    @Override public void map( Chunk c ) { _rs = new RollupStats(0); _rs.sketch(c); }
+    @Override public void reduce( Sketch s ) { _rs.reduceSketches(s._rs); }
+  }
+
   // Allow a bunch of rollups to run in parallel.  If Futures is passed in, run
   // the rollup in the background and do not return.
   static RollupStats get(Vec vec) { return get(vec,false);}
@@ -370,14 +528,29 @@ final class RollupStats extends Iced {
     long[] _bins;                // Outputs
     Histo( H2OCountedCompleter cmp, RollupStats rs, int nbins ) { super(cmp);_base = rs.h_base(); _stride = rs.h_stride(nbins); _nbins = nbins; }
     @Override public void map( Chunk c ) {
+      // Unchanged Chunk, and the Vec min/max (hence base & stride) unchanged?
+      ChunkRollups cr = cached(c);
+      if( cr != null && cr.hasHisto(_base,_stride,_nbins) ) {
+        _bins = cr._hbins.clone(); // Reduced into, so work on a copy
+        return;
+      }
       _bins = new long[_nbins];
-      for( int i=c.nextNZ(-1); i< c._len; i=c.nextNZ(i) ) {
-        double d = c.atd(i);
-        if( !Double.isNaN(d) ) _bins[idx(d)]++;
+      if( c.isSparseZero() || c.isSparseNA() ) {
+        for( int i=c.nextNZ(-1); i< c._len; i=c.nextNZ(i) ) {
+          double d = c.atd(i);
+          if( !Double.isNaN(d) ) _bins[idx(d)]++;
+        }
+        // Sparse?  We skipped all the zeros; do them now
+        if( c.isSparseZero() )
+          _bins[idx(0.0)] += (c._len - c.sparseLenZero());
+      } else {                  // Dense: decode once, then a tight loop
+        double[] ds = c.getDoubles(MemoryManager.malloc8d(c._len),0,c._len);
+        for( double d : ds )
+          if( !Double.isNaN(d) ) _bins[idx(d)]++;
       }
-      // Sparse?  We skipped all the zeros; do them now
-      if( c.isSparseZero() )
-        _bins[idx(0.0)] += (c._len - c.sparseLenZero());
+      // Cache the bins, unless they take more memory than the Chunk itself
+      if( cr != null && (long)_nbins*8 <= c.byteSize() )
+        c._rollups = cr.withHisto(_base,_stride,_bins.clone());
     }
     private int idx( double d ) { int idx = (int)((d-_base)/_stride); return Math.min(idx,_bins.length-1); }
 
@@ -842,6 +842,35 @@ public class Vec extends Keyed<Vec> {
    *  @return A set of percentiles */
   public double[] pctiles() { return RollupStats.get(this, true)._pctiles;   }
 
+  /** Approximate quantiles of the non-missing values, from a sketch built
+   *  with one pass over the data the first time it is asked for, and kept
+   *  until the Vec is written into.  The rank error is about 1.5% of the row
+   *  count; the 0 and 1 quantiles are exact.
+   *  @param probs Probabilities, each in [0,1]
+   *  @return One quantile per probability, or null for String and UUID Vecs */
+  public double[] approxQuantiles(double... probs) {
+    RollupStats rs = RollupStats.sketches(this);
+    if( rs._qsketch != null ) return rs._qsketch.quantiles(probs);
+    if( length() > 0 || isString() || isUUID() ) return null;
+    double[] res = new double[probs.length];  // Empty Vec: all NaN
+    Arrays.fill(res, Double.NaN);
+    return res;
+  }
+  /** Approximate quantile of the non-missing values, see {@link #approxQuantiles}
+   *  @return The quantile, or NaN if not available */
+  public double approxQuantile(double prob) {
+    double[] qs = approxQuantiles(prob);
+    return qs == null ? Double.NaN : qs[0];
+  }
+  /** Approximate count of distinct non-missing values (numbers, strings or
+   *  UUIDs), from a HyperLogLog sketch built like the one of
+   *  {@link #approxQuantiles}; the standard error is about 1.6%.
+   *  @return The distinct count */
+  public long approxDistinct() {
+    RollupStats rs = RollupStats.sketches(this);
+    return rs._hll != null ? rs._hll.estimate() : length() == 0 ? 0 : -1;
+  }
+
 
   /** Compute the roll-up stats as-needed */
   private RollupStats rollupStats() { return RollupStats.get(this); }
@@ -973,6 +1002,19 @@ public class Vec extends Keyed<Vec> {
     return val;
   }
 
+  /** Prefetch and cache the Chunks {@code [cidx,cidx+n)} (clipped to the
+   *  Vec), with one round-trip per home node.  Non-blocking; Chunks already
+   *  cached locally cost nothing.  Useful before walking non-local Chunks.
+   *  @param cidx First Chunk number
+   *  @param n Number of Chunks */
+  public void prefetchChunks( int cidx, int n ) {
+    int hi = Math.min(nChunks(),cidx+n);
+    if( hi <= cidx ) return;
+    Key[] keys = new Key[hi-cidx];
+    for( int i=cidx; i<hi; i++ ) keys[i-cidx] = chunkKey(i);
+    DKV.prefetchAll(keys);
+  }
+
   private boolean checkMissing(int cidx, Value val) {
     if( val != null ) return true;
     Log.err("Error: Missing chunk " + cidx + " for " + _key);
@@ -0,0 +1,146 @@
+package water.parser;
+
+import water.util.UnsafeUtils;
+
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+/** Structural index over one chunk of CSV bytes, the first stage of the
+ *  two-stage CSV tokenizer.
+ *
+ *  <p>A pass over the chunk, 8 bytes at a time, finds every separator and
+ *  line end and every byte which only the {@link CsvParser} state machine
+ *  knows how to handle (quotes, blanks, NUL), using SIMD-within-a-register
+ *  byte compares; the results are kept as bitmaps with one bit per input
+ *  byte.  The second stage ({@link CsvParser#parseIndexedLines}) walks the
+ *  separator bitmap to cut whole lines into fields, and hands a line back to
+ *  the state machine as soon as the special bitmap shows anything unusual.
+ *
+ *  <p>The index is built lazily, 1KB at a time as {@link #nextStruct} moves
+ *  forward.  A jump ahead leaves the words in between unindexed; the parse
+ *  never comes back to them.
+ */
+final class CsvIndex {
+  private static final boolean BIG_ENDIAN = ByteOrder.nativeOrder() == ByteOrder.BIG_ENDIAN;
+  private static final long LO7 = 0x7F7F7F7F7F7F7F7FL;
+  private static final long ONES = 0x0101010101010101L;
+  private static final int STEP = 16;   // Words indexed at a time
+
+  final long[] _struct;   // Separators, CR and LF
+  final long[] _special;  // Quotes, blanks and NUL
+  private final byte[] _bits;
+  private final int _len;
+  private final byte _sep;
+  private final boolean _singleQuotes;
+  private final long _sepw, _sqw, _tabw;
+  private int _hi;        // Words from where the parse went up to here are indexed
+
+  // Per-line scratch for the second stage: field ends, parsed numbers, kinds
+  int[] _ends = new int[16];
+  long[] _mant = new long[16];
+  int[] _exp = new int[16];
+  byte[] _kind = new byte[16];
+
+  /** Index for bytes [0,len) of bits */
+  CsvIndex( byte[] bits, int len, byte sep, boolean singleQuotes ) {
+    _bits = bits;
+    _len = len;
+    _sep = sep;
+    _singleQuotes = singleQuotes;
+    _struct = new long[(len + 63) >>> 6];
+    _special = new long[_struct.length];
+    _sepw = ONES * (sep & 0xFF);
+    // Without single quoting an apostrophe is just another byte
+    _sqw = ONES * (singleQuotes ? Parser.CHAR_SINGLE_QUOTE : Parser.CHAR_DOUBLE_QUOTE);
+    // A tab separator is a separator, not a blank
+    _tabw = ONES * (sep == Parser.CHAR_TAB ? Parser.CHAR_SPACE : Parser.CHAR_TAB);
+  }
+
+  /** True if the index can stand in for the state machine with this setup:
+   *  a blank separator folds runs of blanks, and a separator which is also
+   *  a quote or line end changes meaning by context. */
+  static boolean supports( byte sep ) {
+    return sep != Parser.CHAR_SPACE && sep != Parser.CHAR_DOUBLE_QUOTE && sep != Parser.CHAR_SINGLE_QUOTE &&
+        sep != Parser.CHAR_CR && sep != Parser.CHAR_LF && sep != 0;
+  }
+
+  /** Index the words from _hi up to w */
+  private void buildTo( int w ) {
+    final byte[] bits = _bits;
+    final long sepw = _sepw, sqw = _sqw, tabw = _tabw;
+    final long crw = ONES * Parser.CHAR_CR, lfw = ONES * Parser.CHAR_LF;
+    final long dqw = ONES * Parser.CHAR_DOUBLE_QUOTE, spw = ONES * Parser.CHAR_SPACE;
+    w = Math.min(w, _struct.length);
+    int full = Math.min(w, _len >>> 6); // Words with all 64 bytes inside the chunk
+    for( int x = _hi; x < full; x++ ) {
+      long st = 0, sp = 0;
+      for( int b = 0, i = x << 6; b < 64; b += 8, i += 8 ) {
+        long v = UnsafeUtils.get8(bits, i);
+        if( BIG_ENDIAN ) v = Long.reverseBytes(v);
+        st |= movemask(zeros(v ^ sepw) | zeros(v ^ crw) | zeros(v ^ lfw)) << b;
+        sp |= movemask(zeros(v ^ dqw) | zeros(v ^ sqw) | zeros(v ^ spw) | zeros(v ^ tabw) | zeros(v)) << b;
+      }
+      _struct[x] = st;
+      _special[x] = sp;
+    }
+    if( w > full ) {            // The last partial word, a byte at a time
+      for( int i = Math.max(full, _hi) << 6; i < _len; i++ ) {
+        byte c = bits[i];
+        if( c == _sep || c == Parser.CHAR_CR || c == Parser.CHAR_LF )
+          _struct[i >>> 6] |= 1L << i;
+        else if( c == Parser.CHAR_DOUBLE_QUOTE || (c == Parser.CHAR_SINGLE_QUOTE && _singleQuotes) ||
+            c == Parser.CHAR_SPACE || (c == Parser.CHAR_TAB && _sep != Parser.CHAR_TAB) || c == 0 )
+          _special[i >>> 6] |= 1L << i;
+      }
+    }
+    _hi = Math.max(_hi, w);
+  }
+
+  /** 0x80 in every byte of v which is zero, and 0 elsewhere.  Exact (no
+   *  false hits above a zero byte), unlike the shorter (v-0x01..)&~v trick. */
+  static long zeros( long v ) {
+    long t = (v & LO7) + LO7;
+    return ~(t | v | LO7);
+  }
+
+  /** Gather the high bit of each byte of m into the low 8 bits, byte i to bit i */
+  static long movemask( long m ) {
+    return ((m >>> 7) * 0x0102040810204080L) >>> 56;
+  }
+
+  /** Position of the first separator or line end at or after from, or -1 */
+  int nextStruct( int from ) {
+    int w = from >>> 6;
+    if( w >= _struct.length ) return -1;
+    if( w >= _hi ) { _hi = w; buildTo(w + STEP); }
+    long m = _struct[w] & (-1L << from);
+    while( m == 0 ) {
+      if( ++w == _struct.length ) return -1;
+      if( w == _hi ) buildTo(w + STEP);
+      m = _struct[w];
+    }
+    return (w << 6) + Long.numberOfTrailingZeros(m);
+  }
+
+  /** True if any byte in [from,to) is special; only for bytes
+   *  {@link #nextStruct} has already gone past */
+  boolean anySpecial( int from, int to ) {
+    if( from >= to ) return false;
+    int w = from >>> 6, wl = (to - 1) >>> 6;
+    assert wl < _hi;
+    long m = _special[w] & (-1L << from);
+    while( w < wl ) {
+      if( m != 0 ) return true;
+      m = _special[++w];
+    }
+    return (m & (-1L >>> (63 - ((to - 1) & 63)))) != 0;
+  }
+
+  void grow() {
+    int n = _ends.length << 1;
+    _ends = Arrays.copyOf(_ends, n);
+    _mant = Arrays.copyOf(_mant, n);
+    _exp = Arrays.copyOf(_exp, n);
+    _kind = Arrays.copyOf(_kind, n);
+  }
+}
@@ -4,6 +4,7 @@ import org.apache.commons.lang.math.NumberUtils;
 import org.apache.http.ParseException;
 import water.fvec.Vec;
 import water.fvec.FileVec;
+import water.H2O;
 import water.Key;
 import water.util.StringUtils;
 
@@ -21,6 +22,10 @@ class CsvParser extends Parser {
   private static final int GUESS_HEADER = ParseSetup.GUESS_HEADER;
   private static final int HAS_HEADER = ParseSetup.HAS_HEADER;
 
+  /** Set the system property to false to parse every line with the byte-at-a-time state machine */
+  static final boolean INDEXED = Boolean.parseBoolean(System.getProperty(H2O.OptArgs.SYSTEM_PROP_PREFIX + "parser.csv.indexed", "true"));
+  transient boolean _indexed = INDEXED;
+
   CsvParser( ParseSetup ps, Key jobKey ) { super(ps, jobKey); }
 
   // Parse this one Chunk (in parallel with other Chunks)
@@ -79,6 +84,13 @@ class CsvParser extends Parser {
     dout.newLine();
 
     final boolean forceable = dout instanceof FVecParseWriter && ((FVecParseWriter)dout)._ctypes != null && _setup._column_types != null;
+    // Whole lines inside this chunk go through the structural index when
+    // they can; the index is built on first use.  Lines it hands back get
+    // tokenized twice, so after a miss skip it for a while, longer after
+    // every miss in a row.
+    CsvIndex idx = null;
+    boolean indexed = _indexed && CsvIndex.supports(CHAR_SEPARATOR);
+    int skipLines = 0, backoff = 1;
 MAIN_LOOP:
     while (true) {
       boolean forcedCategorical = forceable && colIdx < _setup._column_types.length && _setup._column_types[colIdx] == Vec.T_CAT;
@@ -190,6 +202,16 @@ MAIN_LOOP:
               state = EXPECT_COND_LF;
             break;
           }
+          if (indexed && firstChunk && skipLines-- == 0) {
+            if (idx == null) idx = new CsvIndex(bits, bits.length, CHAR_SEPARATOR, _setup._single_quotes);
+            int next = parseIndexedLines(bits, offset, idx, dout, str, forceable);
+            if (next != offset) {   // Carry on with the line it left over
+              offset = next;
+              c = bits[offset];
+              backoff = 1;
+            } else backoff = Math.min(backoff << 1, 1024);
+            skipLines = backoff - 1;
+          }
           state = WHITESPACE_BEFORE_TOKEN;
           // fallthrough to WHITESPACE_BEFORE_TOKEN
         // ---------------------------------------------------------------------
@@ -463,6 +485,114 @@ MAIN_LOOP:
     return dout;
   }
 
+  // Field kinds found by parseIndexedLines
+  private static final byte F_NA = 0, F_NUM = 1, F_STR = 2;
+
+  /** Second stage of the indexed tokenizer: parse whole lines starting at
+   *  offset, cutting fields at the separators and line ends of the index.  A
+   *  line is only taken if every field is one the state machine would parse
+   *  without quoting or odd number syntax: empty, a plain number, or
+   *  a plain string, with no blanks, quotes or NUL anywhere.  The first line
+   *  which is not, and the last line of the chunk (which may run on into the
+   *  next chunk), are left to the state machine.
+   *  @return offset of the first line not parsed here, always a non-EOL byte
+   *  inside bits */
+  int parseIndexedLines(byte[] bits, int offset, CsvIndex idx, ParseWriter dout, BufferedString str, boolean forceable) {
+    final int len = bits.length;
+    while (true) {
+      // Cut the line into fields
+      int nf = 0, p = offset;
+      while (true) {
+        p = idx.nextStruct(p);
+        if (p < 0) return offset;     // Line runs off the chunk end
+        if (nf == idx._ends.length) idx.grow();
+        idx._ends[nf++] = p;
+        if (isEOL(bits[p])) break;
+        p++;
+      }
+      int next = p + 1;
+      while (next < len && isEOL(bits[next])) next++;
+      if (next >= len || idx.anySpecial(offset, p)) return offset;
+      // Classify every field before writing any of them, so a line can still
+      // be handed back to the state machine
+      for (int f = 0, s = offset; f < nf; s = idx._ends[f++] + 1) {
+        int e = idx._ends[f];
+        byte kind;
+        if (s == e) kind = F_NA;
+        else if (dout.isString(f)) kind = F_STR;
+        else if ((kind = parseNumber(bits, s, e, idx, f)) < 0) return offset;
+        else if (kind == F_NUM && forceable && f < _setup._column_types.length &&
+            (_setup._column_types[f] == Vec.T_CAT || _setup._column_types[f] == Vec.T_STR))
+          kind = F_STR;
+        idx._kind[f] = kind;
+      }
+      for (int f = 0, s = offset; f < nf; s = idx._ends[f++] + 1) {
+        switch (idx._kind[f]) {
+          case F_NA:
+            dout.addInvalidCol(f);
+            break;
+          case F_NUM:
+            dout.addNumCol(f, idx._mant[f], idx._exp[f]);
+            break;
+          default:
+            int e = idx._ends[f];
+            str.set(bits, s, e - s);
+            if (_setup._na_strings != null && _setup._na_strings.length > f && str.isOneOf(_setup._na_strings[f])) {
+              dout.addInvalidCol(f);
+            } else {
+              dout.addStrCol(f, str);
+              for (int i = s; i < e; i++)
+                if (bits[i] < 0) {  // Value beyond std ASCII
+                  dout.setIsAllASCII(f, false);
+                  break;
+                }
+            }
+            str.set(null, 0, 0);
+        }
+      }
+      dout.newLine();
+      offset = next;
+    }
+  }
+
+  /** Parse bits[s,e), a field with no blanks or quotes, the way the state
+   *  machine would, into idx._mant[f] and idx._exp[f].
+   *  @return F_NUM, F_STR if the state machine would fall back to a string,
+   *  or -1 for the odd cases left to the state machine ('$', '%', signs with
+   *  no digits, more than 18 digits) */
+  private byte parseNumber(byte[] bits, int s, int e, CsvIndex idx, int f) {
+    int i = s;
+    byte c = bits[i];
+    if (c == '$') return -1;
+    if (!((c >= '0') && (c <= '9')) && c != '-' && c != '+' && c != CHAR_DECIMAL_SEP) return F_STR;
+    boolean neg = c == '-';
+    if (c == '-' || c == '+') i++;
+    long number = 0;
+    int digits = 0, fraction = 0;
+    for (; i < e && (c = bits[i]) >= '0' && c <= '9'; i++, digits++)
+      number = number * 10 + (c - '0');
+    if (i < e && bits[i] == CHAR_DECIMAL_SEP)
+      for (i++; i < e && (c = bits[i]) >= '0' && c <= '9'; i++, digits++, fraction++)
+        number = number * 10 + (c - '0');
+    if (digits == 0 || digits > 18) return -1;
+    int exp = 0;
+    if (i < e && ((c = bits[i]) == 'e' || c == 'E')) {
+      int sgnExp = 1, signs = 0, expDigits = 0;
+      for (i++; i < e && ((c = bits[i]) == '-' || c == '+'); i++, signs++)
+        if (c == '-') sgnExp = -sgnExp;
+      if (signs > 1) return -1;
+      for (; i < e && (c = bits[i]) >= '0' && c <= '9'; i++, expDigits++)
+        exp = exp * 10 + (c - '0');
+      if (expDigits == 0) return i < e && bits[i] == '%' ? -1 : F_STR;
+      if (expDigits > 9) return -1;
+      exp *= sgnExp;
+    }
+    if (i < e) return bits[i] == '%' ? -1 : F_STR;
+    idx._mant[f] = neg ? -number : number;
+    idx._exp[f] = exp - fraction;
+    return F_NUM;
+  }
+
   @Override protected int fileHasHeader(byte[] bits, ParseSetup ps) {
     boolean hasHdr = true;
     String[] lines = getFirstLines(bits);
@@ -0,0 +1,366 @@
+package water.parser;
+
+import water.*;
+import water.fvec.*;
+import water.util.Log;
+import water.util.PrettyPrint;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.Inflater;
+
+/**
+ * Inflates gzip'd input files into temporary plain ByteVecs ahead of the
+ * parse, so that the uncompressed bytes get parsed in parallel across the
+ * cluster by {@code DistributedParse}, instead of by a single stream parse on
+ * one node.
+ *
+ * <p>BGZF files (see {@link ZipUtil#isBgzf}) are inflated in parallel too:
+ * each compressed Chunk finds the BGZF members starting in it, and inflates
+ * them into uncompressed Chunk of the same index, on the node where the
+ * compressed Chunk lives.  Any other gzip, including plain multi-member gzip
+ * which carries no index of its members, is inflated as a single stream on
+ * the node homing the file's key; the output is cut into Chunks which are
+ * shipped off to their home nodes while inflating goes on.  Several gzip'd
+ * files are inflated on several nodes at once.
+ *
+ * <p>Half of each file's parse work is accounted to inflating, the other half
+ * to parsing the uncompressed bytes, see {@link #workScale}.
+ *
+ * <p>The uncompressed copies live in the DKV until the parse is done, next to
+ * the parsed Frame.  Files are only inflated while their estimated
+ * uncompressed size ({@link #EXPECTED_RATIO} times the compressed one) fits
+ * in half of the cluster's free memory; the others are stream parsed as
+ * before.  Set {@code sys.ai.h2o.parse.gunzip.parallel=false} to stream parse
+ * all gzip'd files.
+ */
+final class ParallelGunzip {
+  static final boolean ENABLED = Boolean.parseBoolean(System.getProperty(H2O.OptArgs.SYSTEM_PROP_PREFIX + "parse.gunzip.parallel", "true"));
+  /** Assumed uncompressed/compressed size ratio; the gzip trailer only knows the last member's size (mod 4G) */
+  static final int EXPECTED_RATIO = 5;
+
+  /** Per input key: its uncompressed copy, or null if it is not gzip'd */
+  final Key[] _ukeys;
+  private final long[] _zlens, _ulens;  // Compressed & uncompressed sizes
+
+  private ParallelGunzip(Key[] ukeys, long[] zlens, long[] ulens) {
+    _ukeys = ukeys;
+    _zlens = zlens;
+    _ulens = ulens;
+  }
+
+  /**
+   * Inflate the gzip'd files among {@code fkeys} into new ByteVecs of the
+   * given vector group.  Inputs are released, or deleted if {@code
+   * deleteOnDone}, once inflated.
+   *
+   * @return null if none of the files is gzip'd (or fits in memory uncompressed)
+   */
+  static ParallelGunzip inflate(Vec.VectorGroup vg, Job job, Key[] fkeys, int chunkSize, boolean deleteOnDone) {
+    return ENABLED ? inflate(vg, job, fkeys, chunkSize, deleteOnDone, H2O.CLOUD.free_mem() / 2) : null;
+  }
+
+  /** Same, inflating files only while their estimated uncompressed sizes add up to at most {@code budget} bytes */
+  static ParallelGunzip inflate(Vec.VectorGroup vg, Job job, Key[] fkeys, int chunkSize, boolean deleteOnDone, long budget) {
+    int n = 0;
+    boolean[] gzipped = new boolean[fkeys.length];
+    for( int i = 0; i < fkeys.length; i++ ) {
+      ByteVec bv = ParseDataset.getByteVec(fkeys[i]);
+      if( ZipUtil.guessCompressionMethod(bv.getFirstBytes()) != ZipUtil.Compression.GZIP ) continue;
+      long ulen = bv.length() * EXPECTED_RATIO;
+      if( ulen > budget ) {
+        Log.info("Not enough free memory to decompress " + fkeys[i] + " ahead of the parse (about " +
+            PrettyPrint.bytes(ulen) + " uncompressed), stream parsing it");
+        continue;
+      }
+      budget -= ulen;
+      gzipped[i] = true;
+      n++;
+    }
+    if( n == 0 ) return null;
+    job.update(0, "Decompressing " + n + " gzip file" + (n == 1 ? "." : "s."));
+    int vecIdStart = vg.reserveKeys(n);
+    Key[] ukeys = new Key[fkeys.length];
+    Key[] gzkeys = new Key[n];
+    for( int i = 0, j = 0; i < fkeys.length; i++ )
+      if( gzipped[i] ) {
+        ukeys[i] = vg.vecKey(vecIdStart + j);
+        gzkeys[j++] = fkeys[i];
+      }
+    InflateTask it = new InflateTask(job._key, compact(ukeys, n), Math.max(chunkSize, 1 << 16)).doAll(gzkeys);
+
+    long[] zlens = new long[fkeys.length], ulens = new long[fkeys.length];
+    Futures fs = new Futures();
+    for( int i = 0, j = 0; i < fkeys.length; i++ ) {
+      if( !gzipped[i] ) continue;
+      long[] espc = it._espcs[j++];
+      ByteVec bv = new ByteVec(ukeys[i], Vec.ESPC.rowLayout(ukeys[i], espc));
+      DKV.put(ukeys[i], bv, fs);
+      zlens[i] = ParseDataset.getByteVec(fkeys[i]).length();
+      ulens[i] = espc[espc.length - 1];
+      Log.info("Decompressed " + fkeys[i] + " into " + bv.nChunks() + " chunks, " + zlens[i] + " -> " + ulens[i] + " bytes");
+      // For Big Data, must delete data as eagerly as possible.
+      Iced ice = DKV.getGet(fkeys[i]);
+      if( ice instanceof ByteVec ) {
+        if( deleteOnDone ) ((ByteVec) ice).remove(fs);
+      } else {
+        Frame fr = (Frame) ice;
+        if( deleteOnDone ) fr.delete(job._key, fs);
+        else if( fr._key != null ) fr.unlock(job._key);
+      }
+    }
+    fs.blockForPending();
+    return new ParallelGunzip(ukeys, zlens, ulens);
+  }
+
+  private static Key[] compact(Key[] ks, int n) {
+    Key[] res = new Key[n];
+    for( int i = 0, j = 0; i < ks.length; i++ )
+      if( ks[i] != null ) res[j++] = ks[i];
+    return res;
+  }
+
+  /** The keys to parse: {@code fkeys}, with gzip'd files replaced by their uncompressed copies */
+  Key[] parseKeys(Key[] fkeys) {
+    Key[] res = fkeys.clone();
+    for( int i = 0; i < res.length; i++ )
+      if( _ukeys[i] != null ) res[i] = _ukeys[i];
+    return res;
+  }
+
+  /** Job work per uncompressed byte parsed: 1 for files which were not gzip'd */
+  float[] workScale() {
+    float[] res = new float[_ukeys.length];
+    for( int i = 0; i < res.length; i++ )
+      res[i] = _ukeys[i] == null || _ulens[i] == 0 ? 1 : (float) ((_zlens[i] - _zlens[i] / 2) / (double) _ulens[i]);
+    return res;
+  }
+
+  /** Point parse errors found in the uncompressed copies back at the original files */
+  void renameErrors(ParseWriter.ParseErr[] errs, Key[] fkeys) {
+    if( errs == null ) return;
+    for( int i = 0; i < fkeys.length; i++ ) {
+      if( _ukeys[i] == null ) continue;
+      String upath = FileVec.getPathForKey(_ukeys[i]), path = FileVec.getPathForKey(fkeys[i]);
+      for( ParseWriter.ParseErr err : errs )
+        if( upath.equals(err._file) ) err._file = path;
+    }
+  }
+
+  /** Remove whatever is left of the uncompressed copies */
+  Futures remove(Futures fs) {
+    for( Key k : _ukeys )
+      if( k != null ) Keyed.remove(k, fs);
+    return fs;
+  }
+
+  // --------------------------------------------------------------------------
+  // Inflates each file on the node homing its key
+  private static class InflateTask extends MRTask<InflateTask> {
+    private final Key<Job> _jobKey;
+    private final Key[] _ukeys;     // Uncompressed Vec key, per file
+    private final int _chunkSize;   // Uncompressed Chunk size, when stream inflating
+    // OUTPUT: uncompressed ESPC per file
+    long[][] _espcs;
+
+    InflateTask(Key<Job> jobKey, Key[] ukeys, int chunkSize) {
+      _jobKey = jobKey;
+      _ukeys = ukeys;
+      _chunkSize = chunkSize;
+      _espcs = new long[ukeys.length][];
+    }
+
+    @Override public void map(Key key) {
+      ByteVec vec = ParseDataset.getByteVec(key);
+      Key ukey = _ukeys[_lo];
+      long[] espc = null;
+      if( ZipUtil.isBgzf(vec.getFirstBytes()) ) {
+        BgzfInflateTask bit = new BgzfInflateTask(ukey, _jobKey, vec.nChunks()).doAll(vec);
+        espc = bit.espc();
+        if( espc == null ) {
+          Log.warn("Cannot split " + key + " into BGZF blocks, decompressing it as a single stream");
+          Futures fs = new Futures();
+          for( int i = 0; i < vec.nChunks(); i++ )
+            DKV.remove(Vec.chunkKey(ukey, i), fs);
+          fs.blockForPending();
+        }
+      }
+      try {
+        if( espc == null ) espc = inflateStream(vec, ukey);
+      } catch( IOException ioe ) {
+        throw new ParseDataset.H2OParseException("Cannot decompress " + key + ": " + ioe.getMessage(), ioe);
+      }
+      _espcs[_lo] = espc;
+    }
+
+    // Inflate the whole file in one go, putting uncompressed Chunks of
+    // _chunkSize bytes; the puts go out in the background, while the next
+    // Chunk is being inflated.
+    private long[] inflateStream(ByteVec vec, Key ukey) throws IOException {
+      final long[] zread = new long[1];
+      InputStream zis = new FilterInputStream(vec.openStream(null)) {
+        @Override public int read(byte[] b, int off, int len) throws IOException {
+          int n = super.read(b, off, len);
+          if( n > 0 ) zread[0] += n;
+          return n;
+        }
+      };
+      Futures fs = new Futures();
+      long[] espc = new long[16];
+      int nchunks = 0;
+      long zreported = 0;
+      try( InputStream is = new GZIPInputStream(zis, 1 << 16) ) {
+        byte[] buf = new byte[_chunkSize];
+        int off = 0, b;
+        while( true ) {
+          int len = is.read(buf, off, buf.length - off);
+          if( len < 0 ) break;
+          off += len;
+          if( off < buf.length ) continue;
+          if( (b = is.read()) < 0 ) break; // Ends right here: buf is the last Chunk
+          if( nchunks + 2 > espc.length ) espc = Arrays.copyOf(espc, espc.length << 1);
+          DKV.put(Vec.chunkKey(ukey, nchunks), new C1NChunk(buf), fs);
+          espc[nchunks + 1] = espc[nchunks] + buf.length;
+          nchunks++;
+          buf = new byte[_chunkSize];
+          buf[0] = (byte) b;
+          off = 1;
+          // Report half of the compressed bytes consumed as work done
+          Job.update((zread[0] - zreported) / 2, _jobKey);
+          zreported = zread[0];
+        }
+        if( nchunks + 2 > espc.length ) espc = Arrays.copyOf(espc, espc.length + 2);
+        DKV.put(Vec.chunkKey(ukey, nchunks), new C1NChunk(off == buf.length ? buf : Arrays.copyOf(buf, off)), fs);
+        espc[nchunks + 1] = espc[nchunks] + off;
+        nchunks++;
+      }
+      Job.update((zread[0] - zreported) / 2, _jobKey);
+      fs.blockForPending();
+      return Arrays.copyOf(espc, nchunks + 1);
+    }
+
+    @Override public void reduce(InflateTask it) {
+      if( _espcs == it._espcs ) return;  // Shared array on this node
+      for( int i = 0; i < _espcs.length; i++ )
+        if( _espcs[i] == null ) _espcs[i] = it._espcs[i];
+    }
+  }
+
+  // --------------------------------------------------------------------------
+  // Inflates the BGZF members starting in each compressed Chunk into the
+  // uncompressed Chunk of the same index.
+  private static class BgzfInflateTask extends MRTask<BgzfInflateTask> {
+    // An uncompressed Chunk must fit in a byte[]; leave room for the rest of the line
+    private static final long MAX_CHUNK = Integer.MAX_VALUE >> 1;
+    private final Key _ukey;
+    private final Key<Job> _jobKey;
+    // OUTPUT: uncompressed length per Chunk, -1 where the members could not be found or inflated
+    long[] _lens;
+
+    BgzfInflateTask(Key ukey, Key<Job> jobKey, int nchunks) {
+      _ukey = ukey;
+      _jobKey = jobKey;
+      _lens = new long[nchunks];
+    }
+
+    @Override public void map(Chunk in) {
+      int cidx = in.cidx();
+      byte[] bs = in.getBytes();
+      int len = bs.length;
+      // The last member starting in this Chunk may end in the next one
+      if( cidx + 1 < in.vec().nChunks() ) {
+        byte[] next = in.vec().chunkForChunkIdx(cidx + 1).getBytes();
+        bs = Arrays.copyOf(bs, len + Math.min(next.length, 1 << 16));
+        System.arraycopy(next, 0, bs, len, bs.length - len);
+      }
+      byte[] out = inflate(bs, len, cidx == 0 ? 0 : firstMember(bs, len));
+      if( out == null ) _lens[cidx] = -1;
+      else {
+        _lens[cidx] = out.length;
+        if( out.length > 0 || cidx == 0 ) DKV.put(Vec.chunkKey(_ukey, cidx), new C1NChunk(out), _fs);
+      }
+      Job.update(in._len / 2, _jobKey);
+    }
+
+    // Offset of the first BGZF member starting in bs[0,len), or -1.  A member
+    // header is 10 fixed bytes, so a false match in compressed data is
+    // unlikely; to be sure, it must also be followed by another member.
+    private static int firstMember(byte[] bs, int len) {
+      for( int i = 0; i < len; i++ ) {
+        int bsize = ZipUtil.bgzfBlockSize(bs, i);
+        if( bsize < 0 ) continue;
+        int next = i + bsize;
+        if( next + ZipUtil.BGZF_HDR > bs.length || ZipUtil.bgzfBlockSize(bs, next) > 0 ) return i;
+      }
+      return -1;
+    }
+
+    // Inflate all the members starting in bs[start,len); null if they cannot be
+    private static byte[] inflate(byte[] bs, int len, int start) {
+      if( start < 0 ) return null;
+      // Sizes first: each member's trailer holds its uncompressed size
+      long total = 0;
+      for( int off = start; off < len; ) {
+        int bsize = ZipUtil.bgzfBlockSize(bs, off);
+        if( bsize < 0 || off + bsize > bs.length ) return null;
+        total += ZipUtil.getLE4(bs, off + bsize - 4);
+        off += bsize;
+      }
+      if( total > MAX_CHUNK ) return null;
+      byte[] out = new byte[(int) total];
+      Inflater inf = new Inflater(true);
+      CRC32 crc = new CRC32();
+      try {
+        int o = 0;
+        for( int off = start; off < len; ) {
+          int bsize = ZipUtil.bgzfBlockSize(bs, off);
+          int isize = (int) ZipUtil.getLE4(bs, off + bsize - 4);
+          inf.reset();
+          inf.setInput(bs, off + ZipUtil.BGZF_HDR, bsize - ZipUtil.BGZF_HDR - 8);
+          int n = 0;
+          while( n < isize && !inf.finished() ) {
+            int res = inf.inflate(out, o + n, isize - n);
+            if( res == 0 && (inf.needsInput() || inf.needsDictionary()) ) break;
+            n += res;
+          }
+          if( n != isize ) return null;
+          crc.reset();
+          crc.update(out, o, isize);
+          if( crc.getValue() != ZipUtil.getLE4(bs, off + bsize - 8) ) return null;
+          o += isize;
+          off += bsize;
+        }
+      } catch( DataFormatException dfe ) {
+        return null;
+      } finally {
+        inf.end();
+      }
+      return out;
+    }
+
+    @Override public void reduce(BgzfInflateTask bit) {
+      if( _lens == bit._lens ) return;  // Shared array on this node
+      for( int i = 0; i < _lens.length; i++ )
+        _lens[i] += bit._lens[i];
+    }
+
+    // Uncompressed ESPC, or null if some members could not be inflated, or
+    // if some Chunk other than the last got no member at all (Chunks smaller
+    // than a member)
+    long[] espc() {
+      int n = _lens.length;
+      if( n > 1 && _lens[n - 1] == 0 ) n--;  // Only the empty end-of-file member
+      long[] espc = new long[n + 1];
+      for( int i = 0; i < n; i++ ) {
+        if( _lens[i] < 0 || (_lens[i] == 0 && n > 1) ) return null;
+        espc[i + 1] = espc[i] + _lens[i];
+      }
+      return espc;
+    }
+  }
+}
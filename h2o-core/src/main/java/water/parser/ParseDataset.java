@@ -26,6 +26,7 @@ import static water.parser.DefaultParserProviders.*;
 public final class ParseDataset {
   public Job<Frame> _job;
   private MultiFileParseTask _mfpt; // Access to partially built vectors for cleanup after parser crash
+  private ParallelGunzip _gunzip;   // Uncompressed copies of gzip'd inputs, for cleanup
 
   // Keys are limited to ByteVec Keys and Frames-of-1-ByteVec Keys
   public static Frame parse(Key okey, Key... keys) { return parse(okey,keys,true, false, ParseSetup.GUESS_HEADER); }
@@ -215,6 +216,9 @@ public final class ParseDataset {
       MultiFileParseTask mfpt = _pds._mfpt;
       _pds._mfpt = null;        // Read once, test for null once.
       if (mfpt != null) mfpt.onExceptionCleanup(fs);
+      ParallelGunzip gunzip = _pds._gunzip;
+      _pds._gunzip = null;
+      if (gunzip != null) gunzip.remove(fs);
       // Assume the input is corrupt - or already partially deleted after
       // parsing.  Nuke it all - no partial Vecs lying around.
       for (Key k : _keys) Keyed.remove(k, fs);
@@ -241,9 +245,27 @@ public final class ParseDataset {
 
     job.update(0, "Ingesting files.");
     VectorGroup vg = getByteVec(fkeys[0]).group();
-    MultiFileParseTask mfpt = pds._mfpt = new MultiFileParseTask(vg,setup,job._key,fkeys,deleteOnDone);
-    mfpt.doAll(fkeys);
+    // Gzip'd files are first decompressed, in parallel where the format
+    // allows, into plain ByteVecs which then get a parallel parse
+    Key[] pkeys = fkeys;
+    float[] workScale = null;
+    if( setup._parse_type.isParallelParseSupported() && !setup.disableParallelParse ) {
+      ParallelGunzip gunzip = pds._gunzip = ParallelGunzip.inflate(vg, job, fkeys, setup._chunk_size, deleteOnDone);
+      if( gunzip != null ) {
+        if( job.stop_requested() ) return pds;
+        pkeys = gunzip.parseKeys(fkeys);
+        workScale = gunzip.workScale();
+        job.update(0, "Ingesting files.");
+      }
+    }
+    MultiFileParseTask mfpt = pds._mfpt = new MultiFileParseTask(vg,setup,job._key,pkeys,deleteOnDone,workScale);
+    mfpt.doAll(pkeys);
     Log.trace("Done ingesting files.");
+    if( pds._gunzip != null ) {
+      pds._gunzip.renameErrors(mfpt._errors, fkeys);
+      pds._gunzip.remove(new Futures()).blockForPending();
+      pds._gunzip = null;
+    }
     if( job.stop_requested() ) return pds;
 
     final AppendableVec [] avs = mfpt.vecs();
@@ -595,6 +617,8 @@ public final class ParseDataset {
     private final Key<Job> _jobKey;
     // A mapping of Key+ByteVec to rolling total Chunk counts.
     private final int[]  _fileChunkOffsets;
+    // Job work per byte parsed, per file; null if 1 for all files
+    private final float[] _workScale;
 
     // OUTPUT fields:
     FVecParseWriter[] _dout;
@@ -602,8 +626,9 @@ public final class ParseDataset {
     int _reservedKeys;
     private ParseWriter.ParseErr[] _errors = new ParseWriter.ParseErr[0];
 
-    MultiFileParseTask(VectorGroup vg,  ParseSetup setup, Key<Job> jobKey, Key[] fkeys, boolean deleteOnDone ) {
+    MultiFileParseTask(VectorGroup vg,  ParseSetup setup, Key<Job> jobKey, Key[] fkeys, boolean deleteOnDone, float[] workScale ) {
       _vg = vg; _parseSetup = setup;
+      _workScale = workScale;
       _vecIdStart = _vg.reserveKeys(_reservedKeys = _parseSetup._parse_type.equals(SVMLight_INFO) ? 100000000 : setup._number_columns);
       _deleteOnDone = deleteOnDone;
       _jobKey = jobKey;
@@ -732,7 +757,8 @@ public final class ParseDataset {
           boolean disableParallelParse = localSetup.disableParallelParse || (_keys.length > TOO_MANY_KEYS_COUNT) &&
                   (vec.nChunks() <= SMALL_FILE_NCHUNKS) && _parseSetup._parse_type.isStreamParseSupported();
           if( _parseSetup._parse_type.isParallelParseSupported() && (! disableParallelParse)) {
-            new DistributedParse(_vg, localSetup, _vecIdStart, chunkStartIdx, this, key, vec.nChunks()).dfork(vec).getResult(false);
+            float workScale = _workScale == null ? 1 : _workScale[_lo];
+            new DistributedParse(_vg, localSetup, _vecIdStart, chunkStartIdx, this, key, vec.nChunks(), workScale).dfork(vec).getResult(false);
             for( int i = 0; i < vec.nChunks(); ++i )
               _chunk2ParseNodeMap[chunkStartIdx + i] = vec.chunkKey(i).home_node().index();
           } else {
@@ -841,8 +867,9 @@ public final class ParseDataset {
       private transient NonBlockingSetInt _visited;
       private transient long [] _espc;
       final int _nchunks;
+      private final float _workScale; // Job work per byte parsed
 
-      DistributedParse(VectorGroup vg, ParseSetup setup, int vecIdstart, int startChunkIdx, MultiFileParseTask mfpt, Key srckey, int nchunks) {
+      DistributedParse(VectorGroup vg, ParseSetup setup, int vecIdstart, int startChunkIdx, MultiFileParseTask mfpt, Key srckey, int nchunks, float workScale) {
         super(null);
         _vg = vg;
         _setup = setup;
@@ -853,6 +880,7 @@ public final class ParseDataset {
         _jobKey = mfpt._jobKey;
         _srckey = srckey;
         _nchunks = nchunks;
+        _workScale = workScale;
       }
       @Override public void setupLocal(){
         super.setupLocal();
@@ -896,7 +924,7 @@ public final class ParseDataset {
         }
         p.parseChunk(in.cidx(), din, dout);
         (_dout = dout).close(_fs);
-        Job.update(in._len, _jobKey); // Record bytes parsed
+        Job.update(_workScale == 1 ? in._len : (long)(in._len*_workScale), _jobKey); // Record bytes parsed
         // remove parsed data right away
         freeMem(in);
       }
@@ -0,0 +1,104 @@
+package water.parser;
+
+import water.Iced;
+
+/**
+ * A simple row predicate on one column, for parsers which can skip data on
+ * import (see {@link ParseSetup#setPredicates}).  All predicates of a setup
+ * must hold for a row to be kept.
+ *
+ * A predicate is one of: a closed numeric range (either end may be infinite,
+ * so this covers {@code <=}, {@code >=} and numeric equality), string
+ * equality, or {@code IS NOT NULL}.  Like in SQL, a missing value satisfies
+ * no predicate but {@code IS NOT NULL} fails on it.
+ */
+public class ParsePredicate extends Iced<ParsePredicate> {
+
+  enum Op { RANGE, EQ_STR, NOT_NULL }
+
+  final String _column;
+  final Op _op;
+  final double _lo, _hi;
+  final String _str;
+  private transient BufferedString _bstr;  // _str as UTF-8 bytes
+
+  private ParsePredicate(String column, Op op, double lo, double hi, String str) {
+    if (column == null) throw new IllegalArgumentException("Predicate needs a column name");
+    if (op == Op.RANGE && !(lo <= hi)) throw new IllegalArgumentException("Empty range [" + lo + ", " + hi + "] for column " + column);
+    _column = column;
+    _op = op;
+    _lo = lo;
+    _hi = hi;
+    _str = str;
+  }
+
+  /** lo &lt;= column &lt;= hi; use infinities for open ends */
+  public static ParsePredicate range(String column, double lo, double hi) {
+    return new ParsePredicate(column, Op.RANGE, lo, hi, null);
+  }
+
+  /** column == value, numeric */
+  public static ParsePredicate eq(String column, double value) {
+    return range(column, value, value);
+  }
+
+  /** column == value, for string and categorical columns */
+  public static ParsePredicate eq(String column, String value) {
+    if (value == null) throw new IllegalArgumentException("Use notNull to test for missing values");
+    return new ParsePredicate(column, Op.EQ_STR, Double.NaN, Double.NaN, value);
+  }
+
+  /** column IS NOT NULL */
+  public static ParsePredicate notNull(String column) {
+    return new ParsePredicate(column, Op.NOT_NULL, Double.NaN, Double.NaN, null);
+  }
+
+  public String column() { return _column; }
+
+  /** Does a numeric value satisfy this predicate?  NaN is a missing value. */
+  public boolean test(double d) {
+    if (Double.isNaN(d)) return false;
+    switch (_op) {
+      case RANGE:    return _lo <= d && d <= _hi;
+      case NOT_NULL: return true;
+      default:       return false;
+    }
+  }
+
+  /** Does a string value satisfy this predicate?  null is a missing value. */
+  public boolean test(BufferedString str) {
+    if (str == null) return false;
+    switch (_op) {
+      case EQ_STR:
+        if (_bstr == null) _bstr = new BufferedString(_str);
+        return _bstr.equals(str);
+      case NOT_NULL: return true;
+      default:       return false;
+    }
+  }
+
+  /**
+   * Can a block of values with these statistics hold a row satisfying this
+   * predicate?  False only if it certainly cannot, so the block can be
+   * skipped.
+   * @param min smallest non-missing value, or NaN if not known
+   * @param max largest non-missing value, or NaN if not known
+   * @param nulls number of missing values, or -1 if not known
+   * @param count number of values including missing ones
+   */
+  public boolean canMatch(double min, double max, long nulls, long count) {
+    if (nulls >= 0 && nulls == count) return false;  // Nothing but NAs
+    switch (_op) {
+      case RANGE: return Double.isNaN(min) || Double.isNaN(max) || (max >= _lo && min <= _hi);
+      default:    return true;
+    }
+  }
+
+  @Override public String toString() {
+    switch (_op) {
+      case RANGE:    return _lo == _hi ? _column + " == " + _lo : _lo + " <= " + _column + " <= " + _hi;
+      case EQ_STR:   return _column + " == '" + _str + "'";
+      default:       return _column + " IS NOT NULL";
+    }
+  }
+}
@@ -42,6 +42,9 @@ public class ParseSetup extends Iced {
   String[][] _na_strings;       // Strings for NA in a given column
   String[][] _data;           // First few rows of parsed/tokenized data
 
+  String[] _column_projection;   // Columns to import, null for all; parsers which cannot skip columns ignore it
+  ParsePredicate[] _predicates;  // Rows to import, null for all; parsers which cannot skip rows ignore it
+
   String [] _fileNames = new String[]{"unknown"};
   public  boolean disableParallelParse;
 
@@ -56,6 +59,8 @@ public class ParseSetup extends Iced {
          ps._separator, ps._single_quotes, ps._check_header, ps._number_columns,
          ps._column_names, ps._column_types, ps._domains, ps._na_strings, ps._data,
          new ParseWriter.ParseErr[0], ps._chunk_size);
+    _column_projection = ps._column_projection;
+    _predicates = ps._predicates;
   }
 
 
@@ -709,4 +714,48 @@ public class ParseSetup extends Iced {
     return this;
   }
 
+  /** Import only these columns.  Only honored by parsers of columnar formats
+   *  (Parquet), which can skip reading the other columns altogether. */
+  public ParseSetup setColumnProjection(String... column_projection) {
+    this._column_projection = column_projection;
+    return this;
+  }
+  public String[] getColumnProjection() { return _column_projection; }
+
+  /** Import only rows satisfying all of these predicates.  Only honored by
+   *  parsers of formats with block statistics (Parquet), which can skip
+   *  whole blocks of rows without reading them. */
+  public ParseSetup setPredicates(ParsePredicate... predicates) {
+    this._predicates = predicates;
+    return this;
+  }
+  public ParsePredicate[] getPredicates() { return _predicates; }
+
+  /** Narrow the per-column setup (names, types, domains, NA strings and the
+   *  preview data) down to the given columns, in the given order. */
+  public ParseSetup selectColumns(int[] cols) {
+    _number_columns = cols.length;
+    if( _column_names != null ) _column_names = ArrayUtils.select(_column_names, cols);
+    if( _column_types != null ) {
+      byte[] types = new byte[cols.length];
+      for( int i = 0; i < cols.length; i++ ) types[i] = _column_types[cols[i]];
+      _column_types = types;
+    }
+    if( _domains != null ) _domains = select(_domains, cols);
+    if( _na_strings != null ) _na_strings = select(_na_strings, cols);
+    if( _data != null ) {
+      String[][] data = new String[_data.length][];
+      for( int r = 0; r < data.length; r++ )
+        data[r] = _data[r] == null ? null : ArrayUtils.select(_data[r], cols);
+      _data = data;
+    }
+    return this;
+  }
+
+  private static String[][] select(String[][] ary, int[] idxs) {
+    String[][] res = new String[idxs.length][];
+    for( int i = 0; i < idxs.length; i++ ) res[i] = idxs[i] < ary.length ? ary[idxs[i]] : null;
+    return res;
+  }
+
 } // ParseSetup state class
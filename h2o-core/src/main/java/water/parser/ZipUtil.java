@@ -16,6 +16,7 @@ import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Enumeration;
+import java.util.zip.Deflater;
 import java.util.zip.GZIPInputStream;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipFile;
@@ -151,6 +152,40 @@ abstract class ZipUtil {
     return Compression.NONE;
   }
 
+  /**
+   * BGZF (blocked gzip, as written by bgzip/htslib) is a series of independent
+   * gzip members, each at most 64KB and each recording its own size in a "BC"
+   * extra field.  That index makes BGZF splittable: any member can be found and
+   * inflated without inflating what comes before it.
+   *
+   * @param bits first bytes of a file
+   * @return true if the file starts with a BGZF member
+   */
+  static boolean isBgzf(byte[] bits) { return bgzfBlockSize(bits, 0) > 0; }
+
+  /**
+   * Size of the BGZF member starting at {@code off}: a gzip header with FLG
+   * = FEXTRA only, and XLEN = 6 holding just the BC subfield, the way bgzip
+   * writes it.
+   *
+   * @return the member's total (compressed) size, or -1 if no BGZF member starts at {@code off}
+   */
+  static int bgzfBlockSize(byte[] bs, int off) {
+    if( off < 0 || off + BGZF_HDR > bs.length ) return -1;
+    if( (bs[off]&0xff) != 0x1f || (bs[off+1]&0xff) != 0x8b || bs[off+2] != Deflater.DEFLATED || bs[off+3] != 4 )
+      return -1;
+    if( getLE2(bs,off+10) != 6 || bs[off+12] != 'B' || bs[off+13] != 'C' || getLE2(bs,off+14) != 2 )
+      return -1;
+    int bsize = getLE2(bs,off+16) + 1;
+    return bsize >= BGZF_HDR + 8 ? bsize : -1; // Room for the header and the CRC32/ISIZE trailer
+  }
+  static final int BGZF_HDR = 18;  // Fixed header size of a BGZF member
+
+  /** Unsigned little-endian (gzip byte order) 2 byte value */
+  static int getLE2(byte[] bs, int off) { return (bs[off]&0xff) | (bs[off+1]&0xff)<<8; }
+  /** Unsigned little-endian (gzip byte order) 4 byte value */
+  static long getLE4(byte[] bs, int off) { return getLE2(bs,off) | (long)getLE2(bs,off+2)<<16; }
+
   static float decompressionRatio(ByteVec bv) {
     byte[] zips = bv.getFirstBytes();
     ZipUtil.Compression cpr = ZipUtil.guessCompressionMethod(zips);
@@ -9,16 +9,27 @@ import water.api.FSIOException;
 import water.fvec.NFSFileVec;
 import water.util.Log;
 
+import static water.H2O.OptArgs.SYSTEM_PROP_PREFIX;
+
 /**
  * Persistence backend using local file system.
  */
 final class PersistFS extends Persist {
+  /** Property which switches user-mode swapping to memory-mapped spill
+   * segments (see {@link SpillSegments}); the value is the segment size in MB. */
+  final static String PROP_MMAP_SPILL_SEGMENT_MB = SYSTEM_PROP_PREFIX + "persist.ice.mmap.segment.mb";
+
   final File _root;
   final File _dir;
+  final SpillSegments _segments; // null unless mmap'd spilling is enabled
 
   PersistFS(File root) {
     _root = root;
     _dir = new File(root, "ice" + H2O.API_PORT);
+    int segMB = Integer.getInteger(PROP_MMAP_SPILL_SEGMENT_MB, 0);
+    if( segMB < 0 || segMB >= 2048 ) // A single mapping is limited to 2GB
+      H2O.die(PROP_MMAP_SPILL_SEGMENT_MB+" must be between 1 and 2047, was "+segMB);
+    _segments = segMB == 0 ? null : new SpillSegments(new File(_dir, "spill"), segMB<<20);
     //deleteRecursive(_dir);
     // Make the directory as-needed
     root.mkdirs();
@@ -26,7 +37,10 @@ final class PersistFS extends Persist {
       H2O.die("ice_root not a read/writable directory");
   }
 
-  public void cleanUp() { deleteRecursive(_dir); }
+  public void cleanUp() {
+    if( _segments != null ) _segments.close();
+    deleteRecursive(_dir);
+  }
 
   private static void deleteRecursive(File path) {
     if( !path.exists() ) return;
@@ -41,6 +55,10 @@ final class PersistFS extends Persist {
   }
 
   @Override public byte[] load(Value v) throws IOException {
+    if( _segments != null ) {
+      byte[] b = _segments.load(v);
+      if( b != null ) return b;
+    }
     File f = getFile(v);
     if( f.length() < v._max ) { // Should be fully on disk...
       // or it's a racey delete of a spilled value
@@ -58,6 +76,7 @@ final class PersistFS extends Persist {
   // Store Value v to disk.
   @Override public void store(Value v) throws IOException {
     assert !v.isPersisted();
+    if( _segments != null && _segments.store(v) ) return;
     File dirs = new File(_dir, getIceDirectory(v._key));
     if( !dirs.mkdirs() && !dirs.exists() )
       throw new java.io.IOException("mkdirs failed making "+dirs);
@@ -74,6 +93,7 @@ final class PersistFS extends Persist {
   }
 
   @Override public void delete(Value v) {
+    if( _segments != null && _segments.delete(v) ) return;
     getFile(v).delete();        // Silently ignore errors
     // Attempt to delete empty containing directory
     new File(_dir, getIceDirectory(v._key)).delete();
@@ -0,0 +1,231 @@
+package water.persist;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Map;
+
+import water.Key;
+import water.MemoryManager;
+import water.Value;
+import water.nbhm.NonBlockingHashMap;
+import water.util.Log;
+
+/**
+ * Memory-mapped spill store for user-mode swapping.
+ *
+ * Instead of one file per swapped Value (streamed out and back in through
+ * FileOutputStream/FileInputStream), Values are appended into large,
+ * preallocated segment files which are mapped into memory once.  An in-memory
+ * index maps each Key to its slice of a segment.  Stores are a memory copy
+ * into the mapping (the OS writes the dirty pages back lazily), and reloads
+ * are a single bulk copy out of the page cache - no read() syscalls, no
+ * AutoBuffer stream framing.
+ *
+ * Segments are append-only; the live bytes of every segment are tracked and
+ * a segment is recycled as soon as everything stored in it was deleted.
+ * When the current segment is full and no segment is entirely free, a
+ * segment which is at least half dead is compacted in place (its live
+ * Values slid down to the front) and appended to after them, so that a few
+ * long-lived Values do not pin whole segments.  Values too large for a
+ * segment are left to the per-file path of {@link PersistFS}.
+ *
+ * Only the Cleaner thread stores, so appends need no coordination with each
+ * other; deletes can come from any thread.  Loads are lock-free: a load
+ * which raced with the compaction or recycling of its segment is retried.
+ * {@link #close} unmaps and deletes all segments (ice cleanup and shutdown).
+ */
+final class SpillSegments {
+  private final File _dir;
+  private final int _segSize;
+  private final ArrayList<Segment> _segs = new ArrayList<>();
+  private final NonBlockingHashMap<Key,Slot> _index = new NonBlockingHashMap<>();
+  private Segment _cur;         // Segment being appended to
+
+  /** Location of a stored Value: segment, offset and length */
+  private static final class Slot {
+    final Segment _seg;
+    final int _off, _len;
+    Slot(Segment seg, int off, int len) { _seg = seg; _off = off; _len = len; }
+  }
+
+  private static final class Segment {
+    final File _file;
+    final MappedByteBuffer _map;
+    int _top;                   // Next free byte; guarded by SpillSegments.this
+    long _live;                 // Bytes of not-yet-deleted Values; guarded by SpillSegments.this
+    // Odd while stored bytes are being moved or overwritten; bumped twice by each compaction or recycling
+    volatile int _moves;
+    Segment(File file, MappedByteBuffer map) { _file = file; _map = map; }
+  }
+
+  SpillSegments(File dir, int segSize) {
+    _dir = dir;
+    _segSize = segSize;
+  }
+
+  /** Store the Value's bytes into a segment.
+   *  @return false if the Value does not fit a segment; caller must fall back */
+  boolean store(Value v) throws IOException {
+    byte[] m = v.memOrLoad();
+    if( m.length > _segSize ) return false;
+    Slot slot = allocate(m.length);
+    ByteBuffer bb = slot._seg._map.duplicate();
+    bb.position(slot._off);
+    bb.put(m);
+    Slot old = _index.put(v._key, slot);
+    if( old != null ) release(old);
+    return true;
+  }
+
+  /** Reload the Value's bytes, or null if the Value is not in any segment */
+  byte[] load(Value v) {
+    while( true ) {
+      Slot slot = _index.get(v._key);
+      if( slot == null ) return null;
+      int moves = slot._seg._moves;
+      if( (moves & 1) == 0 ) {
+        byte[] b = MemoryManager.malloc1(slot._len);
+        ByteBuffer bb = slot._seg._map.duplicate();
+        bb.position(slot._off);
+        bb.get(b);
+        if( slot._seg._moves == moves ) return b;
+      }
+      Thread.yield();           // Moved meanwhile; look up the new slot
+    }
+  }
+
+  /** Free the Value's slice; false if it was not stored here */
+  boolean delete(Value v) {
+    Slot slot = _index.remove(v._key);
+    if( slot == null ) return false;
+    release(slot);
+    return true;
+  }
+
+  private synchronized Slot allocate(int len) throws IOException {
+    if( _cur == null || _cur._top + len > _segSize ) {
+      _cur = null;
+      Segment sparsest = null;
+      for( Segment s : _segs ) {
+        if( s._live == 0 ) { recycle(s); _cur = s; break; } // Reuse a fully freed segment if there is one
+        if( sparsest == null || s._live < sparsest._live ) sparsest = s;
+      }
+      // Else make room in a mostly dead segment, rather than growing the disk use
+      if( _cur == null && sparsest != null && sparsest._live <= _segSize/2 && sparsest._live + len <= _segSize ) {
+        compact(sparsest);
+        _cur = sparsest;
+      }
+      if( _cur == null ) _cur = newSegment(_segs.size());
+    }
+    Slot slot = new Slot(_cur, _cur._top, len);
+    _cur._top += len;
+    _cur._live += len;
+    return slot;
+  }
+
+  private synchronized void release(Slot slot) {
+    slot._seg._live -= slot._len;
+    assert slot._seg._live >= 0;
+  }
+
+  // Start over at the front of a segment with nothing live in it
+  private void recycle(Segment s) {
+    s._moves++;                 // Racing loads of deleted Values retry (and miss)
+    s._top = 0;
+    s._moves++;
+  }
+
+  // Slide the live Values of a segment down to its front, in offset order so
+  // that each one only overwrites dead bytes or bytes already moved.  Live
+  // byte counts do not change: Values keep their length and segment.
+  // Deletes racing with a move are left to release the moved slot.
+  private void compact(Segment seg) {
+    ArrayList<Map.Entry<Key,Slot>> live = new ArrayList<>();
+    for( Map.Entry<Key,Slot> e : _index.entrySet() )
+      if( e.getValue()._seg == seg ) live.add(e);
+    Collections.sort(live, new Comparator<Map.Entry<Key,Slot>>() {
+      @Override public int compare(Map.Entry<Key,Slot> a, Map.Entry<Key,Slot> b) {
+        return Integer.compare(a.getValue()._off, b.getValue()._off);
+      }
+    });
+    long before = seg._top;
+    seg._moves++;
+    int top = 0;
+    byte[] buf = null;
+    for( Map.Entry<Key,Slot> e : live ) {
+      Slot slot = e.getValue();
+      if( slot._off != top ) {
+        if( buf == null || buf.length < slot._len ) buf = new byte[slot._len];
+        ByteBuffer bb = seg._map.duplicate();
+        bb.position(slot._off);
+        bb.get(buf, 0, slot._len);
+        bb.position(top);
+        bb.put(buf, 0, slot._len);
+        if( !_index.replace(e.getKey(), slot, new Slot(seg, top, slot._len)) )
+          continue;             // Deleted meanwhile; its bytes are dead
+      } else if( _index.get(e.getKey()) != slot )
+        continue;
+      top += slot._len;
+    }
+    seg._top = top;
+    seg._moves++;
+    Log.debug("Compacted spill segment "+seg._file+" from "+(before>>20)+"MB to "+(top>>20)+"MB");
+  }
+
+  /** Unmap and delete all segments, and forget everything stored in them */
+  synchronized void close() {
+    _index.clear();
+    for( Segment s : _segs ) {
+      unmap(s._map);
+      if( !s._file.delete() ) Log.warn("Unable to delete spill segment "+s._file);
+    }
+    _segs.clear();
+    _cur = null;
+  }
+
+  // Release the mapping now instead of when the buffer is collected (which
+  // also keeps the deleted file's disk space); best effort, as the cleaner
+  // of a mapped buffer is not public API.
+  private static void unmap(MappedByteBuffer map) {
+    try {
+      Method cleaner = map.getClass().getMethod("cleaner");
+      cleaner.setAccessible(true);
+      Object c = cleaner.invoke(map);
+      if( c != null ) c.getClass().getMethod("clean").invoke(c);
+    } catch( Exception e ) {
+      Log.debug("Spill segment left to be unmapped by GC: "+e);
+    }
+  }
+
+  private Segment newSegment(int idx) throws IOException {
+    if( !_dir.mkdirs() && !_dir.exists() )
+      throw new IOException("mkdirs failed making "+_dir);
+    // Writes into a mapping of a sparse file on a full disk fault the JVM,
+    // so refuse up-front and let the Cleaner treat the disk as full.
+    if( _dir.getUsableSpace() < _segSize )
+      throw new IOException("Not enough disk space for a new spill segment in "+_dir);
+    File f = new File(_dir, "segment_"+idx);
+    try( RandomAccessFile raf = new RandomAccessFile(f, "rw") ) {
+      raf.setLength(_segSize);  // Preallocate; the mapping outlives the channel
+      Segment s = new Segment(f, raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, _segSize));
+      _segs.add(s);
+      Log.info("Created spill segment "+f+" of "+(_segSize>>20)+"MB");
+      return s;
+    }
+  }
+
+  synchronized long liveBytes() {
+    long sum = 0;
+    for( Segment s : _segs ) sum += s._live;
+    return sum;
+  }
+  synchronized int numSegments() { return _segs.size(); }
+}
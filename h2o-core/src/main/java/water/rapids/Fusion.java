@@ -0,0 +1,360 @@
+package water.rapids;
+
+import water.H2O;
+import water.Iced;
+import water.MRTask;
+import water.fvec.Chunk;
+import water.fvec.Frame;
+import water.fvec.NewChunk;
+import water.fvec.Vec;
+import water.rapids.ast.AstBuiltin;
+import water.rapids.ast.AstExec;
+import water.rapids.ast.AstFrame;
+import water.rapids.ast.AstParameter;
+import water.rapids.ast.AstPrimitive;
+import water.rapids.ast.AstRoot;
+import water.rapids.ast.params.AstId;
+import water.rapids.ast.prims.math.AstUniOp;
+import water.rapids.ast.prims.mungers.AstColPySlice;
+import water.rapids.ast.prims.mungers.AstColSlice;
+import water.rapids.ast.prims.operators.AstBinOp;
+import water.rapids.ast.prims.operators.AstEq;
+import water.rapids.ast.prims.operators.AstIfElse;
+import water.rapids.ast.prims.operators.AstNe;
+import water.rapids.vals.ValFrame;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Fused evaluation of element-wise expressions.
+ *
+ * <p>Every element-wise primitive ({@link AstBinOp}, {@link AstUniOp} math
+ * and {@link AstIfElse}) normally runs its own MRTask and materializes a
+ * temporary Frame, so {@code (ifelse (> (+ a b) 10) (log a) (sqrt b))} makes
+ * four passes over the data.  Here a whole tree of such primitives is instead
+ * evaluated by a single MRTask, chunk by chunk, without any intermediate Vecs.
+ * The leaves of the tree (anything which is not an element-wise primitive -
+ * variables, constants, reductions, assignments, ...) are executed as usual,
+ * in the usual order, and only the root of the tree is materialized.
+ *
+ * <p>Fusion only kicks in when it gives exactly the result of the step by step
+ * evaluation: all the leaves must be numbers or Frames of numeric columns with
+ * the same rows, Frames must have the same number of columns or a single one,
+ * and the test of an ifelse must be a Frame.  Since a fused ifelse computes
+ * both of its branches, it is only fused when its branches have no side
+ * effects (their leaves are variables, constants or column slices of them).
+ * Otherwise the tree is evaluated step by step over the already
+ * executed leaves.
+ */
+public final class Fusion {
+
+  /** System property that turns fusion off when set to false */
+  static final String FUSION_PROP = H2O.OptArgs.SYSTEM_PROP_PREFIX + "rapids.fusion";
+
+  private static final ConcurrentHashMap<Class, Boolean> FUSABLE = new ConcurrentHashMap<>();
+
+  private static final byte LEAF = 0, UNI = 1, BIN = 2, IFELSE = 3;
+
+  /**
+   * Evaluates a function application as a fused tree.
+   *
+   * @return the result (not yet "returning"), or null if the expression is
+   *         not worth fusing or fusion is off; in that case nothing has been
+   *         executed yet
+   */
+  public static Val exec(Env env, Env.StackHelp stk, AstExec exec, AstPrimitive prim) {
+    if (!isFusable(prim) || !Boolean.parseBoolean(System.getProperty(FUSION_PROP, "true"))) return null;
+    int[] ops = new int[1];
+    Node root = node(exec, prim, env, false, ops);
+    if (root == null || ops[0] < 2) return null;
+
+    // Execute the leaves, in the order of the step by step evaluation
+    ArrayList<Node> leaves = new ArrayList<>();
+    root.leaves(leaves);
+    for (Node leaf : leaves)
+      leaf._val = stk.track(leaf._ast.exec(env));
+
+    ArrayList<Vec> vecs = new ArrayList<>();
+    if (!root.layout(vecs, new long[]{-1}) || root._width == 0)
+      return root.stepwise(env, stk);
+    for (int i = 0; i < leaves.size(); i++) leaves.get(i)._id = i;
+    Frame res = new FusedTask(root, leaves.size())
+        .doAll(root._width, Vec.T_NUM, new Frame(vecs.toArray(new Vec[vecs.size()])))
+        .outputFrame(root._names, null);
+    return new ValFrame(res);
+  }
+
+  /**
+   * Only primitives computing each element from the same elements of their
+   * arguments, and nothing else, are fused.  Subclasses changing how the
+   * arguments are evaluated or combined are not.
+   */
+  static boolean isFusable(AstPrimitive prim) {
+    Class<?> c = prim.getClass();
+    Boolean b = FUSABLE.get(c);
+    if (b == null) FUSABLE.put(c, b = checkFusable(c));
+    return b;
+  }
+
+  private static boolean checkFusable(Class<?> c) {
+    try {
+      if (c == AstIfElse.class) return true;
+      if (AstBinOp.class.isAssignableFrom(c))
+        return declaredIn(c, AstBinOp.class, "apply", Env.class, Env.StackHelp.class, AstRoot[].class) &&
+            declaredIn(c, AstBinOp.class, "prim_apply", Val.class, Val.class) &&
+            // == and != only differ in the names of the Frame they return, see Node.layout
+            (c == AstEq.class || c == AstNe.class || declaredIn(c, AstBinOp.class, "frame_op_scalar", Frame.class, double.class));
+      if (AstUniOp.class.isAssignableFrom(c))
+        return declaredIn(c, AstBuiltin.class, "apply", Env.class, Env.StackHelp.class, AstRoot[].class) &&
+            declaredIn(c, AstUniOp.class, "exec", Val[].class);
+      return false;
+    } catch (NoSuchMethodException e) {
+      return false;
+    }
+  }
+
+  private static boolean declaredIn(Class<?> c, Class<?> base, String name, Class<?>... params) throws NoSuchMethodException {
+    return c.getMethod(name, params).getDeclaringClass() == base;
+  }
+
+  // The element-wise primitive an AstExec applies, if it can be told without executing anything
+  private static AstPrimitive fun(AstExec exec, Env env) {
+    AstRoot f = exec._asts[0];
+    if (!(f instanceof AstId || f instanceof AstPrimitive)) return null;
+    Val v;
+    try {
+      v = f.exec(env);
+    } catch (IllegalArgumentException e) {
+      return null;            // Let the step by step evaluation fail in order
+    }
+    if (!v.isFun()) return null;
+    AstPrimitive prim = v.getFun();
+    return isFusable(prim) && prim.nargs() == exec._asts.length ? prim : null;
+  }
+
+  // Builds the tree for ast; null if pure is requested and some leaf may have side effects
+  private static Node node(AstRoot ast, Env env, boolean pure, int[] ops) {
+    AstPrimitive prim = ast instanceof AstExec ? fun((AstExec) ast, env) : null;
+    if (prim != null) {
+      int nops = ops[0];
+      Node n = node((AstExec) ast, prim, env, pure, ops);
+      if (n != null || pure) return n;
+      ops[0] = nops;          // Not fused after all, executed as a leaf
+    }
+    if (pure && !isPure(ast, env)) return null;
+    return new Node(ast);
+  }
+
+  // Variables, constants and column slices of them, the way clients address columns
+  private static boolean isPure(AstRoot ast, Env env) {
+    if (ast instanceof AstParameter || ast instanceof AstFrame) return true;
+    if (!(ast instanceof AstExec)) return false;
+    AstRoot[] asts = ((AstExec) ast)._asts;
+    if (!(asts[0] instanceof AstId)) return false;
+    Val f;
+    try {
+      f = asts[0].exec(env);
+    } catch (IllegalArgumentException e) {
+      return false;
+    }
+    if (!f.isFun() || !(f.getFun() instanceof AstColSlice || f.getFun() instanceof AstColPySlice)) return false;
+    for (int i = 1; i < asts.length; i++)
+      if (!isPure(asts[i], env)) return false;
+    return true;
+  }
+
+  private static Node node(AstExec exec, AstPrimitive prim, Env env, boolean pure, int[] ops) {
+    AstRoot[] asts = exec._asts;
+    Node[] kids = new Node[asts.length - 1];
+    for (int i = 1; i < asts.length; i++) {
+      // Both branches of a fused ifelse get computed, they must not have side effects
+      kids[i - 1] = node(asts[i], env, pure || (prim instanceof AstIfElse && i > 1), ops);
+      if (kids[i - 1] == null) return null;
+    }
+    ops[0]++;
+    return new Node(prim, kids);
+  }
+
+  /** A node of the fused tree: an element-wise primitive or an executed leaf */
+  static final class Node extends Iced<Node> {
+    final byte _kind;
+    final AstPrimitive _prim;
+    final Node[] _kids;
+    int _id;                    // Leaf number, selects its buffer
+    int _col;                   // Column of a Frame leaf in the task's input Frame
+    double _num;                // Value of a scalar leaf
+    int _width;                 // Number of columns, 0 for a scalar
+    transient String[] _names;  // Names of the columns of the step by step result
+    transient AstRoot _ast;     // Leaf expression
+    transient Val _val;         // and its value
+
+    Node(AstRoot ast) {
+      _kind = LEAF;
+      _prim = null;
+      _kids = null;
+      _ast = ast;
+    }
+
+    Node(AstPrimitive prim, Node[] kids) {
+      _kind = prim instanceof AstIfElse ? IFELSE : prim instanceof AstBinOp ? BIN : UNI;
+      _prim = prim;
+      _kids = kids;
+    }
+
+    void leaves(ArrayList<Node> leaves) {
+      if (_kind == LEAF) leaves.add(this);
+      else for (Node kid : _kids) kid.leaves(leaves);
+    }
+
+    /**
+     * Works out the shape and names of the result, collecting the input Vecs.
+     * False if the step by step evaluation would do anything but element-wise
+     * arithmetic (widen rows, handle strings or categoricals, fail, ...).
+     */
+    boolean layout(ArrayList<Vec> vecs, long[] nrows) {
+      switch (_kind) {
+        case LEAF:
+          if (_val.isNum()) {
+            _num = _val.getNum();
+            _width = 0;
+            return true;
+          }
+          if (!_val.isFrame()) return false;
+          Frame fr = _val.getFrame();
+          if (fr.numCols() == 0) return false;
+          if (nrows[0] == -1) nrows[0] = fr.numRows();
+          if (fr.numRows() != nrows[0]) return false;
+          for (Vec v : fr.vecs())
+            if (!v.isNumeric() || (!vecs.isEmpty() && !vecs.get(0).isCompatibleWith(v))) return false;
+          _col = vecs.size();
+          vecs.addAll(Arrays.asList(fr.vecs()));
+          _width = fr.numCols();
+          _names = fr.names();
+          return true;
+        case UNI:
+          if (!_kids[0].layout(vecs, nrows)) return false;
+          _width = _kids[0]._width;
+          if (_width > 0) {
+            _names = new String[_width];
+            for (int i = 0; i < _width; i++)
+              _names[i] = _prim.str() + "(" + _kids[0]._names[i] + ")";
+          }
+          return true;
+        case BIN:
+          Node l = _kids[0], r = _kids[1];
+          if (!l.layout(vecs, nrows) || !r.layout(vecs, nrows)) return false;
+          if (l._width > 0 && r._width > 0) {
+            if (l._width != r._width && l._width != 1 && r._width != 1) return false;
+            boolean rite = l._width == 1 && r._width > 1; // The 1-column side gets widened
+            _width = rite ? r._width : l._width;
+            _names = rite ? r._names : l._names;
+          } else if (l._width > 0) {
+            _width = l._width;
+            _names = _prim instanceof AstEq || _prim instanceof AstNe ? defaultNames(_width) : l._names;
+          } else {
+            _width = r._width;
+            _names = r._names;
+          }
+          return true;
+        default: // IFELSE
+          for (Node kid : _kids)
+            if (!kid.layout(vecs, nrows)) return false;
+          _width = _kids[0]._width;
+          if (_width == 0) return false;  // A scalar test evaluates only one side
+          for (int i = 1; i < 3; i++)
+            if (_kids[i]._width != 0 && _kids[i]._width != _width) return false;
+          _names = defaultNames(_width);
+          return true;
+      }
+    }
+
+    private static String[] defaultNames(int n) {
+      String[] names = new String[n];
+      for (int i = 0; i < n; i++) names[i] = Frame.defaultColName(i);
+      return names;
+    }
+
+    /** Values of output column c of this node, for the rows of the chunks */
+    double[] eval(Chunk[] cs, int c, int len, double[][] bufs) {
+      switch (_kind) {
+        case LEAF: {
+          double[] buf = bufs[_id];
+          if (_width == 0) Arrays.fill(buf, 0, len, _num);
+          else cs[_col + (_width == 1 ? 0 : c)].getDoubles(buf, 0, len);
+          return buf;
+        }
+        case UNI: {
+          AstUniOp op = (AstUniOp) _prim;
+          double[] x = _kids[0].eval(cs, c, len, bufs);
+          for (int i = 0; i < len; i++) x[i] = op.op(x[i]);
+          return x;
+        }
+        case BIN: {
+          AstBinOp op = (AstBinOp) _prim;
+          double[] l = _kids[0].eval(cs, c, len, bufs);
+          double[] r = _kids[1].eval(cs, c, len, bufs);
+          for (int i = 0; i < len; i++) l[i] = op.op(l[i], r[i]);
+          return l;
+        }
+        default: { // IFELSE, NaN tests give NaN
+          double[] t = _kids[0].eval(cs, c, len, bufs);
+          double[] y = _kids[1].eval(cs, c, len, bufs);
+          double[] n = _kids[2].eval(cs, c, len, bufs);
+          for (int i = 0; i < len; i++)
+            if (!Double.isNaN(t[i])) t[i] = t[i] == 0 ? n[i] : y[i];
+          return t;
+        }
+      }
+    }
+
+    /** Evaluates this node one primitive at a time, over the executed leaves */
+    Val stepwise(Env env, Env.StackHelp stk) {
+      AstRoot[] asts = new AstRoot[_kids.length + 1];
+      asts[0] = _prim;
+      for (int i = 0; i < _kids.length; i++) asts[i + 1] = new Stepwise(_kids[i]);
+      return _prim.apply(env, stk, asts);
+    }
+  }
+
+  /** An already executed leaf, or a node evaluated step by step, as an AST */
+  private static final class Stepwise extends AstRoot<Stepwise> {
+    private final transient Node _node;
+
+    Stepwise(Node node) { _node = node; }
+
+    @Override
+    public Val exec(Env env) {
+      if (_node._kind == LEAF) return env.returning(_node._val);
+      try (Env.StackHelp stk = env.stk()) {
+        return env.returning(_node.stepwise(env, stk));
+      }
+    }
+
+    @Override public String str() { return _node._kind == LEAF ? _node._ast.str() : "(" + _node._prim.str() + " ...)"; }
+    @Override public String example() { return null; }
+    @Override public String description() { return null; }
+  }
+
+  private static final class FusedTask extends MRTask<FusedTask> {
+    final Node _root;
+    final int _nleaves;
+
+    FusedTask(Node root, int nleaves) {
+      _root = root;
+      _nleaves = nleaves;
+    }
+
+    @Override
+    public void map(Chunk[] cs, NewChunk[] ncs) {
+      int len = cs[0]._len;
+      double[][] bufs = new double[_nleaves][len];
+      for (int c = 0; c < ncs.length; c++) {
+        double[] res = _root.eval(cs, c, len, bufs);
+        NewChunk nc = ncs[c];
+        for (int i = 0; i < len; i++) nc.addNum(res[i]);
+      }
+    }
+  }
+}
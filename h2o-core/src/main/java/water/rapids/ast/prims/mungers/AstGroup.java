@@ -1,6 +1,5 @@
 package water.rapids.ast.prims.mungers;
 
-import water.H2O;
 import water.Iced;
 import water.MRTask;
 import water.fvec.Chunk;
@@ -36,87 +35,90 @@ import java.util.Arrays;
 public class AstGroup extends AstPrimitive {
   public enum NAHandling {ALL, RM, IGNORE}
 
-  // Functions handled by GroupBy
+  // Functions handled by GroupBy.  The reduction state of a group is a run of
+  // doubles at an offset in a (possibly shared, columnar) array; its length is
+  // given by initVal.
   public enum FCN {
     nrow() {
       @Override
-      public void op(double[] d0s, double d1) {
-        d0s[0]++;
+      public void op(double[] d0s, int off, double d1) {
+        d0s[off]++;
       }
 
       @Override
-      public void atomic_op(double[] d0s, double[] d1s) {
-        d0s[0] += d1s[0];
+      public void merge(double[] d0s, int off0, double[] d1s, int off1, int len) {
+        d0s[off0] += d1s[off1];
       }
 
       @Override
-      public double postPass(double ds[], long n) {
-        return ds[0];
+      public double postPass(double ds[], int off, int len, long n) {
+        return ds[off];
       }
     },
     mean() {
       @Override
-      public void op(double[] d0s, double d1) {
-        d0s[0] += d1;
+      public void op(double[] d0s, int off, double d1) {
+        d0s[off] += d1;
       }
 
       @Override
-      public void atomic_op(double[] d0s, double[] d1s) {
-        d0s[0] += d1s[0];
+      public void merge(double[] d0s, int off0, double[] d1s, int off1, int len) {
+        d0s[off0] += d1s[off1];
       }
 
       @Override
-      public double postPass(double ds[], long n) {
-        return ds[0] / n;
+      public double postPass(double ds[], int off, int len, long n) {
+        return ds[off] / n;
       }
     },
     sum() {
       @Override
-      public void op(double[] d0s, double d1) {
-        d0s[0] += d1;
+      public void op(double[] d0s, int off, double d1) {
+        d0s[off] += d1;
       }
 
       @Override
-      public void atomic_op(double[] d0s, double[] d1s) {
-        d0s[0] += d1s[0];
+      public void merge(double[] d0s, int off0, double[] d1s, int off1, int len) {
+        d0s[off0] += d1s[off1];
       }
 
       @Override
-      public double postPass(double ds[], long n) {
-        return ds[0];
+      public double postPass(double ds[], int off, int len, long n) {
+        return ds[off];
       }
     },
     sumSquares() {
       @Override
-      public void op(double[] d0s, double d1) {
-        d0s[0] += d1 * d1;
+      public void op(double[] d0s, int off, double d1) {
+        d0s[off] += d1 * d1;
       }
 
       @Override
-      public void atomic_op(double[] d0s, double[] d1s) {
-        d0s[0] += d1s[0];
+      public void merge(double[] d0s, int off0, double[] d1s, int off1, int len) {
+        d0s[off0] += d1s[off1];
       }
 
       @Override
-      public double postPass(double ds[], long n) {
-        return ds[0];
+      public double postPass(double ds[], int off, int len, long n) {
+        return ds[off];
       }
     },
     var() {
       @Override
-      public void op(double[] d0s, double d1) {
-        d0s[0] += d1 * d1;
-        d0s[1] += d1;
+      public void op(double[] d0s, int off, double d1) {
+        d0s[off] += d1 * d1;
+        d0s[off + 1] += d1;
       }
 
       @Override
-      public void atomic_op(double[] d0s, double[] d1s) {
-        ArrayUtils.add(d0s, d1s);
+      public void merge(double[] d0s, int off0, double[] d1s, int off1, int len) {
+        d0s[off0] += d1s[off1];
+        d0s[off0 + 1] += d1s[off1 + 1];
       }
 
       @Override
-      public double postPass(double ds[], long n) {
-        double numerator = ds[0] - ds[1] * ds[1] / n;
+      public double postPass(double ds[], int off, int len, long n) {
+        double numerator = ds[off] - ds[off + 1] * ds[off + 1] / n;
         if (Math.abs(numerator) < 1e-5) numerator = 0;
         return numerator / (n - 1);
       }
@@ -128,19 +130,20 @@ public class AstGroup extends AstPrimitive {
     },
     sdev() {
       @Override
-      public void op(double[] d0s, double d1) {
-        d0s[0] += d1 * d1;
-        d0s[1] += d1;
+      public void op(double[] d0s, int off, double d1) {
+        d0s[off] += d1 * d1;
+        d0s[off + 1] += d1;
       }
 
       @Override
-      public void atomic_op(double[] d0s, double[] d1s) {
-        ArrayUtils.add(d0s, d1s);
+      public void merge(double[] d0s, int off0, double[] d1s, int off1, int len) {
+        d0s[off0] += d1s[off1];
+        d0s[off0 + 1] += d1s[off1 + 1];
       }
 
       @Override
-      public double postPass(double ds[], long n) {
-        double numerator = ds[0] - ds[1] * ds[1] / n;
+      public double postPass(double ds[], int off, int len, long n) {
+        double numerator = ds[off] - ds[off + 1] * ds[off + 1] / n;
         if (Math.abs(numerator) < 1e-5) numerator = 0;
         return Math.sqrt(numerator / (n - 1));
       }
@@ -152,18 +155,18 @@ public class AstGroup extends AstPrimitive {
     },
     min() {
       @Override
-      public void op(double[] d0s, double d1) {
-        d0s[0] = Math.min(d0s[0], d1);
+      public void op(double[] d0s, int off, double d1) {
+        d0s[off] = Math.min(d0s[off], d1);
       }
 
       @Override
-      public void atomic_op(double[] d0s, double[] d1s) {
-        op(d0s, d1s[0]);
+      public void merge(double[] d0s, int off0, double[] d1s, int off1, int len) {
+        op(d0s, off0, d1s[off1]);
       }
 
       @Override
-      public double postPass(double ds[], long n) {
-        return ds[0];
+      public double postPass(double ds[], int off, int len, long n) {
+        return ds[off];
       }
 
       @Override
@@ -173,18 +176,18 @@ public class AstGroup extends AstPrimitive {
     },
     max() {
       @Override
-      public void op(double[] d0s, double d1) {
-        d0s[0] = Math.max(d0s[0], d1);
+      public void op(double[] d0s, int off, double d1) {
+        d0s[off] = Math.max(d0s[off], d1);
       }
 
       @Override
-      public void atomic_op(double[] d0s, double[] d1s) {
-        op(d0s, d1s[0]);
+      public void merge(double[] d0s, int off0, double[] d1s, int off1, int len) {
+        op(d0s, off0, d1s[off1]);
       }
 
       @Override
-      public double postPass(double ds[], long n) {
-        return ds[0];
+      public double postPass(double ds[], int off, int len, long n) {
+        return ds[off];
       }
 
       @Override
@@ -194,18 +197,22 @@ public class AstGroup extends AstPrimitive {
     },
     mode() {
       @Override
-      public void op(double[] d0s, double d1) {
-        d0s[(int) d1]++;
+      public void op(double[] d0s, int off, double d1) {
+        d0s[off + (int) d1]++;
       }
 
       @Override
-      public void atomic_op(double[] d0s, double[] d1s) {
-        ArrayUtils.add(d0s, d1s);
+      public void merge(double[] d0s, int off0, double[] d1s, int off1, int len) {
+        for (int i = 0; i < len; i++)
+          d0s[off0 + i] += d1s[off1 + i];
       }
 
       @Override
-      public double postPass(double ds[], long n) {
-        return ArrayUtils.maxIndex(ds);
+      public double postPass(double ds[], int off, int len, long n) {
+        int result = 0;           // Same as ArrayUtils.maxIndex: first largest count
+        for (int i = 1; i < len; i++)
+          if (ds[off + i] > ds[off + result]) result = i;
+        return result;
       }
 
       @Override
@@ -214,11 +221,23 @@ public class AstGroup extends AstPrimitive {
       }
     },;
 
-    public abstract void op(double[] d0, double d1);
+    public abstract void op(double[] d0s, int off, double d1);
 
-    public abstract void atomic_op(double[] d0, double[] d1);
+    public abstract void merge(double[] d0s, int off0, double[] d1s, int off1, int len);
 
-    public abstract double postPass(double ds[], long n);
+    public abstract double postPass(double ds[], int off, int len, long n);
+
+    public void op(double[] d0s, double d1) {
+      op(d0s, 0, d1);
+    }
+
+    public void atomic_op(double[] d0s, double[] d1s) {
+      merge(d0s, 0, d1s, 0, d1s.length);
+    }
+
+    public double postPass(double ds[], long n) {
+      return postPass(ds, 0, ds.length, n);
+    }
 
     public double[] initVal(int maxx) {
       return new double[]{0};
@@ -265,32 +284,9 @@ public class AstGroup extends AstPrimitive {
       aggs[(idx - 3) / 3] = new AGG(fcn, agg_col, na, (int) fr.vec(agg_col).max() + 1);
     }
 
-    // do the group by work now
-    IcedHashMap<G, String> gss = doGroups(fr, gbCols, aggs);
-    final G[] grps = gss.keySet().toArray(new G[gss.size()]);
-
-    // apply an ORDER by here...
-    if (gbCols.length > 0)
-      Arrays.sort(grps, new java.util.Comparator<G>() {
-        // Compare 2 groups.  Iterate down _gs, stop when _gs[i] > that._gs[i],
-        // or _gs[i] < that._gs[i].  Order by various columns specified by
-        // gbCols.  NaN is treated as least
-        @Override
-        public int compare(G g1, G g2) {
-          for (int i = 0; i < gbCols.length; i++) {
-            if (Double.isNaN(g1._gs[i]) && !Double.isNaN(g2._gs[i])) return -1;
-            if (!Double.isNaN(g1._gs[i]) && Double.isNaN(g2._gs[i])) return 1;
-            if (g1._gs[i] != g2._gs[i]) return g1._gs[i] < g2._gs[i] ? -1 : 1;
-          }
-          return 0;
-        }
-
-        // I do not believe sort() calls equals() at this time, so no need to implement
-        @Override
-        public boolean equals(Object o) {
-          throw H2O.unimpl();
-        }
-      });
+    // do the group by work now, the result columns come ordered by the groups
+    final double[][] cols = GroupByHash.groupBy(fr, gbCols, aggs);
+    final int ngrps = cols.length == 0 ? 0 : cols[0].length;
 
     // Build the output!
     String[] fcnames = new String[aggs.length];
@@ -306,18 +302,13 @@ public class AstGroup extends AstPrimitive {
       @Override
       public void map(Chunk[] c, NewChunk[] ncs) {
         int start = (int) c[0].start();
-        for (int i = 0; i < c[0]._len; ++i) {
-          G g = grps[i + start];  // One Group per row
-          int j;
-          for (j = 0; j < g._gs.length; j++) // The Group Key, as a row
-            ncs[j].addNum(g._gs[j]);
-          for (int a = 0; a < aggs.length; a++)
-            ncs[j++].addNum(aggs[a]._fcn.postPass(g._dss[a], g._ns[a]));
-        }
+        for (int j = 0; j < ncs.length; j++) // The Group Keys, then the aggregates
+          for (int i = 0; i < c[0]._len; ++i)
+            ncs[j].addNum(cols[j][i + start]); // One Group per row
       }
     };
 
-    Frame f = buildOutput(gbCols, naggs, fr, fcnames, grps.length, mrfill);
+    Frame f = buildOutput(gbCols, naggs, fr, fcnames, ngrps, mrfill);
     return new ValFrame(f);
   }
 
@@ -338,6 +329,7 @@ public class AstGroup extends AstPrimitive {
   // Do all the grouping work.  Find groups in frame 'fr', grouped according to
   // the selected 'gbCols' columns, and for each group compute aggregrate
   // results using 'aggs'.  Return an array of groups, with the aggregate results.
+  // GB itself goes through the primitive tables of GroupByHash instead.
   public static IcedHashMap<G, String> doGroups(Frame fr, int[] gbCols, AGG[] aggs) {
     // do the group by work now
     long start = System.currentTimeMillis();
@@ -380,12 +372,14 @@ public class AstGroup extends AstPrimitive {
     public final int _col;
     final NAHandling _na;
     final int _maxx;            // Largest integer this column
+    final int _width;           // Length of the reduction state of a group
 
     public AGG(FCN fcn, int col, NAHandling na, int maxx) {
       _fcn = fcn;
       _col = col;
       _na = na;
       _maxx = maxx;
+      _width = initVal().length;
     }
 
     // Update the array pair {ds[i],ns[i]} with d1.
@@ -398,6 +392,13 @@ public class AstGroup extends AstPrimitive {
       if (!Double.isNaN(d1) || _na == NAHandling.IGNORE) n0s[i]++;
     }
 
+    // Same as op() above, but for group g of the columnar reduction state:
+    // ds holds _width doubles per group, ns the element count per group.
+    public void op(double[] ds, long[] ns, int g, double d1) {
+      if (!Double.isNaN(d1) || _na == NAHandling.ALL) _fcn.op(ds, g * _width, d1);
+      if (!Double.isNaN(d1) || _na == NAHandling.IGNORE) ns[g]++;
+    }
+
     // Atomically update the array pair {dss[i],ns[i]} with the pair {d1,n1}.
     // Same as op() above, but called racily and updates atomically.
     public void atomic_op(double[][] d0ss, long[] n0s, int i, double[] d1s, long n1) {
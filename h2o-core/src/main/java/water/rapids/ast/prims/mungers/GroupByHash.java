@@ -0,0 +1,430 @@
+package water.rapids.ast.prims.mungers;
+
+import water.*;
+import water.fvec.Chunk;
+import water.fvec.Frame;
+import water.fvec.Vec;
+import water.util.ArrayUtils;
+import water.util.Log;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * Hash aggregation behind GB, see {@link AstGroup}.
+ * <p/>
+ * Group keys are kept as primitive longs in open-addressing tables: the bits of
+ * the group-by values, or a single mixed-radix long when all the group-by
+ * columns are integers of a small enough range.  The reduction state of the
+ * aggregates is columnar, one array per aggregate indexed by group number.
+ * <p/>
+ * Every node aggregates its chunks into a table split into {@link #NPARTS}
+ * partitions by the high bits of the key hashes.  Partition p of each node is
+ * then sent to node (p % cloud size), which merges them and computes the final
+ * values.  The state of a group crosses the network at most once, and only the
+ * finished groups are collected and sorted on the caller.
+ */
+final class GroupByHash {
+  static final int PART_BITS = 6;
+  static final int NPARTS = 1 << PART_BITS;
+
+  private GroupByHash() {}
+
+  /**
+   * Group the rows of fr by the gbCols columns, computing the aggregates of
+   * each group.
+   * @return the result columns, the group-by columns followed by one column
+   * per aggregate, with a row per group ordered by the group-by columns (NaN
+   * first).
+   */
+  static double[][] groupBy(Frame fr, int[] gbCols, AstGroup.AGG[] aggs) {
+    long start = System.currentTimeMillis();
+    // Pass only the used columns to the tasks, each once
+    int[] colMap = new int[fr.numCols()];
+    Arrays.fill(colMap, -1);
+    ArrayList<Vec> vecs = new ArrayList<>();
+    int[] gbIdx = new int[gbCols.length], aggIdx = new int[aggs.length];
+    for (int i = 0; i < gbCols.length; i++)
+      gbIdx[i] = colIndex(fr, gbCols[i], colMap, vecs);
+    for (int i = 0; i < aggs.length; i++)
+      aggIdx[i] = colIndex(fr, aggs[i]._col, colMap, vecs);
+    Vec[] gbVecs = new Vec[gbCols.length];
+    for (int i = 0; i < gbCols.length; i++)
+      gbVecs[i] = fr.vec(gbCols[i]);
+    long[] base = new long[gbCols.length], radix = packing(gbVecs, base);
+
+    String id = Key.rand();
+    new GBTask(id, gbIdx, aggIdx, aggs, base, radix).doAll(new Frame(vecs.toArray(new Vec[vecs.size()])));
+    MergeTask mt = new MergeTask(id, keyWidth(gbCols.length, radix), aggs).doAllNodes();
+    Log.info("Group By Task done in " + (System.currentTimeMillis() - start) / 1000. + " (s)");
+
+    // Build the sorted result columns
+    int ngrps = mt._n, kw = keyWidth(gbCols.length, radix);
+    long[] keys = mt._keys == null ? new long[0] : mt._keys;
+    int[] order = sortOrder(keys, kw, ngrps, radix != null);
+    double[][] cols = new double[gbCols.length + aggs.length][ngrps];
+    for (int i = 0; i < ngrps; i++) {
+      int g = order[i];
+      if (radix != null) {
+        long k = keys[g];
+        for (int c = gbCols.length - 1; c >= 0; c--) {
+          long v = k % radix[c];
+          k /= radix[c];
+          cols[c][i] = v == 0 ? Double.NaN : v - 1 + base[c];
+        }
+      } else {
+        for (int c = 0; c < gbCols.length; c++)
+          cols[c][i] = Double.longBitsToDouble(keys[g * kw + c]);
+      }
+      for (int a = 0; a < aggs.length; a++)
+        cols[gbCols.length + a][i] = mt._res[a][g];
+    }
+    return cols;
+  }
+
+  private static int colIndex(Frame fr, int col, int[] colMap, ArrayList<Vec> vecs) {
+    if (colMap[col] == -1) {
+      colMap[col] = vecs.size();
+      vecs.add(fr.vec(col));
+    }
+    return colMap[col];
+  }
+
+  // Radixes to pack the keys of several integer columns in a single long, the
+  // value 0 stands for NA.  Null if the columns cannot be packed.
+  static long[] packing(Vec[] vecs, long[] base) {
+    if (vecs.length < 2) return null; // Nothing to pack
+    long[] radix = new long[vecs.length];
+    double range = 1;
+    for (int i = 0; i < vecs.length; i++) {
+      Vec v = vecs[i];
+      if (!v.isInt() || v.naCnt() == v.length() || Math.abs(v.min()) >= 1L << 52 || Math.abs(v.max()) >= 1L << 52)
+        return null;
+      base[i] = (long) v.min();
+      radix[i] = (long) v.max() - base[i] + 2;
+      range *= radix[i];
+      if (range >= (double) (1L << 62)) return null;
+    }
+    return radix;
+  }
+
+  static int keyWidth(int ncols, long[] radix) {
+    return radix == null ? ncols : 1;
+  }
+
+  static long hash(long[] keys, int off, int kw) {
+    long h = 0;
+    for (int i = 0; i < kw; i++) {
+      h += keys[off + i];
+      // MurmurHash3 finalizer, doubles are lousy hashes
+      h ^= h >>> 33;
+      h *= 0xff51afd7ed558ccdL;
+      h ^= h >>> 33;
+      h *= 0xc4ceb9fe1a85ec53L;
+      h ^= h >>> 33;
+    }
+    return h;
+  }
+
+  static int partition(long hash) {
+    return (int) (hash >>> (64 - PART_BITS));
+  }
+
+  static Key partKey(String id, int part, int node) {
+    return Key.make("__group_by__" + id + "_part" + part + "_node" + node,
+            (byte) 1, Key.HIDDEN_USER_KEY, false, H2O.CLOUD._memary[part % H2O.CLOUD.size()]);
+  }
+
+  // Order of the groups by their keys, NaN first.  LSD radix sort, a byte at a
+  // time, of each key column from the last to the first.
+  static int[] sortOrder(long[] keys, int kw, int n, boolean packed) {
+    int[] idx = ArrayUtils.seq(0, n), tmp = new int[n];
+    long[] col = new long[n];
+    int[] counts = new int[257];
+    for (int c = kw - 1; c >= 0; c--) {
+      for (int i = 0; i < n; i++)
+        col[i] = packed ? keys[i] : sortable(keys[i * kw + c]);
+      for (int shift = 0; shift < 64; shift += 8) {
+        Arrays.fill(counts, 0);
+        for (int i = 0; i < n; i++)
+          counts[digit(col[idx[i]], shift) + 1]++;
+        if (n == 0 || counts[digit(col[idx[0]], shift) + 1] == n)
+          continue;             // All the same digit
+        for (int d = 0; d < 256; d++)
+          counts[d + 1] += counts[d];
+        for (int i = 0; i < n; i++)
+          tmp[counts[digit(col[idx[i]], shift)]++] = idx[i];
+        int[] t = idx; idx = tmp; tmp = t;
+      }
+    }
+    return idx;
+  }
+
+  // Bits of a double as a long of the same order, NaN is the least
+  private static long sortable(long bits) {
+    if (Double.isNaN(Double.longBitsToDouble(bits))) return Long.MIN_VALUE;
+    return bits ^ ((bits >> 63) & Long.MAX_VALUE);
+  }
+
+  private static int digit(long v, int shift) {
+    return (int) ((v ^ Long.MIN_VALUE) >>> shift) & 0xFF;
+  }
+
+  /**
+   * Open-addressing table of groups.  Keys and reduction states are kept in
+   * dense arrays by group number, the slots only map hashes to groups and are
+   * rebuilt after the table moves between nodes.
+   */
+  static final class GroupTable extends Iced<GroupTable> {
+    final int _kw;                      // Key width, in longs
+    final AstGroup.AGG[] _aggs;
+    int _n;                             // Number of groups
+    int _cap;                           // Allocated groups
+    long[] _keys;                       // _kw longs per group
+    double[][] _acc;                    // Per aggregate, _width doubles per group
+    long[][] _cnt;                      // Per aggregate, element count per group
+    transient int[] _slots;             // Group number + 1 by hash, 0 is empty
+    transient double[][] _inits;
+
+    GroupTable(int kw, AstGroup.AGG[] aggs) {
+      _kw = kw;
+      _aggs = aggs;
+      _acc = new double[aggs.length][];
+      _cnt = new long[aggs.length][];
+      resize(16);
+    }
+
+    // Group number of the key at keys[off], adding a new group if not found
+    int findOrAdd(long[] keys, int off, long hash) {
+      if (_slots == null) rehash();
+      int mask = _slots.length - 1;
+      for (int s = (int) hash & mask; ; s = (s + 1) & mask) {
+        int g = _slots[s] - 1;
+        if (g < 0) {
+          g = add(keys, off);
+          _slots[s] = g + 1;
+          if (2 * _n > _slots.length) rehash();
+          return g;
+        }
+        if (sameKey(g, keys, off)) return g;
+      }
+    }
+
+    private boolean sameKey(int g, long[] keys, int off) {
+      for (int i = 0, k = g * _kw; i < _kw; i++)
+        if (_keys[k + i] != keys[off + i]) return false;
+      return true;
+    }
+
+    private int add(long[] keys, int off) {
+      if (_n == _cap) resize(2 * _cap);
+      System.arraycopy(keys, off, _keys, _n * _kw, _kw);
+      if (_inits == null) {
+        _inits = new double[_aggs.length][];
+        for (int a = 0; a < _aggs.length; a++)
+          _inits[a] = _aggs[a].initVal();
+      }
+      for (int a = 0; a < _aggs.length; a++)
+        System.arraycopy(_inits[a], 0, _acc[a], _n * _aggs[a]._width, _aggs[a]._width);
+      return _n++;
+    }
+
+    void resize(int cap) {
+      _keys = Arrays.copyOf(_keys == null ? new long[0] : _keys, cap * _kw);
+      for (int a = 0; a < _aggs.length; a++) {
+        _acc[a] = Arrays.copyOf(_acc[a] == null ? new double[0] : _acc[a], cap * _aggs[a]._width);
+        _cnt[a] = Arrays.copyOf(_cnt[a] == null ? new long[0] : _cnt[a], cap);
+      }
+      _cap = cap;
+    }
+
+    private void rehash() {
+      int size = 16;
+      while (size < 2 * (_n + 1)) size <<= 1;
+      _slots = new int[size];
+      int mask = size - 1;
+      for (int g = 0; g < _n; g++) {
+        int s = (int) hash(_keys, g * _kw, _kw) & mask;
+        while (_slots[s] != 0) s = (s + 1) & mask;
+        _slots[s] = g + 1;
+      }
+    }
+
+    // Merge group g of t (with the given key hash) into this table
+    void merge(GroupTable t, int g, long hash) {
+      int dg = findOrAdd(t._keys, g * _kw, hash);
+      for (int a = 0; a < _aggs.length; a++) {
+        int w = _aggs[a]._width;
+        _aggs[a]._fcn.merge(_acc[a], dg * w, t._acc[a], g * w, w);
+        _cnt[a][dg] += t._cnt[a][g];
+      }
+    }
+
+    void mergeAll(GroupTable t) {
+      for (int g = 0; g < t._n; g++)
+        merge(t, g, hash(t._keys, g * _kw, _kw));
+    }
+  }
+
+  /**
+   * Aggregates the chunks of each node into node-local partitions, then sends
+   * every partition to its owner.  Nothing is reduced across nodes.
+   */
+  static class GBTask extends MRTask<GBTask> {
+    final String _id;
+    final int[] _gbIdx, _aggIdx;        // Columns of the group-by keys and of the aggregates
+    final AstGroup.AGG[] _aggs;
+    final long[] _base, _radix;         // Key packing, or null
+    final int _kw;
+    transient GroupTable[] _parts;      // Shared by all the maps of a node
+
+    GBTask(String id, int[] gbIdx, int[] aggIdx, AstGroup.AGG[] aggs, long[] base, long[] radix) {
+      _id = id;
+      _gbIdx = gbIdx;
+      _aggIdx = aggIdx;
+      _aggs = aggs;
+      _base = base;
+      _radix = radix;
+      _kw = keyWidth(gbIdx.length, radix);
+    }
+
+    @Override
+    protected void setupLocal() {
+      _parts = new GroupTable[NPARTS];
+      for (int p = 0; p < NPARTS; p++)
+        _parts[p] = new GroupTable(_kw, _aggs);
+    }
+
+    @Override
+    public void map(Chunk[] cs) {
+      int len = cs[0]._len, kw = _kw;
+      double[][] vals = new double[cs.length][];
+      for (int i = 0; i < cs.length; i++)
+        vals[i] = cs[i].getDoubles(new double[len], 0, len);
+      // Keys of the rows
+      long[] keys = new long[len * kw];
+      for (int c = 0; c < _gbIdx.length; c++) {
+        double[] ds = vals[_gbIdx[c]];
+        if (_radix != null) {
+          for (int r = 0; r < len; r++)
+            keys[r] = keys[r] * _radix[c] + (Double.isNaN(ds[r]) ? 0 : (long) ds[r] - _base[c] + 1);
+        } else {
+          for (int r = 0; r < len; r++)
+            keys[r * kw + c] = Double.doubleToLongBits(ds[r]);
+        }
+      }
+      // Groups found in this Chunk
+      GroupTable t = new GroupTable(kw, _aggs);
+      for (int r = 0; r < len; r++) {
+        int g = t.findOrAdd(keys, r * kw, hash(keys, r * kw, kw));
+        for (int a = 0; a < _aggs.length; a++)
+          _aggs[a].op(t._acc[a], t._cnt[a], g, vals[_aggIdx[a]][r]);
+      }
+      // Merge them into the node's partitions, locking each partition once
+      long[] hashes = new long[t._n];
+      int[] starts = new int[NPARTS + 1];
+      for (int g = 0; g < t._n; g++) {
+        hashes[g] = hash(t._keys, g * kw, kw);
+        starts[partition(hashes[g]) + 1]++;
+      }
+      for (int p = 0; p < NPARTS; p++)
+        starts[p + 1] += starts[p];
+      int[] order = new int[t._n], next = Arrays.copyOf(starts, NPARTS);
+      for (int g = 0; g < t._n; g++)
+        order[next[partition(hashes[g])]++] = g;
+      for (int p = 0; p < NPARTS; p++) {
+        if (starts[p] == starts[p + 1]) continue;
+        GroupTable part = _parts[p];
+        synchronized (part) {
+          for (int i = starts[p]; i < starts[p + 1]; i++)
+            part.merge(t, order[i], hashes[order[i]]);
+        }
+      }
+    }
+
+    @Override
+    protected void closeLocal() {
+      ArrayList<Key> keys = new ArrayList<>();
+      ArrayList<Value> vals = new ArrayList<>();
+      for (int p = 0; p < NPARTS; p++) {
+        GroupTable part = _parts[p];
+        if (part._n == 0) continue;
+        part.resize(part._n);   // Do not ship the unused capacity
+        Key k = partKey(_id, p, H2O.SELF.index());
+        keys.add(k);
+        vals.add(new Value(k, part));
+      }
+      Futures fs = new Futures();
+      DKV.putAll(keys.toArray(new Key[keys.size()]), vals.toArray(new Value[vals.size()]), fs, true);
+      fs.blockForPending();
+      _parts = null;
+    }
+  }
+
+  /**
+   * Merges the partitions owned by each node and computes the final values
+   * of their groups, which are collected on the caller (in no order).
+   */
+  static class MergeTask extends MRTask<MergeTask> {
+    final String _id;
+    final int _kw;
+    final AstGroup.AGG[] _aggs;
+    int _n;                             // Number of groups
+    long[] _keys;                       // _kw longs per group
+    double[][] _res;                    // Per aggregate, the value per group
+
+    MergeTask(String id, int kw, AstGroup.AGG[] aggs) {
+      _id = id;
+      _kw = kw;
+      _aggs = aggs;
+    }
+
+    @Override
+    protected void setupLocal() {
+      int nodes = H2O.CLOUD.size();
+      ArrayList<GroupTable> tables = new ArrayList<>();
+      Futures fs = new Futures();
+      for (int p = H2O.SELF.index(); p < NPARTS; p += nodes) {
+        GroupTable t = null;
+        for (int node = 0; node < nodes; node++) {
+          Key k = partKey(_id, p, node);
+          GroupTable o = DKV.getGet(k);
+          if (o == null) continue;
+          DKV.remove(k, fs);
+          if (t == null) t = o;
+          else if (o._n > t._n) { o.mergeAll(t); t = o; } // Merge the smaller table into the larger
+          else t.mergeAll(o);
+        }
+        if (t != null) tables.add(t);
+      }
+      _n = 0;
+      for (GroupTable t : tables) _n += t._n;
+      _keys = new long[_n * _kw];
+      _res = new double[_aggs.length][_n];
+      int off = 0;
+      for (GroupTable t : tables) {
+        System.arraycopy(t._keys, 0, _keys, off * _kw, t._n * _kw);
+        for (int a = 0; a < _aggs.length; a++) {
+          int w = _aggs[a]._width;
+          for (int g = 0; g < t._n; g++)
+            _res[a][off + g] = _aggs[a]._fcn.postPass(t._acc[a], g * w, w, t._cnt[a][g]);
+        }
+        off += t._n;
+      }
+      fs.blockForPending();
+    }
+
+    @Override
+    public void reduce(MergeTask mt) {
+      long[] keys = Arrays.copyOf(_keys, _keys.length + mt._keys.length);
+      System.arraycopy(mt._keys, 0, keys, _keys.length, mt._keys.length);
+      _keys = keys;
+      for (int a = 0; a < _aggs.length; a++) {
+        double[] res = Arrays.copyOf(_res[a], _n + mt._n);
+        System.arraycopy(mt._res[a], 0, res, _n, mt._n);
+        _res[a] = res;
+      }
+      _n += mt._n;
+    }
+  }
+}
@@ -274,12 +274,13 @@ public class FrameUtils {
     public  double weightedMean() {
       return _wsum == 0 ? 0 : _wresponse / _wsum;
     }
-    @Override public void map(Chunk response, Chunk weight, Chunk offset) {
-      for (int i=0;i<response._len;++i) {
-        if (response.isNA(i)) continue;
-        double w = weight.atd(i);
+    @Override public void mapBatch(double[][] cols, int nrows) {
+      double[] response = cols[0], weight = cols[1], offset = cols[2];
+      for (int i=0;i<nrows;++i) {
+        if (Double.isNaN(response[i])) continue;
+        double w = weight[i];
         if (w == 0) continue;
-        _wresponse += w*(response.atd(i)-offset.atd(i));
+        _wresponse += w*(response[i]-offset[i]);
         _wsum += w;
       }
     }
@@ -0,0 +1,93 @@
+package water.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/** Bounded lock-free multi-producer, single-consumer ring buffer.
+ *
+ *  <p>Producers claim a ticket with a CAS on the tail and publish through a
+ *  per-slot sequence number (after D. Vyukov's bounded queue), so they never
+ *  take a lock and never wait on each other beyond a failed CAS.  A full ring
+ *  makes {@link #offer} return false rather than block; callers decide where
+ *  the element goes instead.  Only one thread may call {@link #poll}.
+ *
+ *  <p>Each element is stamped with {@link System#nanoTime} when offered, and
+ *  {@link #polledNanos} hands the stamp of the last polled element back to the
+ *  consumer, for queueing-latency metrics.
+ */
+public final class MpscRing<E> {
+  private final int _mask;
+  private final AtomicReferenceArray<E> _elems;
+  // Slot s is free for the producer holding ticket t when _seqs[s]==t, and
+  // holds that producer's element when _seqs[s]==t+1.
+  private final AtomicLongArray _seqs;
+  private final long[] _nanos;           // Offer time, published by the slot sequence
+  private final AtomicLong _tail = new AtomicLong();
+  private volatile long _head;           // Written by the consumer only
+  private long _polledNanos;
+
+  /** @param capacity rounded up to a power of 2 */
+  public MpscRing( int capacity ) {
+    int cap = Integer.highestOneBit(Math.max(2, capacity) - 1) << 1;
+    _mask = cap - 1;
+    _elems = new AtomicReferenceArray<>(cap);
+    _seqs = new AtomicLongArray(cap);
+    for( int i = 0; i < cap; i++ ) _seqs.set(i, i);
+    _nanos = new long[cap];
+  }
+
+  public int capacity() { return _mask + 1; }
+
+  /** Add an element from any thread.
+   *  @return false if the ring is full */
+  public boolean offer( E e ) {
+    assert e != null;
+    while( true ) {
+      long t = _tail.get();
+      int s = (int)t & _mask;
+      long seq = _seqs.get(s);
+      if( seq == t ) {
+        if( _tail.compareAndSet(t, t + 1) ) {
+          _nanos[s] = System.nanoTime();
+          _elems.lazySet(s, e);
+          _seqs.set(s, t + 1);   // Publish
+          return true;
+        }
+      } else if( seq < t ) {
+        return false;            // Still holds the element of the previous lap
+      }
+      // else another producer got this ticket first, retry with the next one
+    }
+  }
+
+  /** Take the oldest element, consumer thread only.
+   *  @return the element, or null if none is published yet */
+  public E poll() {
+    long h = _head;
+    int s = (int)h & _mask;
+    if( _seqs.get(s) != h + 1 ) return null;
+    E e = _elems.get(s);
+    _polledNanos = _nanos[s];
+    _elems.lazySet(s, null);
+    _seqs.set(s, h + _mask + 1); // Free for the producer one lap later
+    _head = h + 1;
+    return e;
+  }
+
+  /** Offer time of the element last returned by {@link #poll} */
+  public long polledNanos() { return _polledNanos; }
+
+  /** True if no element is published at the head; exact from the consumer
+   *  thread, a hint from any other */
+  public boolean isEmpty() {
+    long h = _head;
+    return _seqs.get((int)h & _mask) != h + 1;
+  }
+
+  /** Number of claimed slots; a hint, as producers and the consumer race it */
+  public int size() {
+    long n = _tail.get() - _head;
+    return (int)Math.max(0, Math.min(n, _mask + 1));
+  }
+}
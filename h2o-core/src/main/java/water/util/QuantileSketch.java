@@ -0,0 +1,286 @@
+package water.util;
+
+import water.Iced;
+
+import java.util.Arrays;
+
+/** KLL quantile sketch - Iced, meaning cheaply serialized over the wire, and
+ *  mergeable, so that per-Chunk sketches can be reduced into a whole-Vec
+ *  sketch in a single pass.
+ *
+ *  <p>Items live in levels; an item at level h stands for 2^h of the values
+ *  added.  When the sketch outgrows its capacity, the lowest full level is
+ *  sorted and every other item (picked with a coin flip) is promoted to the
+ *  next level, the rest dropped.  Level capacities shrink geometrically from
+ *  the top level down, so the sketch holds about 3*k items regardless of the
+ *  number of values added.  With the default k=200 the rank error is about
+ *  1.5% of the count.  The exact min and max are kept on the side, so that
+ *  the 0 and 1 quantiles are exact.
+ *
+ *  <p>Levels whose capacity would drop below a handful of items are replaced
+ *  by a sampler, as in the KLL paper: once the bottom compactor is at level
+ *  s, each new value goes straight to level s with probability 2^-s (one
+ *  random pick per block of 2^s values).  This keeps adds down to a counter
+ *  bump for all but a vanishing fraction of values.  When the number of
+ *  values is known upfront (e.g. a Chunk's row count), the sketch can start
+ *  out at the sampler level it would otherwise only reach after a costly
+ *  warm-up; it still feeds about 32*k values per level into the compactors.
+ *
+ *  <p>The sketch is not thread-safe.
+ */
+public class QuantileSketch extends Iced<QuantileSketch> {
+  public static final int DEFAULT_K = 200;
+  private static final double C = 2.0/3.0; // Capacity shrink factor per level down
+  private static final int MIN_CAP = 8;   // Smallest level capacity
+
+  private int _k;
+  private long _n;                        // Count of values added
+  private double _min = Double.POSITIVE_INFINITY, _max = Double.NEGATIVE_INFINITY;
+  private double[][] _levels;             // Items, per level; level 0 first
+  private int[] _sizes;                   // Items used, per level
+  private int[] _caps;                    // Capacity, per level
+  private int _size, _cap;                // Total items held, and allowed
+  private int _s;                         // Sampler level; lower levels only hold leftovers
+  private int _sblock, _spick;            // Values seen in the sampler block, and the one to keep
+  private double _scand;                  // Value kept from the sampler block so far
+  private long _coin = 0x9E3779B97F4A7C15L; // Xorshift state for compaction & sampling
+
+  public QuantileSketch() { this(DEFAULT_K); }
+  public QuantileSketch( int k ) { this(k,0); }
+  /** A sketch sized for about {@code n} values */
+  public QuantileSketch( int k, long n ) {
+    if( k < MIN_CAP ) throw new IllegalArgumentException("k must be at least "+MIN_CAP+", was "+k);
+    _k = k;
+    _levels = new double[1][];
+    _levels[0] = new double[MIN_CAP];
+    _sizes = new int[1];
+    capacities();
+    // Start with enough (empty) levels above the sampler level for n values
+    int s = 63-Long.numberOfLeadingZeros(Math.max(1,n/(32L*k)));
+    if( s > 0 ) grow(s+compactors());
+  }
+
+  /** Count of values added, after merging */
+  public long count() { return _n; }
+
+  /** Add a value; NaNs are ignored */
+  public void add( double d ) {
+    if( Double.isNaN(d) ) return;
+    minmax(d);
+    _n++;
+    if( _s > 0 ) {              // Sampling: keep one random value per block
+      if( _sblock == _spick ) _scand = d;
+      if( ++_sblock < 1<<_s ) return;
+      d = _scand;
+      resetSampler();
+    }
+    append(_s,d);
+    if( _size > _cap ) compress();
+  }
+
+  /** Add the values {@code ds[from,to)}; NaNs are ignored.  Cheaper than
+   *  adding one at a time, since with no NaNs only the sampled values are
+   *  looked at after the min/max scan. */
+  public void add( double[] ds, int from, int to ) {
+    double min = _min, max = _max;
+    int nas = 0;
+    for( int i=from; i<to; i++ ) {
+      double d = ds[i];
+      if( d < min ) min = d;
+      if( d > max ) max = d;
+      if( Double.isNaN(d) ) nas++;
+    }
+    if( nas > 0 || _s == 0 ) {  // Values one at a time
+      for( int i=from; i<to; i++ ) add(ds[i]);
+      return;
+    }
+    _min = min;  _max = max;
+    _n += to-from;
+    // Jump from block to block, picking the sampled value of each
+    int i = from;
+    while( true ) {
+      int left = (1<<_s)-_sblock;  // Values left in the sampler block
+      int pick = i+_spick-_sblock;
+      if( _spick >= _sblock && pick < to ) _scand = ds[pick];
+      if( to-i < left ) { _sblock += to-i; return; }
+      i += left;
+      append(_s,_scand);
+      resetSampler();           // Sampler level can only go up in compress
+      if( _size > _cap ) compress();
+    }
+  }
+
+  /** Add a value {@code w} times at once, in O(log w) */
+  public void add( double d, long w ) {
+    if( Double.isNaN(d) || w <= 0 ) return;
+    minmax(d);
+    _n += w;
+    // The binary digits of w are the item's weight per level
+    for( int h=0; w != 0; h++, w >>>= 1 )
+      if( (w&1) != 0 ) append(h,d);
+    compress();
+  }
+
+  /** Merge another sketch into this one.  Both must have the same k. */
+  public QuantileSketch merge( QuantileSketch qs ) {
+    if( qs._k != _k ) throw new IllegalArgumentException("Cannot merge sketches with k="+_k+" and k="+qs._k);
+    if( qs._n == 0 ) return this;
+    minmax(qs._min);
+    minmax(qs._max);
+    for( int h=0; h<qs._sizes.length; h++ )
+      for( int i=0; i<qs._sizes[h]; i++ )
+        append(h,qs._levels[h][i]);
+    _n += qs._n;
+    compress();
+    return this;
+  }
+
+  /** Deep copy; {@link #clone} would share the levels */
+  public QuantileSketch copy() {
+    QuantileSketch qs = clone();
+    qs._levels = new double[_levels.length][];
+    for( int h=0; h<_levels.length; h++ ) qs._levels[h] = _levels[h].clone();
+    qs._sizes = _sizes.clone();
+    qs._caps = _caps.clone();
+    return qs;
+  }
+
+  /** Drop the spare capacity of the levels, e.g. before keeping the sketch
+   *  around or sending it over the wire.  The sketch can still be added to. */
+  public void trim() {
+    for( int h=0; h<_levels.length; h++ )
+      if( _levels[h].length > _sizes[h] ) _levels[h] = Arrays.copyOf(_levels[h],_sizes[h]);
+  }
+
+  /** Approximate quantile; NaN if the sketch is empty */
+  public double quantile( double prob ) { return quantiles(new double[]{prob})[0]; }
+
+  /** Approximate quantiles, one per probability in [0,1].  The 0 and 1
+   *  quantiles are the exact min and max. */
+  public double[] quantiles( double[] probs ) {
+    double[] res = new double[probs.length];
+    if( _n == 0 ) { Arrays.fill(res,Double.NaN); return res; }
+    // All items in order, with their cumulative weights
+    double[] vals = new double[_size];
+    long[] cum = new long[_size];
+    sorted(vals,cum);
+    for( int i=0; i<probs.length; i++ ) {
+      double p = probs[i];
+      if( !(0 <= p && p <= 1) ) throw new IllegalArgumentException("Probability must be in [0,1], was "+p);
+      if( p == 0 ) { res[i] = _min; continue; }
+      if( p == 1 ) { res[i] = _max; continue; }
+      // First item whose cumulative weight exceeds the target rank
+      double rank = p*cum[_size-1];
+      int lo=0, hi=_size-1;
+      while( lo < hi ) {
+        int mid = (lo+hi)>>>1;
+        if( cum[mid] > rank ) hi = mid;
+        else lo = mid+1;
+      }
+      res[i] = Math.min(Math.max(vals[lo],_min),_max);
+    }
+    return res;
+  }
+
+  // Merge the (sorted copies of the) levels into one sorted run
+  private void sorted( double[] vals, long[] cum ) {
+    int nlev = _sizes.length;
+    double[][] lev = new double[nlev][];
+    for( int h=0; h<nlev; h++ ) {
+      lev[h] = Arrays.copyOf(_levels[h],_sizes[h]);
+      Arrays.sort(lev[h]);
+    }
+    int[] pos = new int[nlev];
+    long sum = 0;
+    for( int i=0; i<_size; i++ ) {
+      int best = -1;
+      for( int h=0; h<nlev; h++ )
+        if( pos[h] < lev[h].length && (best == -1 || lev[h][pos[h]] < lev[best][pos[best]]) )
+          best = h;
+      vals[i] = lev[best][pos[best]++];
+      cum[i] = sum += 1L<<best;
+    }
+  }
+
+  private void minmax( double d ) {
+    if( d < _min ) _min = d;
+    if( d > _max ) _max = d;
+  }
+
+  private void append( int h, double d ) {
+    if( h >= _sizes.length ) grow(h+1);
+    double[] lev = _levels[h];
+    int sz = _sizes[h];
+    if( sz == lev.length ) _levels[h] = lev = Arrays.copyOf(lev,Math.max(MIN_CAP,sz<<1));
+    lev[sz] = d;
+    _sizes[h] = sz+1;
+    _size++;
+  }
+
+  private void grow( int nlev ) {
+    int old = _sizes.length;
+    _levels = Arrays.copyOf(_levels,nlev);
+    _sizes = Arrays.copyOf(_sizes,nlev);
+    for( int h=old; h<nlev; h++ ) _levels[h] = new double[MIN_CAP];
+    capacities();
+  }
+
+  // Number of levels kept as compactors, with at least MIN_CAP capacity
+  private int compactors() {
+    int n = 1;
+    while( Math.ceil(_k*Math.pow(C,n)) >= MIN_CAP ) n++;
+    return n;
+  }
+
+  // Level capacities shrink by C per level down from the top.  Levels which
+  // would get less than MIN_CAP go to the sampler, and hold at most one
+  // leftover item each.
+  private void capacities() {
+    int nlev = _sizes.length;
+    _caps = new int[nlev];
+    _cap = 0;
+    int s = 0;
+    for( int h=0; h<nlev; h++ ) {
+      double cap = Math.ceil(_k*Math.pow(C,nlev-1-h));
+      if( cap < MIN_CAP && h < nlev-1 ) { _caps[h] = 1; s = h+1; }
+      else _caps[h] = Math.max(MIN_CAP,(int)cap);
+      _cap += _caps[h];
+    }
+    if( s != _s ) { _s = s; resetSampler(); } // Drops a partial block, at most 2^s values
+  }
+
+  private void resetSampler() {
+    _sblock = 0;
+    _spick = (int)(nextCoin() & ((1<<_s)-1));
+  }
+
+  private long nextCoin() {
+    _coin ^= _coin << 13;  _coin ^= _coin >>> 7;  _coin ^= _coin << 17;
+    return _coin;
+  }
+
+  // Compact levels until the sketch fits its capacity again
+  private void compress() {
+    while( _size > _cap ) {
+      int h = 0;
+      while( _sizes[h] < Math.max(_caps[h],2) ) h++;
+      compact(h);
+    }
+  }
+
+  // Halve level h into level h+1: sort, then promote the odd or the even
+  // items.  An odd item out stays behind.
+  private void compact( int h ) {
+    if( h+1 >= _sizes.length ) grow(h+2);
+    double[] lev = _levels[h];
+    int sz = _sizes[h];
+    Arrays.sort(lev,0,sz);
+    int keep = sz & 1;          // Odd count: keep the largest item here
+    int off = (int)(nextCoin() & 1);
+    for( int i=off; i<sz-keep; i+=2 )
+      append(h+1,lev[i]);
+    if( keep == 1 ) lev[0] = lev[sz-1];
+    _size -= sz-keep;
+    _sizes[h] = keep;
+  }
+}
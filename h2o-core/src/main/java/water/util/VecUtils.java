@@ -601,17 +601,17 @@ public class VecUtils {
       _len = len;
     }
     @Override
-    public void map(Chunk c, Chunk w, Chunk r) {
+    public void mapBatch(double[][] cols, int nrows) {
       wcounts = new double[_len]; // no larger than 1M elements, so OK to replicate per thread (faster)
       meanWeightedResponse = new double[_len];
-      for (int i=0; i<c._len; ++i) {
-        if (c.isNA(i)) continue;
-        int level = (int)c.at8(i);
-        if (w.isNA(i)) continue;
-        double weight = w.atd(i);
-        if (weight == 0) continue;
-        if (r.isNA(i)) continue;
-        double response = r.atd(i);
+      double[] c = cols[0], w = cols[1], r = cols[2];
+      for (int i=0; i<nrows; ++i) {
+        if (Double.isNaN(c[i])) continue;
+        int level = (int)c[i];
+        double weight = w[i];
+        if (Double.isNaN(weight) || weight == 0) continue;
+        double response = r[i];
+        if (Double.isNaN(response)) continue;
         wcounts[level] += weight;
         meanWeightedResponse[level] += weight*response;
       }
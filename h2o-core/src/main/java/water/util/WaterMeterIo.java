@@ -27,11 +27,29 @@ public class WaterMeterIo extends Iced {
     public long load_bytes;
   }
 
+  public static class TcpStatsEntry extends SchemaV3<Iced, TcpStatsEntry> {
+    @API(help="Bytes of big (TCP) messages sent, before compression", direction = API.Direction.OUTPUT)
+    public long sent_bytes;
+
+    @API(help="Bytes of big (TCP) messages sent on the wire, after compression", direction = API.Direction.OUTPUT)
+    public long sent_wire_bytes;
+
+    @API(help="Bytes of big (TCP) messages received, after decompression", direction = API.Direction.OUTPUT)
+    public long received_bytes;
+
+    @API(help="Bytes of big (TCP) messages received on the wire, before decompression", direction = API.Direction.OUTPUT)
+    public long received_wire_bytes;
+
+    @API(help="Number of compressed pages sent", direction = API.Direction.OUTPUT)
+    public long compressed_frames;
+  }
+
   // Input
   public int nodeidx;
 
   // Output
   public IoStatsEntry persist_stats[];
+  public TcpStatsEntry tcp_stats;
 
   public void doIt(boolean aggregateAllNodes) {
     if (! aggregateAllNodes) {
@@ -48,6 +66,7 @@ public class WaterMeterIo extends Iced {
           persist_stats[j] = new IoStatsEntry();
           persist_stats[j].backend    = io.persist_stats[j].backend;
         }
+        tcp_stats = new TcpStatsEntry();
       }
 
       for (int j = 0; j < persist_stats.length; j++) {
@@ -57,6 +76,11 @@ public class WaterMeterIo extends Iced {
         persist_stats[j].load_count += io.persist_stats[j].load_count;
         persist_stats[j].load_bytes += io.persist_stats[j].load_bytes;
       }
+      tcp_stats.sent_bytes += io.tcp_stats.sent_bytes;
+      tcp_stats.sent_wire_bytes += io.tcp_stats.sent_wire_bytes;
+      tcp_stats.received_bytes += io.tcp_stats.received_bytes;
+      tcp_stats.received_wire_bytes += io.tcp_stats.received_wire_bytes;
+      tcp_stats.compressed_frames += io.tcp_stats.compressed_frames;
     }
   }
 
@@ -68,10 +92,12 @@ public class WaterMeterIo extends Iced {
     new RPC<>(node, t).call().get();
     Log.trace("IO GetTask completed to node " + idx);
     persist_stats = t._persist_stats;
+    tcp_stats = t._tcp_stats;
   }
 
   private static class GetTask extends DTask<GetTask> {
     private IoStatsEntry _persist_stats[];
+    private TcpStatsEntry _tcp_stats;
 
     public GetTask() { super(H2O.MIN_HI_PRIORITY); _persist_stats = null; }
 
@@ -118,6 +144,13 @@ public class WaterMeterIo extends Iced {
         assert(src_e.load_bytes.get() == 0);
       }
 
+      _tcp_stats = new TcpStatsEntry();
+      _tcp_stats.sent_bytes = TCPCompression.bytesSent();
+      _tcp_stats.sent_wire_bytes = TCPCompression.bytesSentOnWire();
+      _tcp_stats.received_bytes = TCPCompression.bytesReceived();
+      _tcp_stats.received_wire_bytes = TCPCompression.bytesReceivedOnWire();
+      _tcp_stats.compressed_frames = TCPCompression.framesCompressed();
+
       tryComplete();
     }
   }
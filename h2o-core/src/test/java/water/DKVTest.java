@@ -124,4 +124,52 @@ public class DKVTest extends TestUtil {
     }
   }
 
+  private static class CheckGetAll extends MRTask<CheckGetAll> {
+    final Key[] _keys;
+    final int _off;
+    CheckGetAll(Key[] keys, int off) { _keys = keys; _off = off; }
+    @Override public void setupLocal() {
+      Value[] vals = DKV.getAll(_keys);
+      for( int i = 0; i < _keys.length; ++i )
+        if( vals[i] == null || ((IcedInt)vals[i].get())._val != i + _off )
+          throw new IllegalArgumentException("Wrong value for " + _keys[i] + ": " + vals[i]);
+    }
+  }
+
+  /**
+   * Batched puts and gets: several Keys homed on every node, put in one batch,
+   * then read back in one batch from every node (mostly remote Keys).
+   */
+  @Test
+  public void testGetAllPutAll() {
+    final int nkeys = 4*H2O.CLOUD.size();
+    final Key[] keys = new Key[nkeys];
+    for( int i = 0; i < nkeys; ++i )
+      keys[i] = Key.make((byte) 1, Key.HIDDEN_USER_KEY, true, H2O.CLOUD._memary[i % H2O.CLOUD.size()]);
+    try {
+      Value[] vals = new Value[nkeys];
+      for( int i = 0; i < nkeys; ++i ) vals[i] = new Value(keys[i], new IcedInt(i));
+      Futures fs = new Futures();
+      DKV.putAll(keys, vals, fs, false);
+      fs.blockForPending();
+      new CheckGetAll(keys, 0).doAllNodes();
+      // Overwrite: cached copies must be invalidated
+      for( int i = 0; i < nkeys; ++i ) vals[i] = new Value(keys[i], new IcedInt(i + 100));
+      fs = new Futures();
+      DKV.putAll(keys, vals, fs, false);
+      fs.blockForPending();
+      new CheckGetAll(keys, 100).doAllNodes();
+      // Prefetch does not change what is seen
+      DKV.prefetchAll(keys);
+      new CheckGetAll(keys, 100).doAllNodes();
+      // Remove in bulk
+      fs = new Futures();
+      DKV.putAll(keys, new Value[nkeys], fs, false);
+      fs.blockForPending();
+      for( Value v : DKV.getAll(keys) ) Assert.assertNull(v);
+    } finally {
+      for( Key k : keys ) DKV.remove(k);
+    }
+  }
+
 }
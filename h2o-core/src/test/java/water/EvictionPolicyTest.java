@@ -0,0 +1,107 @@
+package water;
+
+import org.junit.*;
+import water.fvec.Frame;
+import water.fvec.Vec;
+
+public class EvictionPolicyTest extends TestUtil {
+  @BeforeClass() public static void setup() { stall_till_cloudsize(1); }
+
+  @Test public void testLRU() {
+    Vec v = Vec.makeCon(1, 100);
+    try {
+      EvictionPolicy lru = new EvictionPolicy.LRU();
+      Value val = v.chunkIdx(0);
+      long now = System.currentTimeMillis();
+      val.touchAt(now - 1000);
+      Assert.assertEquals(now - 1000, lru.priority(val, now));
+      // Doubling the weight halves the effective age
+      Assert.assertEquals(now - 500, lru.priority(val, now, 2.0));
+    } finally {
+      v.remove();
+    }
+  }
+
+  @Test public void testLFU() {
+    Vec v = Vec.makeCon(1, 100);
+    try {
+      EvictionPolicy lfu = new EvictionPolicy.LFU();
+      Value val = v.chunkIdx(0);
+      long p0 = lfu.priority(val, System.currentTimeMillis());
+      val.get();
+      val.get();
+      Assert.assertEquals(p0 + 2, lfu.priority(val, System.currentTimeMillis()));
+    } finally {
+      v.remove();
+    }
+  }
+
+  @Test public void testGreedyDualSizeEvictsLargeFirst() {
+    Vec small = Vec.makeCon(1.5, 1000);
+    Vec large = Vec.makeSeq(1<<20, false); // A single large Chunk
+    try {
+      EvictionPolicy gds = new EvictionPolicy.GreedyDualSize();
+      Value vs = small.chunkIdx(0), vl = large.chunkIdx(0);
+      long now = System.currentTimeMillis();
+      vs.touchAt(now);
+      vl.touchAt(now);
+      Assert.assertTrue(vl._max > vs._max);
+      Assert.assertTrue(gds.priority(vl, now) < gds.priority(vs, now));
+      Assert.assertTrue(gds.priority(vs, now) > now);
+    } finally {
+      small.remove();
+      large.remove();
+    }
+  }
+
+  @Test public void testPinLocked() {
+    Frame fr = new Frame(Key.<Frame>make(), new String[]{"C1"}, new Vec[]{Vec.makeCon(2, 100)});
+    DKV.put(fr);
+    Key<Job> jobKey = Key.make();
+    Vec other = fr.vec(0).makeZero();
+    try {
+      EvictionPolicy lru = new EvictionPolicy.LRU();
+      Value val = fr.vec(0).chunkIdx(0);
+      long now = System.currentTimeMillis();
+      lru.collectPinned(H2O.STORE.raw_array());
+      Assert.assertTrue(lru.priority(val, now) < Long.MAX_VALUE);
+      fr.read_lock(jobKey);
+      lru.collectPinned(H2O.STORE.raw_array());
+      Assert.assertEquals(Long.MAX_VALUE, lru.priority(val, now));
+      Assert.assertTrue(lru.priority(other.chunkIdx(0), now) < Long.MAX_VALUE); // Same group, not locked
+      fr.unlock(jobKey);
+      lru.collectPinned(H2O.STORE.raw_array());
+      Assert.assertTrue(lru.priority(val, now) < Long.MAX_VALUE);
+    } finally {
+      fr.delete();
+      other.remove();
+    }
+  }
+
+  @Test public void testPinnedVecs() {
+    Vec.VectorGroup vg = new Vec.VectorGroup();
+    Key<Vec>[] keys = vg.addVecs(100);
+    EvictionPolicy.PinnedVecs pinned = new EvictionPolicy.PinnedVecs();
+    for( int i = 0; i < keys.length; i += 2 ) pinned.add(keys[i]);
+    pinned.add(keys[0]); // Duplicates are ignored
+    for( int i = 0; i < keys.length; i++ )
+      for( int cidx : new int[]{0, 1, 1000} )
+        Assert.assertEquals(i % 2 == 0, pinned.containsChunk(Vec.chunkKey(keys[i], cidx)));
+    Assert.assertFalse(pinned.containsChunk(Vec.chunkKey(new Vec.VectorGroup().addVec(), 0)));
+  }
+
+  @Test public void testStats() {
+    Vec v = Vec.makeSeq(100, false);
+    try {
+      Value val = v.chunkIdx(0);
+      long misses = EvictionPolicy.misses(), bytes = EvictionPolicy.reloadBytes();
+      long hits = EvictionPolicy.hits();
+      val.get();
+      Assert.assertEquals(hits + 1, EvictionPolicy.hits());
+      Assert.assertEquals(misses, EvictionPolicy.misses());
+      Assert.assertEquals(bytes, EvictionPolicy.reloadBytes());
+    } finally {
+      v.remove();
+    }
+  }
+}
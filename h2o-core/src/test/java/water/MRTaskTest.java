@@ -1,6 +1,8 @@
 package water;
 
 import org.junit.*;
+import water.fvec.Frame;
+import water.fvec.TestFrameBuilder;
 import water.fvec.Vec;
 import water.fvec.Chunk;
 import water.util.PrettyPrint;
@@ -99,5 +101,48 @@ public class MRTaskTest extends TestUtil {
       @Override public void map(Chunk cs[]) { }
     }.profile().doAll(vec);
   }
-}
 
+  // mapBatch sees the same values as row-by-row map, with NAs as NaN and
+  // String columns as null
+  @Test public void testMapBatch() {
+    Frame fr = null;
+    try {
+      fr = new TestFrameBuilder()
+          .withName("testMapBatch")
+          .withColNames("N", "C", "S")
+          .withVecTypes(Vec.T_NUM, Vec.T_CAT, Vec.T_STR)
+          .withDataForCol(0, ard(1.5, Double.NaN, -3, 4e10, 0))
+          .withDataForCol(1, ar("a", "b", null, "a", "c"))
+          .withDataForCol(2, ar("x", "y", "z", "w", "v"))
+          .withChunkLayout(2, 3)
+          .build();
+      BatchSum bs = new BatchSum().doAll(fr);
+      double sum = 0, levels = 0;
+      for( long r = 0; r < fr.numRows(); r++ ) {
+        if( !fr.vec(0).isNA(r) ) sum += fr.vec(0).at(r);
+        if( !fr.vec(1).isNA(r) ) levels += fr.vec(1).at8(r);
+      }
+      assertEquals(sum, bs._sum, 0);
+      assertEquals(levels, bs._levels, 0);
+      assertEquals(5, bs._rows);
+      assertEquals(2, bs._nas);
+    } finally {
+      if( fr != null ) fr.delete();
+    }
+  }
+  private static class BatchSum extends MRTask<BatchSum> {
+    double _sum, _levels;
+    long _rows, _nas;
+    @Override public void mapBatch(double[][] cols, int nrows) {
+      assertTrue(cols[2] == null);
+      for( int r = 0; r < nrows; r++ ) {
+        if( Double.isNaN(cols[0][r]) ) _nas++; else _sum += cols[0][r];
+        if( Double.isNaN(cols[1][r]) ) _nas++; else _levels += cols[1][r];
+      }
+      _rows += nrows;
+    }
+    @Override public void reduce(BatchSum bs) {
+      _sum += bs._sum; _levels += bs._levels; _rows += bs._rows; _nas += bs._nas;
+    }
+  }
+}
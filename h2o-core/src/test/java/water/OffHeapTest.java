@@ -0,0 +1,68 @@
+package water;
+
+import org.junit.*;
+import water.fvec.Chunk;
+import water.fvec.Frame;
+import water.fvec.Vec;
+
+public class OffHeapTest extends TestUtil {
+  @BeforeClass() public static void setup() { stall_till_cloudsize(1); }
+
+  @Test public void testReloadFromOffHeap() {
+    final int old_off_heap_mb = H2O.ARGS.off_heap_mb;
+    H2O.ARGS.off_heap_mb = 16;
+    Vec vcon = null, vrnd = null, vcpy = null;
+    try {
+      final long used0 = MemoryManager.offHeapUsed();
+      vcon = Vec.makeCon(0, 1024, 6);
+      vrnd = vcon.makeRand(0xDECAFL);
+      vcpy = vrnd.makeCopy();
+      int nchks = vrnd.nChunks();
+      long bytes = 0;
+      for( int i=0; i<nchks; i++ ) {
+        Value val = vrnd.chunkIdx(i);
+        Assert.assertTrue(val.storeOffHeap());
+        Assert.assertTrue(val.isOffHeap());
+        bytes += val._max;
+        // Toss both heap forms, as the Cleaner does under memory pressure
+        val.freeMem();
+        val.freePOJO();
+        Assert.assertNull(val.rawMem());
+        Assert.assertNull(val.rawPOJO());
+      }
+      Assert.assertEquals(used0 + bytes, MemoryManager.offHeapUsed());
+
+      // Touch all the data, forcing a reload from the off-heap copies
+      Assert.assertTrue(isBitIdentical(new Frame(new String[]{"C1"}, new Vec[]{vrnd}),
+                                       new Frame(new String[]{"C1"}, new Vec[]{vcpy})));
+      for( int i=0; i<nchks; i++ ) {
+        Value val = vrnd.chunkIdx(i);
+        Assert.assertTrue(val.isOffHeap());
+        Assert.assertFalse(val.isPersisted());
+        Assert.assertTrue(val.get() instanceof Chunk);
+      }
+
+      // Removing the Vec releases the off-heap accounting
+      vrnd.remove();
+      vrnd = null;
+      Assert.assertEquals(used0, MemoryManager.offHeapUsed());
+    } finally {
+      H2O.ARGS.off_heap_mb = old_off_heap_mb;
+      if( vcon != null ) vcon.remove();
+      if( vrnd != null ) vrnd.remove();
+      if( vcpy != null ) vcpy.remove();
+    }
+  }
+
+  @Test public void testDisabled() {
+    Assert.assertEquals(0, H2O.ARGS.off_heap_mb);
+    Vec v = Vec.makeCon(3.14, 100);
+    try {
+      Value val = v.chunkIdx(0);
+      Assert.assertFalse(val.storeOffHeap());
+      Assert.assertFalse(val.isOffHeap());
+    } finally {
+      v.remove();
+    }
+  }
+}
@@ -0,0 +1,92 @@
+package water;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ByteChannel;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class TCPCompressionTest extends TestUtil {
+  @BeforeClass public static void stall() { stall_till_cloudsize(1); }
+
+  // All writes go to a byte array, reads come back from it
+  private static class LoopbackChannel implements ByteChannel {
+    final ByteArrayOutputStream _out = new ByteArrayOutputStream();
+    ByteBuffer _in;
+    void flip() { _in = ByteBuffer.wrap(_out.toByteArray()); }
+    @Override public int write( ByteBuffer src ) {
+      int n = src.remaining();
+      while( src.hasRemaining() ) _out.write(src.get());
+      return n;
+    }
+    @Override public int read( ByteBuffer dst ) {
+      if( !_in.hasRemaining() ) return -1;
+      int n = Math.min(dst.remaining(), _in.remaining());
+      // Short reads, like a real socket
+      n = Math.min(n, 1000);
+      for( int i=0; i<n; i++ ) dst.put(_in.get());
+      return n;
+    }
+    @Override public boolean isOpen() { return true; }
+    @Override public void close() { }
+  }
+
+  private static byte[] page( int len, boolean compressible ) {
+    byte[] bs = new byte[len];
+    Random r = new Random(len);
+    if( compressible ) for( int i=0; i<len; i+=17 ) bs[i] = (byte)r.nextInt(4);
+    else r.nextBytes(bs);
+    return bs;
+  }
+
+  @Test public void testFrames() throws IOException {
+    TCPCompression.Codec deflate = TCPCompression.codec("deflate");
+    byte[][] pages = {
+      page(AutoBuffer.TCP_BUF_SIZ, true),   // Compressed
+      page(AutoBuffer.TCP_BUF_SIZ, false),  // Does not shrink: raw
+      page(100, true),                      // Below the threshold: raw
+      page(TCPCompression.THRESHOLD, true)  // Compressed
+    };
+    long frames = TCPCompression.framesCompressed();
+    long sent = TCPCompression.bytesSent(), sentWire = TCPCompression.bytesSentOnWire();
+    LoopbackChannel chan = new LoopbackChannel();
+    for( byte[] p : pages ) {
+      ByteBuffer bb = ByteBuffer.allocateDirect(p.length);
+      bb.put(p).flip();
+      TCPCompression.writeFrame(chan, bb, deflate);
+      assertFalse(bb.hasRemaining());
+    }
+    assertEquals(2, TCPCompression.framesCompressed() - frames);
+    long raw = 0;
+    for( byte[] p : pages ) raw += p.length;
+    assertEquals(raw, TCPCompression.bytesSent() - sent);
+    assertEquals(chan._out.size(), TCPCompression.bytesSentOnWire() - sentWire);
+    assertTrue(chan._out.size() < raw - AutoBuffer.TCP_BUF_SIZ/2);
+
+    chan.flip();
+    ByteBuffer frame = null;
+    for( byte[] p : pages ) {
+      frame = TCPCompression.readFrame(chan, frame);
+      assertEquals(p.length, frame.remaining());
+      byte[] got = new byte[p.length];
+      frame.get(got);
+      assertArrayEquals(p, got);
+    }
+    assertNull(TCPCompression.readFrame(chan, frame));
+  }
+
+  @Test public void testCodecNames() {
+    assertNull(TCPCompression.codec(null));
+    assertNull(TCPCompression.codec("none"));
+    assertNotNull(TCPCompression.codec("deflate"));
+    try {
+      TCPCompression.codec("lzma");
+      fail();
+    } catch( IllegalArgumentException expected ) { }
+  }
+}
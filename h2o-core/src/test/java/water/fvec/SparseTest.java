@@ -75,6 +75,10 @@ public class SparseTest extends TestUtil {
       if(Double.isNaN(vals[i])){
           Assert.assertEquals(NA,x[i],0);
       } else Assert.assertEquals(vals[i],x[i],0);
+    // sub-range, starting off a non-zero
+    int from = vals.length/3, to = 2*vals.length/3;
+    double [] y = c.getDoubles(new double[to-from],from,to);
+    Assert.assertArrayEquals(Arrays.copyOfRange(vals,from,to),y,0);
     // test sparse doubles
     if(isSparse) {
       int[] ids = new int[x.length];
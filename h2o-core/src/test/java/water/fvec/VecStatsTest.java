@@ -3,6 +3,7 @@ package water.fvec;
 import static org.junit.Assert.*;
 import org.junit.*;
 
+import java.util.Arrays;
 import java.util.Random;
 import water.Futures;
 import water.TestUtil;
@@ -71,4 +72,141 @@ public class VecStatsTest extends TestUtil {
     vec.remove();
 
   }
+
+  // Rewriting a few rows only recomputes the rollups of the written Chunk
+  @Test public void testIncrementalRollups() {
+    Vec v = null;
+    try {
+      Futures fs = new Futures();
+      Random random = new Random(42);
+      AppendableVec av = new AppendableVec(Vec.newKey(), Vec.T_NUM);
+      for( int i = 0; i < 4; i++ ) {
+        NewChunk chunk = new NewChunk(av, i);
+        if( i == 0 ) { chunk.addNum(0); chunk.addNum(999); } // Pin min & max
+        while( chunk._len < 5000 ) // Big enough for the bins to be cached
+          chunk.addNum(random.nextInt(1000));
+        chunk.close(i, fs);
+      }
+      v = av.layout_and_close(fs);
+      fs.blockForPending();
+      assertEquals(4, v.nChunks());
+      v.bins();                 // Rollups & histogram
+
+      // Chunk rollups are cached on the Chunk's home node only
+      RollupStats.ChunkRollups[] crs = new RollupStats.ChunkRollups[4];
+      for( int i = 0; i < 4; i++ ) {
+        if( !v.chunkKey(i).home() ) continue;
+        crs[i] = v.chunkForChunkIdx(i)._rollups;
+        assertNotNull(crs[i]);
+        assertNotNull(crs[i]._hbins);
+      }
+
+      // Same min & max: unchanged Chunks reuse both rollups and histogram
+      v.set(7500, 500);
+      v.setNA(7501);
+      checkAgainstCopy(v);
+      for( int i = 0; i < 4; i++ ) {
+        if( crs[i] == null ) continue;
+        RollupStats.ChunkRollups cr = v.chunkForChunkIdx(i)._rollups;
+        if( i == 1 ) assertNotSame(crs[1], cr);
+        else assertSame(crs[i], cr);
+      }
+
+      // New max: unchanged Chunks reuse their rollups, but need new bins
+      v.set(12500, 5000);
+      checkAgainstCopy(v);
+      for( int i = 0; i < 4; i++ ) {
+        if( crs[i] == null ) continue;
+        RollupStats.ChunkRollups cr = v.chunkForChunkIdx(i)._rollups;
+        if( i == 2 ) assertNotSame(crs[2]._rs, cr._rs);
+        else if( i != 1 ) assertSame(crs[i]._rs, cr._rs);
+        assertEquals(5000, cr._hbase + cr._hstride*cr._hbins.length - 1, 1e-9);
+      }
+    } finally {
+      if( v != null ) v.remove();
+    }
+  }
+
+  // Approximate quantiles and distinct counts over dense, constant, sparse and NA Chunks
+  @Test public void testSketches() {
+    Vec v = null;
+    try {
+      Futures fs = new Futures();
+      Random random = new Random(0xF00D);
+      AppendableVec av = new AppendableVec(Vec.newKey(), Vec.T_NUM);
+      double[] all = new double[40000];
+      int n = 0;
+      for( int i = 0; i < 4; i++ ) {
+        NewChunk chunk = new NewChunk(av, i);
+        for( int r = 0; r < 10000; r++ ) {
+          double d;
+          switch( i ) {
+          case 0:  d = random.nextInt(5000);  break;                      // Dense
+          case 1:  d = 7;  break;                                         // Constant
+          case 2:  d = r % 100 == 0 ? 1000+random.nextInt(1000) : 0;  break; // Sparse
+          default: d = r % 10 == 0 ? Double.NaN : random.nextGaussian();   // NAs
+          }
+          if( Double.isNaN(d) ) chunk.addNA();
+          else { chunk.addNum(d); all[n++] = d; }
+        }
+        chunk.close(i, fs);
+      }
+      v = av.layout_and_close(fs);
+      fs.blockForPending();
+      assertTrue(v.chunkForChunkIdx(1) instanceof C0LChunk);
+      assertTrue(v.chunkForChunkIdx(2).isSparseZero());
+
+      double[] sorted = Arrays.copyOf(all, n);
+      Arrays.sort(sorted);
+      double[] probs = {0, 0.05, 0.2, 0.25, 0.5, 0.75, 0.9, 1};
+      assertTrue(RollupStats.get(v)._sketchless); // Not built until asked for
+      double[] qs = v.approxQuantiles(probs);
+      for( int i = 0; i < probs.length; i++ ) {
+        int lo = Arrays.binarySearch(sorted, qs[i]);
+        assertTrue("quantile " + probs[i] + " = " + qs[i] + " not in data", lo >= 0);
+        // Rank range of the value, which can be duplicated
+        int hi = lo;
+        while( lo > 0 && sorted[lo-1] == qs[i] ) lo--;
+        while( hi < n-1 && sorted[hi+1] == qs[i] ) hi++;
+        double eps = 0.02*n;
+        assertTrue("quantile " + probs[i], lo - eps <= probs[i]*(n-1) && probs[i]*(n-1) <= hi + eps);
+      }
+      assertEquals(v.min(), qs[0], 0);
+      assertEquals(v.max(), qs[probs.length-1], 0);
+
+      long distinct = 1;
+      for( int i = 1; i < n; i++ ) if( sorted[i] != sorted[i-1] ) distinct++;
+      assertEquals(distinct, v.approxDistinct(), distinct*0.05);
+
+      // The Chunk caches keep no sketches; after a write they are rebuilt on demand
+      if( v.chunkKey(1).home() ) {
+        assertNotNull(v.chunkForChunkIdx(1)._rollups);
+        assertNull(v.chunkForChunkIdx(1)._rollups._rs._hll);
+      }
+      v.set(1, 1e6);            // A new distinct value
+      v.mean();                 // Rollups from the caches, without the sketches
+      assertEquals(1e6, v.approxQuantile(1), 0);
+      assertEquals(distinct+1, v.approxDistinct(), distinct*0.05);
+    } finally {
+      if( v != null ) v.remove();
+    }
+  }
+
+  // Rollups of a Vec must match those of a fresh copy, computed from scratch
+  private static void checkAgainstCopy(Vec v) {
+    Vec copy = v.makeCopy();
+    try {
+      assertArrayEquals(copy.bins(), v.bins());
+      assertArrayEquals(copy.pctiles(), v.pctiles(), 0);
+      assertArrayEquals(copy.mins(), v.mins(), 0);
+      assertArrayEquals(copy.maxs(), v.maxs(), 0);
+      assertEquals(copy.mean(), v.mean(), 1e-9);
+      assertEquals(copy.sigma(), v.sigma(), 1e-9);
+      assertEquals(copy.naCnt(), v.naCnt());
+      assertEquals(copy.nzCnt(), v.nzCnt());
+      assertEquals(copy.checksum_impl(), v.checksum_impl()); // checksum() is cached
+    } finally {
+      copy.remove();
+    }
+  }
 }
@@ -0,0 +1,154 @@
+package water.parser;
+
+import org.junit.Test;
+import water.Iced;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class CsvIndexTest {
+
+  @Test public void testSwarMasks() {
+    Random r = new Random(42);
+    byte[] bs = new byte[8];
+    for (int n = 0; n < 100000; n++) {
+      for (int i = 0; i < 8; i++) bs[i] = r.nextInt(4) == 0 ? 0 : (byte) r.nextInt(256);
+      long v = 0, expected = 0;
+      for (int i = 0; i < 8; i++) {
+        v |= (bs[i] & 0xFFL) << (8 * i);
+        if (bs[i] == 0) expected |= 1L << i;
+      }
+      assertEquals(expected, CsvIndex.movemask(CsvIndex.zeros(v)));
+    }
+  }
+
+  @Test public void testIndex() {
+    Random r = new Random(7);
+    byte[] alphabet = "ab,;\t\r\n \"'\u0000x1.".getBytes();
+    for (int len : new int[]{0, 1, 63, 64, 65, 200, 1000}) {
+      byte[] bs = new byte[len];
+      for (int i = 0; i < len; i++) bs[i] = alphabet[r.nextInt(alphabet.length)];
+      for (byte sep : new byte[]{',', '\t', ';'}) {
+        CsvIndex idx = new CsvIndex(bs, len, sep, true);
+        for (int q = 0; (q = idx.nextStruct(q)) >= 0; q++) ; // Index it all
+        int p = 0;
+        for (int i = 0; i < len; i++) {
+          byte c = bs[i];
+          boolean struct = c == sep || c == '\r' || c == '\n';
+          boolean special = !struct && (c == '"' || c == '\'' || c == ' ' || c == '\t' || c == 0);
+          assertEquals(special, idx.anySpecial(i, i + 1));
+          if (struct) {
+            assertEquals(i, idx.nextStruct(p));
+            p = i + 1;
+          }
+          // Ranges: compare against a byte loop
+          int j = Math.min(len, i + r.nextInt(150));
+          boolean any = false;
+          for (int k = i; k < j; k++) any |= idx.anySpecial(k, k + 1);
+          assertEquals(any, idx.anySpecial(i, j));
+        }
+        assertEquals(-1, idx.nextStruct(p));
+      }
+    }
+  }
+
+  // Lines mixing what the index takes (plain numbers, strings, empty fields)
+  // with everything it must leave to the state machine
+  private static final String[] TOKENS = {
+      "1", "-2", "+3", "4.5", "-.5", "5.", "1e5", "1.5E-3", "-2e+2", "007", "123456789012345678",
+      "1234567890123456789012", "1e1234567890", "-", "+", ".", "-.", "1e", "1e-", "1e+-3", "5%", "5%x", "1e%",
+      "12abc", "1.2.3", "2016-01-01", "-x", "$5", "$x", "abc", "NA", "na", "héllo", "a'b",
+      "\"q\"", "\"a,b\"", "\"x\"\"y\"", " 1", "2 ", " s ", "\t7", "", "", "", "\u00005"
+  };
+
+  private static byte[] randomCsv(Random r, byte sep, int rows, boolean tricky) {
+    StringBuilder sb = new StringBuilder();
+    int ntokens = tricky ? TOKENS.length : 34;
+    for (int i = 0; i < rows; i++) {
+      int ncols = 1 + r.nextInt(6);
+      for (int c = 0; c < ncols; c++) {
+        if (c > 0) sb.append((char) sep);
+        sb.append(TOKENS[r.nextInt(ntokens)]);
+      }
+      int eol = r.nextInt(10);
+      sb.append(eol == 0 ? "\r\n" : eol == 1 ? "\n\n" : eol == 2 ? "\r" : "\n");
+    }
+    return sb.toString().getBytes(StandardCharsets.UTF_8);
+  }
+
+  /** Splits the bytes into chunks, like FVecParseReader over a ByteVec */
+  private static class ChunkedData implements ParseReader {
+    final byte[][] _chunks;
+    final int[] _starts;
+    ChunkedData(byte[] bs, int chunkSize) {
+      int n = Math.max(1, (bs.length + chunkSize - 1) / chunkSize);
+      _chunks = new byte[n][];
+      _starts = new int[n + 1];
+      Arrays.fill(_starts, -1);
+      for (int i = 0; i < n; i++)
+        _chunks[i] = Arrays.copyOfRange(bs, i * chunkSize, Math.min(bs.length, (i + 1) * chunkSize));
+    }
+    @Override public byte[] getChunkData(int cidx) { return cidx < _chunks.length ? _chunks[cidx] : null; }
+    @Override public int getChunkDataStart(int cidx) { return _starts[cidx]; }
+    @Override public void setChunkDataStart(int cidx, int offset) { _starts[cidx] = offset; }
+    @Override public long getGlobalByteOffset() { return 0; }
+  }
+
+  /** Logs every call, to compare the two tokenizers call by call */
+  private static class LogWriter extends Iced implements ParseWriter {
+    final StringBuilder _sb = new StringBuilder();
+    final boolean[] _strCols;
+    long _lines;
+    LogWriter(boolean[] strCols) { _strCols = strCols; }
+    @Override public void setColumnNames(String[] names) { }
+    @Override public void newLine() { _lines++; _sb.append("\n"); }
+    @Override public boolean isString(int colIdx) { return colIdx < _strCols.length && _strCols[colIdx]; }
+    @Override public void addNumCol(int colIdx, long number, int exp) { _sb.append(" N").append(colIdx).append(':').append(number).append('e').append(exp); }
+    @Override public void addNumCol(int colIdx, double d) { _sb.append(" D").append(colIdx).append(':').append(d); }
+    @Override public void addInvalidCol(int colIdx) { _sb.append(" I").append(colIdx); }
+    @Override public void addStrCol(int colIdx, BufferedString str) { _sb.append(" S").append(colIdx).append(':').append(str.toString()); }
+    @Override public void rollbackLine() { _sb.append(" R"); }
+    @Override public void invalidLine(ParseErr err) { _sb.append(" L").append(err._err); }
+    @Override public void addError(ParseErr err) { _sb.append(" E").append(err._err); }
+    @Override public void setIsAllASCII(int colIdx, boolean b) { _sb.append(" A").append(colIdx).append(b); }
+    @Override public boolean hasErrors() { return false; }
+    @Override public ParseErr[] removeErrors() { return new ParseErr[0]; }
+    @Override public long lineNum() { return _lines; }
+  }
+
+  private static String parse(byte[] bs, ParseSetup ps, int chunkSize, boolean indexed, boolean[] strCols) {
+    ChunkedData din = new ChunkedData(bs, chunkSize);
+    LogWriter dout = new LogWriter(strCols);
+    for (int cidx = 0; cidx < din._chunks.length; cidx++) {
+      CsvParser p = new CsvParser(ps, null);
+      p._indexed = indexed;
+      try {
+        p.parseChunk(cidx, din, dout);
+      } catch (RuntimeException e) {  // Same failures too, at the same place
+        dout._sb.append(" X").append(e.getClass().getSimpleName());
+      }
+      dout._sb.append("|");
+    }
+    return dout._sb.toString();
+  }
+
+  @Test public void testSameAsStateMachine() {
+    Random r = new Random(1234);
+    for (int n = 0; n < 300; n++) {
+      byte sep = new byte[]{',', '\t', ';', '|'}[n & 3];
+      boolean tricky = n % 3 != 0;
+      byte[] bs = randomCsv(r, sep, 50 + r.nextInt(300), tricky);
+      ParseSetup ps = new ParseSetup(DefaultParserProviders.CSV_INFO, sep, r.nextBoolean(),
+          n % 5 == 0 ? ParseSetup.HAS_HEADER : ParseSetup.NO_HEADER, 6, null, null, null,
+          new String[][]{{"NA"}, null, {"NA", "na"}}, null);
+      boolean[] strCols = {false, false, false, false, r.nextBoolean()};
+      int chunkSize = 64 + r.nextInt(2000);
+      String expected = parse(bs, ps, chunkSize, false, strCols);
+      String actual = parse(bs, ps, chunkSize, true, strCols);
+      assertEquals("Case " + n, expected, actual);
+    }
+  }
+}
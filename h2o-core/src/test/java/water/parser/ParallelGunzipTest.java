@@ -0,0 +1,153 @@
+package water.parser;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import water.*;
+import water.fvec.Frame;
+import water.fvec.NFSFileVec;
+import water.fvec.Vec;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Random;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.Assert.*;
+
+public class ParallelGunzipTest extends TestUtil {
+  @BeforeClass static public void setup() { stall_till_cloudsize(1); }
+
+  private static final int CHUNK_SIZE = 1 << 17;
+
+  private static byte[] csv(int rows) {
+    StringBuilder sb = new StringBuilder("id,x,cat\n");
+    Random r = new Random(rows);
+    for (int i = 0; i < rows; i++)
+      sb.append(i).append(',').append(r.nextGaussian()).append(",c").append(r.nextInt(20)).append('\n');
+    return sb.toString().getBytes();
+  }
+
+  private static byte[] gzip(byte[] bs, int from, int to) throws IOException {
+    ByteArrayOutputStream bos = new ByteArrayOutputStream();
+    GZIPOutputStream gz = new GZIPOutputStream(bos);
+    gz.write(bs, from, to - from);
+    gz.close();
+    return bos.toByteArray();
+  }
+
+  // BGZF, as bgzip writes it: members of up to 64K input bytes, then an empty member
+  private static byte[] bgzf(byte[] bs) throws IOException {
+    ByteArrayOutputStream bos = new ByteArrayOutputStream();
+    byte[] z = new byte[1 << 17];
+    for (int off = 0, len; ; off += len) {
+      len = Math.min(0xff00, bs.length - off);
+      Deflater def = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+      def.setInput(bs, off, len);
+      def.finish();
+      int zlen = def.deflate(z);
+      def.end();
+      int bsize = 18 + zlen + 8;
+      bos.write(new byte[]{0x1f, (byte) 0x8b, 8, 4, 0, 0, 0, 0, 0, (byte) 0xff, 6, 0, 'B', 'C', 2, 0,
+          (byte) (bsize - 1), (byte) ((bsize - 1) >> 8)});
+      bos.write(z, 0, zlen);
+      CRC32 crc = new CRC32();
+      crc.update(bs, off, len);
+      writeLE4(bos, crc.getValue());
+      writeLE4(bos, len);
+      if (len == 0) return bos.toByteArray();
+    }
+  }
+
+  private static void writeLE4(OutputStream os, long v) throws IOException {
+    for (int i = 0; i < 4; i++) os.write((int) (v >> (8 * i)));
+  }
+
+  private static NFSFileVec file(byte[] bs, String suffix) throws IOException {
+    File f = File.createTempFile("gunzip", suffix);
+    f.deleteOnExit();
+    try (FileOutputStream fos = new FileOutputStream(f)) {
+      fos.write(bs);
+    }
+    return NFSFileVec.make(f);
+  }
+
+  private static Frame parse(byte[] bs, String suffix, int chunkSize) throws IOException {
+    Key[] keys = {file(bs, suffix)._key};
+    ParseSetup ps = ParseSetup.guessSetup(keys, false, ParseSetup.HAS_HEADER);
+    ps._chunk_size = chunkSize;
+    ps._column_types[0] = water.fvec.Vec.T_NUM;
+    return ParseDataset.parse(Key.make(), keys, true, ps);
+  }
+
+  @Test public void testGzipAndBgzf() throws IOException {
+    byte[] csv = csv(100000);
+    Frame plain = null, gz = null, multi = null, bgz = null, bgzSmall = null;
+    try {
+      plain = parse(csv, ".csv", CHUNK_SIZE);
+      assertEquals(100000, plain.numRows());
+      gz = parse(gzip(csv, 0, csv.length), ".csv.gz", CHUNK_SIZE);
+      assertTrue(isBitIdentical(plain, gz));
+      // Two gzip members, split in the middle of a line
+      byte[] m1 = gzip(csv, 0, csv.length / 3), m2 = gzip(csv, csv.length / 3, csv.length);
+      byte[] mm = new byte[m1.length + m2.length];
+      System.arraycopy(m1, 0, mm, 0, m1.length);
+      System.arraycopy(m2, 0, mm, m1.length, m2.length);
+      multi = parse(mm, ".csv.gz", CHUNK_SIZE);
+      assertTrue(isBitIdentical(plain, multi));
+      byte[] bz = bgzf(csv);
+      assertTrue(ZipUtil.isBgzf(bz));
+      assertTrue(bz.length > 4 * CHUNK_SIZE);  // Gets split over several Chunks
+      bgz = parse(bz, ".csv.gz", CHUNK_SIZE);
+      assertTrue(isBitIdentical(plain, bgz));
+      // Chunks smaller than a BGZF member: falls back to stream decompression
+      bgzSmall = parse(bz, ".csv.gz", 1 << 14);
+      assertTrue(isBitIdentical(plain, bgzSmall));
+    } finally {
+      if (plain != null) plain.delete();
+      if (gz != null) gz.delete();
+      if (multi != null) multi.delete();
+      if (bgz != null) bgz.delete();
+      if (bgzSmall != null) bgzSmall.delete();
+    }
+  }
+
+  // Gzip'd files which would not fit in the budget uncompressed are left as they are
+  @Test public void testMemoryBudget() throws IOException {
+    byte[] csv = csv(10000), z = gzip(csv, 0, csv.length);
+    final Key[] keys = {file(z, ".csv.gz")._key, file(z, ".csv.gz")._key};
+    final Vec.VectorGroup vg = ParseDataset.getByteVec(keys[0]).group();
+    final long ulen = z.length * ParallelGunzip.EXPECTED_RATIO;
+    final ParallelGunzip[] res = new ParallelGunzip[1];
+    try {
+      assertNull(ParallelGunzip.inflate(vg, null, keys, CHUNK_SIZE, false, ulen - 1));
+      final Job<Frame> job = new Job<>(Key.<Frame>make(), Frame.class.getName(), "gunzip");
+      job.start(new H2O.H2OCountedCompleter() {
+        @Override public void compute2() {
+          res[0] = ParallelGunzip.inflate(vg, job, keys, CHUNK_SIZE, false, 2 * ulen - 1);
+          tryComplete();
+        }
+      }, 1).get();
+      assertNotNull(res[0]._ukeys[0]);
+      assertNull(res[0]._ukeys[1]);
+      assertEquals(csv.length, ((Vec) DKV.getGet(res[0]._ukeys[0])).length());
+    } finally {
+      Futures fs = new Futures();
+      if (res[0] != null) res[0].remove(fs);
+      for (Key k : keys) Keyed.remove(k, fs);
+      fs.blockForPending();
+    }
+  }
+
+  @Test public void testBgzfBlockSize() throws IOException {
+    byte[] bz = bgzf(csv(10));
+    assertEquals(bz.length - 28, ZipUtil.bgzfBlockSize(bz, 0));
+    assertEquals(28, ZipUtil.bgzfBlockSize(bz, bz.length - 28));  // The empty end-of-file member
+    assertEquals(-1, ZipUtil.bgzfBlockSize(bz, 1));
+    assertFalse(ZipUtil.isBgzf(gzip(csv(10), 0, 10)));
+  }
+}
@@ -0,0 +1,88 @@
+package water.persist;
+
+import org.junit.*;
+import org.junit.rules.TemporaryFolder;
+import water.Key;
+import water.TestUtil;
+import water.TypeMap;
+import water.Value;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Random;
+
+public class SpillSegmentsTest extends TestUtil {
+  @BeforeClass() public static void setup() { stall_till_cloudsize(1); }
+
+  @Rule public TemporaryFolder tmp = new TemporaryFolder();
+
+  private static Value makeValue(int len, long seed) {
+    byte[] b = new byte[len];
+    new Random(seed).nextBytes(b);
+    return new Value(Key.make(), len, b, TypeMap.PRIM_B, Value.ICE);
+  }
+
+  @Test public void testStoreLoadDelete() throws Exception {
+    SpillSegments segs = new SpillSegments(new File(tmp.getRoot(), "spill"), 1<<12);
+    Value[] vals = new Value[10];
+    for( int i=0; i<vals.length; i++ ) {
+      vals[i] = makeValue(1000+i, i);
+      Assert.assertTrue(segs.store(vals[i]));
+    }
+    // 10 values of ~1000 bytes, 4 per 4K segment
+    Assert.assertEquals(3, segs.numSegments());
+    for( Value v : vals )
+      Assert.assertTrue(Arrays.equals(v.memOrLoad(), segs.load(v)));
+
+    // Too big for a segment: caller must fall back to the per-file path
+    Value big = makeValue(1<<13, 42);
+    Assert.assertFalse(segs.store(big));
+    Assert.assertNull(segs.load(big));
+    Assert.assertFalse(segs.delete(big));
+
+    for( Value v : vals ) Assert.assertTrue(segs.delete(v));
+    Assert.assertEquals(0, segs.liveBytes());
+    Assert.assertNull(segs.load(vals[0]));
+
+    // Freed segments are recycled rather than new ones created
+    for( Value v : vals ) Assert.assertTrue(segs.store(v));
+    Assert.assertEquals(3, segs.numSegments());
+    for( Value v : vals )
+      Assert.assertTrue(Arrays.equals(v.memOrLoad(), segs.load(v)));
+  }
+
+  @Test public void testCompactAndClose() throws Exception {
+    File dir = new File(tmp.getRoot(), "spill");
+    SpillSegments segs = new SpillSegments(dir, 1<<12);
+    Value[] vals = new Value[12];
+    for( int i=0; i<vals.length; i++ ) {
+      vals[i] = makeValue(1000, i);
+      Assert.assertTrue(segs.store(vals[i]));
+    }
+    Assert.assertEquals(3, segs.numSegments());
+    // One long-lived Value left at the end of each of the first 2 segments
+    for( int i : new int[]{0, 1, 2, 4, 5, 6} ) Assert.assertTrue(segs.delete(vals[i]));
+
+    // Mostly dead segments are compacted and reused, rather than new ones created
+    Value[] more = new Value[5];
+    for( int i=0; i<more.length; i++ ) {
+      more[i] = makeValue(1000, 100+i);
+      Assert.assertTrue(segs.store(more[i]));
+    }
+    Assert.assertEquals(3, segs.numSegments());
+    Assert.assertEquals(11*1000, segs.liveBytes());
+    for( Value v : new Value[]{vals[3], vals[7], vals[8], vals[11]} )
+      Assert.assertTrue(Arrays.equals(v.memOrLoad(), segs.load(v)));
+    for( Value v : more )
+      Assert.assertTrue(Arrays.equals(v.memOrLoad(), segs.load(v)));
+
+    segs.close();
+    Assert.assertEquals(0, segs.numSegments());
+    Assert.assertNull(segs.load(vals[3]));
+    String[] left = dir.list();
+    Assert.assertTrue(left == null || left.length == 0);
+    // Still usable afterwards
+    Assert.assertTrue(segs.store(vals[0]));
+    Assert.assertTrue(Arrays.equals(vals[0].memOrLoad(), segs.load(vals[0])));
+  }
+}
@@ -0,0 +1,126 @@
+package water.rapids;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import water.Scope;
+import water.TestUtil;
+import water.fvec.Frame;
+import water.fvec.TestFrameBuilder;
+import water.fvec.Vec;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class FusionTest extends TestUtil {
+  @BeforeClass public static void setup() { stall_till_cloudsize(1); }
+
+  private static Frame frame(int nrows) {
+    Random r = new Random(0xF05E);
+    double[] x = new double[nrows], y = new double[nrows], z = new double[nrows];
+    String[] c = new String[nrows], s = new String[nrows];
+    long[] t = new long[nrows];
+    for (int i = 0; i < nrows; i++) {
+      x[i] = r.nextInt(20) == 0 ? Double.NaN : r.nextGaussian() * 10;
+      y[i] = r.nextInt(20) == 0 ? Double.NaN : r.nextInt(30) - 5;
+      z[i] = r.nextInt(4) == 0 ? 0 : r.nextInt(20) == 0 ? Double.NaN : r.nextDouble();
+      c[i] = "l" + r.nextInt(3);
+      s[i] = "s" + i;
+      t[i] = 1480000000000L + i * 1000L;
+    }
+    return new TestFrameBuilder()
+        .withName("fusion")
+        .withColNames("x", "y", "z", "c", "s", "t")
+        .withVecTypes(Vec.T_NUM, Vec.T_NUM, Vec.T_NUM, Vec.T_CAT, Vec.T_STR, Vec.T_TIME)
+        .withDataForCol(0, x).withDataForCol(1, y).withDataForCol(2, z)
+        .withDataForCol(3, c).withDataForCol(4, s).withDataForCol(5, t)
+        .withChunkLayout(nrows / 4, nrows / 4, nrows / 4, nrows - 3 * (nrows / 4))
+        .build();
+  }
+
+  private static Val exec(String rapids, boolean fused) {
+    String prev = System.getProperty(Fusion.FUSION_PROP);
+    System.setProperty(Fusion.FUSION_PROP, Boolean.toString(fused));
+    try {
+      return Rapids.exec(rapids);
+    } finally {
+      if (prev == null) System.clearProperty(Fusion.FUSION_PROP);
+      else System.setProperty(Fusion.FUSION_PROP, prev);
+    }
+  }
+
+  private static void assertSameAsStepwise(String rapids) {
+    Val expected = exec(rapids, false);
+    Val actual = exec(rapids, true);
+    assertEquals(rapids, expected.type(), actual.type());
+    if (expected.isFrame()) {
+      Frame e = Scope.track(expected.getFrame()), a = Scope.track(actual.getFrame());
+      assertArrayEquals(rapids, e.names(), a.names());
+      assertTrue(rapids, isBitIdentical(e, a));
+    } else if (expected.isNum()) {
+      assertEquals(rapids, expected.getNum(), actual.getNum(), 0);
+    }
+  }
+
+  @Test public void testSameAsStepwise() {
+    Scope.enter();
+    try {
+      frame(10000);
+      String x = "(cols_py fusion 0)", y = "(cols_py fusion 1)", z = "(cols_py fusion 2)", xyz = "(cols_py fusion [0 1 2])";
+      String[] exprs = {
+          "(ifelse (> (+ " + x + " " + y + ") 10) (log " + x + ") (sqrt " + y + "))",
+          "(* (+ " + xyz + " 1) " + y + ")",        // 1-column Frames are widened
+          "(- " + y + " (abs " + xyz + "))",
+          "(== (* " + x + " 2) 4)",                  // names differ from (* x 2)
+          "(!= 4 (* " + y + " 2))",
+          "(+ (* 2 3) (- " + x + " 1))",             // scalar subtrees
+          "(ifelse " + z + " (+ " + x + " 1) (- 0 " + y + "))",
+          "(ifelse (> " + xyz + " 0) " + xyz + " (* -1 " + xyz + "))",
+          "(& (> " + x + " 0) (< " + y + " 5))",
+          "(round (* " + x + " 3) 1)",
+          "(sqrt (sqrt (sqrt " + z + ")))",
+          "(+ (- " + x + " (mean " + x + " 1 0)) 1)",  // reductions are leaves
+          // Not fused: categorical, time, scalar test
+          "(+ (cols_py fusion 3) (* 1 " + x + "))",
+          "(- (cols_py fusion 5) (* 2 " + x + "))",
+          "(ifelse (> 3 2) (+ " + x + " 1) (- " + x + " 1))",
+          "(* (+ 1 2) (- 5 3))",
+      };
+      for (String expr : exprs)
+        assertSameAsStepwise(expr);
+    } finally {
+      Scope.exit();
+    }
+  }
+
+  @Test public void testSideEffectsKeepOrder() {
+    Scope.enter();
+    try {
+      frame(1000);
+      // The assignment in the first leaf is executed once, before the second leaf reads it
+      String rapids = "(+ (+ (tmp= fusion_tmp (* (cols_py fusion 0) 2)) 1) (- fusion_tmp 1))";
+      Frame expected = Scope.track(exec(rapids, false).getFrame());
+      Rapids.exec("(rm fusion_tmp)");
+      Frame actual = Scope.track(exec(rapids, true).getFrame());
+      Rapids.exec("(rm fusion_tmp)");
+      assertTrue(isBitIdentical(expected, actual));
+    } finally {
+      Scope.exit();
+    }
+  }
+
+  @Test public void testSameErrors() {
+    Scope.enter();
+    try {
+      frame(1000);
+      String rapids = "(ifelse (> (+ (cols_py fusion 0) 1) 0) (* (cols_py fusion [0 1]) 2) 1)";
+      String expected = null, actual = null;
+      try { exec(rapids, false); } catch (IllegalArgumentException e) { expected = e.getMessage(); }
+      try { exec(rapids, true); } catch (IllegalArgumentException e) { actual = e.getMessage(); }
+      assertNotNull(expected);
+      assertEquals(expected, actual);
+    } finally {
+      Scope.exit();
+    }
+  }
+}
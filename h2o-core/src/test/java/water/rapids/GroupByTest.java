@@ -8,8 +8,15 @@ import water.Key;
 import water.Keyed;
 import water.TestUtil;
 import water.fvec.Frame;
+import water.fvec.TestFrameBuilder;
+import water.fvec.Vec;
+import water.rapids.ast.prims.mungers.AstGroup;
 import water.rapids.vals.ValFrame;
 
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Random;
+
 public class GroupByTest extends TestUtil {
   @BeforeClass public static void setup() { stall_till_cloudsize(5); }
 
@@ -234,6 +241,76 @@ public class GroupByTest extends TestUtil {
   }    
 
 
+  // GB against the per-group reductions of AstGroup.doGroups, for single, packed
+  // (integer) and unpacked (double) multi-column keys, and no keys at all
+  @Test public void testSameAsGroups() {
+    Frame fr = null;
+    try {
+      int nrows = 20000;
+      Random r = new Random(0x6B);
+      double[] ids = new double[nrows], ds = new double[nrows], xs = new double[nrows];
+      String[] cats = new String[nrows], modes = new String[nrows];
+      for (int i = 0; i < nrows; i++) {
+        ids[i] = r.nextInt(50) == 0 ? Double.NaN : r.nextInt(5000) - 1000;
+        ds[i] = r.nextInt(20) == 0 ? Double.NaN : (r.nextInt(7) - 3) * 0.25;
+        xs[i] = r.nextInt(10) == 0 ? Double.NaN : r.nextGaussian();
+        cats[i] = r.nextInt(30) == 0 ? null : "c" + r.nextInt(4);
+        modes[i] = "m" + r.nextInt(5);
+      }
+      fr = new TestFrameBuilder()
+          .withName("gb")
+          .withColNames("id", "d", "cat", "x", "m")
+          .withVecTypes(Vec.T_NUM, Vec.T_NUM, Vec.T_CAT, Vec.T_NUM, Vec.T_CAT)
+          .withDataForCol(0, ids).withDataForCol(1, ds).withDataForCol(2, cats)
+          .withDataForCol(3, xs).withDataForCol(4, modes)
+          .withChunkLayout(5000, 3000, 7000, 5000)
+          .build();
+      String aggs = "nrow 0 \"all\" mean 3 \"all\" mean 3 \"rm\" mean 3 \"ignore\" sum 3 \"rm\" " +
+          "\"sumSquares\" 3 \"rm\" var 3 \"rm\" \"sdev\" 3 \"ignore\" min 3 \"rm\" max 3 \"rm\" mode 4 \"all\"";
+      for (String gb : new String[]{"[0]", "[1]", "[0 2]", "[2 0 1]", "[1 0]", "[]"})
+        chkSameAsGroups(fr, gb, aggs);
+    } finally {
+      if( fr != null ) fr.delete();
+    }
+  }
+
+  private void chkSameAsGroups(Frame fr, String gb, String aggs) {
+    Frame res = Rapids.exec("(GB gb " + gb + " " + aggs + ")").getFrame();
+    try {
+      final int[] gbCols = AstGroup.check(fr.numCols(), Rapids.parse(gb)).expand4();
+      String[] toks = aggs.split(" ");
+      AstGroup.AGG[] agg = new AstGroup.AGG[toks.length / 3];
+      AstGroup.FCN[] fcns = new AstGroup.FCN[agg.length];
+      for (int i = 0; i < agg.length; i++) {
+        int col = Integer.parseInt(toks[3 * i + 1]);
+        fcns[i] = AstGroup.FCN.valueOf(toks[3 * i].replace("\"", ""));
+        agg[i] = new AstGroup.AGG(fcns[i], col,
+            AstGroup.NAHandling.valueOf(toks[3 * i + 2].replace("\"", "").toUpperCase()), (int) fr.vec(col).max() + 1);
+      }
+      AstGroup.G[] grps = AstGroup.doGroups(fr, gbCols, agg).keySet().toArray(new AstGroup.G[0]);
+      Arrays.sort(grps, new Comparator<AstGroup.G>() {
+        @Override public int compare(AstGroup.G g1, AstGroup.G g2) {
+          for (int i = 0; i < gbCols.length; i++) {
+            int c = Double.compare(g1._gs[i], g2._gs[i]); // NaN first, as in GB
+            if (c != 0) return Double.isNaN(g1._gs[i]) ? -1 : Double.isNaN(g2._gs[i]) ? 1 : c;
+          }
+          return 0;
+        }
+      });
+      chkDim(res, gbCols.length + agg.length, grps.length);
+      for (int row = 0; row < grps.length; row++) {
+        for (int c = 0; c < gbCols.length; c++)
+          Assert.assertEquals(gb, grps[row]._gs[c], res.vec(c).at(row), 0);
+        for (int a = 0; a < agg.length; a++) {
+          double exp = fcns[a].postPass(grps[row]._dss[a], grps[row]._ns[a]);
+          Assert.assertEquals(gb + " " + fcns[a], exp, res.vec(gbCols.length + a).at(row), 1e-9 * Math.max(1, Math.abs(exp)));
+        }
+      }
+    } finally {
+      res.delete();
+    }
+  }
+
   private void chkDim( Frame fr, int col, int row ) {
     Assert.assertEquals(col,fr.numCols());
     Assert.assertEquals(row,fr.numRows());
@@ -0,0 +1,33 @@
+package water.util;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class HyperLogLogTest {
+
+  @Test public void testEstimate() {
+    for (int n : new int[]{0, 1, 10, 1000, 100000, 2000000}) {
+      HyperLogLog hll = new HyperLogLog();
+      for (int rep = 0; rep < 3; rep++)   // Duplicates do not count
+        for (int i = 0; i < n; i++) hll.add((double) i);
+      Assert.assertEquals("n=" + n, n, hll.estimate(), Math.max(1, n * 0.05));
+    }
+  }
+
+  @Test public void testMerge() {
+    HyperLogLog a = new HyperLogLog(), b = new HyperLogLog();
+    for (int i = 0; i < 60000; i++) a.add(i * 0.5);
+    for (int i = 30000; i < 90000; i++) b.add(i * 0.5);
+    HyperLogLog c = a.copy().merge(b);
+    Assert.assertEquals(60000, a.estimate(), 3000);
+    Assert.assertEquals(90000, c.estimate(), 4500);
+  }
+
+  @Test public void testSpecialValues() {
+    HyperLogLog hll = new HyperLogLog();
+    hll.add(0.0);
+    hll.add(-0.0);
+    hll.add(Double.NaN);
+    Assert.assertEquals(1, hll.estimate());
+  }
+}
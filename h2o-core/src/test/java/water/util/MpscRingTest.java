@@ -0,0 +1,60 @@
+package water.util;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class MpscRingTest {
+
+  @Test public void testFifoAndFull() {
+    MpscRing<Integer> ring = new MpscRing<>(5);
+    Assert.assertEquals(8, ring.capacity());
+    Assert.assertTrue(ring.isEmpty());
+    Assert.assertNull(ring.poll());
+    for (int lap = 0; lap < 3; lap++) {
+      for (int i = 0; i < 8; i++) Assert.assertTrue(ring.offer(lap * 8 + i));
+      Assert.assertFalse(ring.offer(-1));
+      Assert.assertEquals(8, ring.size());
+      for (int i = 0; i < 8; i++) Assert.assertEquals(lap * 8 + i, (int) ring.poll());
+      Assert.assertNull(ring.poll());
+      Assert.assertTrue(ring.isEmpty());
+    }
+  }
+
+  @Test public void testTimeStamps() {
+    MpscRing<String> ring = new MpscRing<>(4);
+    long before = System.nanoTime();
+    ring.offer("a");
+    long after = System.nanoTime();
+    Assert.assertEquals("a", ring.poll());
+    Assert.assertTrue(ring.polledNanos() >= before && ring.polledNanos() <= after);
+  }
+
+  // Several producers against one consumer: nothing is lost or duplicated,
+  // and each producer's elements come out in the order it put them in.
+  @Test public void testConcurrentProducers() throws InterruptedException {
+    final int producers = 4, n = 200000;
+    final MpscRing<Long> ring = new MpscRing<>(64);  // Small, so producers often find it full
+    Thread[] ts = new Thread[producers];
+    for (int p = 0; p < producers; p++) {
+      final long id = p;
+      ts[p] = new Thread() {
+        @Override public void run() {
+          for (long i = 0; i < n; i++)
+            while (!ring.offer((id << 32) | i)) Thread.yield();
+        }
+      };
+      ts[p].start();
+    }
+    long[] next = new long[producers];
+    for (long taken = 0; taken < (long) producers * n; ) {
+      Long e = ring.poll();
+      if (e == null) { Thread.yield(); continue; }
+      int p = (int) (e >>> 32);
+      Assert.assertEquals(next[p]++, e & 0xFFFFFFFFL);
+      taken++;
+    }
+    for (Thread t : ts) t.join();
+    Assert.assertNull(ring.poll());
+    for (long x : next) Assert.assertEquals(n, x);
+  }
+}
@@ -0,0 +1,87 @@
+package water.util;
+
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import water.AutoBuffer;
+import water.TestUtil;
+
+import java.util.Arrays;
+import java.util.Random;
+
+public class QuantileSketchTest extends TestUtil {
+  @BeforeClass() public static void setup() { stall_till_cloudsize(1); }
+
+  // Rank of d in sorted data, as a fraction of the count
+  private static double rank(double[] sorted, double d) {
+    int lo = Arrays.binarySearch(sorted, d);
+    if (lo < 0) lo = -lo - 1;
+    return (double) lo / sorted.length;
+  }
+
+  private static void checkRanks(QuantileSketch qs, double[] sorted, double eps) {
+    double[] probs = new double[]{0.001, 0.01, 0.1, 0.25, 0.5, 0.75, 0.9, 0.99, 0.999};
+    double[] qq = qs.quantiles(probs);
+    for (int i = 0; i < probs.length; i++)
+      Assert.assertEquals("quantile " + probs[i], probs[i], rank(sorted, qq[i]), eps);
+    Assert.assertEquals(sorted[0], qs.quantile(0), 0);
+    Assert.assertEquals(sorted[sorted.length - 1], qs.quantile(1), 0);
+  }
+
+  @Test public void testAccuracy() {
+    Random r = new Random(0xCAFE);
+    int n = 1000000;
+    double[] ds = new double[n];
+    QuantileSketch qs = new QuantileSketch();
+    for (int i = 0; i < n; i++) qs.add(ds[i] = r.nextGaussian());
+    qs.add(Double.NaN);         // Ignored
+    Assert.assertEquals(n, qs.count());
+    Arrays.sort(ds);
+    checkRanks(qs, ds, 0.02);
+  }
+
+  // Sketches of the parts, merged in any order, are as good as one sketch
+  @Test public void testMerge() {
+    Random r = new Random(0xBEEF);
+    int n = 300000, parts = 37;
+    double[] ds = new double[n];
+    QuantileSketch[] qss = new QuantileSketch[parts];
+    for (int p = 0; p < parts; p++) qss[p] = new QuantileSketch();
+    for (int i = 0; i < n; i++) qss[r.nextInt(parts)].add(ds[i] = r.nextDouble() * r.nextDouble());
+    // Tree-shaped reduce, as an MRTask would do
+    for (int stride = 1; stride < parts; stride <<= 1)
+      for (int p = 0; p + stride < parts; p += stride << 1)
+        qss[p].merge(qss[p + stride]);
+    Assert.assertEquals(n, qss[0].count());
+    Arrays.sort(ds);
+    checkRanks(qss[0], ds, 0.02);
+  }
+
+  @Test public void testWeightedAdd() {
+    QuantileSketch qs = new QuantileSketch();
+    qs.add(1, 1000000);
+    qs.add(2, 3000000);
+    qs.add(3);
+    Assert.assertEquals(4000001, qs.count());
+    Assert.assertEquals(1, qs.quantile(0.2), 0);
+    Assert.assertEquals(2, qs.quantile(0.3), 0);
+    Assert.assertEquals(2, qs.quantile(0.99), 0);
+    Assert.assertEquals(3, qs.quantile(1), 0);
+  }
+
+  @Test public void testEmptyAndCopy() {
+    QuantileSketch qs = new QuantileSketch();
+    Assert.assertTrue(Double.isNaN(qs.quantile(0.5)));
+    for (int i = 0; i < 10000; i++) qs.add(i);
+    QuantileSketch copy = qs.copy();
+    for (int i = 0; i < 10000; i++) qs.add(20000 + i);
+    Assert.assertEquals(10000, copy.count());
+    Assert.assertEquals(5000, copy.quantile(0.5), 200);
+    // Trimmed & serialized sketch still works
+    copy.trim();
+    QuantileSketch read = new AutoBuffer().put(copy).flipForReading().get();
+    Assert.assertArrayEquals(copy.quantiles(new double[]{0.1, 0.5, 0.9}), read.quantiles(new double[]{0.1, 0.5, 0.9}), 0);
+    read.add(-1);
+    Assert.assertEquals(-1, read.quantile(0), 0);
+  }
+}
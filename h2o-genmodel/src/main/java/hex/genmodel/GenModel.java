@@ -271,8 +271,6 @@ public abstract class GenModel implements IGenModel, IGeneratedModel, Serializab
     if (preds.length == 3) {
       return (preds[2] >= threshold) ? 1 : 0; //no tie-breaking
     }
-    List<Integer> ties = new ArrayList<>();
-    ties.add(0);
     int best=1, tieCnt=0;   // Best class; count of ties
     for( int c=2; c<preds.length; c++) {
       if( preds[best] < preds[c] ) {
@@ -280,11 +278,18 @@ public abstract class GenModel implements IGenModel, IGeneratedModel, Serializab
         tieCnt=0;               // No ties
       } else if (preds[best] == preds[c]) {
         tieCnt++;               // Ties
-        ties.add(c-1);
       }
     }
     if( tieCnt==0 ) return best-1; // Return zero-based best class
 
+    // Ties are rare: only collect them now, so that the common case allocates nothing
+    List<Integer> ties = new ArrayList<>();
+    ties.add(0);
+    for( int c=2, b=1; c<preds.length; c++) {
+      if( preds[b] < preds[c] ) b = c;
+      else if (preds[b] == preds[c]) ties.add(c-1);
+    }
+
     long hash = 0;              // hash for tie-breaking
     if( data != null )
       for( double d : data ) hash ^= Double.doubleToRawLongBits(d) >> 6; // drop 6 least significants bits of mantissa (layout of long is: 1b sign, 11b exp, 52b mantisa)
@@ -0,0 +1,228 @@
+package hex.genmodel.algos.tree;
+
+import hex.genmodel.utils.ByteBufferWrapper;
+
+import java.util.Arrays;
+
+/**
+ * A compressed tree (mojo version 1.2 format, see {@link SharedTreeMojoModel#scoreTree}) compiled into flat arrays,
+ * one entry per split node.  The byte format has to be decoded node by node on every walk; here all of that
+ * decoding is done once, at load time, and scoring a row is a tight loop over a few primitive arrays.
+ *
+ * Children are indexes into the same arrays; leaves are stored as {@code ~leafIndex} (always negative) into the
+ * leaf values.  Categorical splits keep referring to the bitset bytes inside the original compressed tree.
+ *
+ * Scoring gives exactly the same result as {@link SharedTreeMojoModel#scoreTree}, including its handling of NAs,
+ * unseen categorical levels, and of NA-vs-REST splits on categorical columns (which range-check the value against
+ * the last bitset seen on the path, since the byte walker keeps reusing the same bitset object).
+ */
+public final class FlatTree {
+    private static final int NA_LEFT = 1;     // NAs (and out-of-range levels) go left
+    private static final int NA_VS_REST = 2;  // Any non-NA value goes left
+    private static final int BITSET = 4;      // Categorical split: value in the bitset goes right
+
+    private final int[] _col;       // Column to split on
+    private final float[] _split;   // Numeric split: values >= split go right
+    private final byte[] _flags;    // NA_LEFT | NA_VS_REST | BITSET
+    private final int[] _domLen;    // Domain length of the column, values past it are NA; -1 for no domain
+    private final int[] _bs;        // Bitset to range-check the value against; -1 for none
+    private final int[] _left, _right;
+    private final float[] _leaves;
+    private final int _root;        // 0, or ~0 if the whole tree is a single leaf
+
+    // Bitsets, as offsets into the compressed tree
+    private final byte[] _bits;
+    private final int[] _bsByteOff, _bsBitOff, _bsNBits;
+
+    private FlatTree(Compiler c, int root) {
+        int n = c._nodes, nbs = c._nbs;
+        _col = Arrays.copyOf(c._col, n);
+        _split = Arrays.copyOf(c._split, n);
+        _flags = Arrays.copyOf(c._flags, n);
+        _domLen = Arrays.copyOf(c._domLen, n);
+        _bs = Arrays.copyOf(c._bs, n);
+        _left = Arrays.copyOf(c._left, n);
+        _right = Arrays.copyOf(c._right, n);
+        _leaves = Arrays.copyOf(c._leaves, c._nleaves);
+        _root = root;
+        _bits = c._tree;
+        _bsByteOff = Arrays.copyOf(c._bsByteOff, nbs);
+        _bsBitOff = Arrays.copyOf(c._bsBitOff, nbs);
+        _bsNBits = Arrays.copyOf(c._bsNBits, nbs);
+    }
+
+    /**
+     * Compile a compressed tree in the current (1.2) mojo format.
+     * @param tree compressed tree, as scored by {@link SharedTreeMojoModel#scoreTree}
+     * @param nclasses number of classes of the model
+     * @param domains domains of the model's columns, may be null
+     */
+    public static FlatTree compile(byte[] tree, int nclasses, String[][] domains) {
+        Compiler c = new Compiler(tree, nclasses, domains);
+        return new FlatTree(c, c.node(0, -1));
+    }
+
+    /** Number of split nodes */
+    public int nodes() { return _col.length; }
+
+    /** This tree's prediction for the row */
+    public double score(double[] row) {
+        int n = _root;
+        while (n >= 0) {
+            double d = row[_col[n]];
+            int flags = _flags[n];
+            int bs = _bs[n];
+            int dl = _domLen[n];
+            boolean right;
+            if (Double.isNaN(d) || (bs >= 0 && !inRange(bs, (int) d)) || (dl >= 0 && dl <= (int) d))
+                right = (flags & NA_LEFT) == 0;
+            else if ((flags & NA_VS_REST) != 0)
+                right = false;
+            else if ((flags & BITSET) != 0)
+                right = contains(bs, (int) d);
+            else
+                right = d >= _split[n];
+            n = right ? _right[n] : _left[n];
+        }
+        return _leaves[~n];
+    }
+
+    private boolean inRange(int bs, int b) {
+        b -= _bsBitOff[bs];
+        return b >= 0 && b < _bsNBits[bs];
+    }
+
+    private boolean contains(int bs, int idx) {
+        idx -= _bsBitOff[bs];
+        return (_bits[_bsByteOff[bs] + (idx >> 3)] & (1 << (idx & 7))) != 0;
+    }
+
+    /**
+     * Walks the compressed tree once, the same way {@link SharedTreeMojoModel#scoreTree} does, appending nodes to
+     * growable arrays.  Nodes are numbered in pre-order, so the root is node 0.
+     */
+    private static final class Compiler {
+        final byte[] _tree;
+        final int _nclasses;
+        final String[][] _domains;
+        int _nodes, _nleaves, _nbs;
+        int[] _col = new int[16];
+        float[] _split = new float[16];
+        byte[] _flags = new byte[16];
+        int[] _domLen = new int[16];
+        int[] _bs = new int[16];
+        int[] _left = new int[16], _right = new int[16];
+        float[] _leaves = new float[16];
+        int[] _bsByteOff = new int[4], _bsBitOff = new int[4], _bsNBits = new int[4];
+
+        Compiler(byte[] tree, int nclasses, String[][] domains) {
+            _tree = tree;
+            _nclasses = nclasses;
+            _domains = domains;
+        }
+
+        private ByteBufferWrapper at(int pos) {
+            ByteBufferWrapper ab = new ByteBufferWrapper(_tree);
+            ab.skip(pos);
+            return ab;
+        }
+
+        private int leaf(float value) {
+            if (_nleaves == _leaves.length) _leaves = Arrays.copyOf(_leaves, _nleaves << 1);
+            _leaves[_nleaves] = value;
+            return ~_nleaves++;
+        }
+
+        private int bitset(int byteoff, int bitoff, int nbits) {
+            if (_nbs == _bsByteOff.length) {
+                _bsByteOff = Arrays.copyOf(_bsByteOff, _nbs << 1);
+                _bsBitOff = Arrays.copyOf(_bsBitOff, _nbs << 1);
+                _bsNBits = Arrays.copyOf(_bsNBits, _nbs << 1);
+            }
+            _bsByteOff[_nbs] = byteoff;
+            _bsBitOff[_nbs] = bitoff;
+            _bsNBits[_nbs] = nbits;
+            return _nbs++;
+        }
+
+        private int newNode() {
+            if (_nodes == _col.length) {
+                int len = _nodes << 1;
+                _col = Arrays.copyOf(_col, len);
+                _split = Arrays.copyOf(_split, len);
+                _flags = Arrays.copyOf(_flags, len);
+                _domLen = Arrays.copyOf(_domLen, len);
+                _bs = Arrays.copyOf(_bs, len);
+                _left = Arrays.copyOf(_left, len);
+                _right = Arrays.copyOf(_right, len);
+            }
+            return _nodes++;
+        }
+
+        /**
+         * Compile the subtree starting at byte {@code pos}.
+         * @param lastBs the last bitset filled on the way down from the root, -1 if none
+         * @return the subtree's node index, or its {@code ~leafIndex} if it is a single leaf
+         */
+        int node(int pos, int lastBs) {
+            ByteBufferWrapper ab = at(pos);
+            int nodeType = ab.get1U();
+            int colId = ab.get2();
+            if (colId == 65535) return leaf(ab.get4f());
+            int naSplitDir = ab.get1U();
+            boolean naVsRest = naSplitDir == NaSplitDir.NAvsREST.value();
+            boolean leftward = naSplitDir == NaSplitDir.NALeft.value() || naSplitDir == NaSplitDir.Left.value();
+            int lmask = (nodeType & 51);
+            int equal = (nodeType & 12);  // Can be one of 0, 8, 12
+            assert equal != 4;  // no longer supported
+
+            int n = newNode();
+            int flags = (leftward ? NA_LEFT : 0) | (naVsRest ? NA_VS_REST : 0);
+            int bs = equal != 0 ? lastBs : -1;
+            float splitVal = -1;
+            if (!naVsRest) {
+                if (equal == 0) {
+                    splitVal = ab.get4f();
+                } else {
+                    if (equal == 8) {
+                        bs = bitset(ab.position(), 0, 32);
+                        ab.skip(4);
+                    } else {
+                        int bitoff = ab.get2();
+                        int nbits = ab.get4();
+                        bs = bitset(ab.position(), bitoff, nbits);
+                        ab.skip(((nbits - 1) >> 3) + 1);
+                    }
+                    flags |= BITSET;
+                    lastBs = bs;
+                }
+            }
+            _col[n] = colId;
+            _split[n] = splitVal;
+            _flags[n] = (byte) flags;
+            _domLen[n] = _domains != null && _domains[colId] != null ? _domains[colId].length : -1;
+            _bs[n] = bs;
+
+            // Locate both children, same as the skipping in scoreTree
+            int after = ab.position();
+            int leftPos = lmask <= 3 ? after + lmask + 1 : after;
+            int rightPos;
+            switch (lmask) {
+                case 0:  rightPos = leftPos + ab.get1U();  break;
+                case 1:  rightPos = leftPos + ab.get2();  break;
+                case 2:  rightPos = leftPos + ab.get3();  break;
+                case 3:  rightPos = leftPos + ab.get4();  break;
+                case 16: rightPos = after + (_nclasses < 256 ? 1 : 2);  break;  // Small leaf
+                case 48: rightPos = after + 4;  break;  // skip the prediction
+                default:
+                    throw new IllegalStateException("illegal lmask value " + lmask + " in tree " + Arrays.toString(_tree));
+            }
+            int rmask = (nodeType & 0xC0) >> 2;
+            int left = (lmask & 16) != 0 ? leaf(at(leftPos).get4f()) : node(leftPos, lastBs);
+            int right = (rmask & 16) != 0 ? leaf(at(rightPos).get4f()) : node(rightPos, lastBs);
+            _left[n] = left;
+            _right[n] = right;
+            return n;
+        }
+    }
+}
@@ -50,6 +50,15 @@ public abstract class SharedTreeMojoModel extends MojoModel {
      */
     protected double[] _calib_glm_beta;
 
+    /**
+     * The {@link #_compressed_trees} compiled into flat arrays, for faster scoring; same indexing. Only available
+     * for the current mojo version (null otherwise), see {@link #compileTrees()}.
+     */
+    protected FlatTree[] _flat_trees;
+
+    /** Rows scored per pass over the trees in {@link #score0(double[][], double[][])} */
+    private static final int SCORE_BLOCK = 256;
+
 
   /**
    * Highly efficient (critical path) tree scoring
@@ -434,6 +443,18 @@ public abstract class SharedTreeMojoModel extends MojoModel {
         super(columns, domains);
     }
 
+    /**
+     * Compile the trees of the current mojo version into {@link #_flat_trees}; called by the reader once all
+     * trees are loaded. Trees of older mojo versions keep being scored from their byte format.
+     */
+    protected void compileTrees() {
+        if (!_mojo_version.equals(1.2)) return;
+        _flat_trees = new FlatTree[_compressed_trees.length];
+        for (int i = 0; i < _compressed_trees.length; i++)
+            if (_compressed_trees[i] != null)
+                _flat_trees[i] = FlatTree.compile(_compressed_trees[i], _nclasses, _domains);
+    }
+
     /**
      * Score all trees and fill in the `preds` array.
      */
@@ -445,17 +466,62 @@ public abstract class SharedTreeMojoModel extends MojoModel {
                 int itree = treeIndex(j, i);
                 // Skip all empty trees
                 if (_compressed_trees[itree] == null) continue;
-                if (_mojo_version.equals(1.0)) { //First version
-                    preds[k] += scoreTree0(_compressed_trees[itree], row, _nclasses, false);
-                } else if (_mojo_version.equals(1.1)) { //Second version
-                    preds[k] += scoreTree1(_compressed_trees[itree], row, _nclasses, false);
-                } else if (_mojo_version.equals(1.2)) { //CURRENT VERSION
-                    preds[k] += scoreTree(_compressed_trees[itree], row, _nclasses, false, _domains);
+                preds[k] += scoreSingleTree(itree, row);
+            }
+        }
+    }
+
+    private double scoreSingleTree(int itree, double[] row) {
+        if (_flat_trees != null) {
+            return _flat_trees[itree].score(row);
+        } else if (_mojo_version.equals(1.0)) { //First version
+            return scoreTree0(_compressed_trees[itree], row, _nclasses, false);
+        } else if (_mojo_version.equals(1.1)) { //Second version
+            return scoreTree1(_compressed_trees[itree], row, _nclasses, false);
+        } else if (_mojo_version.equals(1.2)) { //CURRENT VERSION
+            return scoreTree(_compressed_trees[itree], row, _nclasses, false, _domains);
+        }
+        return 0;
+    }
+
+    /**
+     * Score a batch of rows. Same results as scoring the rows one by one with {@link #score0(double[], double[])},
+     * but the rows are scored tree by tree (in blocks of a few hundred rows), so that each tree stays in cache
+     * while it scores the whole block.
+     *
+     * @param rows input rows
+     * @param preds output predictions, one array per row, each sized as for {@link #score0(double[], double[])}
+     * @return preds
+     */
+    public double[][] score0(double[][] rows, double[][] preds) {
+        assert rows.length <= preds.length;
+        for (int from = 0; from < rows.length; from += SCORE_BLOCK) {
+            int to = Math.min(from + SCORE_BLOCK, rows.length);
+            for (int r = from; r < to; r++) java.util.Arrays.fill(preds[r], 0);
+            for (int i = 0; i < _ntrees_per_group; i++) {
+                int k = _nclasses == 1? 0 : i + 1;
+                for (int j = 0; j < _ntree_groups; j++) {
+                    int itree = treeIndex(j, i);
+                    if (_compressed_trees[itree] == null) continue;
+                    if (_flat_trees != null) {
+                        FlatTree tree = _flat_trees[itree];
+                        for (int r = from; r < to; r++) preds[r][k] += tree.score(rows[r]);
+                    } else {
+                        for (int r = from; r < to; r++) preds[r][k] += scoreSingleTree(itree, rows[r]);
+                    }
                 }
             }
+            for (int r = from; r < to; r++) unifyPreds(rows[r], 0.0, preds[r]);
         }
+        return preds;
     }
 
+    /**
+     * Turn the raw sums of the tree predictions (as computed by {@link #scoreAllTrees}) into the final
+     * predictions, in place.
+     */
+    protected abstract double[] unifyPreds(double[] row, double offset, double[] preds);
+
     protected int treeIndex(int groupIndex, int classIndex) {
         return classIndex * _ntree_groups + groupIndex;
     }
@@ -36,6 +36,7 @@ public abstract class SharedTreeMojoReader<M extends SharedTreeMojoModel> extend
           _model._compressed_trees_aux[_model.treeIndex(j, i)] = readblob(String.format("trees/t%02d_%03d_aux.bin", i, j));
         }
       }
+    _model.compileTrees();
 
     // Calibration
     String calibMethod = readkv("calib_method");
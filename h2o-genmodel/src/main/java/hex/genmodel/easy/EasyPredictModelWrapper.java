@@ -20,6 +20,7 @@ import java.io.InputStream;
 import java.net.URL;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicLong;
@@ -50,13 +51,19 @@ import java.util.concurrent.atomic.AtomicLong;
  *     getUnknownCategoricalLevelsSeenPerColumn()
  *
  * <p></p>
+ * For high-volume scoring, use a {@link PredictContext} per thread (see {@link #newPredictContext()}) instead of
+ * RowData: its row buffer, prediction arrays and prediction objects are reused from call to call, so that making
+ * a prediction allocates nothing once the context is warmed up.
+ *
+ * <p></p>
  * See the top-of-tree master version of this file <a href="https://github.com/h2oai/h2o-3/blob/master/h2o-genmodel/src/main/java/hex/genmodel/easy/EasyPredictModelWrapper.java" target="_blank">here on github</a>.
  */
 public class EasyPredictModelWrapper implements java.io.Serializable {
   // These private members are read-only after the constructor.
   private final GenModel m;
   private final HashMap<String, Integer> modelColumnNameToIndexMap;
-  private final HashMap<Integer, HashMap<String, Integer>> domainMap;
+  private final HashMap<String, Integer>[] domainMap;  // Per column: level name to level index; null if numeric
+  private final EnumSet<ModelCategory> modelCategories;
 
   private final boolean convertUnknownCategoricalLevelsToNa;
   private final boolean convertInvalidNumbersToNa;
@@ -142,7 +149,8 @@ public class EasyPredictModelWrapper implements java.io.Serializable {
 
     // Create map of input variable domain information.
     // This contains the categorical string to numeric mapping.
-    domainMap = new HashMap<>();
+    @SuppressWarnings("unchecked")
+    HashMap<String, Integer>[] domains = new HashMap[m.getNumCols()];
     for (int i = 0; i < m.getNumCols(); i++) {
       String[] domainValues = m.getDomainValues(i);
       if (domainValues != null) {
@@ -151,9 +159,11 @@ public class EasyPredictModelWrapper implements java.io.Serializable {
           m.put(domainValues[j], j);
         }
 
-        domainMap.put(i, m);
+        domains[i] = m;
       }
     }
+    domainMap = domains;
+    modelCategories = m.getModelCategories();
   }
 
   /**
@@ -301,16 +311,21 @@ public class EasyPredictModelWrapper implements java.io.Serializable {
    */
   public BinomialModelPrediction predictBinomial(RowData data) throws PredictException {
     double[] preds = preamble(ModelCategory.Binomial, data);
+    return fillBinomial(preds, new BinomialModelPrediction());
+  }
 
-    BinomialModelPrediction p = new BinomialModelPrediction();
+  // Fill in p from the raw predictions; p's arrays are allocated only if missing
+  private BinomialModelPrediction fillBinomial(double[] preds, BinomialModelPrediction p) {
     double d = preds[0];
     p.labelIndex = (int) d;
     String[] domainValues = m.getDomainValues(m.getResponseIdx());
     p.label = domainValues[p.labelIndex];
-    p.classProbabilities = new double[m.getNumResponseClasses()];
+    if (p.classProbabilities == null)
+      p.classProbabilities = new double[m.getNumResponseClasses()];
     System.arraycopy(preds, 1, p.classProbabilities, 0, p.classProbabilities.length);
     if (m.calibrateClassProbabilities(preds)) {
-      p.calibratedClassProbabilities = new double[m.getNumResponseClasses()];
+      if (p.calibratedClassProbabilities == null)
+        p.calibratedClassProbabilities = new double[m.getNumResponseClasses()];
       System.arraycopy(preds, 1, p.calibratedClassProbabilities, 0, p.calibratedClassProbabilities.length);
     }
     return p;
@@ -325,9 +340,13 @@ public class EasyPredictModelWrapper implements java.io.Serializable {
    */
   public MultinomialModelPrediction predictMultinomial(RowData data) throws PredictException {
     double[] preds = preamble(ModelCategory.Multinomial, data);
+    return fillMultinomial(preds, new MultinomialModelPrediction());
+  }
 
-    MultinomialModelPrediction p = new MultinomialModelPrediction();
-    p.classProbabilities = new double[m.getNumResponseClasses()];
+  // Fill in p from the raw predictions; p's array is allocated only if missing
+  private MultinomialModelPrediction fillMultinomial(double[] preds, MultinomialModelPrediction p) {
+    if (p.classProbabilities == null)
+      p.classProbabilities = new double[m.getNumResponseClasses()];
     p.labelIndex = (int) preds[0];
     String[] domainValues = m.getDomainValues(m.getResponseIdx());
     p.label = domainValues[p.labelIndex];
@@ -428,6 +447,152 @@ public class EasyPredictModelWrapper implements java.io.Serializable {
     return p;
   }
 
+  //----------------------------------------------------------------------
+  // Allocation-free predictions.
+  //----------------------------------------------------------------------
+
+  /**
+   * Create a new prediction context for this wrapper.  Contexts are cheap, but meant to be kept: create one per
+   * scoring thread and reuse it for every prediction made by that thread.
+   *
+   * @return A new context.
+   */
+  public PredictContext newPredictContext() {
+    return new PredictContext();
+  }
+
+  /**
+   * A reusable row and set of prediction results, confined to a single thread.
+   *
+   * Columns are set by index (resolve each column name once with {@link #columnIndex(String)}), categorical levels
+   * are looked up in tables built with the wrapper, and the prediction objects returned are owned by the context:
+   * they are overwritten by the next prediction of the same kind.  Once each kind of prediction has been made once,
+   * predictions allocate nothing (the model's own score0 aside; tree models and GLM do not allocate there).
+   *
+   * <pre>
+   *   EasyPredictModelWrapper.PredictContext ctx = model.newPredictContext();
+   *   int age = ctx.columnIndex("age"), sex = ctx.columnIndex("sex");
+   *   for (...) {
+   *     ctx.clear().set(age, 42).set(sex, "M");
+   *     BinomialModelPrediction p = ctx.predictBinomial();
+   *   }
+   * </pre>
+   *
+   * Unknown categorical levels and unparseable numbers are handled as configured for the wrapper.  Image and text
+   * inputs of Deep Water models are not supported, use {@link RowData} for these.
+   */
+  public final class PredictContext {
+    private final double[] row = new double[m.nfeatures()];
+    private double[] preds;
+    private BinomialModelPrediction binomial;
+    private MultinomialModelPrediction multinomial;
+    private RegressionModelPrediction regression;
+    private ClusteringModelPrediction clustering;
+
+    private PredictContext() {
+      clear();
+    }
+
+    /**
+     * @param columnName A model column name.
+     * @return The column's index, to be passed to the setters; -1 if the model does not use the column.
+     */
+    public int columnIndex(String columnName) {
+      Integer index = modelColumnNameToIndexMap.get(columnName);
+      return index == null || index >= row.length ? -1 : index;
+    }
+
+    /**
+     * Set all columns to NA.
+     * @return this context
+     */
+    public PredictContext clear() {
+      Arrays.fill(row, Double.NaN);
+      return this;
+    }
+
+    /**
+     * Set a numeric column, or a categorical column to a level index.  Negative indexes (unused columns) are ignored.
+     * @return this context
+     */
+    public PredictContext set(int index, double value) {
+      if (index >= 0) row[index] = value;
+      return this;
+    }
+
+    /**
+     * Set a categorical column to a level name, or a numeric column to a number to be parsed.  Negative indexes
+     * (unused columns) are ignored.
+     * @return this context
+     */
+    public PredictContext set(int index, String value) throws PredictException {
+      if (index < 0) return this;
+      String columnName = m.getNames()[index];
+      row[index] = domainMap[index] != null ? levelIndex(index, columnName, value) : parseNumber(value.trim(), columnName);
+      return this;
+    }
+
+    /**
+     * Set all columns from a RowData, the same way the RowData-based predict methods do.
+     * @return this context
+     */
+    public PredictContext set(RowData data) throws PredictException {
+      clear();
+      if (fillRawData(data, row) != row)
+        throw new PredictException("Image and text inputs are not supported by PredictContext, use RowData");
+      return this;
+    }
+
+    /**
+     * Make a prediction on the current row using a Binomial model.
+     * @return The prediction; owned by this context and overwritten by its next binomial prediction.
+     */
+    public BinomialModelPrediction predictBinomial() throws PredictException {
+      double[] preds = score(ModelCategory.Binomial);
+      if (binomial == null) binomial = new BinomialModelPrediction();
+      return fillBinomial(preds, binomial);
+    }
+
+    /**
+     * Make a prediction on the current row using a Multinomial model.
+     * @return The prediction; owned by this context and overwritten by its next multinomial prediction.
+     */
+    public MultinomialModelPrediction predictMultinomial() throws PredictException {
+      double[] preds = score(ModelCategory.Multinomial);
+      if (multinomial == null) multinomial = new MultinomialModelPrediction();
+      return fillMultinomial(preds, multinomial);
+    }
+
+    /**
+     * Make a prediction on the current row using a Regression model.
+     * @return The prediction; owned by this context and overwritten by its next regression prediction.
+     */
+    public RegressionModelPrediction predictRegression() throws PredictException {
+      double[] preds = score(ModelCategory.Regression);
+      if (regression == null) regression = new RegressionModelPrediction();
+      regression.value = preds[0];
+      return regression;
+    }
+
+    /**
+     * Make a prediction on the current row using a Clustering model.
+     * @return The prediction; owned by this context and overwritten by its next clustering prediction.
+     */
+    public ClusteringModelPrediction predictClustering() throws PredictException {
+      double[] preds = score(ModelCategory.Clustering);
+      if (clustering == null) clustering = new ClusteringModelPrediction();
+      clustering.cluster = (int) preds[0];
+      return clustering;
+    }
+
+    private double[] score(ModelCategory c) throws PredictException {
+      validateModelCategory(c);
+      int size = m.getPredsSize(c);
+      if (preds == null || preds.length != size) preds = new double[size];
+      return m.score0(row, preds);
+    }
+  }
+
   //----------------------------------------------------------------------
   // Transparent methods passed through to GenModel.
   //----------------------------------------------------------------------
@@ -479,7 +644,7 @@ public class EasyPredictModelWrapper implements java.io.Serializable {
   }
 
   private void validateModelCategory(ModelCategory c) throws PredictException {
-    if (!m.getModelCategories().contains(c))
+    if (!modelCategories.contains(c))
       throw new PredictException(c + " prediction type is not supported for this model.");
   }
 
@@ -532,13 +697,7 @@ public class EasyPredictModelWrapper implements java.io.Serializable {
             throw new PredictException("MOJO scoring for text classification is not yet implemented.");
           }
           else {
-            // numeric
-            try {
-              value = Double.parseDouble(s);
-            } catch(NumberFormatException nfe) {
-              if (!convertInvalidNumbersToNa)
-                throw new PredictNumberFormatException("Unable to parse value: " + s + ", from column: "+ dataColumnName + ", as Double; " + nfe.getMessage());
-            }
+            value = parseNumber(s, dataColumnName);
           }
         } else if (o instanceof Double) {
           value = (Double) o;
@@ -579,24 +738,7 @@ public class EasyPredictModelWrapper implements java.io.Serializable {
         Object o = data.get(dataColumnName);
         double value;
         if (o instanceof String) {
-          String levelName = (String) o;
-          HashMap<String, Integer> columnDomainMap = domainMap.get(index);
-          Integer levelIndex = columnDomainMap.get(levelName);
-          if (levelIndex == null) {
-            levelIndex = columnDomainMap.get(dataColumnName + "." + levelName);
-          }
-          if (levelIndex == null) {
-            if (convertUnknownCategoricalLevelsToNa) {
-              value = Double.NaN;
-              unknownCategoricalLevelsSeenPerColumn.get(dataColumnName).incrementAndGet();
-            }
-            else {
-              throw new PredictUnknownCategoricalLevelException("Unknown categorical level (" + dataColumnName + "," + levelName + ")", dataColumnName, levelName);
-            }
-          }
-          else {
-            value = levelIndex;
-          }
+          value = levelIndex(index, dataColumnName, (String) o);
         } else if (o instanceof Double && Double.isNaN((double)o)) {
           value = (double)o; //Missing factor is the only Double value allowed
         } else {
@@ -609,6 +751,32 @@ public class EasyPredictModelWrapper implements java.io.Serializable {
     return rawData;
   }
 
+  private double parseNumber(String s, String dataColumnName) throws PredictException {
+    try {
+      return Double.parseDouble(s);
+    } catch(NumberFormatException nfe) {
+      if (!convertInvalidNumbersToNa)
+        throw new PredictNumberFormatException("Unable to parse value: " + s + ", from column: "+ dataColumnName + ", as Double; " + nfe.getMessage());
+      return Double.NaN;
+    }
+  }
+
+  private double levelIndex(int index, String dataColumnName, String levelName) throws PredictException {
+    HashMap<String, Integer> columnDomainMap = domainMap[index];
+    Integer levelIndex = columnDomainMap.get(levelName);
+    if (levelIndex == null) {
+      levelIndex = columnDomainMap.get(dataColumnName + "." + levelName);
+    }
+    if (levelIndex == null) {
+      if (convertUnknownCategoricalLevelsToNa) {
+        unknownCategoricalLevelsSeenPerColumn.get(dataColumnName).incrementAndGet();
+        return Double.NaN;
+      }
+      throw new PredictUnknownCategoricalLevelException("Unknown categorical level (" + dataColumnName + "," + levelName + ")", dataColumnName, levelName);
+    }
+    return levelIndex;
+  }
+
   private double[] predict(RowData data, double[] preds) throws PredictException {
     double[] rawData = new double[m.nfeatures()];
     setToNaN(rawData);
@@ -0,0 +1,98 @@
+package hex.genmodel.algos.tree;
+
+import com.google.common.io.ByteStreams;
+import hex.genmodel.ModelMojoReader;
+import hex.genmodel.MojoReaderBackend;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class FlatTreeTest {
+
+  // Typical values of the numeric columns of the test model
+  private static final double[] TYPICAL = {18.7, 1.51, 1.003, 132.53, 1.15, 0.2, 1.153, 8.3, 0.34, 0.0};
+  private static final int METHOD = 10;  // Categorical column, 5 levels
+
+  private static SharedTreeMojoModel _mojo;
+
+  @BeforeClass
+  public static void load() throws IOException {
+    _mojo = (SharedTreeMojoModel) ModelMojoReader.readFrom(new ClasspathReaderBackend("/hex/genmodel/algos/gbm/calibrated/"));
+    assertNotNull(_mojo._flat_trees);
+  }
+
+  // Random rows around the typical values, with NAs, unseen levels and out-of-range levels thrown in
+  private static double[][] rows(int n, long seed) {
+    Random r = new Random(seed);
+    double[][] rows = new double[n][_mojo.nfeatures()];
+    for (double[] row : rows) {
+      for (int c = 0; c < TYPICAL.length; c++)
+        row[c] = r.nextInt(10) == 0 ? Double.NaN : TYPICAL[c] * 2 * r.nextDouble() + (r.nextBoolean() ? 0 : r.nextGaussian());
+      int level = r.nextInt(9) - 1;  // -1 .. 7
+      row[METHOD] = level == 7 ? Double.NaN : level;
+    }
+    return rows;
+  }
+
+  @Test
+  public void testSameAsByteTrees() {
+    double[][] rows = rows(10000, 0xF1A7);
+    for (int t = 0; t < _mojo._compressed_trees.length; t++) {
+      byte[] tree = _mojo._compressed_trees[t];
+      FlatTree flat = _mojo._flat_trees[t];
+      assertTrue(flat.nodes() > 0);
+      for (double[] row : rows)
+        assertEquals(SharedTreeMojoModel.scoreTree(tree, row, _mojo.nclasses(), false, _mojo._domains), flat.score(row), 0);
+    }
+  }
+
+  @Test
+  public void testBatchScoring() {
+    double[][] rows = rows(600, 42);  // Spans a few scoring blocks
+    double[][] preds = new double[rows.length][_mojo.nclasses() + 1];
+    assertSame(preds, _mojo.score0(rows, preds));
+    for (int i = 0; i < rows.length; i++) {
+      double[] expected = _mojo.score0(rows[i], new double[_mojo.nclasses() + 1]);
+      assertArrayEquals(expected, preds[i], 0);
+    }
+  }
+
+  @Test
+  public void testSingleLeaf() {
+    byte[] tree = new byte[7];  // nodeType, colId = 65535 (leaf), float value
+    tree[1] = tree[2] = (byte) 0xFF;
+    java.nio.ByteBuffer.wrap(tree, 3, 4).order(java.nio.ByteOrder.nativeOrder()).putFloat(3.5f);
+    FlatTree flat = FlatTree.compile(tree, 1, null);
+    assertEquals(0, flat.nodes());
+    assertEquals(3.5, flat.score(new double[]{1}), 0);
+  }
+
+  private static class ClasspathReaderBackend implements MojoReaderBackend {
+    private final String _dir;
+    ClasspathReaderBackend(String dir) { _dir = dir; }
+
+    @Override
+    public BufferedReader getTextFile(String filename) throws IOException {
+      InputStream is = FlatTreeTest.class.getResourceAsStream(_dir + filename);
+      return new BufferedReader(new InputStreamReader(is));
+    }
+
+    @Override
+    public byte[] getBinaryFile(String filename) throws IOException {
+      InputStream is = FlatTreeTest.class.getResourceAsStream(_dir + filename);
+      return ByteStreams.toByteArray(is);
+    }
+
+    @Override
+    public boolean exists(String name) {
+      return FlatTreeTest.class.getResource(_dir + name) != null;
+    }
+  }
+}
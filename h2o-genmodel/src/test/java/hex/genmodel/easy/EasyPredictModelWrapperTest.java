@@ -148,6 +148,51 @@ public class EasyPredictModelWrapperTest {
     }
   }
 
+  @Test
+  public void testPredictContext() throws Exception {
+    MyModel rawModel = makeModel();
+    EasyPredictModelWrapper m = new EasyPredictModelWrapper(new EasyPredictModelWrapper.Config()
+            .setModel(rawModel)
+            .setConvertUnknownCategoricalLevelsToNa(true));
+    EasyPredictModelWrapper.PredictContext ctx = m.newPredictContext();
+    int c1 = ctx.columnIndex("C1"), c2 = ctx.columnIndex("C2");
+    Assert.assertEquals(0, c1);
+    Assert.assertEquals(1, c2);
+    Assert.assertEquals(-1, ctx.columnIndex("unknownColumn"));
+
+    RowData row = new RowData();
+    row.put("C1", "c1level2");
+    row.put("C2", "c2level3");
+    BinomialModelPrediction expected = m.predictBinomial(row);
+    BinomialModelPrediction p = ctx.clear().set(c1, "c1level2").set(c2, "c2level3").predictBinomial();
+    Assert.assertEquals(expected.labelIndex, p.labelIndex);
+    Assert.assertEquals(expected.label, p.label);
+    Assert.assertArrayEquals(expected.classProbabilities, p.classProbabilities, 0);
+    Assert.assertSame(p, ctx.set(row).predictBinomial());
+    Assert.assertSame(p, ctx.clear().set(c1, 1).set(-1, "ignored").predictBinomial());
+
+    ctx.clear().set(c2, "unknownLevel").predictBinomial();
+    Assert.assertEquals(1, m.getUnknownCategoricalLevelsSeenPerColumn().get("C2").get());
+  }
+
+  @Test
+  public void testPredictContextDoesNotAllocate() throws Exception {
+    java.lang.management.ThreadMXBean bean = java.lang.management.ManagementFactory.getThreadMXBean();
+    if (!(bean instanceof com.sun.management.ThreadMXBean)) return;  // Cannot measure on this JVM
+    com.sun.management.ThreadMXBean tbean = (com.sun.management.ThreadMXBean) bean;
+    long tid = Thread.currentThread().getId();
+
+    EasyPredictModelWrapper m = new EasyPredictModelWrapper(makeModel());
+    EasyPredictModelWrapper.PredictContext ctx = m.newPredictContext();
+    int c1 = ctx.columnIndex("C1"), c2 = ctx.columnIndex("C2");
+    ctx.predictBinomial();  // Warm up the context
+    long before = tbean.getThreadAllocatedBytes(tid);
+    for (int i = 0; i < 10000; i++)
+      ctx.clear().set(c1, i % 2 == 0 ? "c1level1" : "c1level2").set(c2, i % 3).predictBinomial();
+    long allocated = tbean.getThreadAllocatedBytes(tid) - before;
+    Assert.assertTrue("Allocated " + allocated + " bytes", allocated < 10000);
+  }
+
   @Test
   public void testSortedClassProbability() throws Exception {
     MyModel rawModel = makeModel();
@@ -36,6 +36,7 @@ import org.apache.parquet.schema.MessageType;
 import water.fvec.Vec;
 import water.parser.ParseWriter;
 import water.parser.parquet.ChunkReadSupport;
+import water.parser.parquet.ParquetSelection;
 import water.parser.parquet.VecDataInputStream;
 import water.parser.parquet.VecFileSystem;
 import water.util.Log;
@@ -58,15 +59,19 @@ public class VecParquetReader implements Closeable {
   private final Vec vec;
   private final ParquetMetadata metadata;
   private final ParseWriter writer;
-  private final byte[] chunkSchema;
+  private final ParquetSelection selection;
 
   private InternalParquetRecordReader<Integer> reader;
 
   public VecParquetReader(Vec vec, ParquetMetadata metadata, ParseWriter writer, byte[] chunkSchema) {
+    this(vec, metadata, writer, ParquetSelection.all(metadata.getFileMetaData().getSchema(), chunkSchema));
+  }
+
+  public VecParquetReader(Vec vec, ParquetMetadata metadata, ParseWriter writer, ParquetSelection selection) {
     this.vec = vec;
     this.metadata = metadata;
     this.writer = writer;
-    this.chunkSchema = chunkSchema;
+    this.selection = selection;
   }
 
   /**
@@ -93,7 +98,7 @@ public class VecParquetReader implements Closeable {
     assert reader == null;
     List<BlockMetaData> blocks = metadata.getBlocks();
     MessageType fileSchema = metadata.getFileMetaData().getSchema();
-    reader = new InternalParquetRecordReader<>(new ChunkReadSupport(writer, chunkSchema));
+    reader = new InternalParquetRecordReader<>(new ChunkReadSupport(writer, selection));
     Configuration conf = VecFileSystem.makeConfiguration(vec);
     reader.initialize(fileSchema, metadata.getFileMetaData().getKeyValueMetaData(), VecFileSystem.VEC_PATH, blocks, conf);
   }
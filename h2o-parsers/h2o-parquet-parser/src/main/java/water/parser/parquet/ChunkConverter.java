@@ -5,15 +5,18 @@ import org.apache.parquet.io.api.Binary;
 import org.apache.parquet.io.api.Converter;
 import org.apache.parquet.io.api.GroupConverter;
 import org.apache.parquet.io.api.PrimitiveConverter;
-import org.apache.parquet.schema.MessageType;
 import org.apache.parquet.schema.OriginalType;
 import org.apache.parquet.schema.PrimitiveType;
 import org.apache.parquet.schema.Type;
 import water.fvec.Vec;
 import water.parser.BufferedString;
+import water.parser.ParsePredicate;
 import water.parser.ParseWriter;
+import water.util.PrettyPrint;
 import water.util.StringUtils;
 
+import java.util.Arrays;
+
 /**
  * Implementation of Parquet's GroupConverter for H2O's chunks.
  *
@@ -23,6 +26,9 @@ import water.util.StringUtils;
  * the record that was written to the chunk.
  *
  * Note: It is meant to be used as a root converter.
+ *
+ * When the selection has predicates, the values of a record are held back until the record ends and only
+ * records satisfying all the predicates are written.
  */
 class ChunkConverter extends GroupConverter {
 
@@ -31,13 +37,13 @@ class ChunkConverter extends GroupConverter {
 
   private int _currentRecordIdx = -1;
 
-  ChunkConverter(MessageType parquetSchema, byte[] chunkSchema, ParseWriter writer) {
-    _writer = new WriterDelegate(writer, chunkSchema.length);
+  ChunkConverter(ParquetSelection selection, ParseWriter writer) {
+    _writer = selection.filtersRows() ? new FilteringWriterDelegate(writer, selection) : new WriterDelegate(writer, selection._types.length);
     int colIdx = 0;
-    _converters = new Converter[chunkSchema.length];
-    for (Type parquetField : parquetSchema.getFields()) {
+    _converters = new Converter[selection._types.length];
+    for (Type parquetField : selection._schema.getFields()) {
       assert parquetField.isPrimitive();
-      _converters[colIdx] = newConverter(colIdx, chunkSchema[colIdx], parquetField.asPrimitiveType());
+      _converters[colIdx] = newConverter(colIdx, selection._types[colIdx], parquetField.asPrimitiveType());
       colIdx++;
     }
   }
@@ -56,7 +62,7 @@ class ChunkConverter extends GroupConverter {
   @Override
   public void end() {
     _writer.endLine();
-    assert _writer.lineNum() - 1 == _currentRecordIdx;
+    assert _writer instanceof FilteringWriterDelegate || _writer.lineNum() - 1 == _currentRecordIdx;
   }
 
   int getCurrentRecordIdx() {
@@ -184,7 +190,7 @@ class ChunkConverter extends GroupConverter {
 
   private static class WriterDelegate {
 
-    private final ParseWriter _writer;
+    final ParseWriter _writer;
     private final int _numCols;
     private int _col;
 
@@ -227,4 +233,90 @@ class ChunkConverter extends GroupConverter {
 
   }
 
+  /**
+   * Holds back the values of a record (one per field read) and writes the Frame's columns of the record
+   * only if it satisfies the predicates. Missing values satisfy no predicate.
+   */
+  private static class FilteringWriterDelegate extends WriterDelegate {
+
+    private static final byte NA = 0, LONG = 1, DOUBLE = 2, STR = 3;
+
+    private final int[] _cols;
+    private final ParsePredicate[][] _predicates;
+    private final byte[] _kinds;
+    private final long[] _nums;
+    private final int[] _exps;
+    private final double[] _ds;
+    private final BufferedString[] _strs;
+
+    FilteringWriterDelegate(ParseWriter writer, ParquetSelection selection) {
+      super(writer, selection._types.length);
+      _cols = selection._cols;
+      _predicates = selection._predicates;
+      int n = _cols.length;
+      _kinds = new byte[n];
+      _nums = new long[n];
+      _exps = new int[n];
+      _ds = new double[n];
+      _strs = new BufferedString[n];
+    }
+
+    @Override
+    void startLine() {
+      Arrays.fill(_kinds, NA);
+    }
+
+    @Override
+    void endLine() {
+      for (int i = 0; i < _kinds.length; i++) {
+        if (_predicates[i] == null)
+          continue;
+        for (ParsePredicate p : _predicates[i]) {
+          boolean pass;
+          switch (_kinds[i]) {
+            case LONG:   pass = p.test(_exps[i] == 0 ? _nums[i] : _nums[i] * PrettyPrint.pow10(_exps[i])); break;
+            case DOUBLE: pass = p.test(_ds[i]); break;
+            case STR:    pass = p.test(_strs[i]); break;
+            default:     pass = false;
+          }
+          if (!pass)
+            return;
+        }
+      }
+      ParseWriter writer = _writer;
+      for (int i = 0; i < _kinds.length; i++) {
+        int col = _cols[i];
+        if (col < 0)
+          continue;
+        switch (_kinds[i]) {
+          case LONG:   writer.addNumCol(col, _nums[i], _exps[i]); break;
+          case DOUBLE: writer.addNumCol(col, _ds[i]); break;
+          case STR:    writer.addStrCol(col, _strs[i]); break;
+          default:     writer.addInvalidCol(col);
+        }
+      }
+      writer.newLine();
+    }
+
+    @Override
+    void addNumCol(int colIdx, long number, int exp) {
+      _kinds[colIdx] = LONG;
+      _nums[colIdx] = number;
+      _exps[colIdx] = exp;
+    }
+
+    @Override
+    void addNumCol(int colIdx, double d) {
+      _kinds[colIdx] = DOUBLE;
+      _ds[colIdx] = d;
+    }
+
+    @Override
+    void addStrCol(int colIdx, BufferedString str) {
+      _kinds[colIdx] = STR;
+      _strs[colIdx] = str; // the converter keeps the string until the next record
+    }
+
+  }
+
 }
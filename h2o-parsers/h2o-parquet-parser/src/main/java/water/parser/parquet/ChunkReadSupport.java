@@ -12,22 +12,23 @@ import java.util.Map;
 public class ChunkReadSupport extends ReadSupport<Integer> {
 
   private ParseWriter _writer;
-  private byte[] _chunkSchema;
+  private ParquetSelection _selection;
 
-  public ChunkReadSupport(ParseWriter writer, byte[] chunkSchema) {
+  public ChunkReadSupport(ParseWriter writer, ParquetSelection selection) {
     _writer = writer;
-    _chunkSchema = chunkSchema;
+    _selection = selection;
   }
 
   @Override
   public ReadContext init(InitContext context) {
-    return new ReadContext(context.getFileSchema());
+    // requesting only the selected fields makes Parquet skip the column chunks of all others
+    return new ReadContext(_selection._schema);
   }
 
   @Override
   public RecordMaterializer<Integer> prepareForRead(Configuration configuration, Map<String, String> keyValueMetaData,
                                                     MessageType fileSchema, ReadContext readContext) {
-    return new ChunkRecordMaterializer(fileSchema, _chunkSchema, _writer);
+    return new ChunkRecordMaterializer(_selection, _writer);
   }
 
 }
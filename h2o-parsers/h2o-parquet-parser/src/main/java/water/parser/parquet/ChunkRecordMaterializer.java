@@ -2,7 +2,6 @@ package water.parser.parquet;
 
 import org.apache.parquet.io.api.GroupConverter;
 import org.apache.parquet.io.api.RecordMaterializer;
-import org.apache.parquet.schema.MessageType;
 import water.parser.ParseWriter;
 
 /**
@@ -16,8 +15,8 @@ class ChunkRecordMaterializer extends RecordMaterializer<Integer> {
 
   private ChunkConverter _converter;
 
-  ChunkRecordMaterializer(MessageType parquetSchema, byte[] chunkSchema, ParseWriter writer) {
-    _converter = new ChunkConverter(parquetSchema, chunkSchema, writer);
+  ChunkRecordMaterializer(ParquetSelection selection, ParseWriter writer) {
+    _converter = new ChunkConverter(selection, writer);
   }
 
   @Override
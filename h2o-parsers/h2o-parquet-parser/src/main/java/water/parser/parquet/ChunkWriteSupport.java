@@ -0,0 +1,142 @@
+package water.parser.parquet;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.parquet.hadoop.api.WriteSupport;
+import org.apache.parquet.io.api.Binary;
+import org.apache.parquet.io.api.RecordConsumer;
+import org.apache.parquet.schema.MessageType;
+import org.apache.parquet.schema.OriginalType;
+import org.apache.parquet.schema.PrimitiveType;
+import org.apache.parquet.schema.Type;
+import water.fvec.Chunk;
+import water.fvec.Vec;
+import water.parser.BufferedString;
+import water.util.PrettyPrint;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Implementation of Parquet's WriteSupport for H2O's chunks.
+ *
+ * The records are rows of the current chunks (see {@link #setChunks(Chunk[])}), a record is given by its
+ * index in the chunks. Missing values are left out of the record (all fields are optional). Categorical
+ * columns are written as UTF8 strings of their levels, which Parquet dictionary encodes.
+ */
+class ChunkWriteSupport extends WriteSupport<Integer> {
+
+  // Parquet representation of a column
+  static final byte INT32 = 0, INT64 = 1, DOUBLE = 2, TIMESTAMP = 3, STRING = 4, CATEGORICAL = 5, UUID = 6;
+
+  private final MessageType _schema;
+  private final byte[] _kinds;
+  private final Binary[][] _levels;
+  private final BufferedString _bs = new BufferedString();
+
+  private RecordConsumer _consumer;
+  private Chunk[] _chks;
+
+  ChunkWriteSupport(String[] names, byte[] kinds, String[][] domains) {
+    List<Type> fields = new ArrayList<>(names.length);
+    _levels = new Binary[names.length][];
+    for (int i = 0; i < names.length; i++) {
+      fields.add(parquetType(names[i], kinds[i]));
+      if (kinds[i] == CATEGORICAL) {
+        _levels[i] = new Binary[domains[i].length];
+        for (int l = 0; l < _levels[i].length; l++) {
+          _levels[i][l] = Binary.fromString(domains[i][l]);
+        }
+      }
+    }
+    _schema = new MessageType("h2o", fields);
+    _kinds = kinds;
+  }
+
+  /**
+   * Picks the Parquet representation of a Vec, integer columns get the narrowest integer type.
+   */
+  static byte kind(Vec v) {
+    switch (v.get_type()) {
+      case Vec.T_CAT:  return CATEGORICAL;
+      case Vec.T_STR:  return STRING;
+      case Vec.T_UUID: return UUID;
+      case Vec.T_TIME: return TIMESTAMP;
+      default:
+        if (!v.isInt())
+          return DOUBLE;
+        return v.min() >= Integer.MIN_VALUE && v.max() <= Integer.MAX_VALUE ? INT32 : INT64;
+    }
+  }
+
+  private static PrimitiveType parquetType(String name, byte kind) {
+    switch (kind) {
+      case INT32:
+        return new PrimitiveType(Type.Repetition.OPTIONAL, PrimitiveType.PrimitiveTypeName.INT32, name);
+      case INT64:
+        return new PrimitiveType(Type.Repetition.OPTIONAL, PrimitiveType.PrimitiveTypeName.INT64, name);
+      case TIMESTAMP:
+        return new PrimitiveType(Type.Repetition.OPTIONAL, PrimitiveType.PrimitiveTypeName.INT64, name, OriginalType.TIMESTAMP_MILLIS);
+      case STRING:
+      case CATEGORICAL:
+      case UUID:
+        return new PrimitiveType(Type.Repetition.OPTIONAL, PrimitiveType.PrimitiveTypeName.BINARY, name, OriginalType.UTF8);
+      default:
+        return new PrimitiveType(Type.Repetition.OPTIONAL, PrimitiveType.PrimitiveTypeName.DOUBLE, name);
+    }
+  }
+
+  void setChunks(Chunk[] chks) {
+    _chks = chks;
+  }
+
+  @Override
+  public WriteContext init(Configuration configuration) {
+    return new WriteContext(_schema, Collections.<String, String>emptyMap());
+  }
+
+  @Override
+  public void prepareForWrite(RecordConsumer recordConsumer) {
+    _consumer = recordConsumer;
+  }
+
+  @Override
+  public void write(Integer record) {
+    final int row = record;
+    final RecordConsumer consumer = _consumer;
+    consumer.startMessage();
+    for (int i = 0; i < _kinds.length; i++) {
+      Chunk c = _chks[i];
+      if (c.isNA(row))
+        continue;
+      String name = _schema.getFieldName(i);
+      consumer.startField(name, i);
+      switch (_kinds[i]) {
+        case INT32:
+          consumer.addInteger((int) c.at8(row));
+          break;
+        case INT64:
+        case TIMESTAMP:
+          consumer.addLong(c.at8(row));
+          break;
+        case CATEGORICAL:
+          consumer.addBinary(_levels[i][(int) c.at8(row)]);
+          break;
+        case STRING:
+          // writers may hold on to the value (eg. in a dictionary), it cannot share the chunk's buffer
+          c.atStr(_bs, row);
+          consumer.addBinary(Binary.fromByteArray(Arrays.copyOfRange(_bs.getBuffer(), _bs.getOffset(), _bs.getOffset() + _bs.length())));
+          break;
+        case UUID:
+          consumer.addBinary(Binary.fromString(PrettyPrint.UUID(c.at16l(row), c.at16h(row))));
+          break;
+        default:
+          consumer.addDouble(c.atd(row));
+      }
+      consumer.endField(name, i);
+    }
+    consumer.endMessage();
+  }
+
+}
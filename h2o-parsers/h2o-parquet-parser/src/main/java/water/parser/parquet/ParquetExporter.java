@@ -0,0 +1,228 @@
+package water.parser.parquet;
+
+import jsr166y.CountedCompleter;
+import org.apache.parquet.column.ParquetProperties;
+import org.apache.parquet.hadoop.ParquetFileWriter;
+import org.apache.parquet.hadoop.ParquetWriter;
+import org.apache.parquet.hadoop.metadata.CompressionCodecName;
+import water.*;
+import water.exceptions.H2OIllegalArgumentException;
+import water.fvec.Chunk;
+import water.fvec.Frame;
+import water.fvec.Vec;
+import water.util.Log;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Exports Frames to Parquet files, the columnar counterpart of {@link Frame#export}.
+ *
+ * A multi-part export writes contiguous ranges of chunks to part files ("part-m-00000", ...) in parallel
+ * across the cloud, so importing the directory back gives the rows in their original order. Chunks are
+ * homed by the hash of their keys, so a range is rarely all on one node: each part is written by the node
+ * homing most of its chunks, which fetches the others. Row groups are flushed every {@link #BLOCK_SIZE}
+ * bytes.
+ */
+public class ParquetExporter {
+
+  static final int BLOCK_SIZE = ParquetWriter.DEFAULT_BLOCK_SIZE;  // 128MB, default HDFS block size
+  private static final int AUTO_PARTS_MAX = 128;  // maximum number of parts if automatic determination is enabled
+
+  public static Job export(Frame fr, String path, boolean overwrite, int nParts) {
+    return export(fr, path, overwrite, nParts, CompressionCodecName.SNAPPY);
+  }
+
+  /**
+   * @param nParts number of part files, 1 writes a single file to the path, -1 picks the number of parts
+   *               by the size of the Frame
+   */
+  public static Job export(Frame fr, String path, boolean overwrite, int nParts, CompressionCodecName codec) {
+    // Validate input
+    if (nParts == 1) {
+      boolean fileExists = H2O.getPM().exists(path);
+      if (overwrite && fileExists) {
+        Log.warn("File " + path + " exists, but will be overwritten!");
+      } else if (!overwrite && fileExists) {
+        throw new H2OIllegalArgumentException(path, "exportFrame", "File " + path + " already exists!");
+      }
+    } else {
+      if (! H2O.getPM().isEmptyDirectoryAllNodes(path)) {
+        throw new H2OIllegalArgumentException(path, "exportFrame", "Cannot use path " + path +
+                " to store part files! The target needs to be either an existing empty directory or not exist yet.");
+      }
+    }
+    Job job = new Job<>(fr._key, "water.fvec.Frame", "Export dataset to Parquet");
+    ExportDriver t = new ExportDriver(fr, path, overwrite, job, nParts, codec);
+    return job.start(t, fr.anyVec().nChunks());
+  }
+
+  static class ExportDriver extends H2O.H2OCountedCompleter<ExportDriver> {
+    final Frame _frame;
+    final String _path;
+    final boolean _overwrite;
+    final Job _j;
+    final int _nParts;
+    final CompressionCodecName _codec;
+
+    ExportDriver(Frame frame, String path, boolean overwrite, Job j, int nParts, CompressionCodecName codec) {
+      _frame = frame;
+      _path = path;
+      _overwrite = overwrite;
+      _j = j;
+      _nParts = nParts;
+      _codec = codec;
+    }
+
+    @Override
+    public void compute2() {
+      _frame.read_lock(_j._key);
+      // integer columns are narrowed by their range, computing it (the rollups) needs the whole cloud
+      byte[] kinds = new byte[_frame.numCols()];
+      for (int i = 0; i < kinds.length; i++) {
+        kinds[i] = ChunkWriteSupport.kind(_frame.vec(i));
+      }
+      int nChunks = _frame.anyVec().nChunks();
+      int nParts = _nParts < 0 ? calculateNParts() : Math.min(_nParts, nChunks);
+      if (nParts == 1 && _nParts == 1) {
+        // Single file export, the file should be created by the node that was asked to export the data
+        // (this is for non-distributed filesystems, we want the file to go to the local filesystem of the node)
+        writePart(_frame, _frame.names(), kinds, 0, nChunks, _path, _overwrite, _codec, _j._key);
+        tryComplete();
+      } else {
+        int nChunksPerPart = ((nChunks - 1) / nParts) + 1;
+        new PartExportTask(this, _frame, kinds, nChunksPerPart, _path, _overwrite, _codec, _j._key)
+                .dfork(partKeys(_frame.anyVec(), nChunksPerPart));
+      }
+    }
+
+    @Override
+    public void onCompletion(CountedCompleter caller) {
+      _frame.unlock(_j);
+    }
+
+    @Override
+    public boolean onExceptionalCompletion(Throwable t, CountedCompleter caller) {
+      _frame.unlock(_j);
+      return super.onExceptionalCompletion(t, caller);
+    }
+
+    // One key per part, homed on the node which holds most of the part's chunks
+    static Key[] partKeys(Vec vec, int nChunksPerPart) {
+      int nChunks = vec.nChunks();
+      Key[] keys = new Key[(nChunks - 1) / nChunksPerPart + 1];
+      int[] homed = new int[H2O.CLOUD.size()];
+      for (int p = 0; p < keys.length; p++) {
+        Arrays.fill(homed, 0);
+        int writer = vec.chunkKey(p * nChunksPerPart).home_node().index();  // On ties, the first chunk's node
+        for (int cidx = p * nChunksPerPart; cidx < Math.min((p + 1) * nChunksPerPart, nChunks); cidx++) {
+          int node = vec.chunkKey(cidx).home_node().index();
+          if (++homed[node] > homed[writer]) writer = node;
+        }
+        keys[p] = Key.make(Key.rand(), (byte) 1, Key.HIDDEN_USER_KEY, true, H2O.CLOUD._memary[writer]);
+      }
+      return keys;
+    }
+
+    private int calculateNParts() {
+      // compressed chunks are about as big as their Parquet encoding, aim for a part per HDFS block
+      int nParts = Math.max((int) (_frame.byteSize() / BLOCK_SIZE), H2O.CLOUD.size());
+      nParts = Math.min(Math.min(nParts, AUTO_PARTS_MAX), _frame.anyVec().nChunks());
+      Log.info("For Frame of size " + _frame.byteSize() + "B determined number of Parquet parts: " + nParts);
+      return nParts;
+    }
+  }
+
+  // Writes each part on the node homing its key
+  static class PartExportTask extends MRTask<PartExportTask> {
+    final Frame _frame;
+    final String[] _names;
+    final byte[] _kinds;
+    final int _length;
+    final String _path;
+    final boolean _overwrite;
+    final CompressionCodecName _codec;
+    final Key<Job> _jobKey;
+
+    PartExportTask(H2O.H2OCountedCompleter<?> completer, Frame frame, byte[] kinds, int length,
+                   String path, boolean overwrite, CompressionCodecName codec, Key<Job> jobKey) {
+      super(completer);
+      _frame = frame;
+      _names = frame.names();
+      _kinds = kinds;
+      _length = length;
+      _path = path;
+      _overwrite = overwrite;
+      _codec = codec;
+      _jobKey = jobKey;
+    }
+
+    @Override
+    public void map(Key partKey) {
+      int partIdx = _lo;
+      int cidx = partIdx * _length;
+      String partPath = _path + "/part-m-" + String.valueOf(100000 + partIdx).substring(1);
+      writePart(_frame, _names, _kinds, cidx, Math.min(cidx + _length, _frame.anyVec().nChunks()), partPath, _overwrite, _codec, _jobKey);
+    }
+
+    @Override
+    protected void setupLocal() {
+      boolean created = H2O.getPM().mkdirs(_path);
+      if (! created) Log.warn("Path ", _path, " was not created.");
+    }
+  }
+
+  /**
+   * Writes the rows of chunks [fromChunk, toChunk) to a single Parquet file. A file which could not be
+   * written completely, including its footer, is deleted and the failure is rethrown.
+   */
+  static void writePart(Frame fr, String[] names, byte[] kinds, int fromChunk, int toChunk,
+                        String path, boolean overwrite, CompressionCodecName codec, Key<Job> jobKey) {
+    Vec[] vecs = fr.vecs();
+    String[][] domains = new String[vecs.length][];
+    for (int i = 0; i < vecs.length; i++) {
+      domains[i] = vecs[i].domain();
+    }
+    ChunkWriteSupport writeSupport = new ChunkWriteSupport(names, kinds, domains);
+    ParquetWriter<Integer> writer = null;
+    boolean closing = false, written = false;
+    long rows = 0;
+    try {
+      writer = new ParquetWriter<>(PersistFileSystem.PM_PATH, ParquetFileWriter.Mode.CREATE, writeSupport, codec,
+              BLOCK_SIZE, ParquetWriter.DEFAULT_PAGE_SIZE, ParquetWriter.DEFAULT_PAGE_SIZE, true /* dictionary */, false,
+              ParquetProperties.WriterVersion.PARQUET_1_0, PersistFileSystem.makeConfiguration(path, overwrite));
+      Chunk[] chks = new Chunk[vecs.length];
+      for (int cidx = fromChunk; cidx < toChunk; cidx++) {
+        if (jobKey.get().stop_requested()) throw new Job.JobCancelledException();
+        for (int i = 0; i < vecs.length; i++) {
+          chks[i] = vecs[i].chunkForChunkIdx(cidx);
+        }
+        writeSupport.setChunks(chks);
+        int len = chks.length == 0 ? 0 : chks[0]._len;
+        for (int row = 0; row < len; row++) {
+          writer.write(row);
+        }
+        rows += len;
+        Job.update(1, jobKey);
+      }
+      closing = true;
+      writer.close(); // writes the footer
+      written = true;
+    } catch (IOException e) {
+      throw new RuntimeException(e);
+    } finally {
+      if (writer != null && !written) {
+        if (!closing) {
+          try {
+            writer.close(); // release the output stream
+          } catch (Exception e) {
+            Log.err(e);
+          }
+        }
+        if (!H2O.getPM().delete(path)) Log.warn("Partial Parquet file " + path + " could not be deleted.");
+      }
+    }
+    Log.info("Written " + rows + " rows to Parquet file " + path + ".");
+  }
+
+}
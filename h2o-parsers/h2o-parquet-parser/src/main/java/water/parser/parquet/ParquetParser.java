@@ -16,10 +16,13 @@ import water.fvec.ByteVec;
 import water.fvec.Chunk;
 import water.fvec.Vec;
 import water.parser.*;
+import water.util.ArrayUtils;
 import water.util.Log;
 
 import java.io.IOException;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.List;
 
 /**
  * Parquet parser for H2O distributed parsing subsystem.
@@ -51,8 +54,18 @@ public class ParquetParser extends Parser {
       Log.trace("Chunk #", cidx, " doesn't contain any Parquet block center.");
       return dout;
     }
-    Log.info("Processing ", metadata.getBlocks().size(), " blocks of chunk #", cidx);
-    VecParquetReader reader = new VecParquetReader(vec, metadata, dout, _setup.getColumnTypes());
+    ParquetSelection selection = ParquetSelection.of(metadata.getFileMetaData().getSchema(), (ParquetParseSetup) _setup);
+    // skip the row groups whose statistics show no row can satisfy the predicates
+    List<BlockMetaData> blocks = selection.prune(metadata.getBlocks());
+    if (blocks.isEmpty()) {
+      Log.trace("All ", metadata.getBlocks().size(), " blocks of chunk #", cidx, " pruned by predicates.");
+      return dout;
+    }
+    Log.info("Processing ", blocks.size(), " blocks of chunk #", cidx,
+            blocks.size() < metadata.getBlocks().size() ? " (" + (metadata.getBlocks().size() - blocks.size()) + " pruned)" : "");
+    if (blocks.size() < metadata.getBlocks().size())
+      metadata = new ParquetMetadata(metadata.getFileMetaData(), blocks);
+    VecParquetReader reader = new VecParquetReader(vec, metadata, dout, selection);
     try {
       Integer recordNumber;
       do {
@@ -130,6 +143,30 @@ public class ParquetParser extends Parser {
               new String[columnNames.length][] /* domains */, null /* NA strings */, data);
       this.parquetMetadata = parquetMetadata;
     }
+
+    /**
+     * Narrows the column setup down to the projected columns, kept in the order of the file schema.
+     * The projection is cleared once applied, the parser then reads the fields named like the columns.
+     */
+    ParquetParseSetup project() {
+      String[] projection = getColumnProjection();
+      if (projection == null)
+        return this;
+      String[] names = getColumnNames();
+      int[] cols = new int[projection.length];
+      for (int i = 0; i < cols.length; i++) {
+        cols[i] = names == null ? -1 : ArrayUtils.find(names, projection[i]);
+        if (cols[i] < 0)
+          throw new IllegalArgumentException("Column '" + projection[i] + "' is not in the Parquet file");
+      }
+      Arrays.sort(cols);
+      for (int i = 1; i < cols.length; i++)
+        if (cols[i] == cols[i - 1])
+          throw new IllegalArgumentException("Column '" + names[cols[i]] + "' appears twice in the projection");
+      selectColumns(cols);
+      setColumnProjection((String[]) null);
+      return this;
+    }
   }
 
   private static void checkCompatibility(ParquetMetadata metadata) {
@@ -160,25 +197,26 @@ public class ParquetParser extends Parser {
   private static byte[] roughGuessTypes(MessageType messageType) {
     byte[] types = new byte[messageType.getPaths().size()];
     for (int i = 0; i < types.length; i++) {
-      Type parquetType = messageType.getType(i);
-      assert parquetType.isPrimitive();
-      switch (parquetType.asPrimitiveType().getPrimitiveTypeName()) {
-        case INT32:
-        case BOOLEAN:
-        case FLOAT:
-        case DOUBLE:
-          types[i] = Vec.T_NUM;
-          break;
-        case INT64:
-          types[i] = OriginalType.TIMESTAMP_MILLIS.equals(parquetType.getOriginalType()) ? Vec.T_TIME : Vec.T_NUM;
-          break;
-        default:
-          types[i] = Vec.T_BAD;
-      }
+      types[i] = roughGuessType(messageType.getType(i));
     }
     return types;
   }
 
+  static byte roughGuessType(Type parquetType) {
+    assert parquetType.isPrimitive();
+    switch (parquetType.asPrimitiveType().getPrimitiveTypeName()) {
+      case INT32:
+      case BOOLEAN:
+      case FLOAT:
+      case DOUBLE:
+        return Vec.T_NUM;
+      case INT64:
+        return OriginalType.TIMESTAMP_MILLIS.equals(parquetType.getOriginalType()) ? Vec.T_TIME : Vec.T_NUM;
+      default:
+        return Vec.T_BAD;
+    }
+  }
+
   private static String[] columnNames(MessageType messageType) {
     String[] colNames = new String[messageType.getPaths().size()];
     int i = 0;
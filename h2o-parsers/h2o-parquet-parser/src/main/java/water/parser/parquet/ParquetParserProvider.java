@@ -44,9 +44,10 @@ public class ParquetParserProvider extends ParserProvider {
 
   @Override
   public ParseSetup createParserSetup(Key[] inputs, ParseSetup requestedSetup) {
-    // pass through for now (just convert to an instance of ParquetParseSetup if needed)
-    return requestedSetup instanceof ParquetParser.ParquetParseSetup ?
-            requestedSetup : requestedSetup.copyTo(new ParquetParser.ParquetParseSetup());
+    // convert to an instance of ParquetParseSetup if needed, narrow a copy down to the projected columns
+    if (requestedSetup instanceof ParquetParser.ParquetParseSetup && requestedSetup.getColumnProjection() == null)
+      return requestedSetup;
+    return requestedSetup.copyTo(new ParquetParser.ParquetParseSetup()).project();
   }
 
   @Override
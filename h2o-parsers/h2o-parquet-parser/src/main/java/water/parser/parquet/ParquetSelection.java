@@ -0,0 +1,176 @@
+package water.parser.parquet;
+
+import org.apache.parquet.column.statistics.BooleanStatistics;
+import org.apache.parquet.column.statistics.DoubleStatistics;
+import org.apache.parquet.column.statistics.FloatStatistics;
+import org.apache.parquet.column.statistics.IntStatistics;
+import org.apache.parquet.column.statistics.LongStatistics;
+import org.apache.parquet.column.statistics.Statistics;
+import org.apache.parquet.hadoop.metadata.BlockMetaData;
+import org.apache.parquet.hadoop.metadata.ColumnChunkMetaData;
+import org.apache.parquet.schema.MessageType;
+import org.apache.parquet.schema.Type;
+import water.parser.ParsePredicate;
+import water.parser.ParseSetup;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * What a chunk parse reads from a Parquet file: the fields imported as the Frame's columns plus the fields
+ * only needed to evaluate the predicates, in the order of the file schema.
+ *
+ * Only the column chunks of the selected fields are read. Row groups are skipped altogether when their
+ * statistics show that no row can satisfy the predicates; the rows of the remaining row groups are
+ * filtered one by one in {@link ChunkConverter}.
+ *
+ * Only min/max statistics of numeric fields are used for pruning. Statistics of binary fields written
+ * by older Parquet versions are not reliable (PARQUET-251), such row groups are always read.
+ */
+public final class ParquetSelection {
+
+  final MessageType _schema;               // schema of the fields read
+  final byte[] _types;                     // Vec type each field read is converted as
+  final int[] _cols;                       // Frame column of each field read, -1 if it is only read for the predicates
+  final ParsePredicate[][] _predicates;    // predicates on each field read, null if none
+  private final int[] _fileFields;         // field of the file schema of each field read
+  private final boolean _filtersRows;
+
+  private ParquetSelection(MessageType fileSchema, int[] fileFields, byte[] types, int[] cols,
+                           ParsePredicate[][] predicates) {
+    List<Type> fields = new ArrayList<>(fileFields.length);
+    for (int f : fileFields) {
+      fields.add(fileSchema.getType(f));
+    }
+    _schema = new MessageType(fileSchema.getName(), fields);
+    _fileFields = fileFields;
+    _types = types;
+    _cols = cols;
+    _predicates = predicates;
+    boolean filtersRows = false;
+    for (ParsePredicate[] p : predicates) {
+      filtersRows |= p != null;
+    }
+    _filtersRows = filtersRows;
+  }
+
+  /**
+   * All fields of the file, with the given Vec types.
+   */
+  public static ParquetSelection all(MessageType fileSchema, byte[] chunkSchema) {
+    int[] fields = new int[chunkSchema.length];
+    for (int i = 0; i < fields.length; i++) {
+      fields[i] = i;
+    }
+    return new ParquetSelection(fileSchema, fields, chunkSchema, fields.clone(), new ParsePredicate[fields.length][]);
+  }
+
+  /**
+   * The fields named like the columns of the setup, plus the fields tested by its predicates.
+   */
+  public static ParquetSelection of(MessageType fileSchema, ParseSetup setup) {
+    ParsePredicate[] predicates = setup.getPredicates();
+    String[] names = setup.getColumnNames();
+    if (names == null || (predicates == null && names.length == fileSchema.getFieldCount()))
+      return all(fileSchema, setup.getColumnTypes());
+    int n = fileSchema.getFieldCount();
+    int[] cols = new int[n];
+    Arrays.fill(cols, -1);
+    for (int c = 0; c < names.length; c++) {
+      cols[field(fileSchema, names[c])] = c;
+    }
+    ParsePredicate[][] fieldPredicates = new ParsePredicate[n][];
+    if (predicates != null) {
+      for (ParsePredicate p : predicates) {
+        int f = field(fileSchema, p.column());
+        ParsePredicate[] ps = fieldPredicates[f];
+        ps = ps == null ? new ParsePredicate[1] : Arrays.copyOf(ps, ps.length + 1);
+        ps[ps.length - 1] = p;
+        fieldPredicates[f] = ps;
+      }
+    }
+    int count = 0;
+    for (int f = 0; f < n; f++) {
+      if (cols[f] >= 0 || fieldPredicates[f] != null) count++;
+    }
+    int[] fields = new int[count];
+    byte[] types = new byte[count];
+    int[] selCols = new int[count];
+    ParsePredicate[][] selPredicates = new ParsePredicate[count][];
+    for (int f = 0, i = 0; f < n; f++) {
+      if (cols[f] < 0 && fieldPredicates[f] == null)
+        continue;
+      fields[i] = f;
+      types[i] = cols[f] >= 0 ? setup.getColumnTypes()[cols[f]] : ParquetParser.roughGuessType(fileSchema.getType(f));
+      selCols[i] = cols[f];
+      selPredicates[i] = fieldPredicates[f];
+      i++;
+    }
+    return new ParquetSelection(fileSchema, fields, types, selCols, selPredicates);
+  }
+
+  private static int field(MessageType fileSchema, String name) {
+    if (!fileSchema.containsField(name))
+      throw new IllegalArgumentException("Column '" + name + "' is not in the Parquet file");
+    return fileSchema.getFieldIndex(name);
+  }
+
+  /**
+   * @return true if rows need to be tested against the predicates
+   */
+  boolean filtersRows() {
+    return _filtersRows;
+  }
+
+  /**
+   * @return the row groups which can hold rows satisfying the predicates
+   */
+  public List<BlockMetaData> prune(List<BlockMetaData> blocks) {
+    if (!_filtersRows)
+      return blocks;
+    List<BlockMetaData> kept = new ArrayList<>(blocks.size());
+    for (BlockMetaData block : blocks) {
+      if (canMatch(block)) kept.add(block);
+    }
+    return kept;
+  }
+
+  private boolean canMatch(BlockMetaData block) {
+    for (int i = 0; i < _predicates.length; i++) {
+      if (_predicates[i] == null)
+        continue;
+      ColumnChunkMetaData column = block.getColumns().get(_fileFields[i]);
+      Statistics stats = column.getStatistics();
+      double min = Double.NaN, max = Double.NaN;
+      long nulls = -1;
+      if (stats != null) {
+        nulls = stats.getNumNulls();
+        if (!stats.isEmpty()) {
+          if (stats instanceof IntStatistics) {
+            min = ((IntStatistics) stats).getMin();
+            max = ((IntStatistics) stats).getMax();
+          } else if (stats instanceof LongStatistics) {
+            min = ((LongStatistics) stats).getMin();
+            max = ((LongStatistics) stats).getMax();
+          } else if (stats instanceof FloatStatistics) {
+            min = ((FloatStatistics) stats).getMin();
+            max = ((FloatStatistics) stats).getMax();
+          } else if (stats instanceof DoubleStatistics) {
+            min = ((DoubleStatistics) stats).getMin();
+            max = ((DoubleStatistics) stats).getMax();
+          } else if (stats instanceof BooleanStatistics) {
+            min = ((BooleanStatistics) stats).getMin() ? 1 : 0;
+            max = ((BooleanStatistics) stats).getMax() ? 1 : 0;
+          }
+        }
+      }
+      for (ParsePredicate p : _predicates[i]) {
+        if (!p.canMatch(min, max, nulls, column.getValueCount()))
+          return false;
+      }
+    }
+    return true;
+  }
+
+}
@@ -0,0 +1,105 @@
+package water.parser.parquet;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.*;
+import org.apache.hadoop.fs.permission.FsPermission;
+import org.apache.hadoop.util.Progressable;
+import water.H2O;
+
+import java.io.IOException;
+import java.net.URI;
+
+/**
+ * Virtual implementation of a Hadoop FileSystem writing through H2O's PersistManager.
+ * Instances of this class provide write-only access to a single file, the path of the file is injected
+ * using the Configuration (see {@link #makeConfiguration(String, boolean)}). This way Parquet writers
+ * can create files on any storage H2O can write to without going through Hadoop's own FileSystems.
+ */
+public class PersistFileSystem extends FileSystem {
+
+  private static final String PATH_PROP = "fs.h2opm.path";
+  private static final String OVERWRITE_PROP = "fs.h2opm.overwrite";
+
+  public static Path PM_PATH = new Path("h2opm:/file");
+
+  private String _path;
+  private boolean _overwrite;
+
+  @Override
+  public void initialize(URI name, Configuration conf) throws IOException {
+    _path = conf.get(PATH_PROP);
+    if (_path == null) {
+      throw new IllegalArgumentException("Configuration needs a target path (set property '" + PATH_PROP + "').");
+    }
+    _overwrite = conf.getBoolean(OVERWRITE_PROP, false);
+    super.initialize(name, conf);
+  }
+
+  @Override
+  public URI getUri() {
+    return URI.create("h2opm:/");
+  }
+
+  @Override
+  public FSDataInputStream open(Path f, int bufferSize) throws IOException {
+    throw new UnsupportedOperationException("This is a write-only virtual file system, 'open' not supported!");
+  }
+
+  @Override
+  public FSDataOutputStream create(Path f, FsPermission permission, boolean overwrite, int bufferSize, short replication, long blockSize, Progressable progress) throws IOException {
+    if (! f.equals(PM_PATH)) {
+      throw new IllegalArgumentException("Invalid path specified, expected " + PM_PATH);
+    }
+    return new FSDataOutputStream(H2O.getPM().create(_path, _overwrite), null);
+  }
+
+  @Override
+  public FSDataOutputStream append(Path f, int bufferSize, Progressable progress) throws IOException {
+    throw new UnsupportedOperationException("This is a write-only virtual file system, 'append' not supported!");
+  }
+
+  @Override
+  public boolean rename(Path src, Path dst) throws IOException {
+    throw new UnsupportedOperationException("This is a write-only virtual file system, 'rename' not supported!");
+  }
+
+  @Override
+  public boolean delete(Path f, boolean recursive) throws IOException {
+    throw new UnsupportedOperationException("This is a write-only virtual file system, 'delete' not supported!");
+  }
+
+  @Override
+  public FileStatus[] listStatus(Path f) throws IOException {
+    return new FileStatus[0];
+  }
+
+  @Override
+  public boolean mkdirs(Path f, FsPermission permission) throws IOException {
+    throw new UnsupportedOperationException("This is a write-only virtual file system, 'mkdirs' not supported!");
+  }
+
+  @Override
+  public void setWorkingDirectory(Path newDir) {
+
+  }
+
+  @Override
+  public Path getWorkingDirectory() {
+    return null;
+  }
+
+  @Override
+  public FileStatus getFileStatus(Path f) throws IOException {
+    return null;
+  }
+
+  public static Configuration makeConfiguration(String path, boolean overwrite) {
+    Configuration conf = new Configuration(false);
+    conf.setBoolean("fs.h2opm.impl.disable.cache", true);
+    conf.setClass("fs.h2opm.impl", PersistFileSystem.class, FileSystem.class);
+    conf.set(PATH_PROP, path);
+    conf.setBoolean(OVERWRITE_PROP, overwrite);
+    return conf;
+  }
+
+}
@@ -0,0 +1,136 @@
+package water.parser.parquet;
+
+import com.google.common.io.Files;
+import org.apache.parquet.hadoop.metadata.CompressionCodecName;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import water.DKV;
+import water.Job;
+import water.Key;
+import water.TestUtil;
+import water.fvec.Frame;
+import water.fvec.TestFrameBuilder;
+import water.fvec.Vec;
+import water.parser.BufferedString;
+
+import java.io.File;
+
+import static org.junit.Assert.*;
+
+public class ParquetExporterTest extends TestUtil {
+
+  @BeforeClass
+  static public void setup() { TestUtil.stall_till_cloudsize(5); }
+
+  private static Frame frame(int nrows) {
+    long[] ints = new long[nrows];
+    double[] doubles = new double[nrows];
+    String[] cats = new String[nrows];
+    String[] strs = new String[nrows];
+    long[] times = new long[nrows];
+    for (int i = 0; i < nrows; i++) {
+      ints[i] = i - 100;
+      doubles[i] = i % 7 == 0 ? Double.NaN : i / 3.0;
+      cats[i] = i % 11 == 0 ? null : "level_" + (i % 5);
+      strs[i] = i % 13 == 0 ? null : "string " + i;
+      times[i] = 1480000000000L + i * 60000L;
+    }
+    return new TestFrameBuilder()
+            .withName("parquetExport")
+            .withColNames("int", "double", "cat", "str", "time")
+            .withVecTypes(Vec.T_NUM, Vec.T_NUM, Vec.T_CAT, Vec.T_STR, Vec.T_TIME)
+            .withDataForCol(0, ints)
+            .withDataForCol(1, doubles)
+            .withDataForCol(2, cats)
+            .withDataForCol(3, strs)
+            .withDataForCol(4, times)
+            .withChunkLayout(nrows / 4, nrows / 4, nrows / 4, nrows - 3 * (nrows / 4))
+            .build();
+  }
+
+  private static String str(Vec v, long row) {
+    if (v.isNA(row)) return null;
+    return v.isCategorical() ? v.factor(v.at8(row)) : v.atStr(new BufferedString(), row).toString();
+  }
+
+  private static void assertRoundTrip(Frame expected, Frame actual) {
+    assertArrayEquals(expected.names(), actual.names());
+    assertEquals(expected.numRows(), actual.numRows());
+    assertEquals(Vec.T_TIME, actual.vec("time").get_type());
+    for (long row = 0; row < expected.numRows(); row++) {
+      assertEquals(expected.vec(0).at8(row), actual.vec(0).at8(row));
+      assertEquals(expected.vec(1).at(row), actual.vec(1).at(row), 1e-12); // The parse writer rescales doubles by 10s
+      assertEquals(str(expected.vec(2), row), str(actual.vec(2), row));
+      assertEquals(str(expected.vec(3), row), str(actual.vec(3), row));
+      assertEquals(expected.vec(4).at8(row), actual.vec(4).at8(row));
+    }
+  }
+
+  @Test
+  public void testExportParts() {
+    Frame fr = frame(1000), single = null, parts = null;
+    try {
+      File dir = Files.createTempDir();
+      File file = new File(dir, "single.parquet");
+      ParquetExporter.export(fr, file.getPath(), false, 1).get();
+      single = parse_test_file(Key.make(), file.getPath());
+      assertRoundTrip(fr, single);
+
+      File partsDir = new File(dir, "parts");
+      ParquetExporter.export(fr, partsDir.getPath(), false, 3).get();
+      assertEquals(2, partsDir.list().length); // 4 chunks, 2 per part
+      parts = parse_test_folder(partsDir.getPath());
+      assertRoundTrip(fr, parts);
+    } finally {
+      fr.delete();
+      if (single != null) single.delete();
+      if (parts != null) parts.delete();
+    }
+  }
+
+  @Test
+  public void testPartsWrittenByChunkHomes() {
+    Frame fr = frame(1000);
+    try {
+      Vec vec = fr.anyVec();
+      Key[] keys = ParquetExporter.ExportDriver.partKeys(vec, 1);
+      assertEquals(vec.nChunks(), keys.length);
+      for (int i = 0; i < keys.length; i++) {
+        assertEquals(vec.chunkKey(i).home_node(), keys[i].home_node());
+      }
+      // 2 chunks per part: ties go to the first chunk's node
+      keys = ParquetExporter.ExportDriver.partKeys(vec, 2);
+      assertEquals(2, keys.length);
+      assertEquals(vec.chunkKey(0).home_node(), keys[0].home_node());
+      assertEquals(vec.chunkKey(2).home_node(), keys[1].home_node());
+    } finally {
+      fr.delete();
+    }
+  }
+
+  @Test
+  public void testCancelledPartDeleted() {
+    Frame fr = frame(1000);
+    Job job = new Job<>(fr._key, "water.fvec.Frame", "Export dataset to Parquet");
+    try {
+      DKV.put(job);
+      job.stop();
+      byte[] kinds = new byte[fr.numCols()];
+      for (int i = 0; i < kinds.length; i++) {
+        kinds[i] = ChunkWriteSupport.kind(fr.vec(i));
+      }
+      File file = new File(Files.createTempDir(), "cancelled.parquet");
+      try {
+        ParquetExporter.writePart(fr, fr.names(), kinds, 0, fr.anyVec().nChunks(), file.getPath(), false,
+                CompressionCodecName.SNAPPY, job._key);
+        fail("Should have been cancelled");
+      } catch (Job.JobCancelledException e) {
+        assertFalse(file.exists());
+      }
+    } finally {
+      DKV.remove(job._key);
+      fr.delete();
+    }
+  }
+
+}
@@ -28,11 +28,16 @@ import static org.apache.parquet.hadoop.metadata.CompressionCodecName.UNCOMPRESS
 import static org.apache.parquet.schema.MessageTypeParser.parseMessageType;
 import static org.junit.Assert.*;
 
+import water.Key;
 import water.TestUtil;
 import water.fvec.Frame;
+import water.fvec.NFSFileVec;
 import water.fvec.RollupStatsHelpers;
 import water.fvec.Vec;
 import water.parser.BufferedString;
+import water.parser.ParseDataset;
+import water.parser.ParsePredicate;
+import water.parser.ParseSetup;
 
 /**
  * Test suite for Parquet parser.
@@ -148,6 +153,44 @@ public class ParseTestParquet extends TestUtil {
     assertFrameAssertion(assertion);
   }
 
+  @Test
+  public void testParseProjectionAndPredicates() throws IOException {
+    final int nrows = 10000;
+    final Date date = new Date();
+    File f = ParquetFileGenerator.generateParquetFile(Files.createTempDir(), "projection.parquet", nrows, date);
+    Frame fr = null, sparse = null;
+    try {
+      NFSFileVec nfs = NFSFileVec.make(f);
+      ParseSetup ps = ParseSetup.guessSetup(new Key[]{nfs._key}, false, ParseSetup.HAS_HEADER);
+      // int64_field is only read for the predicate, the projection comes out in file order
+      ps.setColumnProjection("timestamp_field", "int32_field");
+      ps.setPredicates(ParsePredicate.range("int32_field", 1000, 2999), ParsePredicate.range("int64_field", 64, 2563));
+      fr = ParseDataset.parse(Key.make(), new Key[]{nfs._key}, true, ps);
+      assertArrayEquals(ar("int32_field", "timestamp_field"), fr.names());
+      assertArrayEquals(ar(Vec.T_NUM, Vec.T_TIME), fr.types());
+      assertEquals(2500 - 968, fr.numRows());
+      for (int row = 0; row < fr.numRows(); row++) {
+        assertEquals(1000 + row, fr.vec(0).at8(row));
+        assertEquals(date.getTime() + (1000 - 32 + row) * 117, fr.vec(1).at8(row));
+      }
+
+      // NAs satisfy no predicate
+      File sf = ParquetFileGenerator.generateSparseParquetFile(Files.createTempDir(), "sparse.parquet", nrows);
+      nfs = NFSFileVec.make(sf);
+      ps = ParseSetup.guessSetup(new Key[]{nfs._key}, false, ParseSetup.HAS_HEADER);
+      ps.setColumnProjection("row");
+      ps.setPredicates(ParsePredicate.notNull("int32_field"), ParsePredicate.eq("string_field", "CAT_0"));
+      sparse = ParseDataset.parse(Key.make(), new Key[]{nfs._key}, true, ps);
+      assertArrayEquals(ar("row"), sparse.names());
+      assertEquals(nrows / 10, sparse.numRows());
+      for (int row = 0; row < sparse.numRows(); row++)
+        assertEquals(row * 10, sparse.vec(0).at8(row));
+    } finally {
+      if (fr != null) fr.delete();
+      if (sparse != null) sparse.delete();
+    }
+  }
+
 }
 
 class ParquetFileGenerator {